@@ -0,0 +1,231 @@
+package org.nervos.appchain.abi;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import org.nervos.appchain.abi.datatypes.Address;
+import org.nervos.appchain.abi.datatypes.Array;
+import org.nervos.appchain.abi.datatypes.Bool;
+import org.nervos.appchain.abi.datatypes.Bytes;
+import org.nervos.appchain.abi.datatypes.DynamicArray;
+import org.nervos.appchain.abi.datatypes.DynamicBytes;
+import org.nervos.appchain.abi.datatypes.Function;
+import org.nervos.appchain.abi.datatypes.NumericType;
+import org.nervos.appchain.abi.datatypes.StaticArray;
+import org.nervos.appchain.abi.datatypes.Type;
+import org.nervos.appchain.abi.datatypes.Ufixed;
+import org.nervos.appchain.abi.datatypes.Uint;
+import org.nervos.appchain.abi.datatypes.Utf8String;
+import org.nervos.appchain.utils.Numeric;
+
+import static org.nervos.appchain.abi.datatypes.Type.MAX_BIT_LENGTH;
+import static org.nervos.appchain.abi.datatypes.Type.MAX_BYTE_LENGTH;
+
+/**
+ * ABI encoder which writes straight into reusable byte buffers.
+ *
+ * <p>The output is the same as that of {@link FunctionEncoder} and {@link TypeEncoder}, but no
+ * intermediate hex strings are built: values are written as bytes and converted to hex at
+ * most once, by {@link #toHexString(boolean)}. An encoder can be {@link #reset()} and reused
+ * for any number of calls. It is not thread safe.
+ */
+public final class AbiEncoder {
+
+    private static final int INITIAL_CAPACITY = 256;
+    // buffers which grew larger than this are released on reset
+    private static final int RETAINED_CAPACITY = 64 * 1024;
+
+    private byte[] head = new byte[INITIAL_CAPACITY];
+    private int headSize;
+    private byte[] tail = new byte[INITIAL_CAPACITY];
+    private int tailSize;
+
+    /**
+     * Append the method id and the encoded parameters of a function call.
+     */
+    public AbiEncoder encodeFunction(Function function) {
+        List<Type> parameters = function.getInputParameters();
+        byte[] methodId = FunctionEncoder.methodId(function.getName(), parameters);
+        ensureHead(methodId.length);
+        System.arraycopy(methodId, 0, head, headSize, methodId.length);
+        headSize += methodId.length;
+        return encodeParameters(parameters);
+    }
+
+    /**
+     * Append encoded parameters, e.g. those of a contract constructor.
+     */
+    public AbiEncoder encodeParameters(List<Type> parameters) {
+        int dynamicDataOffset = 0;
+        for (Type parameter : parameters) {
+            if (parameter instanceof StaticArray) {
+                dynamicDataOffset += ((StaticArray) parameter).getValue().size();
+            } else {
+                dynamicDataOffset++;
+            }
+        }
+        dynamicDataOffset *= MAX_BYTE_LENGTH;
+
+        tailSize = 0;
+        for (Type parameter : parameters) {
+            if (TypeEncoder.isDynamic(parameter)) {
+                writeLong(dynamicDataOffset);
+                // encode into the tail by swapping it in for the head
+                swap();
+                int start = headSize;
+                write(parameter);
+                dynamicDataOffset += headSize - start;
+                swap();
+            } else {
+                write(parameter);
+            }
+        }
+
+        ensureHead(tailSize);
+        System.arraycopy(tail, 0, head, headSize, tailSize);
+        headSize += tailSize;
+        tailSize = 0;
+        return this;
+    }
+
+    public int size() {
+        return headSize;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(head, headSize);
+    }
+
+    public String toHexString(boolean withPrefix) {
+        return Numeric.toHexString(head, 0, headSize, withPrefix);
+    }
+
+    /**
+     * Copy the encoded bytes into {@code buffer}, at its position.
+     */
+    public void writeTo(ByteBuffer buffer) {
+        buffer.put(head, 0, headSize);
+    }
+
+    /**
+     * Discard the encoded bytes, so that the encoder can be reused.
+     */
+    public AbiEncoder reset() {
+        headSize = 0;
+        tailSize = 0;
+        if (head.length > RETAINED_CAPACITY) {
+            head = new byte[INITIAL_CAPACITY];
+        }
+        if (tail.length > RETAINED_CAPACITY) {
+            tail = new byte[INITIAL_CAPACITY];
+        }
+        return this;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void write(Type parameter) {
+        if (parameter instanceof NumericType) {
+            writeNumeric((NumericType) parameter);
+        } else if (parameter instanceof Address) {
+            writeNumeric(((Address) parameter).toUint160());
+        } else if (parameter instanceof Bool) {
+            writeLong(((Bool) parameter).getValue() ? 1 : 0);
+        } else if (parameter instanceof Bytes) {
+            writePadded(((Bytes) parameter).getValue());
+        } else if (parameter instanceof DynamicBytes) {
+            writeDynamicBytes(((DynamicBytes) parameter).getValue());
+        } else if (parameter instanceof Utf8String) {
+            writeDynamicBytes(
+                    ((Utf8String) parameter).getValue().getBytes(StandardCharsets.UTF_8));
+        } else if (parameter instanceof StaticArray) {
+            writeArrayValues((StaticArray) parameter);
+        } else if (parameter instanceof DynamicArray) {
+            writeLong(((DynamicArray) parameter).getValue().size());
+            writeArrayValues((DynamicArray) parameter);
+        } else {
+            throw new UnsupportedOperationException(
+                    "Type cannot be encoded: " + parameter.getClass());
+        }
+    }
+
+    private <T extends Type> void writeArrayValues(Array<T> array) {
+        for (Type value : array.getValue()) {
+            write(value);
+        }
+    }
+
+    private void writeNumeric(NumericType numericType) {
+        BigInteger value = numericType.getValue();
+        if (value.bitLength() < Long.SIZE) {
+            writeLong(value.longValue());
+            return;
+        }
+
+        byte[] rawValue = value.toByteArray();
+        int offset = 0;
+        if ((numericType instanceof Ufixed || numericType instanceof Uint)
+                && value.bitLength() == MAX_BIT_LENGTH) {
+            // skip the sign byte of an unsigned 256 bit value
+            offset = 1;
+        }
+        int length = rawValue.length - offset;
+        if (length > MAX_BYTE_LENGTH) {
+            throw new ArrayIndexOutOfBoundsException(
+                    "Value exceeds " + MAX_BIT_LENGTH + " bits: " + value);
+        }
+
+        ensureHead(MAX_BYTE_LENGTH);
+        byte padding = value.signum() == -1 ? (byte) 0xff : 0;
+        int valueStart = headSize + MAX_BYTE_LENGTH - length;
+        Arrays.fill(head, headSize, valueStart, padding);
+        System.arraycopy(rawValue, offset, head, valueStart, length);
+        headSize += MAX_BYTE_LENGTH;
+    }
+
+    /**
+     * Write a sign extended 256 bit word.
+     */
+    private void writeLong(long value) {
+        ensureHead(MAX_BYTE_LENGTH);
+        int valueStart = headSize + MAX_BYTE_LENGTH - 8;
+        Arrays.fill(head, headSize, valueStart, value < 0 ? (byte) 0xff : 0);
+        for (int i = 7; i >= 0; i--) {
+            head[valueStart + i] = (byte) value;
+            value >>= 8;
+        }
+        headSize += MAX_BYTE_LENGTH;
+    }
+
+    private void writeDynamicBytes(byte[] value) {
+        writeLong(value.length);
+        writePadded(value);
+    }
+
+    private void writePadded(byte[] value) {
+        int mod = value.length % MAX_BYTE_LENGTH;
+        int paddedLength = mod == 0 ? value.length : value.length + MAX_BYTE_LENGTH - mod;
+        ensureHead(paddedLength);
+        System.arraycopy(value, 0, head, headSize, value.length);
+        Arrays.fill(head, headSize + value.length, headSize + paddedLength, (byte) 0);
+        headSize += paddedLength;
+    }
+
+    private void ensureHead(int additional) {
+        int required = headSize + additional;
+        if (required > head.length) {
+            head = Arrays.copyOf(head, Math.max(required, head.length << 1));
+        }
+    }
+
+    private void swap() {
+        byte[] bytes = head;
+        head = tail;
+        tail = bytes;
+        int size = headSize;
+        headSize = tailSize;
+        tailSize = size;
+    }
+}
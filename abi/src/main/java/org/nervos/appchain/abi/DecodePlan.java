@@ -0,0 +1,376 @@
+package org.nervos.appchain.abi;
+
+import java.lang.reflect.Constructor;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.nervos.appchain.abi.datatypes.Address;
+import org.nervos.appchain.abi.datatypes.Array;
+import org.nervos.appchain.abi.datatypes.Bool;
+import org.nervos.appchain.abi.datatypes.Bytes;
+import org.nervos.appchain.abi.datatypes.DynamicArray;
+import org.nervos.appchain.abi.datatypes.DynamicBytes;
+import org.nervos.appchain.abi.datatypes.Fixed;
+import org.nervos.appchain.abi.datatypes.Int;
+import org.nervos.appchain.abi.datatypes.NumericType;
+import org.nervos.appchain.abi.datatypes.StaticArray;
+import org.nervos.appchain.abi.datatypes.Type;
+import org.nervos.appchain.abi.datatypes.Utf8String;
+import org.nervos.appchain.abi.datatypes.generated.Uint160;
+
+/**
+ * Decoder for a list of ABI types, compiled once per list of {@link TypeReference}s.
+ *
+ * <p>Type lengths, element types and constructors are resolved when the plan is created,
+ * so decoding only reads the input bytes and instantiates the results. Values are decoded
+ * exactly as by {@link TypeDecoder}.
+ */
+final class DecodePlan {
+
+    private static final int WORD = Type.MAX_BYTE_LENGTH;
+
+    private static final ConcurrentMap<List<Object>, DecodePlan> PLANS =
+            new ConcurrentHashMap<>();
+
+    private final Decoder[] decoders;
+
+    private DecodePlan(Decoder[] decoders) {
+        this.decoders = decoders;
+    }
+
+    /**
+     * @return the plan for {@code typeReferences}, compiled on first use
+     */
+    static DecodePlan of(List<TypeReference<Type>> typeReferences) {
+        List<Object> key = new ArrayList<>(typeReferences.size());
+        for (TypeReference<?> typeReference : typeReferences) {
+            key.add(typeReference.getType());
+            if (typeReference instanceof TypeReference.StaticArrayTypeReference) {
+                key.add(((TypeReference.StaticArrayTypeReference) typeReference).getSize());
+            }
+        }
+
+        DecodePlan plan = PLANS.get(key);
+        if (plan == null) {
+            plan = compile(typeReferences);
+            PLANS.putIfAbsent(key, plan);
+        }
+        return plan;
+    }
+
+    /**
+     * Decode the bytes between the position and the limit of {@code input}, leaving its
+     * position unchanged.
+     */
+    List<Type> decode(ByteBuffer input) {
+        int base = input.position();
+        List<Type> results = new ArrayList<>(decoders.length);
+        int offset = 0;
+        for (Decoder decoder : decoders) {
+            int dataOffset = decoder.dynamic ? readInt(input, base + offset) : offset;
+            results.add(decoder.decode(input, base + dataOffset));
+            offset += decoder.headWords * WORD;
+        }
+        return results;
+    }
+
+    private static DecodePlan compile(List<TypeReference<Type>> typeReferences) {
+        Decoder[] decoders = new Decoder[typeReferences.size()];
+        try {
+            for (int i = 0; i < decoders.length; i++) {
+                decoders[i] = compile(typeReferences.get(i));
+            }
+        } catch (ClassNotFoundException e) {
+            throw new UnsupportedOperationException("Invalid class reference provided", e);
+        }
+        return new DecodePlan(decoders);
+    }
+
+    private static Decoder compile(TypeReference<?> typeReference)
+            throws ClassNotFoundException {
+        Class<?> type = typeReference.getClassType();
+        if (DynamicArray.class.isAssignableFrom(type)) {
+            Class<Type> elementType = Utils.getParameterizedTypeFromArray(typeReference);
+            return new DynamicArrayDecoder(
+                    element(elementType), Utils.getSimpleTypeName(elementType));
+        } else if (StaticArray.class.isAssignableFrom(type)) {
+            int length;
+            if (typeReference instanceof TypeReference.StaticArrayTypeReference) {
+                length = ((TypeReference.StaticArrayTypeReference) typeReference).getSize();
+            } else {
+                length = Integer.parseInt(type.getSimpleName()
+                        .substring(StaticArray.class.getSimpleName().length()));
+            }
+            Class<Type> elementType = Utils.getParameterizedTypeFromArray(typeReference);
+            return new StaticArrayDecoder(element(elementType), length, listConstructor(type));
+        } else {
+            return element(type);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Decoder element(Class<?> type) {
+        if (NumericType.class.isAssignableFrom(type)) {
+            Class<NumericType> numericType = (Class<NumericType>) type;
+            return new NumericDecoder(
+                    constructor(numericType, BigInteger.class),
+                    TypeDecoder.getTypeLengthInBytes(numericType),
+                    Int.class.isAssignableFrom(type) || Fixed.class.isAssignableFrom(type));
+        } else if (Address.class.isAssignableFrom(type)) {
+            return new AddressDecoder();
+        } else if (Bool.class.isAssignableFrom(type)) {
+            return new BoolDecoder();
+        } else if (Bytes.class.isAssignableFrom(type)) {
+            int length = Integer.parseInt(
+                    type.getSimpleName().substring(Bytes.class.getSimpleName().length()));
+            return new BytesDecoder(constructor((Class<Type>) type, byte[].class), length);
+        } else if (DynamicBytes.class.isAssignableFrom(type)) {
+            return new DynamicBytesDecoder(false);
+        } else if (Utf8String.class.isAssignableFrom(type)) {
+            return new DynamicBytesDecoder(true);
+        } else if (Array.class.isAssignableFrom(type)) {
+            throw new UnsupportedOperationException(
+                    "Arrays of arrays are not currently supported for external functions, see"
+                            + "http://solidity.readthedocs.io/en/develop/types.html#members");
+        } else {
+            throw new UnsupportedOperationException("Type cannot be encoded: " + type);
+        }
+    }
+
+    private static <T extends Type> Constructor<T> constructor(
+            Class<T> type, Class<?> parameterType) {
+        try {
+            return type.getConstructor(parameterType);
+        } catch (NoSuchMethodException | SecurityException e) {
+            throw new UnsupportedOperationException(
+                    "Unable to create instance of " + type.getName(), e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Constructor<Type> listConstructor(Class<?> type) {
+        try {
+            return (Constructor<Type>) type.getConstructor(List.class);
+        } catch (NoSuchMethodException | SecurityException e) {
+            return null;
+        }
+    }
+
+    private static <T extends Type> T newInstance(Constructor<T> constructor, Object argument) {
+        try {
+            return constructor.newInstance(argument);
+        } catch (ReflectiveOperationException | IllegalArgumentException e) {
+            throw new UnsupportedOperationException(
+                    "Unable to create instance of " + constructor.getDeclaringClass().getName(),
+                    e);
+        }
+    }
+
+    /**
+     * The low 32 bits of the word at {@code index}, as {@code TypeDecoder.decodeUintAsInt}.
+     */
+    private static int readInt(ByteBuffer input, int index) {
+        return input.getInt(index + WORD - 4);
+    }
+
+    private static byte[] read(ByteBuffer input, int index, int length) {
+        if (length < 0 || index + length > input.limit()) {
+            throw new IndexOutOfBoundsException(
+                    "Value of " + length + " bytes at " + index + " exceeds the input");
+        }
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = input.get(index + i);
+        }
+        return bytes;
+    }
+
+    private abstract static class Decoder {
+        private final boolean dynamic;
+        private final int headWords;
+
+        Decoder(boolean dynamic, int headWords) {
+            this.dynamic = dynamic;
+            this.headWords = headWords;
+        }
+
+        abstract Type decode(ByteBuffer input, int index);
+
+        /**
+         * Number of words taken by a value inside an array, as
+         * {@code TypeDecoder.getSingleElementLength}.
+         */
+        int elementWords(ByteBuffer input, int index) {
+            return index == input.limit() ? 0 : 1;
+        }
+    }
+
+    private static class NumericDecoder extends Decoder {
+        private final Constructor<NumericType> constructor;
+        private final int length;
+        private final boolean signed;
+
+        NumericDecoder(Constructor<NumericType> constructor, int length, boolean signed) {
+            super(false, 1);
+            this.constructor = constructor;
+            this.length = length;
+            this.signed = signed;
+        }
+
+        @Override
+        Type decode(ByteBuffer input, int index) {
+            byte[] value = new byte[length + 1];
+            if (signed) {
+                // take MSB as sign bit
+                value[0] = input.get(index);
+            }
+            int valueIndex = index + WORD - length;
+            for (int i = 0; i < length; i++) {
+                value[i + 1] = input.get(valueIndex + i);
+            }
+            return newInstance(constructor, new BigInteger(value));
+        }
+    }
+
+    private static class AddressDecoder extends Decoder {
+
+        AddressDecoder() {
+            super(false, 1);
+        }
+
+        @Override
+        Type decode(ByteBuffer input, int index) {
+            int length = Address.LENGTH >> 3;
+            return new Address(new Uint160(
+                    new BigInteger(1, read(input, index + WORD - length, length))));
+        }
+    }
+
+    private static class BoolDecoder extends Decoder {
+
+        BoolDecoder() {
+            super(false, 1);
+        }
+
+        @Override
+        Type decode(ByteBuffer input, int index) {
+            if (index + WORD > input.limit()) {
+                throw new IndexOutOfBoundsException("Bool at " + index + " exceeds the input");
+            }
+            boolean value = input.get(index + WORD - 1) == 1;
+            for (int i = 0; value && i < WORD - 1; i++) {
+                value = input.get(index + i) == 0;
+            }
+            return new Bool(value);
+        }
+    }
+
+    private static class BytesDecoder extends Decoder {
+        private final Constructor<Type> constructor;
+        private final int length;
+
+        BytesDecoder(Constructor<Type> constructor, int length) {
+            super(false, 1);
+            this.constructor = constructor;
+            this.length = length;
+        }
+
+        @Override
+        Type decode(ByteBuffer input, int index) {
+            return newInstance(constructor, read(input, index, length));
+        }
+    }
+
+    private static class DynamicBytesDecoder extends Decoder {
+        private final boolean utf8;
+
+        DynamicBytesDecoder(boolean utf8) {
+            super(true, 1);
+            this.utf8 = utf8;
+        }
+
+        @Override
+        Type decode(ByteBuffer input, int index) {
+            byte[] bytes = read(input, index + WORD, readInt(input, index));
+            if (utf8) {
+                return new Utf8String(new String(bytes, StandardCharsets.UTF_8));
+            }
+            return new DynamicBytes(bytes);
+        }
+
+        @Override
+        int elementWords(ByteBuffer input, int index) {
+            if (index == input.limit()) {
+                return 0;
+            }
+            // length field + data value
+            return readInt(input, index) / WORD + 2;
+        }
+    }
+
+    private static class StaticArrayDecoder extends Decoder {
+        private final Decoder element;
+        private final int length;
+        private final Constructor<Type> constructor;
+
+        StaticArrayDecoder(Decoder element, int length, Constructor<Type> constructor) {
+            super(false, length);
+            this.element = element;
+            this.length = length;
+            this.constructor = constructor;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        Type decode(ByteBuffer input, int index) {
+            if (length == 0) {
+                throw new UnsupportedOperationException(
+                        "Zero length fixed array is invalid type");
+            }
+            List<Type> elements = decodeElements(element, input, index, length);
+            if (constructor != null) {
+                try {
+                    return constructor.newInstance(elements);
+                } catch (ReflectiveOperationException e) {
+                    // fall back to a plain static array, as TypeDecoder
+                }
+            }
+            return new StaticArray<>(elements);
+        }
+    }
+
+    private static class DynamicArrayDecoder extends Decoder {
+        private final Decoder element;
+        private final String elementTypeName;
+
+        DynamicArrayDecoder(Decoder element, String elementTypeName) {
+            super(true, 1);
+            this.element = element;
+            this.elementTypeName = elementTypeName;
+        }
+
+        @Override
+        Type decode(ByteBuffer input, int index) {
+            int length = readInt(input, index);
+            if (length == 0) {
+                return DynamicArray.empty(elementTypeName);
+            }
+            return new DynamicArray<>(decodeElements(element, input, index + WORD, length));
+        }
+    }
+
+    private static List<Type> decodeElements(
+            Decoder element, ByteBuffer input, int index, int length) {
+        List<Type> elements = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) {
+            elements.add(element.decode(input, index));
+            index += element.elementWords(input, index) * WORD;
+        }
+        return elements;
+    }
+}
@@ -0,0 +1,255 @@
+package org.nervos.appchain.abi;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.nervos.appchain.abi.datatypes.Array;
+import org.nervos.appchain.abi.datatypes.Bytes;
+import org.nervos.appchain.abi.datatypes.BytesType;
+import org.nervos.appchain.abi.datatypes.Event;
+import org.nervos.appchain.abi.datatypes.Type;
+import org.nervos.appchain.abi.datatypes.UnorderedEvent;
+import org.nervos.appchain.abi.datatypes.Utf8String;
+import org.nervos.appchain.abi.datatypes.generated.Bytes32;
+import org.nervos.appchain.utils.Numeric;
+
+/**
+ * Registry of events which decodes logs by their first topic.
+ *
+ * <p>Each event is compiled once: its signature is hashed and decode plans are built for
+ * its indexed and non-indexed parameters, so decoding a log is a map lookup followed by
+ * reading its topics and data. Values are decoded exactly as by
+ * {@link FunctionReturnDecoder}. Registration and decoding are thread safe.
+ */
+public class EventDecoder {
+
+    // bound on the events compiled for the static methods
+    private static final int MAX_CACHED_EVENTS = 4096;
+
+    private static final ConcurrentMap<List<Object>, CompiledEvent> EVENTS =
+            new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, CompiledEvent> events = new ConcurrentHashMap<>();
+
+    public EventDecoder register(Event event) {
+        return register(compiled(event));
+    }
+
+    public EventDecoder register(UnorderedEvent event) {
+        List<TypeReference<Type>> indexedParameters = event.getIndexedParameters();
+        List<TypeReference<Type>> nonIndexedParameters = event.getNonIndexedParameters();
+        List<Integer> order = new ArrayList<>(event.getIndexedParametersSeq());
+        order.addAll(event.getNonIndexedParametersSeq());
+        return register(new CompiledEvent(
+                event.getName(), EventEncoder.encode(event),
+                indexedParameters, nonIndexedParameters, order));
+    }
+
+    private EventDecoder register(CompiledEvent event) {
+        events.put(event.topic, event);
+        return this;
+    }
+
+    public boolean isRegistered(String topic) {
+        return find(topic) != null;
+    }
+
+    /**
+     * Decode a log with any of the registered events.
+     *
+     * @param topics topics of the log, the first of which selects the event
+     * @param data ABI encoded non-indexed values of the log
+     * @return the decoded event, or null if no registered event matches the log
+     */
+    public DecodedEvent decode(List<String> topics, String data) {
+        if (topics == null || topics.isEmpty()) {
+            return null;
+        }
+        CompiledEvent event = find(topics.get(0));
+        if (event == null) {
+            return null;
+        }
+        EventValues values = event.decode(topics, data);
+        return values == null ? null : new DecodedEvent(event, values);
+    }
+
+    private CompiledEvent find(String topic) {
+        CompiledEvent event = events.get(topic);
+        if (event == null && topic != null) {
+            event = events.get(topic.toLowerCase());
+        }
+        return event;
+    }
+
+    /**
+     * @return the topic of {@code event}, as {@link EventEncoder#encode(Event)}, which is
+     *         only computed the first time an event with the same signature is seen
+     */
+    public static String encode(Event event) {
+        return compiled(event).topic;
+    }
+
+    /**
+     * Decode a log of {@code event}.
+     *
+     * @return the decoded values, or null if the log was not emitted by {@code event}
+     */
+    public static EventValues decode(Event event, List<String> topics, String data) {
+        CompiledEvent compiledEvent = compiled(event);
+        if (topics == null || topics.isEmpty() || !compiledEvent.topic.equals(topics.get(0))) {
+            return null;
+        }
+        return compiledEvent.decode(topics, data);
+    }
+
+    private static CompiledEvent compiled(Event event) {
+        // events are typically created for every call, so they are cached by signature
+        List<TypeReference<Type>> indexedParameters = event.getIndexedParameters();
+        List<TypeReference<Type>> nonIndexedParameters = event.getNonIndexedParameters();
+        List<Object> key = new ArrayList<>();
+        key.add(event.getName());
+        addTypes(key, indexedParameters);
+        key.add(indexedParameters.size());
+        addTypes(key, nonIndexedParameters);
+
+        CompiledEvent compiledEvent = EVENTS.get(key);
+        if (compiledEvent == null) {
+            compiledEvent = new CompiledEvent(
+                    event.getName(), EventEncoder.encode(event),
+                    indexedParameters, nonIndexedParameters, null);
+            if (EVENTS.size() >= MAX_CACHED_EVENTS) {
+                EVENTS.clear();
+            }
+            EVENTS.putIfAbsent(key, compiledEvent);
+        }
+        return compiledEvent;
+    }
+
+    private static void addTypes(List<Object> key, List<TypeReference<Type>> typeReferences) {
+        for (TypeReference<Type> typeReference : typeReferences) {
+            key.add(typeReference.getType());
+            if (typeReference instanceof TypeReference.StaticArrayTypeReference) {
+                key.add(((TypeReference.StaticArrayTypeReference) typeReference).getSize());
+            }
+        }
+    }
+
+    private static final class CompiledEvent {
+        private final String name;
+        private final String topic;
+        private final DecodePlan[] indexed;
+        private final DecodePlan nonIndexed;
+        // declaration order of the indexed followed by the non-indexed values, if known
+        private final List<Integer> order;
+
+        CompiledEvent(String name, String topic,
+                      List<TypeReference<Type>> indexedParameters,
+                      List<TypeReference<Type>> nonIndexedParameters,
+                      List<Integer> order) {
+            this.name = name;
+            this.topic = topic;
+            this.indexed = new DecodePlan[indexedParameters.size()];
+            for (int i = 0; i < indexed.length; i++) {
+                indexed[i] = DecodePlan.of(Collections.singletonList(
+                        TypeReference.create(topicType(indexedParameters.get(i)))));
+            }
+            this.nonIndexed = DecodePlan.of(nonIndexedParameters);
+            this.order = order;
+        }
+
+        /**
+         * @return the values, or null if the number of topics does not match the event
+         */
+        EventValues decode(List<String> topics, String data) {
+            if (topics.size() != indexed.length + 1) {
+                return null;
+            }
+
+            List<Type> indexedValues = new ArrayList<>(indexed.length);
+            for (int i = 0; i < indexed.length; i++) {
+                byte[] topic = Numeric.hexStringToByteArray(topics.get(i + 1));
+                indexedValues.add(indexed[i].decode(ByteBuffer.wrap(topic)).get(0));
+            }
+
+            List<Type> nonIndexedValues;
+            byte[] input = data == null ? new byte[0] : Numeric.hexStringToByteArray(data);
+            if (input.length == 0) {
+                nonIndexedValues = Collections.emptyList();
+            } else {
+                nonIndexedValues = nonIndexed.decode(ByteBuffer.wrap(input));
+            }
+            return new EventValues(indexedValues, nonIndexedValues);
+        }
+
+        /**
+         * The type an indexed value is decoded as, see
+         * {@link FunctionReturnDecoder#decodeIndexedValue(String, TypeReference)}.
+         */
+        @SuppressWarnings("unchecked")
+        private static Class<Type> topicType(TypeReference<Type> typeReference) {
+            Class<Type> type;
+            try {
+                type = typeReference.getClassType();
+            } catch (ClassNotFoundException e) {
+                throw new UnsupportedOperationException("Invalid class reference provided", e);
+            }
+            if (Bytes.class.isAssignableFrom(type)) {
+                return type;
+            } else if (Array.class.isAssignableFrom(type)
+                    || BytesType.class.isAssignableFrom(type)
+                    || Utf8String.class.isAssignableFrom(type)) {
+                return (Class<Type>) (Class<?>) Bytes32.class;
+            } else {
+                return type;
+            }
+        }
+    }
+
+    /**
+     * A log decoded by a registered event.
+     */
+    public static class DecodedEvent {
+        private final CompiledEvent event;
+        private final EventValues eventValues;
+
+        DecodedEvent(CompiledEvent event, EventValues eventValues) {
+            this.event = event;
+            this.eventValues = eventValues;
+        }
+
+        public String getName() {
+            return event.name;
+        }
+
+        public String getTopic() {
+            return event.topic;
+        }
+
+        public EventValues getEventValues() {
+            return eventValues;
+        }
+
+        /**
+         * @return the values in the order the parameters were declared for an
+         *         {@link UnorderedEvent}, otherwise the indexed followed by the non-indexed
+         *         values
+         */
+        public List<Type> getValues() {
+            List<Type> values = new ArrayList<>(eventValues.getIndexedValues());
+            values.addAll(eventValues.getNonIndexedValues());
+            if (event.order == null) {
+                return values;
+            }
+            Type[] ordered = new Type[values.size()];
+            for (int i = 0; i < ordered.length && i < event.order.size(); i++) {
+                ordered[event.order.get(i)] = values.get(i);
+            }
+            return Arrays.asList(ordered);
+        }
+    }
+}
@@ -1,13 +1,12 @@
 package org.nervos.appchain.abi;
 
-import java.math.BigInteger;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.nervos.appchain.abi.datatypes.Function;
-import org.nervos.appchain.abi.datatypes.StaticArray;
 import org.nervos.appchain.abi.datatypes.Type;
-import org.nervos.appchain.abi.datatypes.Uint;
 import org.nervos.appchain.crypto.Hash;
 import org.nervos.appchain.utils.Numeric;
 
@@ -19,78 +18,66 @@ import org.nervos.appchain.utils.Numeric;
  */
 public class FunctionEncoder {
 
-    private FunctionEncoder() { }
+    private static final int METHOD_ID_LENGTH = 4;
+    private static final int MAX_CACHED_METHOD_IDS = 4096;
 
-    public static String encode(Function function) {
-        List<Type> parameters = function.getInputParameters();
+    private static final ConcurrentMap<String, byte[]> METHOD_IDS = new ConcurrentHashMap<>();
 
-        String methodSignature = buildMethodSignature(function.getName(), parameters);
-        String methodId = buildMethodId(methodSignature);
+    private static final ThreadLocal<AbiEncoder> ENCODERS = new ThreadLocal<AbiEncoder>() {
+        @Override
+        protected AbiEncoder initialValue() {
+            return new AbiEncoder();
+        }
+    };
 
-        StringBuilder result = new StringBuilder();
-        result.append(methodId);
+    private FunctionEncoder() { }
 
-        return encodeParameters(parameters, result);
+    public static String encode(Function function) {
+        AbiEncoder abiEncoder = ENCODERS.get().reset();
+        return abiEncoder.encodeFunction(function).toHexString(true);
     }
 
-    public static String encodeConstructor(List<Type> parameters) {
-        return encodeParameters(parameters, new StringBuilder());
+    /**
+     * Encode a function call without converting it to hex, see {@link AbiEncoder}.
+     *
+     * @param function the function to encode
+     * @return the method id followed by the encoded parameters
+     */
+    public static byte[] encodeToBytes(Function function) {
+        AbiEncoder abiEncoder = ENCODERS.get().reset();
+        return abiEncoder.encodeFunction(function).toByteArray();
     }
 
-    private static String encodeParameters(List<Type> parameters, StringBuilder result) {
-        int dynamicDataOffset = getLength(parameters) * Type.MAX_BYTE_LENGTH;
-        StringBuilder dynamicData = new StringBuilder();
-
-        for (Type parameter:parameters) {
-            String encodedValue = TypeEncoder.encode(parameter);
-
-            if (TypeEncoder.isDynamic(parameter)) {
-                String encodedDataOffset = TypeEncoder.encodeNumeric(
-                        new Uint(BigInteger.valueOf(dynamicDataOffset)));
-                result.append(encodedDataOffset);
-                dynamicData.append(encodedValue);
-                dynamicDataOffset += encodedValue.length() >> 1;
-            } else {
-                result.append(encodedValue);
-            }
-        }
-        result.append(dynamicData);
-
-        return result.toString();
+    public static String encodeConstructor(List<Type> parameters) {
+        AbiEncoder abiEncoder = ENCODERS.get().reset();
+        return abiEncoder.encodeParameters(parameters).toHexString(false);
     }
 
-    private static int getLength(List<Type> parameters) {
-        int count = 0;
-        for (Type type:parameters) {
-            if (type instanceof StaticArray) {
-                count += ((StaticArray) type).getValue().size();
-            } else {
-                count++;
+    /**
+     * The four byte method id of a function, cached by its signature.
+     */
+    static byte[] methodId(String methodName, List<Type> parameters) {
+        String methodSignature = buildMethodSignature(methodName, parameters);
+        byte[] methodId = METHOD_IDS.get(methodSignature);
+        if (methodId == null) {
+            methodId = Arrays.copyOf(Hash.sha3(methodSignature.getBytes()), METHOD_ID_LENGTH);
+            if (METHOD_IDS.size() < MAX_CACHED_METHOD_IDS) {
+                METHOD_IDS.putIfAbsent(methodSignature, methodId);
             }
         }
-        return count;
+        return methodId;
     }
 
     static String buildMethodSignature(String methodName, List<Type> parameters) {
         StringBuilder result = new StringBuilder();
         result.append(methodName);
         result.append("(");
-
-        List<String> types = new ArrayList<String>(parameters.size());
-        String params = "";
-
         for (int i = 0; i < parameters.size(); i++) {
-            Type type = parameters.get(i);
-
-            params += type.getTypeAsString();
-            if (i + 1 < parameters.size()) {
-                params += ",";  // no whitespace
+            if (i > 0) {
+                result.append(",");  // no whitespace
             }
-
-            types.add(type.getTypeAsString());
+            result.append(parameters.get(i).getTypeAsString());
         }
-
-        result.append(params);
         result.append(")");
         return result.toString();
     }
@@ -1,22 +1,17 @@
 package org.nervos.appchain.abi;
 
-import java.util.ArrayList;
+import java.nio.ByteBuffer;
 import java.util.Collections;
 import java.util.List;
 
 import org.nervos.appchain.abi.datatypes.Array;
 import org.nervos.appchain.abi.datatypes.Bytes;
 import org.nervos.appchain.abi.datatypes.BytesType;
-import org.nervos.appchain.abi.datatypes.DynamicArray;
-import org.nervos.appchain.abi.datatypes.DynamicBytes;
-import org.nervos.appchain.abi.datatypes.StaticArray;
 import org.nervos.appchain.abi.datatypes.Type;
 import org.nervos.appchain.abi.datatypes.Utf8String;
 import org.nervos.appchain.abi.datatypes.generated.Bytes32;
 import org.nervos.appchain.utils.Numeric;
 
-import static org.nervos.appchain.abi.TypeDecoder.MAX_BYTE_LENGTH_FOR_HEX_STRING;
-
 /**
  * Decodes values returned by function or event calls.
  */
@@ -39,7 +34,41 @@ public class FunctionReturnDecoder {
         if (input.isEmpty()) {
             return Collections.emptyList();
         } else {
-            return build(input, outputParameters);
+            return decode(Numeric.hexStringToByteArray(input), outputParameters);
+        }
+    }
+
+    /**
+     * Decode ABI encoded return values from their binary form.
+     *
+     * @param input ABI encoded input
+     * @param outputParameters list of return types as {@link TypeReference}
+     * @return {@link List} of values returned by function, {@link Collections#emptyList()} if
+     *         invalid response
+     * @see #decode(ByteBuffer, List)
+     */
+    public static List<Type> decode(byte[] input, List<TypeReference<Type>> outputParameters) {
+        return decode(ByteBuffer.wrap(input), outputParameters);
+    }
+
+    /**
+     * Decode ABI encoded return values between the position and the limit of a buffer, which
+     * is left unchanged.
+     *
+     * <p>The return types are compiled into a decode plan on first use, so repeated calls with
+     * the same return types only read the input and instantiate the values.
+     *
+     * @param input ABI encoded input
+     * @param outputParameters list of return types as {@link TypeReference}
+     * @return {@link List} of values returned by function, {@link Collections#emptyList()} if
+     *         invalid response
+     */
+    public static List<Type> decode(
+            ByteBuffer input, List<TypeReference<Type>> outputParameters) {
+        if (!input.hasRemaining()) {
+            return Collections.emptyList();
+        } else {
+            return DecodePlan.of(outputParameters).decode(input);
         }
     }
 
@@ -87,55 +116,4 @@ public class FunctionReturnDecoder {
             throw new UnsupportedOperationException("Invalid class reference provided", e);
         }
     }
-
-    private static List<Type> build(
-            String input, List<TypeReference<Type>> outputParameters) {
-        List<Type> results = new ArrayList<>(outputParameters.size());
-
-        int offset = 0;
-        for (TypeReference<?> typeReference:outputParameters) {
-            try {
-                @SuppressWarnings("unchecked")
-                Class<Type> type = (Class<Type>) typeReference.getClassType();
-
-                int hexStringDataOffset = getDataOffset(input, offset, type);
-
-                Type result;
-                if (DynamicArray.class.isAssignableFrom(type)) {
-                    result = TypeDecoder.decodeDynamicArray(
-                            input, hexStringDataOffset, typeReference);
-                    offset += MAX_BYTE_LENGTH_FOR_HEX_STRING;
-                } else if (typeReference instanceof TypeReference.StaticArrayTypeReference) {
-                    int length = ((TypeReference.StaticArrayTypeReference) typeReference).getSize();
-                    result = TypeDecoder.decodeStaticArray(
-                            input, hexStringDataOffset, typeReference, length);
-                    offset += length * MAX_BYTE_LENGTH_FOR_HEX_STRING;
-                } else if (StaticArray.class.isAssignableFrom(type)) {
-                    int length = Integer.parseInt(type.getSimpleName()
-                            .substring(StaticArray.class.getSimpleName().length()));
-                    result = TypeDecoder.decodeStaticArray(
-                            input, hexStringDataOffset, typeReference, length);
-                    offset += length * MAX_BYTE_LENGTH_FOR_HEX_STRING;
-                } else {
-                    result = TypeDecoder.decode(input, hexStringDataOffset, type);
-                    offset += MAX_BYTE_LENGTH_FOR_HEX_STRING;
-                }
-                results.add(result);
-
-            } catch (ClassNotFoundException e) {
-                throw new UnsupportedOperationException("Invalid class reference provided", e);
-            }
-        }
-        return results;
-    }
-
-    private static <T extends Type> int getDataOffset(String input, int offset, Class<T> type) {
-        if (DynamicBytes.class.isAssignableFrom(type)
-                || Utf8String.class.isAssignableFrom(type)
-                || DynamicArray.class.isAssignableFrom(type)) {
-            return TypeDecoder.decodeUintAsInt(input, offset) << 1;
-        } else {
-            return offset;
-        }
-    }
 }
@@ -0,0 +1,96 @@
+package org.nervos.appchain.abi;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import org.nervos.appchain.abi.datatypes.Address;
+import org.nervos.appchain.abi.datatypes.Bool;
+import org.nervos.appchain.abi.datatypes.DynamicArray;
+import org.nervos.appchain.abi.datatypes.DynamicBytes;
+import org.nervos.appchain.abi.datatypes.Function;
+import org.nervos.appchain.abi.datatypes.Int;
+import org.nervos.appchain.abi.datatypes.StaticArray;
+import org.nervos.appchain.abi.datatypes.Type;
+import org.nervos.appchain.abi.datatypes.Uint;
+import org.nervos.appchain.abi.datatypes.Utf8String;
+import org.nervos.appchain.abi.datatypes.generated.Bytes4;
+import org.nervos.appchain.abi.datatypes.generated.Int64;
+import org.nervos.appchain.abi.datatypes.generated.Uint32;
+import org.nervos.appchain.utils.Numeric;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class AbiEncoderTest {
+
+    private static final List<Type> PARAMETERS = Arrays.<Type>asList(
+            new Uint(BigInteger.ONE.shiftLeft(256).subtract(BigInteger.ONE)),
+            new Int(BigInteger.valueOf(-1)),
+            new Int64(BigInteger.valueOf(Long.MIN_VALUE)),
+            new Int(BigInteger.ONE.shiftLeft(200).negate()),
+            new Address("0xbe5422d15f39373eb0a97ff8c10fbd0e40e29338"),
+            new Utf8String("gr\u00f6\u00dfe"),
+            new StaticArray<>(new Bool(true), new Bool(false)),
+            new Bytes4(new byte[] { 1, 2, 3, 4 }),
+            new DynamicArray<>(new Uint32(BigInteger.TEN), new Uint32(BigInteger.ZERO)),
+            new DynamicBytes(new byte[40]));
+
+    @Test
+    public void testMatchesTypeEncoder() {
+        StringBuilder head = new StringBuilder();
+        StringBuilder tail = new StringBuilder();
+        int offset = 11 * Type.MAX_BYTE_LENGTH;
+        for (Type parameter : PARAMETERS) {
+            String encoded = TypeEncoder.encode(parameter);
+            if (TypeEncoder.isDynamic(parameter)) {
+                head.append(TypeEncoder.encodeNumeric(new Uint(BigInteger.valueOf(offset))));
+                tail.append(encoded);
+                offset += encoded.length() >> 1;
+            } else {
+                head.append(encoded);
+            }
+        }
+
+        AbiEncoder abiEncoder = new AbiEncoder().encodeParameters(PARAMETERS);
+        assertThat(abiEncoder.toHexString(false), is(head.append(tail).toString()));
+        assertThat(abiEncoder.size(), is(head.length() >> 1));
+    }
+
+    @Test
+    public void testFunction() {
+        Function function = new Function(
+                "baz",
+                Arrays.<Type>asList(new Uint32(BigInteger.valueOf(69)), new Bool(true)),
+                Collections.<TypeReference<?>>emptyList());
+        String expected = "0xcdcd77c0"
+                + "0000000000000000000000000000000000000000000000000000000000000045"
+                + "0000000000000000000000000000000000000000000000000000000000000001";
+
+        assertThat(Numeric.toHexString(FunctionEncoder.encodeToBytes(function)), is(expected));
+        // the method id is served from the cache on subsequent calls
+        assertThat(FunctionEncoder.encode(function), is(expected));
+        assertThat(FunctionEncoder.encode(function), is(expected));
+    }
+
+    @Test
+    public void testReuse() {
+        AbiEncoder abiEncoder = new AbiEncoder();
+        String first = abiEncoder.encodeParameters(PARAMETERS).toHexString(false);
+
+        abiEncoder.reset().encodeParameters(
+                Collections.<Type>singletonList(new DynamicBytes(new byte[100 * 1024])));
+        assertThat(abiEncoder.size(), is(2 * Type.MAX_BYTE_LENGTH + 100 * 1024));
+
+        assertThat(abiEncoder.reset().encodeParameters(PARAMETERS).toHexString(false),
+                is(first));
+
+        ByteBuffer buffer = ByteBuffer.allocate(abiEncoder.size());
+        abiEncoder.writeTo(buffer);
+        assertThat(buffer.array(), is(abiEncoder.toByteArray()));
+    }
+}
@@ -0,0 +1,100 @@
+package org.nervos.appchain.abi;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import org.nervos.appchain.abi.datatypes.Address;
+import org.nervos.appchain.abi.datatypes.Event;
+import org.nervos.appchain.abi.datatypes.Type;
+import org.nervos.appchain.abi.datatypes.UnorderedEvent;
+import org.nervos.appchain.abi.datatypes.Utf8String;
+import org.nervos.appchain.abi.datatypes.generated.Bytes32;
+import org.nervos.appchain.abi.datatypes.generated.Uint256;
+import org.nervos.appchain.utils.Numeric;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class EventDecoderTest {
+
+    private static final String FROM =
+            "0x000000000000000000000000be5422d15f39373eb0a97ff8c10fbd0e40e29338";
+    private static final String TO =
+            "0x0000000000000000000000000000000000000000000000000000000000000001";
+    private static final String DATA =
+            "0x000000000000000000000000000000000000000000000000000000000000002a";
+
+    @Test
+    public void testDecodeMatchesFunctionReturnDecoder() {
+        Event event = transfer();
+        List<String> topics = Arrays.asList(EventEncoder.encode(event), FROM, TO);
+
+        EventValues values = EventDecoder.decode(event, topics, DATA);
+        assertThat(values.getIndexedValues(), is(Arrays.<Type>asList(
+                FunctionReturnDecoder.decodeIndexedValue(
+                        FROM, event.getIndexedParameters().get(0)),
+                FunctionReturnDecoder.decodeIndexedValue(
+                        TO, event.getIndexedParameters().get(1)))));
+        assertThat(values.getNonIndexedValues(),
+                is(FunctionReturnDecoder.decode(DATA, event.getNonIndexedParameters())));
+
+        // a new instance of the same event is served from the cache
+        assertThat(EventDecoder.encode(transfer()), is(EventEncoder.encode(event)));
+        assertThat(EventDecoder.decode(transfer(), topics, DATA).getNonIndexedValues(),
+                is(values.getNonIndexedValues()));
+    }
+
+    @Test
+    public void testDecodeRejectsOtherLogs() {
+        Event event = transfer();
+        String topic = EventEncoder.encode(event);
+
+        assertThat(EventDecoder.decode(event, Collections.<String>emptyList(), DATA),
+                nullValue());
+        assertThat(EventDecoder.decode(event, Arrays.asList(TO, FROM, TO), DATA), nullValue());
+        // same signature, but with a different number of indexed parameters
+        assertThat(EventDecoder.decode(event, Arrays.asList(topic, FROM), DATA), nullValue());
+    }
+
+    @Test
+    public void testRegistry() {
+        UnorderedEvent named = new UnorderedEvent("Named");
+        named.add(false, new TypeReference<Uint256>() { });
+        named.add(true, new TypeReference<Utf8String>() { });
+        EventDecoder eventDecoder = new EventDecoder().register(transfer()).register(named);
+
+        String transferTopic = EventEncoder.encode(transfer());
+        assertThat(eventDecoder.isRegistered(transferTopic.toUpperCase().replace("0X", "0x")),
+                is(true));
+        EventDecoder.DecodedEvent transfer = eventDecoder.decode(
+                Arrays.asList(transferTopic, FROM, TO), DATA);
+        assertThat(transfer.getName(), is("Transfer"));
+        assertThat(transfer.getTopic(), is(transferTopic));
+        assertThat(transfer.getValues(), is(Arrays.<Type>asList(
+                new Address("0xbe5422d15f39373eb0a97ff8c10fbd0e40e29338"),
+                new Address("0x1"),
+                new Uint256(BigInteger.valueOf(42)))));
+
+        // values of an unordered event are in declaration order, indexed strings are hashes
+        EventDecoder.DecodedEvent decoded = eventDecoder.decode(
+                Arrays.asList(EventEncoder.encode(named), FROM), DATA);
+        assertThat(decoded.getName(), is("Named"));
+        assertThat(decoded.getValues(), is(Arrays.<Type>asList(
+                new Uint256(BigInteger.valueOf(42)),
+                new Bytes32(Numeric.hexStringToByteArray(FROM)))));
+
+        assertThat(eventDecoder.decode(Arrays.asList(TO), DATA), nullValue());
+    }
+
+    private static Event transfer() {
+        return new Event("Transfer",
+                Arrays.<TypeReference<?>>asList(
+                        new TypeReference<Address>() { }, new TypeReference<Address>() { }),
+                Arrays.<TypeReference<?>>asList(new TypeReference<Uint256>() { }));
+    }
+}
@@ -1,6 +1,7 @@
 package org.nervos.appchain.abi;
 
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -10,6 +11,8 @@ import org.hamcrest.CoreMatchers;
 import org.hamcrest.core.IsEqual;
 import org.junit.Test;
 
+import org.nervos.appchain.abi.datatypes.Address;
+import org.nervos.appchain.abi.datatypes.Bool;
 import org.nervos.appchain.abi.datatypes.DynamicArray;
 import org.nervos.appchain.abi.datatypes.DynamicBytes;
 import org.nervos.appchain.abi.datatypes.Function;
@@ -19,6 +22,7 @@ import org.nervos.appchain.abi.datatypes.Uint;
 import org.nervos.appchain.abi.datatypes.Utf8String;
 import org.nervos.appchain.abi.datatypes.generated.Bytes16;
 import org.nervos.appchain.abi.datatypes.generated.Bytes32;
+import org.nervos.appchain.abi.datatypes.generated.Int8;
 import org.nervos.appchain.abi.datatypes.generated.Uint256;
 import org.nervos.appchain.crypto.Hash;
 import org.nervos.appchain.utils.Numeric;
@@ -140,6 +144,71 @@ public class FunctionReturnDecoderTest {
         assertThat(decoded, equalTo(expected));
     }
 
+    @Test
+    public void testDecodeMixedStaticAndDynamicValues() {
+        Function function = new Function("function",
+                Collections.<Type>emptyList(),
+                Arrays.<TypeReference<?>>asList(
+                        new TypeReference<Int8>() { }, new TypeReference<Address>() { },
+                        new TypeReference<DynamicArray<Uint256>>() { },
+                        new TypeReference<Bool>() { }, new TypeReference<DynamicBytes>() { }));
+
+        String encoded = "0xffffffffffffffffffffffffffffffffffffffffffffffffffffffffffffff85"
+                + "000000000000000000000000be5422d15f39373eb0a97ff8c10fbd0e40e29338"
+                + "00000000000000000000000000000000000000000000000000000000000000a0"
+                + "0000000000000000000000000000000000000000000000000000000000000001"
+                + "0000000000000000000000000000000000000000000000000000000000000100"
+                + "0000000000000000000000000000000000000000000000000000000000000002"
+                + "0000000000000000000000000000000000000000000000000000000000000001"
+                + "0000000000000000000000000000000000000000000000000000000000000002"
+                + "0000000000000000000000000000000000000000000000000000000000000003"
+                + "0102030000000000000000000000000000000000000000000000000000000000";
+
+        List<Type> expected = Arrays.<Type>asList(
+                new Int8(BigInteger.valueOf(-123)),
+                new Address("0xbe5422d15f39373eb0a97ff8c10fbd0e40e29338"),
+                new DynamicArray<>(
+                        new Uint256(BigInteger.ONE), new Uint256(BigInteger.valueOf(2))),
+                new Bool(true),
+                new DynamicBytes(new byte[] { 1, 2, 3 }));
+
+        assertThat(FunctionReturnDecoder.decode(encoded, function.getOutputParameters()),
+                equalTo(expected));
+        // the plan compiled by the first call is reused
+        assertThat(FunctionReturnDecoder.decode(encoded, function.getOutputParameters()),
+                equalTo(expected));
+    }
+
+    @Test
+    public void testDecodeFromBuffer() {
+        Function function = new Function(
+                "test",
+                Collections.<Type>emptyList(),
+                Arrays.<TypeReference<?>>asList(
+                        new TypeReference<Uint>() { }, new TypeReference<Bytes16>() { }));
+
+        byte[] encoded = Numeric.hexStringToByteArray(
+                "0x0000000000000000000000000000000000000000000000000000000000000037"
+                        + "0102030405060708090a0b0c0d0e0f1000000000000000000000000000000000");
+        List<Type> expected = Arrays.<Type>asList(
+                new Uint(BigInteger.valueOf(55)),
+                new Bytes16(Numeric.hexStringToByteArray("0x0102030405060708090a0b0c0d0e0f10")));
+
+        assertThat(FunctionReturnDecoder.decode(encoded, function.getOutputParameters()),
+                equalTo(expected));
+
+        ByteBuffer buffer = ByteBuffer.allocate(encoded.length + 8);
+        buffer.position(8);
+        buffer.put(encoded);
+        buffer.position(8);
+        assertThat(FunctionReturnDecoder.decode(buffer, function.getOutputParameters()),
+                equalTo(expected));
+        assertThat(buffer.position(), is(8));
+
+        assertThat(FunctionReturnDecoder.decode(new byte[0], function.getOutputParameters()),
+                CoreMatchers.<List>is(Collections.emptyList()));
+    }
+
     @Test
     public void testVoidResultFunctionDecode() {
         Function function = new Function(
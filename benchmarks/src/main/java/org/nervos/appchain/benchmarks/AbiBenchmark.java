@@ -0,0 +1,81 @@
+package org.nervos.appchain.benchmarks;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.nervos.appchain.abi.FunctionEncoder;
+import org.nervos.appchain.abi.FunctionReturnDecoder;
+import org.nervos.appchain.abi.TypeReference;
+import org.nervos.appchain.abi.datatypes.Address;
+import org.nervos.appchain.abi.datatypes.Bool;
+import org.nervos.appchain.abi.datatypes.DynamicBytes;
+import org.nervos.appchain.abi.datatypes.Function;
+import org.nervos.appchain.abi.datatypes.Type;
+import org.nervos.appchain.abi.datatypes.Utf8String;
+import org.nervos.appchain.abi.datatypes.generated.Uint256;
+import org.nervos.appchain.utils.Numeric;
+
+/**
+ * ABI encoding of function calls and decoding of return values.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AbiBenchmark {
+
+    private Function function;
+    private String encodedResult;
+    private byte[] encodedResultBytes;
+
+    @Setup
+    public void setUp() {
+        function = new Function(
+                "transferWithData",
+                Arrays.<Type>asList(
+                        new Address(Fixtures.TO_ADDRESS),
+                        new Uint256(BigInteger.valueOf(1000)),
+                        new Utf8String("memo for the transfer"),
+                        new DynamicBytes(new byte[100])),
+                Arrays.<TypeReference<?>>asList(
+                        new TypeReference<Bool>() { },
+                        new TypeReference<Uint256>() { },
+                        new TypeReference<Utf8String>() { }));
+
+        encodedResult = FunctionEncoder.encodeConstructor(Arrays.<Type>asList(
+                new Bool(true),
+                new Uint256(BigInteger.valueOf(1000)),
+                new Utf8String("returned value")));
+        encodedResultBytes = Numeric.hexStringToByteArray(encodedResult);
+    }
+
+    @Benchmark
+    public String encode() {
+        return FunctionEncoder.encode(function);
+    }
+
+    @Benchmark
+    public List<Type> decode() {
+        return FunctionReturnDecoder.decode(encodedResult, function.getOutputParameters());
+    }
+
+    @Benchmark
+    public List<Type> decodeBytes() {
+        return FunctionReturnDecoder.decode(encodedResultBytes, function.getOutputParameters());
+    }
+}
@@ -0,0 +1,52 @@
+package org.nervos.appchain.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+
+import org.nervos.appchain.crypto.Credentials;
+import org.nervos.appchain.crypto.ECKeyPair;
+import org.nervos.appchain.utils.Numeric;
+
+/**
+ * Shared inputs for the benchmark suites.
+ */
+final class Fixtures {
+
+    static final String PRIVATE_KEY_STRING =
+            "a392604efc2fad9c0b3da43b5f698a2e3f270f170d859912be0d54742275c5f6";
+
+    static final ECKeyPair KEY_PAIR =
+            ECKeyPair.create(Numeric.toBigInt(PRIVATE_KEY_STRING));
+
+    static final Credentials CREDENTIALS = Credentials.create(KEY_PAIR);
+
+    static final String TO_ADDRESS = "0xbac68e5cb986ead0253e0632da1131a0a96efa18";
+
+    static final BigInteger NONCE = BigInteger.valueOf(1025);
+
+    private Fixtures() {
+    }
+
+    /**
+     * Reads a recorded JSON-RPC response from the fixtures directory on the classpath.
+     */
+    static byte[] load(String name) throws IOException {
+        InputStream in = Fixtures.class.getResourceAsStream("/fixtures/" + name);
+        if (in == null) {
+            throw new IOException("Missing fixture " + name);
+        }
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package org.nervos.appchain.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.nervos.appchain.crypto.Hash;
+import org.nervos.appchain.utils.Numeric;
+
+/**
+ * Keccak-256 over binary and hex encoded input.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HashBenchmark {
+
+    @Param({"32", "1024"})
+    private int size;
+
+    private byte[] input;
+    private String hexInput;
+
+    @Setup
+    public void setUp() {
+        input = new byte[size];
+        new Random(42).nextBytes(input);
+        hexInput = Numeric.toHexString(input);
+    }
+
+    @Benchmark
+    public byte[] sha3() {
+        return Hash.sha3(input);
+    }
+
+    @Benchmark
+    public String sha3Hex() {
+        return Hash.sha3(hexInput);
+    }
+}
@@ -0,0 +1,53 @@
+package org.nervos.appchain.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.nervos.appchain.protocol.ObjectMapperFactory;
+import org.nervos.appchain.protocol.core.methods.response.AppBlock;
+import org.nervos.appchain.protocol.core.methods.response.AppLog;
+
+/**
+ * Jackson deserialisation of recorded block and log responses.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonParsingBenchmark {
+
+    private ObjectMapper objectMapper;
+    private byte[] blockJson;
+    private byte[] logJson;
+
+    @Setup
+    public void setUp() throws IOException {
+        objectMapper = ObjectMapperFactory.getObjectMapper();
+        blockJson = Fixtures.load("appBlock.json");
+        logJson = Fixtures.load("appLog.json");
+    }
+
+    @Benchmark
+    public AppBlock parseBlock() throws IOException {
+        return objectMapper.readValue(blockJson, AppBlock.class);
+    }
+
+    @Benchmark
+    public AppLog parseLog() throws IOException {
+        return objectMapper.readValue(logJson, AppLog.class);
+    }
+}
@@ -0,0 +1,84 @@
+package org.nervos.appchain.benchmarks;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.nervos.appchain.rlp.RlpDecoder;
+import org.nervos.appchain.rlp.RlpEncoder;
+import org.nervos.appchain.rlp.RlpList;
+import org.nervos.appchain.rlp.RlpString;
+import org.nervos.appchain.rlp.RlpType;
+
+/**
+ * RLP encoding and decoding of a transaction shaped list and a list of nested lists.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RlpBenchmark {
+
+    private RlpList transaction;
+    private RlpList nested;
+    private byte[] encodedNested;
+
+    @Setup
+    public void setUp() {
+        transaction = new RlpList(
+                RlpString.create(Fixtures.NONCE),
+                RlpString.create(BigInteger.valueOf(1000000)),
+                RlpString.create(Fixtures.TO_ADDRESS),
+                RlpString.create(BigInteger.TEN.pow(18)),
+                RlpString.create(new byte[68]));
+
+        List<RlpType> values = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            values.add(new RlpList(RlpString.create(i), RlpString.create(new byte[32])));
+        }
+        nested = new RlpList(values);
+        encodedNested = RlpEncoder.encode(nested);
+    }
+
+    @Benchmark
+    public byte[] encodeTransaction() {
+        return RlpEncoder.encode(transaction);
+    }
+
+    @Benchmark
+    public byte[] encodeNestedList() {
+        return RlpEncoder.encode(nested);
+    }
+
+    @Benchmark
+    public RlpList decodeNestedList() {
+        return RlpDecoder.decode(encodedNested);
+    }
+
+    @Benchmark
+    public long readNestedList() {
+        RlpDecoder decoder = new RlpDecoder(encodedNested);
+        long sum = 0;
+        decoder.enterList();
+        while (decoder.hasNext()) {
+            decoder.enterList();
+            sum += decoder.nextLong();
+            decoder.exitList();
+        }
+        return sum;
+    }
+}
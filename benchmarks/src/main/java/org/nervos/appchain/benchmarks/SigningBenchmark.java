@@ -0,0 +1,61 @@
+package org.nervos.appchain.benchmarks;
+
+import java.math.BigInteger;
+import java.security.SignatureException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.nervos.appchain.crypto.Sign;
+import org.nervos.appchain.protocol.core.methods.request.Transaction;
+import org.nervos.appchain.utils.Numeric;
+
+/**
+ * Transaction signing and public key recovery.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SigningBenchmark {
+
+    private Transaction transaction;
+    private byte[] message;
+    private Sign.SignatureData signatureData;
+
+    @Setup
+    public void setUp() {
+        transaction = Transaction.createFunctionCallTransaction(
+                Fixtures.TO_ADDRESS, Fixtures.NONCE, 1000000L, 88L, 0, 1, "0",
+                "0xa9059cbb000000000000000000000000bac68e5cb986ead0253e0632da1131a0a96efa18"
+                        + "00000000000000000000000000000000000000000000000000000000000003e8");
+        message = Numeric.hexStringToByteArray(transaction.getData());
+        signatureData = Sign.signMessage(message, Fixtures.KEY_PAIR);
+    }
+
+    @Benchmark
+    public String signTransaction() {
+        return transaction.sign(Fixtures.CREDENTIALS);
+    }
+
+    @Benchmark
+    public Sign.SignatureData signMessage() {
+        return Sign.signMessage(message, Fixtures.KEY_PAIR);
+    }
+
+    @Benchmark
+    public BigInteger signedMessageToKey() throws SignatureException {
+        return Sign.signedMessageToKey(message, signatureData);
+    }
+}
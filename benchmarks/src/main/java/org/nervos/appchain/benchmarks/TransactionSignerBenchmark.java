@@ -0,0 +1,66 @@
+package org.nervos.appchain.benchmarks;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.nervos.appchain.protocol.core.methods.request.Transaction;
+import org.nervos.appchain.tx.TransactionSigner;
+
+/**
+ * Signed transactions per second, one at a time versus {@link TransactionSigner}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TransactionSignerBenchmark {
+
+    private static final int BATCH_SIZE = 1000;
+
+    private List<Transaction> transactions;
+    private TransactionSigner transactionSigner;
+
+    @Setup
+    public void setUp() {
+        transactions = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            transactions.add(Transaction.createFunctionCallTransaction(
+                    Fixtures.TO_ADDRESS, BigInteger.valueOf(i), 1000000L, 100L, 0, 1, "0",
+                    "0xa9059cbb000000000000000000000000bac68e5cb986ead0253e0632da1131a0a96efa18"
+                            + "00000000000000000000000000000000000000000000000000000000000003e8"));
+        }
+        transactionSigner = new TransactionSigner();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public List<String> signEach() {
+        List<String> result = new ArrayList<>(BATCH_SIZE);
+        for (Transaction transaction : transactions) {
+            result.add(transaction.sign(Fixtures.CREDENTIALS));
+        }
+        return result;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public List<String> signAll() {
+        return transactionSigner.signAll(transactions, Fixtures.CREDENTIALS);
+    }
+}
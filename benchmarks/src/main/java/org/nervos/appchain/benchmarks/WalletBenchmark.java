@@ -0,0 +1,45 @@
+package org.nervos.appchain.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.nervos.appchain.crypto.CipherException;
+import org.nervos.appchain.crypto.ECKeyPair;
+import org.nervos.appchain.crypto.Wallet;
+import org.nervos.appchain.crypto.WalletFile;
+
+/**
+ * Decryption of a wallet file created with the light scrypt parameters.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WalletBenchmark {
+
+    private static final String PASSWORD = "Insecure Pa55w0rd";
+
+    private WalletFile walletFile;
+
+    @Setup
+    public void setUp() throws CipherException {
+        walletFile = Wallet.createLight(PASSWORD, Fixtures.KEY_PAIR);
+    }
+
+    @Benchmark
+    public ECKeyPair decrypt() throws CipherException {
+        return Wallet.decrypt(PASSWORD, walletFile);
+    }
+}
@@ -3,8 +3,12 @@ package org.nervos.appchain.protocol;
 import java.io.IOException;
 import java.util.concurrent.Future;
 
+import org.nervos.appchain.protocol.core.BatchRequest;
+import org.nervos.appchain.protocol.core.BatchResponse;
 import org.nervos.appchain.protocol.core.Request;
 import org.nervos.appchain.protocol.core.Response;
+import org.nervos.appchain.protocol.websocket.events.Notification;
+import rx.Observable;
 
 /**
  * Services API.
@@ -15,4 +19,28 @@ public interface AppChainjService {
 
     <T extends Response> Future<T> sendAsync(
             Request request, Class<T> responseType);
+
+    BatchResponse sendBatch(BatchRequest batchRequest) throws IOException;
+
+    Future<BatchResponse> sendBatchAsync(BatchRequest batchRequest);
+
+    /**
+     * Subscribe to notifications pushed by the node.
+     *
+     * @param request subscription request
+     * @param unsubscribeMethod method used to cancel the subscription on unsubscribe
+     * @param responseType type of the notifications
+     * @param <T> type of the notifications
+     * @return an observable emitting the notifications of the subscription
+     * @throws UnsupportedOperationException if the transport has no server push
+     */
+    <T extends Notification<?>> Observable<T> subscribe(
+            Request request, String unsubscribeMethod, Class<T> responseType);
+
+    /**
+     * Whether {@link #subscribe(Request, String, Class)} is supported by this transport.
+     *
+     * @return true if the node can push notifications over this service
+     */
+    boolean supportsSubscriptions();
 }
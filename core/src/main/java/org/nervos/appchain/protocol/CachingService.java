@@ -0,0 +1,376 @@
+package org.nervos.appchain.protocol;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+
+import org.nervos.appchain.protocol.core.BatchRequest;
+import org.nervos.appchain.protocol.core.BatchResponse;
+import org.nervos.appchain.protocol.core.DefaultBlockParameter;
+import org.nervos.appchain.protocol.core.DefaultBlockParameterName;
+import org.nervos.appchain.protocol.core.Request;
+import org.nervos.appchain.protocol.core.Response;
+import org.nervos.appchain.protocol.websocket.events.Notification;
+import org.nervos.appchain.utils.Async;
+import org.nervos.appchain.utils.SettableFuture;
+import rx.Observable;
+
+/**
+ * Service decorator which caches responses that can never change.
+ *
+ * <p>{@code call}, {@code getCode}, {@code getAbi}, {@code getBalance} and
+ * {@code getTransactionCount} are cached when they are made at an explicit block number, and
+ * {@code getBlockByHash}, {@code getTransaction} and {@code getTransactionReceipt} once the
+ * node returns a result. Requests are keyed on their method and parameters, at most
+ * {@code maxEntries} responses are kept, least recently used first out.
+ *
+ * <p>Reads at {@code latest} are only cached for methods given a time to live with
+ * {@link #setLatestTtl(String, long, TimeUnit)}; reads at {@code pending} and error
+ * responses are never cached. Cached responses are shared between callers, so their ids do
+ * not match the requests they are returned for and they must not be modified.
+ */
+public class CachingService implements AppChainjService {
+
+    public static final int DEFAULT_MAX_ENTRIES = 4096;
+
+    private static final Set<String> BLOCK_PARAMETER_METHODS = new HashSet<>(Arrays.asList(
+            "call", "getCode", "getAbi", "getBalance", "getTransactionCount"));
+    private static final Set<String> KNOWN_RESULT_METHODS = new HashSet<>(Arrays.asList(
+            "getBlockByHash", "getTransaction", "getTransactionReceipt"));
+
+    private static final Pattern HEX_VALUE = Pattern.compile("0[xX][0-9a-fA-F]*");
+
+    private static final ObjectMapper objectMapper = ObjectMapperFactory.getObjectMapper();
+
+    private final AppChainjService appChainjService;
+    private final Map<String, CachedResponse> cache;
+    private final Map<String, Long> latestTtlNanos = new ConcurrentHashMap<>();
+    private final Metrics metrics = new Metrics();
+
+    public CachingService(AppChainjService appChainjService, final int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("Max entries must be positive: " + maxEntries);
+        }
+        this.appChainjService = appChainjService;
+        this.cache = new LinkedHashMap<String, CachedResponse>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResponse> eldest) {
+                if (size() > maxEntries) {
+                    metrics.evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public CachingService(AppChainjService appChainjService) {
+        this(appChainjService, DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * Cache reads of {@code method} at the {@code latest} block for {@code ttl}. A non positive
+     * time to live disables caching of latest reads again.
+     */
+    public void setLatestTtl(String method, long ttl, TimeUnit unit) {
+        if (ttl > 0) {
+            latestTtlNanos.put(method, unit.toNanos(ttl));
+        } else {
+            latestTtlNanos.remove(method);
+        }
+    }
+
+    @Override
+    public <T extends Response> T send(
+            Request request, Class<T> responseType) throws IOException {
+        CacheKey key = key(request);
+        T cached = lookup(key, responseType);
+        if (cached != null) {
+            return cached;
+        }
+        T response = appChainjService.send(request, responseType);
+        store(key, response);
+        return response;
+    }
+
+    @Override
+    public <T extends Response> Future<T> sendAsync(
+            Request request, Class<T> responseType) {
+        final CacheKey key = key(request);
+        T cached = lookup(key, responseType);
+        if (cached != null) {
+            SettableFuture<T> future = new SettableFuture<>();
+            future.set(cached);
+            return future;
+        }
+        final Future<T> future = appChainjService.sendAsync(request, responseType);
+        if (key == null) {
+            return future;
+        }
+
+        // the response is stored once it arrives, whether or not the caller reads it, and
+        // before the caller is completed so that a request sent after get() is a hit
+        final SettableFuture<T> stored = new SettableFuture<T>() {
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning) {
+                future.cancel(mayInterruptIfRunning);
+                return super.cancel(mayInterruptIfRunning);
+            }
+        };
+        SettableFuture.whenDone(future, new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    store(key, future.get());
+                } catch (ExecutionException | CancellationException e) {
+                    // nothing to store, the caller receives the failure
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                stored.setFrom(future);
+            }
+        });
+        return stored;
+    }
+
+    /**
+     * Send a batch, answering the requests which are cached locally and sending only the
+     * remaining ones to the node.
+     */
+    @Override
+    public BatchResponse sendBatch(BatchRequest batchRequest) throws IOException {
+        List<Request<?, ? extends Response>> requests = batchRequest.getRequests();
+        List<Response> responses = new ArrayList<>(requests.size());
+        List<CacheKey> keys = new ArrayList<>(requests.size());
+        List<Integer> missing = new ArrayList<>();
+        BatchRequest misses = new BatchRequest(appChainjService);
+
+        for (int i = 0; i < requests.size(); i++) {
+            Request<?, ? extends Response> request = requests.get(i);
+            CacheKey key = key(request);
+            Response cached = lookup(key, request.getResponseType());
+            keys.add(key);
+            responses.add(cached);
+            if (cached == null) {
+                missing.add(i);
+                misses.add(request);
+            }
+        }
+        if (missing.isEmpty()) {
+            return new BatchResponse(requests, responses);
+        }
+
+        BatchResponse batchResponse = appChainjService.sendBatch(misses);
+        if (batchResponse == null) {
+            return null;
+        }
+        for (int i = 0; i < missing.size(); i++) {
+            int index = missing.get(i);
+            Response response = batchResponse.getResponse(i);
+            store(keys.get(index), response);
+            responses.set(index, response);
+        }
+        return new BatchResponse(requests, responses);
+    }
+
+    @Override
+    public Future<BatchResponse> sendBatchAsync(final BatchRequest batchRequest) {
+        return Async.run(new Callable<BatchResponse>() {
+            @Override
+            public BatchResponse call() throws Exception {
+                return sendBatch(batchRequest);
+            }
+        });
+    }
+
+    @Override
+    public <T extends Notification<?>> Observable<T> subscribe(
+            Request request, String unsubscribeMethod, Class<T> responseType) {
+        return appChainjService.subscribe(request, unsubscribeMethod, responseType);
+    }
+
+    @Override
+    public boolean supportsSubscriptions() {
+        return appChainjService.supportsSubscriptions();
+    }
+
+    public void clear() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    private <T extends Response> T lookup(CacheKey key, Class<T> responseType) {
+        if (key == null) {
+            return null;
+        }
+        CachedResponse cached;
+        synchronized (cache) {
+            cached = cache.get(key.value);
+            if (cached != null && cached.expiresAtNanos - System.nanoTime() < 0) {
+                cache.remove(key.value);
+                cached = null;
+            }
+        }
+        if (cached == null || !responseType.isInstance(cached.response)) {
+            metrics.misses.incrementAndGet();
+            return null;
+        }
+        metrics.hits.incrementAndGet();
+        return responseType.cast(cached.response);
+    }
+
+    private void store(CacheKey key, Response response) {
+        if (key == null || response == null || response.hasError()
+                || response.getResult() == null) {
+            return;
+        }
+        long expiresAtNanos = key.ttlNanos == Long.MAX_VALUE
+                ? Long.MAX_VALUE : System.nanoTime() + key.ttlNanos;
+        synchronized (cache) {
+            cache.put(key.value, new CachedResponse(response, expiresAtNanos));
+        }
+    }
+
+    /**
+     * @return the cache key of a request, or null if its response must not be cached
+     */
+    private CacheKey key(Request<?, ?> request) {
+        String method = request.getMethod();
+        List<?> params = request.getParams();
+        long ttlNanos;
+        if (KNOWN_RESULT_METHODS.contains(method)) {
+            ttlNanos = Long.MAX_VALUE;
+        } else if (BLOCK_PARAMETER_METHODS.contains(method) && params != null
+                && !params.isEmpty()) {
+            Object last = params.get(params.size() - 1);
+            String blockParameter = last instanceof DefaultBlockParameter
+                    ? ((DefaultBlockParameter) last).getValue() : String.valueOf(last);
+            if (blockParameter.equals(DefaultBlockParameterName.LATEST.getValue())) {
+                Long ttl = latestTtlNanos.get(method);
+                if (ttl == null) {
+                    return null;
+                }
+                ttlNanos = ttl;
+            } else if (blockParameter.equals(DefaultBlockParameterName.PENDING.getValue())) {
+                return null;
+            } else {
+                ttlNanos = Long.MAX_VALUE;
+            }
+        } else {
+            return null;
+        }
+
+        try {
+            JsonNode canonicalParams = canonical(objectMapper.valueToTree(params));
+            return new CacheKey(
+                    method + objectMapper.writeValueAsString(canonicalParams), ttlNanos);
+        } catch (JsonProcessingException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Lowercase the hex encoded values of {@code node}, which are case insensitive, leaving
+     * other strings as they are.
+     */
+    private static JsonNode canonical(JsonNode node) {
+        if (node.isTextual()) {
+            String text = node.asText();
+            return HEX_VALUE.matcher(text).matches()
+                    ? TextNode.valueOf(text.toLowerCase(Locale.ROOT)) : node;
+        } else if (node.isArray()) {
+            ArrayNode array = (ArrayNode) node;
+            for (int i = 0; i < array.size(); i++) {
+                array.set(i, canonical(array.get(i)));
+            }
+        } else if (node.isObject()) {
+            Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                field.setValue(canonical(field.getValue()));
+            }
+        }
+        return node;
+    }
+
+    private static class CacheKey {
+        private final String value;
+        private final long ttlNanos;
+
+        CacheKey(String value, long ttlNanos) {
+            this.value = value;
+            this.ttlNanos = ttlNanos;
+        }
+    }
+
+    private static class CachedResponse {
+        private final Response response;
+        private final long expiresAtNanos;
+
+        CachedResponse(Response response, long expiresAtNanos) {
+            this.response = response;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+    }
+
+    /**
+     * Hit rate and evictions of a {@link CachingService}. Requests which are never cached are
+     * not counted.
+     */
+    public static class Metrics {
+
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+        private final AtomicLong evictions = new AtomicLong();
+
+        public long getHits() {
+            return hits.get();
+        }
+
+        public long getMisses() {
+            return misses.get();
+        }
+
+        public long getEvictions() {
+            return evictions.get();
+        }
+
+        public double getHitRate() {
+            long hitCount = hits.get();
+            long total = hitCount + misses.get();
+            return total == 0 ? 0 : (double) hitCount / total;
+        }
+    }
+}
@@ -0,0 +1,591 @@
+package org.nervos.appchain.protocol;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.nervos.appchain.protocol.core.BatchRequest;
+import org.nervos.appchain.protocol.core.BatchResponse;
+import org.nervos.appchain.protocol.core.Request;
+import org.nervos.appchain.protocol.core.Response;
+import org.nervos.appchain.protocol.core.methods.response.AppBlockNumber;
+import org.nervos.appchain.protocol.exceptions.ClientConnectionException;
+import org.nervos.appchain.protocol.websocket.events.Notification;
+import org.nervos.appchain.utils.Async;
+import org.nervos.appchain.utils.SettableFuture;
+import rx.Observable;
+
+/**
+ * Service which spreads requests across several nodes of the same chain.
+ *
+ * <p>Each request goes to the less loaded of two randomly chosen healthy nodes, where the
+ * load of a node is its moving average latency times its number of requests in flight. Nodes
+ * which never answered are assumed to have the average latency of the others. The height
+ * of every node is checked periodically with {@code blockNumber}: nodes which do not answer,
+ * or lag more than {@code maxLag} blocks behind the highest node, are ejected until a later
+ * check succeeds. A node is also ejected when a request to it fails with an
+ * {@link IOException}, or with a {@link ClientConnectionException} such as an HTTP error
+ * status.
+ *
+ * <p>Read only requests which fail this way are retried on the other nodes, and are sent to
+ * ejected nodes if no node is healthy. Transactions are only sent to healthy nodes and are
+ * never retried, as the failed node may still have received them. Filters live on the node
+ * which created them, so filter requests all go to the first healthy node.
+ *
+ * <p>Health checks probe every node at once, and a node which does not answer within the
+ * health check timeout is ejected.
+ */
+public class ClusterService implements AppChainjService, Closeable {
+
+    public static final long DEFAULT_HEALTH_CHECK_INTERVAL_MILLIS = 1000;
+    public static final long DEFAULT_MAX_LAG = 3;
+    public static final long DEFAULT_HEALTH_CHECK_TIMEOUT_MILLIS = 5000;
+
+    private static final Set<String> WRITE_METHODS = new HashSet<>(Arrays.asList(
+            "sendRawTransaction", "personal_newAccount", "personal_unlockAccount",
+            "personal_sendTransaction"));
+    private static final Set<String> FILTER_METHODS = new HashSet<>(Arrays.asList(
+            "newFilter", "newBlockFilter", "eth_newPendingTransactionFilter",
+            "uninstallFilter", "getFilterChanges", "getFilterLogs"));
+
+    private final List<Node> nodes;
+    private final long maxLag;
+    private final ScheduledFuture<?> healthCheck;
+    private final ScheduledExecutorService scheduledExecutorService;
+    // shut down on close if created by this service
+    private final boolean ownsExecutorService;
+    private final Metrics metrics = new Metrics();
+    private volatile long healthCheckTimeoutNanos =
+            TimeUnit.MILLISECONDS.toNanos(DEFAULT_HEALTH_CHECK_TIMEOUT_MILLIS);
+
+    /**
+     * @param healthCheckIntervalMillis interval between health checks, or 0 to only check
+     *                                  on {@link #checkHealth()}
+     */
+    public ClusterService(
+            List<? extends AppChainjService> services, long healthCheckIntervalMillis,
+            long maxLag, ScheduledExecutorService scheduledExecutorService) {
+        this(services, healthCheckIntervalMillis, maxLag, scheduledExecutorService, false);
+    }
+
+    /**
+     * Balance over {@code services} with the default settings. The pool which runs the health
+     * checks is shut down by {@link #close()}.
+     */
+    public ClusterService(List<? extends AppChainjService> services) {
+        this(services, DEFAULT_HEALTH_CHECK_INTERVAL_MILLIS, DEFAULT_MAX_LAG,
+                Async.defaultExecutorService(), true);
+    }
+
+    private ClusterService(
+            List<? extends AppChainjService> services, long healthCheckIntervalMillis,
+            long maxLag, ScheduledExecutorService scheduledExecutorService,
+            boolean ownsExecutorService) {
+        if (services.isEmpty()) {
+            throw new IllegalArgumentException("No services");
+        }
+        if (healthCheckIntervalMillis < 0) {
+            throw new IllegalArgumentException(
+                    "Interval must not be negative: " + healthCheckIntervalMillis);
+        }
+        List<Node> nodes = new ArrayList<>(services.size());
+        for (AppChainjService service : services) {
+            nodes.add(new Node(service));
+        }
+        this.nodes = Collections.unmodifiableList(nodes);
+        this.maxLag = maxLag;
+        this.scheduledExecutorService = scheduledExecutorService;
+        this.ownsExecutorService = ownsExecutorService;
+
+        if (healthCheckIntervalMillis > 0) {
+            healthCheck = scheduledExecutorService.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    checkHealth();
+                }
+            }, 0, healthCheckIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            healthCheck = null;
+        }
+    }
+
+    @Override
+    public <T extends Response> T send(
+            final Request request, final Class<T> responseType) throws IOException {
+        return route(request.getMethod(), new Call<T>() {
+            @Override
+            public T call(AppChainjService service) throws IOException {
+                return service.send(request, responseType);
+            }
+        });
+    }
+
+    @Override
+    public <T extends Response> Future<T> sendAsync(
+            final Request request, final Class<T> responseType) {
+        return routeAsync(request.getMethod(), new AsyncCall<T>() {
+            @Override
+            public Future<T> call(AppChainjService service) {
+                return service.sendAsync(request, responseType);
+            }
+        });
+    }
+
+    @Override
+    public BatchResponse sendBatch(final BatchRequest batchRequest) throws IOException {
+        return route(batchMethod(batchRequest), new Call<BatchResponse>() {
+            @Override
+            public BatchResponse call(AppChainjService service) throws IOException {
+                return service.sendBatch(batchRequest);
+            }
+        });
+    }
+
+    @Override
+    public Future<BatchResponse> sendBatchAsync(final BatchRequest batchRequest) {
+        return routeAsync(batchMethod(batchRequest), new AsyncCall<BatchResponse>() {
+            @Override
+            public Future<BatchResponse> call(AppChainjService service) {
+                return service.sendBatchAsync(batchRequest);
+            }
+        });
+    }
+
+    /**
+     * @return the first method of the batch which is not read only, or null if it is read only
+     */
+    private static String batchMethod(BatchRequest batchRequest) {
+        for (Request<?, ? extends Response> request : batchRequest.getRequests()) {
+            if (WRITE_METHODS.contains(request.getMethod())
+                    || FILTER_METHODS.contains(request.getMethod())) {
+                return request.getMethod();
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public <T extends Notification<?>> Observable<T> subscribe(
+            Request request, String unsubscribeMethod, Class<T> responseType) {
+        Node fallback = null;
+        for (Node node : nodes) {
+            if (node.service.supportsSubscriptions()) {
+                if (node.healthy) {
+                    return node.service.subscribe(request, unsubscribeMethod, responseType);
+                } else if (fallback == null) {
+                    fallback = node;
+                }
+            }
+        }
+        if (fallback == null) {
+            throw new UnsupportedOperationException("No service supports subscriptions");
+        }
+        return fallback.service.subscribe(request, unsubscribeMethod, responseType);
+    }
+
+    @Override
+    public boolean supportsSubscriptions() {
+        for (Node node : nodes) {
+            if (node.service.supportsSubscriptions()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Query the height of every node, and eject those which fail, do not answer within the
+     * health check timeout, or lag behind.
+     */
+    public void checkHealth() {
+        List<Future<AppBlockNumber>> probes = new ArrayList<>(nodes.size());
+        for (Node node : nodes) {
+            probes.add(node.callAsync(new AsyncCall<AppBlockNumber>() {
+                @Override
+                public Future<AppBlockNumber> call(AppChainjService service) {
+                    return new Request<>(
+                            "blockNumber", Collections.<String>emptyList(),
+                            service, AppBlockNumber.class).sendAsync();
+                }
+            }));
+        }
+
+        long deadline = System.nanoTime() + healthCheckTimeoutNanos;
+        BigInteger[] heights = new BigInteger[nodes.size()];
+        BigInteger highest = null;
+        for (int i = 0; i < heights.length; i++) {
+            Future<AppBlockNumber> probe = probes.get(i);
+            try {
+                AppBlockNumber response = probe.get(
+                        Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                if (!response.hasError()) {
+                    heights[i] = response.getBlockNumber();
+                    if (highest == null || heights[i].compareTo(highest) > 0) {
+                        highest = heights[i];
+                    }
+                }
+            } catch (TimeoutException e) {
+                probe.cancel(true);
+            } catch (ExecutionException | CancellationException e) {
+                // left without a height
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+
+        for (int i = 0; i < heights.length; i++) {
+            Node node = nodes.get(i);
+            if (heights[i] != null) {
+                node.height = heights[i].longValue();
+            }
+            boolean healthy = heights[i] != null
+                    && highest.subtract(heights[i]).compareTo(BigInteger.valueOf(maxLag)) <= 0;
+            if (node.healthy && !healthy) {
+                metrics.ejections.incrementAndGet();
+            }
+            node.healthy = healthy;
+        }
+    }
+
+    public List<Node> getNodes() {
+        return nodes;
+    }
+
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @param timeout time within which nodes must answer a health check
+     */
+    public void setHealthCheckTimeout(long timeout, TimeUnit unit) {
+        healthCheckTimeoutNanos = unit.toNanos(timeout);
+    }
+
+    /**
+     * Stop the periodic health checks, and shut down their pool if this service created it.
+     * The services of the nodes are not closed.
+     */
+    @Override
+    public void close() {
+        if (healthCheck != null) {
+            healthCheck.cancel(false);
+        }
+        if (ownsExecutorService) {
+            scheduledExecutorService.shutdownNow();
+        }
+    }
+
+    private <T> T route(String method, Call<T> call) throws IOException {
+        if (method != null && FILTER_METHODS.contains(method)) {
+            return firstHealthy().call(call);
+        } else if (method != null && WRITE_METHODS.contains(method)) {
+            Node node = choose(Collections.<Node>emptySet(), true);
+            if (node == null) {
+                throw new IOException("No healthy node to send " + method + " to");
+            }
+            return node.call(call);
+        }
+
+        Set<Node> tried = new HashSet<>();
+        Exception failure = null;
+        for (int attempt = 0; attempt < nodes.size(); attempt++) {
+            Node node = choose(tried, true);
+            if (node == null) {
+                node = choose(tried, false);
+            }
+            if (attempt > 0) {
+                metrics.failovers.incrementAndGet();
+            }
+            try {
+                return node.call(call);
+            } catch (IOException | ClientConnectionException e) {
+                tried.add(node);
+                failure = e;
+            }
+        }
+        if (failure instanceof ClientConnectionException) {
+            throw (ClientConnectionException) failure;
+        }
+        throw (IOException) failure;
+    }
+
+    private <T> Future<T> routeAsync(String method, AsyncCall<T> call) {
+        SettableFuture<T> result = new SettableFuture<>();
+        if (method != null && FILTER_METHODS.contains(method)) {
+            result.setFrom(firstHealthy().callAsync(call));
+        } else if (method != null && WRITE_METHODS.contains(method)) {
+            Node node = choose(Collections.<Node>emptySet(), true);
+            if (node == null) {
+                result.setException(new IOException("No healthy node to send " + method + " to"));
+            } else {
+                result.setFrom(node.callAsync(call));
+            }
+        } else {
+            attemptAsync(call, new HashSet<Node>(), 0, result);
+        }
+        return result;
+    }
+
+    /**
+     * Send a read only request to a node not tried yet, and fail over to the next one from the
+     * completion of the attempt.
+     */
+    private <T> void attemptAsync(
+            final AsyncCall<T> call, final Set<Node> tried, final int attempt,
+            final SettableFuture<T> result) {
+        Node node = choose(tried, true);
+        if (node == null) {
+            node = choose(tried, false);
+        }
+        if (attempt > 0) {
+            metrics.failovers.incrementAndGet();
+        }
+        final Node chosen = node;
+        final Future<T> future = node.callAsync(call);
+        SettableFuture.whenDone(future, new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    result.set(future.get());
+                } catch (ExecutionException e) {
+                    if (isNodeFailure(e.getCause()) && attempt + 1 < nodes.size()) {
+                        tried.add(chosen);
+                        attemptAsync(call, tried, attempt + 1, result);
+                    } else {
+                        result.setException(e.getCause());
+                    }
+                } catch (InterruptedException | CancellationException e) {
+                    result.setException(e);
+                }
+            }
+        });
+    }
+
+    private static boolean isNodeFailure(Throwable failure) {
+        return failure instanceof IOException || failure instanceof ClientConnectionException;
+    }
+
+    private Node firstHealthy() {
+        for (Node node : nodes) {
+            if (node.healthy) {
+                return node;
+            }
+        }
+        return nodes.get(0);
+    }
+
+    /**
+     * Pick the less loaded of two random nodes which were not tried yet.
+     *
+     * @return the node, or null if there is none
+     */
+    private Node choose(Set<Node> tried, boolean healthyOnly) {
+        List<Node> candidates = new ArrayList<>(nodes.size());
+        for (Node node : nodes) {
+            if (!tried.contains(node) && (node.healthy || !healthyOnly)) {
+                candidates.add(node);
+            }
+        }
+        int size = candidates.size();
+        if (size <= 1) {
+            return size == 0 ? null : candidates.get(0);
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(size);
+        int second = random.nextInt(size - 1);
+        if (second >= first) {
+            second++;
+        }
+        Node a = candidates.get(first);
+        Node b = candidates.get(second);
+        return a.load() <= b.load() ? a : b;
+    }
+
+    /**
+     * @return the average latency of the nodes which have one, or 1 if none has
+     */
+    private long averageLatency() {
+        long total = 0;
+        int count = 0;
+        for (Node node : nodes) {
+            long latency = node.latencyNanos.get();
+            if (latency > 0) {
+                total += latency;
+                count++;
+            }
+        }
+        return count == 0 ? 1 : total / count;
+    }
+
+    private void eject(Node node) {
+        if (node.healthy) {
+            node.healthy = false;
+            metrics.ejections.incrementAndGet();
+        }
+    }
+
+    private interface Call<T> {
+        T call(AppChainjService service) throws IOException;
+    }
+
+    private interface AsyncCall<T> {
+        Future<T> call(AppChainjService service);
+    }
+
+    /**
+     * A service of the cluster and its routing state.
+     */
+    public class Node {
+        // weight of the newest sample in the moving average latency
+        private static final double ALPHA = 0.2;
+
+        private final AppChainjService service;
+        private final AtomicLong latencyNanos = new AtomicLong();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private volatile boolean healthy = true;
+        private volatile long height = -1;
+
+        Node(AppChainjService service) {
+            this.service = service;
+        }
+
+        <T> T call(Call<T> call) throws IOException {
+            inFlight.incrementAndGet();
+            requests.incrementAndGet();
+            long start = System.nanoTime();
+            try {
+                T result = call.call(service);
+                recordLatency(System.nanoTime() - start);
+                return result;
+            } catch (IOException | ClientConnectionException e) {
+                failures.incrementAndGet();
+                eject(this);
+                throw e;
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }
+
+        <T> Future<T> callAsync(AsyncCall<T> call) {
+            inFlight.incrementAndGet();
+            requests.incrementAndGet();
+            final long start = System.nanoTime();
+            final Future<T> future;
+            try {
+                future = call.call(service);
+            } catch (RuntimeException e) {
+                inFlight.decrementAndGet();
+                SettableFuture<T> failed = new SettableFuture<>();
+                failed.setException(e);
+                return failed;
+            }
+            SettableFuture.whenDone(future, new Runnable() {
+                @Override
+                public void run() {
+                    inFlight.decrementAndGet();
+                    try {
+                        future.get();
+                        recordLatency(System.nanoTime() - start);
+                    } catch (ExecutionException e) {
+                        if (isNodeFailure(e.getCause())) {
+                            failures.incrementAndGet();
+                            eject(Node.this);
+                        }
+                    } catch (InterruptedException | CancellationException e) {
+                        // not a failure of the node
+                    }
+                }
+            });
+            return future;
+        }
+
+        private void recordLatency(long sample) {
+            while (true) {
+                long current = latencyNanos.get();
+                long updated = current == 0
+                        ? sample : current + (long) ((sample - current) * ALPHA);
+                if (latencyNanos.compareAndSet(current, Math.max(updated, 1))) {
+                    return;
+                }
+            }
+        }
+
+        double load() {
+            long latency = latencyNanos.get();
+            if (latency == 0) {
+                // no sample yet, so that its requests in flight still count
+                latency = averageLatency();
+            }
+            return (double) latency * (inFlight.get() + 1);
+        }
+
+        public AppChainjService getService() {
+            return service;
+        }
+
+        public boolean isHealthy() {
+            return healthy;
+        }
+
+        /**
+         * @return the height at the last health check, or -1 if it never answered
+         */
+        public long getHeight() {
+            return height;
+        }
+
+        public long getLatency(TimeUnit unit) {
+            return unit.convert(latencyNanos.get(), TimeUnit.NANOSECONDS);
+        }
+
+        public int getInFlight() {
+            return inFlight.get();
+        }
+
+        public long getRequestCount() {
+            return requests.get();
+        }
+
+        public long getFailureCount() {
+            return failures.get();
+        }
+    }
+
+    /**
+     * Number of requests retried on another node and of nodes ejected from the cluster.
+     */
+    public static class Metrics {
+
+        private final AtomicLong failovers = new AtomicLong();
+        private final AtomicLong ejections = new AtomicLong();
+
+        public long getFailovers() {
+            return failovers.get();
+        }
+
+        public long getEjections() {
+            return ejections.get();
+        }
+    }
+}
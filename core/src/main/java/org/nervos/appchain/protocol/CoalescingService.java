@@ -0,0 +1,359 @@
+package org.nervos.appchain.protocol;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.nervos.appchain.protocol.core.BatchRequest;
+import org.nervos.appchain.protocol.core.BatchResponse;
+import org.nervos.appchain.protocol.core.Request;
+import org.nervos.appchain.protocol.core.Response;
+import org.nervos.appchain.protocol.websocket.events.Notification;
+import org.nervos.appchain.utils.Async;
+import org.nervos.appchain.utils.SettableFuture;
+import rx.Observable;
+
+/**
+ * Service decorator which coalesces individually sent requests into JSON-RPC batches.
+ *
+ * <p>Requests are held for at most {@code windowMillis}, or until {@code maxBatchSize} requests
+ * are pending, and are then sent to the underlying service as a single {@link BatchRequest}.
+ * Each caller is completed with its own response, so existing {@link Request#send()} call
+ * sites benefit from batching without modification.
+ *
+ * <p>Batches are sent with {@link AppChainjService#sendBatchAsync(BatchRequest)} and callers
+ * are completed once the response arrives, so the timer pool only collects requests and never
+ * waits for a node.
+ */
+public class CoalescingService implements AppChainjService, Closeable {
+
+    public static final long DEFAULT_WINDOW_MILLIS = 2;
+    public static final int DEFAULT_MAX_BATCH_SIZE = 100;
+
+    private final AppChainjService appChainjService;
+    private final long windowMillis;
+    private final int maxBatchSize;
+    private final ScheduledExecutorService scheduledExecutorService;
+    private final boolean ownsExecutorService;
+    private final Metrics metrics = new Metrics();
+
+    private final Object lock = new Object();
+    private List<PendingRequest<?>> pending = new ArrayList<>();
+    private ScheduledFuture<?> scheduledFlush;
+
+    private final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    public CoalescingService(
+            AppChainjService appChainjService, long windowMillis, int maxBatchSize,
+            ScheduledExecutorService scheduledExecutorService) {
+        this(appChainjService, windowMillis, maxBatchSize, scheduledExecutorService, false);
+    }
+
+    /**
+     * Coalesce requests using a timer pool of its own, which is shut down by {@link #close()}.
+     */
+    public CoalescingService(
+            AppChainjService appChainjService, long windowMillis, int maxBatchSize) {
+        this(appChainjService, windowMillis, maxBatchSize, Async.defaultExecutorService(), true);
+    }
+
+    public CoalescingService(AppChainjService appChainjService) {
+        this(appChainjService, DEFAULT_WINDOW_MILLIS, DEFAULT_MAX_BATCH_SIZE);
+    }
+
+    private CoalescingService(
+            AppChainjService appChainjService, long windowMillis, int maxBatchSize,
+            ScheduledExecutorService scheduledExecutorService, boolean ownsExecutorService) {
+        if (windowMillis < 0) {
+            throw new IllegalArgumentException("Window must not be negative: " + windowMillis);
+        }
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive: " + maxBatchSize);
+        }
+        this.appChainjService = appChainjService;
+        this.windowMillis = windowMillis;
+        this.maxBatchSize = maxBatchSize;
+        this.scheduledExecutorService = scheduledExecutorService;
+        this.ownsExecutorService = ownsExecutorService;
+    }
+
+    @Override
+    public <T extends Response> T send(
+            Request request, Class<T> responseType) throws IOException {
+        try {
+            return sendAsync(request, responseType).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for batched response");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else {
+                throw new IOException(cause);
+            }
+        }
+    }
+
+    @Override
+    public <T extends Response> Future<T> sendAsync(
+            Request request, Class<T> responseType) {
+        PendingRequest<T> pendingRequest = new PendingRequest<>(request, responseType);
+
+        List<PendingRequest<?>> toSend = null;
+        synchronized (lock) {
+            pending.add(pendingRequest);
+            if (pending.size() >= maxBatchSize) {
+                toSend = drain();
+            } else if (scheduledFlush == null) {
+                scheduledFlush = scheduledExecutorService.schedule(
+                        flushTask, windowMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        if (toSend != null) {
+            dispatch(toSend);
+        }
+        return pendingRequest.future;
+    }
+
+    @Override
+    public BatchResponse sendBatch(BatchRequest batchRequest) throws IOException {
+        return appChainjService.sendBatch(batchRequest);
+    }
+
+    @Override
+    public Future<BatchResponse> sendBatchAsync(BatchRequest batchRequest) {
+        return appChainjService.sendBatchAsync(batchRequest);
+    }
+
+    @Override
+    public <T extends Notification<?>> Observable<T> subscribe(
+            Request request, String unsubscribeMethod, Class<T> responseType) {
+        return appChainjService.subscribe(request, unsubscribeMethod, responseType);
+    }
+
+    @Override
+    public boolean supportsSubscriptions() {
+        return appChainjService.supportsSubscriptions();
+    }
+
+    /**
+     * Send all pending requests immediately, without waiting for the window to elapse.
+     */
+    public void flush() {
+        List<PendingRequest<?>> toSend;
+        synchronized (lock) {
+            toSend = drain();
+        }
+        dispatch(toSend);
+    }
+
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Send the pending requests and shut down the timer pool if this service created it. The
+     * service it wraps is not closed.
+     */
+    @Override
+    public void close() {
+        flush();
+        if (ownsExecutorService) {
+            scheduledExecutorService.shutdownNow();
+        }
+    }
+
+    private List<PendingRequest<?>> drain() {
+        List<PendingRequest<?>> drained = pending;
+        pending = new ArrayList<>();
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        return drained;
+    }
+
+    private void dispatch(List<PendingRequest<?>> requests) {
+        // responses are matched by id, so requests sharing an id have to go in separate batches
+        while (!requests.isEmpty()) {
+            List<PendingRequest<?>> batch = new ArrayList<>(requests.size());
+            List<PendingRequest<?>> remaining = new ArrayList<>();
+            Set<Long> ids = new HashSet<>();
+            for (PendingRequest<?> pendingRequest : requests) {
+                if (ids.add(pendingRequest.request.getId())) {
+                    batch.add(pendingRequest);
+                } else {
+                    remaining.add(pendingRequest);
+                }
+            }
+            dispatchBatch(batch);
+            requests = remaining;
+        }
+    }
+
+    private void dispatchBatch(final List<PendingRequest<?>> batch) {
+        long now = System.nanoTime();
+        for (PendingRequest<?> pendingRequest : batch) {
+            metrics.recordQueueingDelay(now - pendingRequest.createdNanos);
+        }
+        metrics.recordBatch(batch.size());
+
+        if (batch.size() == 1) {
+            batch.get(0).sendIndividually();
+            return;
+        }
+
+        BatchRequest batchRequest = new BatchRequest(appChainjService);
+        for (PendingRequest<?> pendingRequest : batch) {
+            batchRequest.add(pendingRequest.request);
+        }
+
+        final Future<BatchResponse> future;
+        try {
+            future = appChainjService.sendBatchAsync(batchRequest);
+        } catch (RuntimeException e) {
+            fail(batch, e);
+            return;
+        }
+        SettableFuture.whenDone(future, new Runnable() {
+            @Override
+            public void run() {
+                BatchResponse batchResponse;
+                try {
+                    batchResponse = future.get();
+                } catch (ExecutionException e) {
+                    fail(batch, e.getCause());
+                    return;
+                } catch (InterruptedException | CancellationException e) {
+                    fail(batch, e);
+                    return;
+                }
+                for (int i = 0; i < batch.size(); i++) {
+                    batch.get(i).complete(
+                            batchResponse == null ? null : batchResponse.getResponse(i));
+                }
+            }
+        });
+    }
+
+    private static void fail(List<PendingRequest<?>> batch, Throwable cause) {
+        for (PendingRequest<?> pendingRequest : batch) {
+            pendingRequest.future.setException(cause);
+        }
+    }
+
+    private class PendingRequest<T extends Response> {
+        private final Request<?, T> request;
+        private final Class<T> responseType;
+        private final SettableFuture<T> future = new SettableFuture<>();
+        private final long createdNanos = System.nanoTime();
+
+        @SuppressWarnings("unchecked")
+        PendingRequest(Request request, Class<T> responseType) {
+            this.request = (Request<?, T>) request;
+            this.responseType = responseType;
+        }
+
+        void complete(Response response) {
+            try {
+                future.set(responseType.cast(response));
+            } catch (ClassCastException e) {
+                future.setException(e);
+            }
+        }
+
+        void sendIndividually() {
+            try {
+                future.setFrom(appChainjService.sendAsync(request, responseType));
+            } catch (RuntimeException e) {
+                future.setException(e);
+            }
+        }
+    }
+
+    /**
+     * Batch size distribution and queueing delay of a {@link CoalescingService}.
+     *
+     * <p>Batch sizes are recorded in power of two buckets, bucket {@code i} counting batches
+     * of size {@code (2^(i-1), 2^i]}.
+     */
+    public static class Metrics {
+
+        private static final int BUCKETS = 32;
+
+        private final AtomicLongArray batchSizeBuckets = new AtomicLongArray(BUCKETS);
+        private final AtomicLong batchCount = new AtomicLong();
+        private final AtomicLong requestCount = new AtomicLong();
+        private final AtomicLong totalQueueingDelayNanos = new AtomicLong();
+        private final AtomicLong maxQueueingDelayNanos = new AtomicLong();
+
+        void recordBatch(int size) {
+            batchCount.incrementAndGet();
+            requestCount.addAndGet(size);
+            int bucket = 32 - Integer.numberOfLeadingZeros(size - 1);
+            batchSizeBuckets.incrementAndGet(Math.min(bucket, BUCKETS - 1));
+        }
+
+        void recordQueueingDelay(long delayNanos) {
+            totalQueueingDelayNanos.addAndGet(delayNanos);
+            long max = maxQueueingDelayNanos.get();
+            while (delayNanos > max && !maxQueueingDelayNanos.compareAndSet(max, delayNanos)) {
+                max = maxQueueingDelayNanos.get();
+            }
+        }
+
+        public long getBatchCount() {
+            return batchCount.get();
+        }
+
+        public long getRequestCount() {
+            return requestCount.get();
+        }
+
+        public double getAverageBatchSize() {
+            long batches = batchCount.get();
+            return batches == 0 ? 0 : (double) requestCount.get() / batches;
+        }
+
+        public long[] getBatchSizeDistribution() {
+            long[] distribution = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                distribution[i] = batchSizeBuckets.get(i);
+            }
+            return distribution;
+        }
+
+        public long getAverageQueueingDelay(TimeUnit unit) {
+            long requests = requestCount.get();
+            if (requests == 0) {
+                return 0;
+            }
+            return unit.convert(totalQueueingDelayNanos.get() / requests, TimeUnit.NANOSECONDS);
+        }
+
+        public long getMaxQueueingDelay(TimeUnit unit) {
+            return unit.convert(maxQueueingDelayNanos.get(), TimeUnit.NANOSECONDS);
+        }
+    }
+}
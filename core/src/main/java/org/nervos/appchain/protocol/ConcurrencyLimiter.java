@@ -0,0 +1,272 @@
+package org.nervos.appchain.protocol;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.nervos.appchain.protocol.exceptions.ClientConnectionException;
+import org.nervos.appchain.protocol.exceptions.ConcurrencyLimitExceededException;
+import org.nervos.appchain.utils.Async;
+import org.nervos.appchain.utils.SettableFuture;
+
+/**
+ * Adaptive limit on the number of requests a service has in flight.
+ *
+ * <p>The limit follows AIMD: it grows by one per round trip while requests complete at the
+ * usual latency, and shrinks by a tenth when a request fails in a way which suggests overload,
+ * see {@link #isOverload(Throwable)}, or when the recent average latency rises above twice
+ * the long term average. Both averages cover every request, so a steady mix of cheap and
+ * expensive methods is not mistaken for overload. Requests which were already in flight when
+ * the limit shrank do not shrink it again, so that a burst of slow responses backs off once.
+ *
+ * <p>Requests over the limit wait in a FIFO queue. Asynchronous requests wait without holding
+ * a thread. Once {@code maxQueueSize} requests are waiting, further requests are rejected with
+ * a {@link ConcurrencyLimitExceededException}.
+ *
+ * <p>Services do not limit their requests unless a limiter is set with
+ * {@link Service#setConcurrencyLimiter(ConcurrencyLimiter)}.
+ */
+public class ConcurrencyLimiter {
+
+    public static final int DEFAULT_INITIAL_LIMIT = 16;
+    public static final int DEFAULT_MAX_LIMIT = 256;
+    public static final int DEFAULT_MAX_QUEUE_SIZE = 1024;
+
+    private static final double BACKOFF_RATIO = 0.9;
+    // recent latency relative to the baseline above which the node is considered overloaded
+    private static final double TOLERANCE = 2.0;
+    // weight of a sample in the recent latency, and in the long term baseline
+    private static final double RECENT_ALPHA = 0.1;
+    private static final double BASELINE_ALPHA = 0.01;
+
+    private final int maxLimit;
+    private final int maxQueueSize;
+    private final ArrayDeque<Waiter> queue = new ArrayDeque<>();
+    private final AtomicLong rejected = new AtomicLong();
+
+    private double limit;
+    private long samples;
+    private double recentNanos;
+    private double baselineNanos;
+    private int inFlight;
+    // releases left before the limit may shrink again
+    private int recovering;
+
+    public ConcurrencyLimiter(int initialLimit, int maxLimit, int maxQueueSize) {
+        if (initialLimit < 1 || maxLimit < initialLimit || maxQueueSize < 0) {
+            throw new IllegalArgumentException(
+                    "initialLimit must be positive and at most maxLimit, and maxQueueSize must "
+                            + "not be negative");
+        }
+        this.limit = initialLimit;
+        this.maxLimit = maxLimit;
+        this.maxQueueSize = maxQueueSize;
+    }
+
+    public ConcurrencyLimiter() {
+        this(DEFAULT_INITIAL_LIMIT, DEFAULT_MAX_LIMIT, DEFAULT_MAX_QUEUE_SIZE);
+    }
+
+    /**
+     * Wait until a request may be sent. Every successful call must be followed by a call to
+     * {@link #release(long, boolean)}.
+     *
+     * @throws ConcurrencyLimitExceededException if the queue is full
+     * @throws InterruptedIOException if interrupted while waiting
+     */
+    public void acquire() throws IOException {
+        BlockingWaiter waiter = new BlockingWaiter();
+        if (enqueue(waiter)) {
+            return;
+        }
+        try {
+            waiter.latch.await();
+        } catch (InterruptedException e) {
+            boolean granted;
+            synchronized (this) {
+                granted = !queue.remove(waiter);
+            }
+            if (granted) {
+                release(0, true);
+            }
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for the concurrency limit");
+        }
+    }
+
+    /**
+     * Run {@code task} once a request may be sent, without holding a thread while waiting. The
+     * task runs on the thread which grants it, either the caller or a thread releasing the
+     * limiter, so it must not block. It must eventually call {@link #release(long, boolean)}.
+     *
+     * @throws ConcurrencyLimitExceededException if the queue is full
+     */
+    public void acquireAsync(final Runnable task) throws ConcurrencyLimitExceededException {
+        Waiter waiter = new Waiter() {
+            @Override
+            void grant() {
+                task.run();
+            }
+        };
+        if (enqueue(waiter)) {
+            waiter.grant();
+        }
+    }
+
+    /**
+     * Run {@code callable} on the shared {@link Async} executor once a request may be sent,
+     * and release the limiter when it completes.
+     *
+     * @return future of the result, failed with a {@link ConcurrencyLimitExceededException} if
+     *     the queue is full
+     */
+    public <T> Future<T> submit(final Callable<T> callable) {
+        final SettableFuture<T> future = new SettableFuture<>();
+        Waiter waiter = new Waiter() {
+            @Override
+            void grant() {
+                Async.run(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        if (future.isCancelled()) {
+                            release(0, true);
+                            return null;
+                        }
+                        long start = System.nanoTime();
+                        T result = null;
+                        Throwable failure = null;
+                        try {
+                            result = callable.call();
+                        } catch (Throwable e) {
+                            failure = e;
+                        }
+                        // released before completing, so that the permit is free once the
+                        // caller sees the result
+                        release(System.nanoTime() - start, !isOverload(failure));
+                        if (failure == null) {
+                            future.set(result);
+                        } else {
+                            future.setException(failure);
+                        }
+                        return null;
+                    }
+                });
+            }
+        };
+        try {
+            if (enqueue(waiter)) {
+                waiter.grant();
+            }
+        } catch (ConcurrencyLimitExceededException e) {
+            future.setException(e);
+        }
+        return future;
+    }
+
+    /**
+     * Record the outcome of a request, and let waiting requests proceed.
+     *
+     * @param latencyNanos time the request took
+     * @param success false if the request failed in a way which suggests overload, see
+     *                {@link #isOverload(Throwable)}
+     */
+    public void release(long latencyNanos, boolean success) {
+        List<Waiter> granted = new ArrayList<>();
+        synchronized (this) {
+            inFlight--;
+            if (latencyNanos > 0) {
+                update(latencyNanos, success);
+            }
+            while (!queue.isEmpty() && inFlight < (int) limit) {
+                inFlight++;
+                granted.add(queue.pollFirst());
+            }
+        }
+        for (Waiter waiter : granted) {
+            waiter.grant();
+        }
+    }
+
+    private void update(long latencyNanos, boolean success) {
+        if (success) {
+            samples++;
+            // plain averages until the weights are reached, so that neither starts out biased
+            recentNanos += (latencyNanos - recentNanos) * Math.max(RECENT_ALPHA, 1.0 / samples);
+            baselineNanos += (latencyNanos - baselineNanos)
+                    * Math.max(BASELINE_ALPHA, 1.0 / samples);
+        }
+        if (recovering > 0) {
+            recovering--;
+        } else if (!success || recentNanos > baselineNanos * TOLERANCE) {
+            limit = Math.max(1, limit * BACKOFF_RATIO);
+            // requests in flight were sent before backing off, and do not back off again
+            recovering = inFlight;
+        } else if (inFlight + 1 >= limit / 2) {
+            // only grow a limit which is actually used
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+    }
+
+    /**
+     * Whether a request failure suggests that the node is overloaded: an {@link IOException}
+     * such as a timeout, or a {@link ClientConnectionException} for a non-2xx response such as
+     * 429 or 503. Other failures, such as errors in the response, do not.
+     */
+    public static boolean isOverload(Throwable failure) {
+        return failure instanceof IOException || failure instanceof ClientConnectionException;
+    }
+
+    /**
+     * @return true if the waiter may proceed immediately, otherwise it was queued
+     */
+    private synchronized boolean enqueue(Waiter waiter)
+            throws ConcurrencyLimitExceededException {
+        if (queue.isEmpty() && inFlight < (int) limit) {
+            inFlight++;
+            return true;
+        }
+        if (queue.size() >= maxQueueSize) {
+            rejected.incrementAndGet();
+            throw new ConcurrencyLimitExceededException(
+                    "Concurrency limit of " + (int) limit + " reached with " + queue.size()
+                            + " requests waiting");
+        }
+        queue.addLast(waiter);
+        return false;
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public synchronized int getQueueDepth() {
+        return queue.size();
+    }
+
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    private abstract static class Waiter {
+        abstract void grant();
+    }
+
+    private static class BlockingWaiter extends Waiter {
+        private final CountDownLatch latch = new CountDownLatch(1);
+
+        @Override
+        void grant() {
+            latch.countDown();
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package org.nervos.appchain.protocol;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.nervos.appchain.protocol.core.BatchRequest;
+import org.nervos.appchain.protocol.core.BatchResponse;
+import org.nervos.appchain.protocol.core.Request;
+import org.nervos.appchain.protocol.core.Response;
+import org.nervos.appchain.protocol.websocket.events.Notification;
+import org.nervos.appchain.utils.Async;
+import org.nervos.appchain.utils.SettableFuture;
+import rx.Observable;
+
+/**
+ * Service decorator which hedges slow read only requests.
+ *
+ * <p>When a read only request has not completed after the {@code percentile} latency of
+ * recent requests, a duplicate is sent to the next service, and the first response wins.
+ * Requests rotate over the services, so with a single service the duplicate goes over
+ * another connection of the same service. Hedges are limited to {@code budget} times the
+ * number of read only requests, so that hedging never adds more than that fraction of load.
+ *
+ * <p>Requests with side effects, batches and subscriptions are sent to the first service
+ * without hedging. A hedge is a copy of the request with its own id, so that it does not
+ * collide with the original on a transport which matches responses by id, and its response
+ * carries the id of the original.
+ */
+public class HedgingService implements AppChainjService, Closeable {
+
+    public static final double DEFAULT_PERCENTILE = 0.95;
+    public static final double DEFAULT_BUDGET = 0.05;
+    // delay used until enough latencies have been recorded
+    public static final long DEFAULT_INITIAL_DELAY_MILLIS = 100;
+
+    private static final Set<String> HEDGED_METHODS = new HashSet<>(Arrays.asList(
+            "peerCount", "getMetaData", "blockNumber", "getBalance", "getAbi",
+            "getTransactionCount", "getCode", "call", "getBlockByHash", "getBlockByNumber",
+            "getTransaction", "getTransactionReceipt", "getLogs"));
+
+    // hedges which can be sent in a burst once the budget has accumulated
+    private static final double MAX_TOKENS = 10;
+
+    private final List<AppChainjService> services;
+    private final double budget;
+    private final ScheduledExecutorService scheduledExecutorService;
+    // shut down on close if created by this service
+    private final boolean ownsExecutorService;
+    private final LatencyTracker latencyTracker;
+    private final AtomicInteger next = new AtomicInteger();
+    private final Metrics metrics = new Metrics();
+
+    private final Object tokensLock = new Object();
+    private double tokens = 1;
+
+    public HedgingService(
+            List<? extends AppChainjService> services, double percentile, double budget,
+            long initialDelayMillis, ScheduledExecutorService scheduledExecutorService) {
+        this(services, percentile, budget, initialDelayMillis, scheduledExecutorService, false);
+    }
+
+    /**
+     * Hedge requests with the default settings. The timer pool this creates is shut down by
+     * {@link #close()}.
+     */
+    public HedgingService(List<? extends AppChainjService> services) {
+        this(services, DEFAULT_PERCENTILE, DEFAULT_BUDGET, DEFAULT_INITIAL_DELAY_MILLIS,
+                Async.defaultExecutorService(), true);
+    }
+
+    public HedgingService(AppChainjService appChainjService) {
+        this(Collections.singletonList(appChainjService));
+    }
+
+    private HedgingService(
+            List<? extends AppChainjService> services, double percentile, double budget,
+            long initialDelayMillis, ScheduledExecutorService scheduledExecutorService,
+            boolean ownsExecutorService) {
+        if (services.isEmpty()) {
+            throw new IllegalArgumentException("No services");
+        }
+        if (percentile <= 0 || percentile >= 1) {
+            throw new IllegalArgumentException(
+                    "Percentile must be between 0 and 1: " + percentile);
+        }
+        if (budget < 0) {
+            throw new IllegalArgumentException("Budget must not be negative: " + budget);
+        }
+        this.services = Collections.unmodifiableList(services);
+        this.budget = budget;
+        this.scheduledExecutorService = scheduledExecutorService;
+        this.ownsExecutorService = ownsExecutorService;
+        this.latencyTracker = new LatencyTracker(
+                percentile, TimeUnit.MILLISECONDS.toNanos(initialDelayMillis));
+    }
+
+    @Override
+    public <T extends Response> T send(
+            Request request, Class<T> responseType) throws IOException {
+        if (!HEDGED_METHODS.contains(request.getMethod())) {
+            return services.get(0).send(request, responseType);
+        }
+        try {
+            return sendAsync(request, responseType).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for hedged response");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else {
+                throw new IOException(cause);
+            }
+        }
+    }
+
+    @Override
+    public <T extends Response> Future<T> sendAsync(
+            final Request request, final Class<T> responseType) {
+        if (!HEDGED_METHODS.contains(request.getMethod())) {
+            return services.get(0).sendAsync(request, responseType);
+        }
+        metrics.requests.incrementAndGet();
+        synchronized (tokensLock) {
+            tokens = Math.min(MAX_TOKENS, tokens + budget);
+        }
+
+        int index = (next.getAndIncrement() & Integer.MAX_VALUE) % services.size();
+        final HedgedRequest<T> hedgedRequest = new HedgedRequest<>(request.getId());
+        hedgedRequest.start(services.get(index).sendAsync(request, responseType), false);
+
+        final AppChainjService hedgeService = services.get((index + 1) % services.size());
+        final ScheduledFuture<?> hedge = scheduledExecutorService.schedule(new Runnable() {
+            @Override
+            public void run() {
+                if (!hedgedRequest.future.isDone() && acquireToken()) {
+                    metrics.hedges.incrementAndGet();
+                    Request<?, T> copy = new Request<>(
+                            request.getMethod(), request.getParams(), hedgeService,
+                            responseType);
+                    hedgedRequest.start(hedgeService.sendAsync(copy, responseType), true);
+                }
+            }
+        }, latencyTracker.getDelayNanos(), TimeUnit.NANOSECONDS);
+        hedgedRequest.future.addListener(new Runnable() {
+            @Override
+            public void run() {
+                hedge.cancel(false);
+            }
+        });
+        return hedgedRequest.future;
+    }
+
+    @Override
+    public BatchResponse sendBatch(BatchRequest batchRequest) throws IOException {
+        return services.get(0).sendBatch(batchRequest);
+    }
+
+    @Override
+    public Future<BatchResponse> sendBatchAsync(BatchRequest batchRequest) {
+        return services.get(0).sendBatchAsync(batchRequest);
+    }
+
+    @Override
+    public <T extends Notification<?>> Observable<T> subscribe(
+            Request request, String unsubscribeMethod, Class<T> responseType) {
+        return services.get(0).subscribe(request, unsubscribeMethod, responseType);
+    }
+
+    @Override
+    public boolean supportsSubscriptions() {
+        return services.get(0).supportsSubscriptions();
+    }
+
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Shut down the timer pool if this service created it. The services it wraps are not
+     * closed.
+     */
+    @Override
+    public void close() {
+        if (ownsExecutorService) {
+            scheduledExecutorService.shutdownNow();
+        }
+    }
+
+    /**
+     * @return the current delay before a request is hedged
+     */
+    public long getDelay(TimeUnit unit) {
+        return unit.convert(latencyTracker.getDelayNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    private boolean acquireToken() {
+        synchronized (tokensLock) {
+            if (tokens < 1) {
+                metrics.denied.incrementAndGet();
+                return false;
+            }
+            tokens--;
+            return true;
+        }
+    }
+
+    /**
+     * A request and its hedge, completed by the first successful response, or by the last
+     * failure. The attempt which loses is cancelled.
+     */
+    private class HedgedRequest<T extends Response> {
+        private final long id;
+        private final SettableFuture<T> future = new SettableFuture<>();
+        private final List<Future<T>> attempts = new ArrayList<>(2);
+        private int failed;
+
+        HedgedRequest(long id) {
+            this.id = id;
+        }
+
+        void start(final Future<T> attempt, final boolean hedge) {
+            synchronized (this) {
+                attempts.add(attempt);
+            }
+            final long startNanos = System.nanoTime();
+            SettableFuture.whenDone(attempt, new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        T response = attempt.get();
+                        if (!hedge) {
+                            // latencies of hedges would bias the distribution downwards
+                            latencyTracker.record(System.nanoTime() - startNanos);
+                        }
+                        complete(response, hedge);
+                    } catch (ExecutionException e) {
+                        fail(e.getCause());
+                    } catch (InterruptedException | CancellationException e) {
+                        fail(e);
+                    }
+                }
+            });
+        }
+
+        private void complete(T response, boolean hedge) {
+            List<Future<T>> losers;
+            synchronized (this) {
+                if (future.isDone()) {
+                    return;
+                }
+                if (hedge) {
+                    metrics.hedgesWon.incrementAndGet();
+                    response.setId(id);
+                }
+                future.set(response);
+                losers = new ArrayList<>(attempts);
+            }
+            for (Future<T> attempt : losers) {
+                if (!attempt.isDone()) {
+                    attempt.cancel(true);
+                }
+            }
+        }
+
+        private synchronized void fail(Throwable e) {
+            if (++failed == attempts.size() && !future.isDone()) {
+                future.setException(e);
+            }
+        }
+    }
+
+    /**
+     * Percentile of the latencies of recent requests.
+     */
+    private static class LatencyTracker {
+        private static final int SAMPLES = 1024;
+        // samples recorded between recomputations of the percentile
+        private static final int RECOMPUTE_INTERVAL = 64;
+
+        private final double percentile;
+        private final long[] samples = new long[SAMPLES];
+        private int count;
+        private volatile long delayNanos;
+
+        LatencyTracker(double percentile, long initialDelayNanos) {
+            this.percentile = percentile;
+            this.delayNanos = initialDelayNanos;
+        }
+
+        void record(long latencyNanos) {
+            long[] sorted = null;
+            int size = 0;
+            synchronized (this) {
+                samples[count++ % SAMPLES] = latencyNanos;
+                if (count % RECOMPUTE_INTERVAL == 0) {
+                    size = Math.min(count, SAMPLES);
+                    sorted = Arrays.copyOf(samples, size);
+                }
+            }
+            if (sorted != null) {
+                Arrays.sort(sorted);
+                delayNanos = sorted[Math.min(size - 1, (int) (size * percentile))];
+            }
+        }
+
+        long getDelayNanos() {
+            return delayNanos;
+        }
+    }
+
+    /**
+     * Number of hedged requests, of hedges sent, won and denied by the budget.
+     */
+    public static class Metrics {
+
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong hedges = new AtomicLong();
+        private final AtomicLong hedgesWon = new AtomicLong();
+        private final AtomicLong denied = new AtomicLong();
+
+        public long getRequests() {
+            return requests.get();
+        }
+
+        public long getHedges() {
+            return hedges.get();
+        }
+
+        public long getHedgesWon() {
+            return hedgesWon.get();
+        }
+
+        public long getDenied() {
+            return denied.get();
+        }
+    }
+}
@@ -2,14 +2,25 @@ package org.nervos.appchain.protocol;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.Future;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import org.nervos.appchain.protocol.core.BatchRequest;
+import org.nervos.appchain.protocol.core.BatchResponse;
 import org.nervos.appchain.protocol.core.Request;
 import org.nervos.appchain.protocol.core.Response;
+import org.nervos.appchain.protocol.deserializer.BatchResponseParser;
+import org.nervos.appchain.protocol.deserializer.ResponseStreamer;
+import org.nervos.appchain.protocol.websocket.events.Notification;
 import org.nervos.appchain.utils.Async;
+import org.nervos.appchain.utils.SettableFuture;
+import rx.Observable;
 
 /**
  * Base service implementation.
@@ -18,14 +29,59 @@ public abstract class Service implements AppChainjService {
 
     protected final ObjectMapper objectMapper;
 
+    private final BatchResponseParser batchResponseParser;
+
+    private volatile ConcurrencyLimiter concurrencyLimiter;
+
     public Service(boolean includeRawResponses) {
         objectMapper = ObjectMapperFactory.getObjectMapper(includeRawResponses);
+        batchResponseParser = new BatchResponseParser(objectMapper, includeRawResponses);
+    }
+
+    /**
+     * @return the limiter bounding the requests this service has in flight, or null if they
+     *     are not bounded, which is the default
+     */
+    public ConcurrencyLimiter getConcurrencyLimiter() {
+        return concurrencyLimiter;
+    }
+
+    /**
+     * Bound the requests this service has in flight, see {@link ConcurrencyLimiter}. Requests
+     * are not bounded by default.
+     *
+     * @param concurrencyLimiter the new limiter, or null to not bound requests
+     */
+    public void setConcurrencyLimiter(ConcurrencyLimiter concurrencyLimiter) {
+        this.concurrencyLimiter = concurrencyLimiter;
     }
 
     protected abstract InputStream performIO(String payload) throws IOException;
 
+    /**
+     * Perform IO for a response which is consumed incrementally and never re-read. Transports
+     * which buffer responses in {@link #performIO(String)} should avoid doing so here.
+     *
+     * @param payload the request payload
+     * @return the response stream
+     * @throws IOException if the request fails
+     */
+    protected InputStream performStreamingIO(String payload) throws IOException {
+        return performIO(payload);
+    }
+
     @Override
     public <T extends Response> T send(
+            final Request request, final Class<T> responseType) throws IOException {
+        return limit(new Call<T>() {
+            @Override
+            public T call() throws IOException {
+                return performSend(request, responseType);
+            }
+        });
+    }
+
+    private <T extends Response> T performSend(
             Request request, Class<T> responseType) throws IOException {
         String payload = objectMapper.writeValueAsString(request);
 
@@ -38,14 +94,151 @@ public abstract class Service implements AppChainjService {
         }
     }
 
+    /**
+     * Send a request and deserialise its response incrementally from the transport's input
+     * stream, see {@link ResponseStreamer}. The response body is never buffered as a whole, so
+     * the raw response is not populated even if raw responses are included by this service.
+     *
+     * @param request the request to send
+     * @param responseStreamer streamer to process the response with
+     * @param <T> the response type
+     * @return the response, with its result as populated by the streamer
+     * @throws IOException if the request fails or the response cannot be parsed
+     */
+    public <T extends Response> T send(
+            final Request request, final ResponseStreamer<T> responseStreamer)
+            throws IOException {
+        return limit(new Call<T>() {
+            @Override
+            public T call() throws IOException {
+                return performSend(request, responseStreamer);
+            }
+        });
+    }
+
+    private <T extends Response> T performSend(
+            Request request, ResponseStreamer<T> responseStreamer) throws IOException {
+        String payload = objectMapper.writeValueAsString(request);
+
+        try (InputStream result = performStreamingIO(payload)) {
+            if (result != null) {
+                try (JsonParser jsonParser = objectMapper.getFactory().createParser(result)) {
+                    return responseStreamer.stream(jsonParser);
+                }
+            } else {
+                return null;
+            }
+        }
+    }
+
     @Override
     public <T extends Response> Future<T> sendAsync(
             final Request jsonRpc20Request, final Class<T> responseType) {
-        return Async.run(new Callable<T>() {
+        return submit(new Callable<T>() {
             @Override
             public T call() throws Exception {
-                return Service.this.send(jsonRpc20Request, responseType);
+                return performSend(jsonRpc20Request, responseType);
+            }
+        });
+    }
+
+    @Override
+    public BatchResponse sendBatch(final BatchRequest batchRequest) throws IOException {
+        return limit(new Call<BatchResponse>() {
+            @Override
+            public BatchResponse call() throws IOException {
+                return performSendBatch(batchRequest);
+            }
+        });
+    }
+
+    private BatchResponse performSendBatch(BatchRequest batchRequest) throws IOException {
+        List<Request<?, ? extends Response>> requests = batchRequest.getRequests();
+        if (requests.isEmpty()) {
+            return new BatchResponse(requests, new ArrayList<Response>());
+        }
+
+        String payload = objectMapper.writeValueAsString(requests);
+
+        try (InputStream result = performIO(payload)) {
+            if (result != null) {
+                return parseBatchResponse(requests, objectMapper.readTree(result));
+            } else {
+                return null;
+            }
+        }
+    }
+
+    @Override
+    public Future<BatchResponse> sendBatchAsync(final BatchRequest batchRequest) {
+        return submit(new Callable<BatchResponse>() {
+            @Override
+            public BatchResponse call() throws Exception {
+                return performSendBatch(batchRequest);
+            }
+        });
+    }
+
+    @Override
+    public <T extends Notification<?>> Observable<T> subscribe(
+            Request request, String unsubscribeMethod, Class<T> responseType) {
+        throw new UnsupportedOperationException(
+                String.format("Service %s does not support subscriptions",
+                        this.getClass().getSimpleName()));
+    }
+
+    @Override
+    public boolean supportsSubscriptions() {
+        return false;
+    }
+
+    protected BatchResponse parseBatchResponse(
+            List<Request<?, ? extends Response>> requests, JsonNode node) throws IOException {
+        return batchResponseParser.parse(requests, node);
+    }
+
+    private <T> T limit(Call<T> call) throws IOException {
+        ConcurrencyLimiter limiter = concurrencyLimiter;
+        if (limiter == null) {
+            return call.call();
+        }
+        limiter.acquire();
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            T result = call.call();
+            success = true;
+            return result;
+        } catch (RuntimeException e) {
+            success = !ConcurrencyLimiter.isOverload(e);
+            throw e;
+        } finally {
+            limiter.release(System.nanoTime() - start, success);
+        }
+    }
+
+    private <T> Future<T> submit(final Callable<T> callable) {
+        ConcurrencyLimiter limiter = concurrencyLimiter;
+        if (limiter != null) {
+            return limiter.submit(callable);
+        }
+        // completed explicitly, so that decorators can listen for the result
+        final SettableFuture<T> future = new SettableFuture<>();
+        Async.run(new Callable<Void>() {
+            @Override
+            public Void call() {
+                try {
+                    future.set(callable.call());
+                } catch (Exception e) {
+                    future.setException(e);
+                }
+                return null;
             }
         });
+        return future;
+    }
+
+    private interface Call<T> {
+        T call() throws IOException;
     }
 }
@@ -0,0 +1,224 @@
+package org.nervos.appchain.protocol;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.nervos.appchain.protocol.core.BatchRequest;
+import org.nervos.appchain.protocol.core.BatchResponse;
+import org.nervos.appchain.protocol.core.Request;
+import org.nervos.appchain.protocol.core.Response;
+import org.nervos.appchain.protocol.websocket.events.Notification;
+import org.nervos.appchain.utils.SettableFuture;
+import rx.Observable;
+
+/**
+ * Service decorator which lets concurrent identical requests share a single call.
+ *
+ * <p>A request with the same method and parameters as one which is still in flight is not
+ * sent again, its caller receives the response, or the failure, of the request in flight
+ * instead. Requests with side effects such as {@code sendRawTransaction} or filter
+ * management are always sent. Shared responses are the same instance for every caller, so
+ * their ids only match the request which was sent and they must not be modified.
+ *
+ * <p>To combine it with the other decorators, wrap a {@link CoalescingService} so that the
+ * deduplicated requests are batched, and wrap it in a {@link CachingService} so that cache
+ * misses are deduplicated.
+ */
+public class SingleFlightService implements AppChainjService {
+
+    private static final Set<String> UNSHARED_METHODS = new HashSet<>(Arrays.asList(
+            "sendRawTransaction", "newFilter", "newBlockFilter",
+            "eth_newPendingTransactionFilter", "uninstallFilter", "getFilterChanges",
+            "eth_sign", "personal_newAccount", "personal_unlockAccount",
+            "personal_sendTransaction"));
+
+    private static final ObjectMapper objectMapper = ObjectMapperFactory.getObjectMapper();
+
+    private final AppChainjService appChainjService;
+    private final ConcurrentMap<String, Flight<? extends Response>> inFlight =
+            new ConcurrentHashMap<>();
+    private final Metrics metrics = new Metrics();
+
+    public SingleFlightService(AppChainjService appChainjService) {
+        this.appChainjService = appChainjService;
+    }
+
+    @Override
+    public <T extends Response> T send(
+            Request request, Class<T> responseType) throws IOException {
+        String key = key(request, responseType);
+        if (key == null) {
+            return appChainjService.send(request, responseType);
+        }
+
+        Flight<T> flight = new Flight<>();
+        Future<? extends Response> existing = join(key, flight);
+        if (existing != null) {
+            return responseType.cast(await(existing));
+        }
+
+        try {
+            T response = appChainjService.send(request, responseType);
+            flight.set(response);
+            return response;
+        } catch (IOException | RuntimeException e) {
+            flight.setException(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    @Override
+    public <T extends Response> Future<T> sendAsync(
+            Request request, Class<T> responseType) {
+        final String key = key(request, responseType);
+        if (key == null) {
+            return appChainjService.sendAsync(request, responseType);
+        }
+
+        final Flight<T> flight = new Flight<>();
+        Future<? extends Response> existing = join(key, flight);
+        if (existing != null) {
+            // the key includes the response type
+            @SuppressWarnings("unchecked")
+            Future<T> shared = (Future<T>) existing;
+            return shared;
+        }
+
+        // the call is removed once it completes, whether or not its result is ever read
+        final Future<T> future = appChainjService.sendAsync(request, responseType);
+        SettableFuture.whenDone(future, new Runnable() {
+            @Override
+            public void run() {
+                inFlight.remove(key, flight);
+                flight.setFrom(future);
+            }
+        });
+        return flight;
+    }
+
+    @Override
+    public BatchResponse sendBatch(BatchRequest batchRequest) throws IOException {
+        return appChainjService.sendBatch(batchRequest);
+    }
+
+    @Override
+    public Future<BatchResponse> sendBatchAsync(BatchRequest batchRequest) {
+        return appChainjService.sendBatchAsync(batchRequest);
+    }
+
+    @Override
+    public <T extends Notification<?>> Observable<T> subscribe(
+            Request request, String unsubscribeMethod, Class<T> responseType) {
+        return appChainjService.subscribe(request, unsubscribeMethod, responseType);
+    }
+
+    @Override
+    public boolean supportsSubscriptions() {
+        return appChainjService.supportsSubscriptions();
+    }
+
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return number of calls currently in flight
+     */
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    /**
+     * Register {@code flight} as the call in flight for {@code key}.
+     *
+     * @return the call already in flight, or null if {@code flight} is to be sent
+     */
+    private Flight<? extends Response> join(String key, Flight<? extends Response> flight) {
+        while (true) {
+            Flight<? extends Response> existing = inFlight.putIfAbsent(key, flight);
+            if (existing == null) {
+                metrics.sent.incrementAndGet();
+                return null;
+            } else if (!existing.isDone()) {
+                metrics.shared.incrementAndGet();
+                return existing;
+            } else if (inFlight.replace(key, existing, flight)) {
+                // completed, but not removed yet by the caller which sent it
+                metrics.sent.incrementAndGet();
+                return null;
+            }
+        }
+    }
+
+    private static Response await(Future<? extends Response> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for shared response");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else {
+                throw new IOException(cause);
+            }
+        }
+    }
+
+    private static String key(Request<?, ?> request, Class<?> responseType) {
+        if (UNSHARED_METHODS.contains(request.getMethod())) {
+            return null;
+        }
+        try {
+            return request.getMethod() + objectMapper.writeValueAsString(request.getParams())
+                    + responseType.getName();
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    /**
+     * The call in flight for a key, which every caller shares.
+     */
+    private static class Flight<T> extends SettableFuture<T> {
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            // other callers may still be waiting for the shared call
+            return false;
+        }
+    }
+
+    /**
+     * Number of calls sent and of requests which shared a call in flight.
+     */
+    public static class Metrics {
+
+        private final AtomicLong sent = new AtomicLong();
+        private final AtomicLong shared = new AtomicLong();
+
+        public long getSent() {
+            return sent.get();
+        }
+
+        public long getShared() {
+            return shared.get();
+        }
+    }
+}
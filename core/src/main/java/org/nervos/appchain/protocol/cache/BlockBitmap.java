@@ -0,0 +1,134 @@
+package org.nervos.appchain.protocol.cache;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compressed set of block numbers.
+ *
+ * <p>Numbers are grouped into containers of 2^16 consecutive blocks. A container holds a sorted
+ * array of the low 16 bits while it is sparse and switches to a fixed 8 KiB bitmap once the
+ * array would be larger than that, so rare keys cost a few bytes per block and frequent keys
+ * one bit per block. Not thread safe.
+ */
+final class BlockBitmap {
+
+    private static final int CONTAINER_BITS = 16;
+    private static final int LOW_MASK = (1 << CONTAINER_BITS) - 1;
+    private static final int ARRAY_LIMIT = 4096;
+
+    private final TreeMap<Long, Container> containers = new TreeMap<>();
+    private long cardinality;
+
+    void add(long blockNumber) {
+        long high = blockNumber >>> CONTAINER_BITS;
+        Container container = containers.get(high);
+        if (container == null) {
+            container = new Container();
+            containers.put(high, container);
+        }
+        if (container.add((int) (blockNumber & LOW_MASK))) {
+            cardinality++;
+        }
+    }
+
+    boolean contains(long blockNumber) {
+        Container container = containers.get(blockNumber >>> CONTAINER_BITS);
+        return container != null && container.contains((int) (blockNumber & LOW_MASK));
+    }
+
+    long cardinality() {
+        return cardinality;
+    }
+
+    /**
+     * @return the smallest block number in the set which is at least {@code from}, or -1
+     */
+    long next(long from) {
+        long high = from >>> CONTAINER_BITS;
+        int low = (int) (from & LOW_MASK);
+        Map.Entry<Long, Container> entry = containers.ceilingEntry(high);
+        while (entry != null) {
+            int next = entry.getValue().next(entry.getKey() == high ? low : 0);
+            if (next >= 0) {
+                return (entry.getKey() << CONTAINER_BITS) | next;
+            }
+            entry = containers.higherEntry(entry.getKey());
+        }
+        return -1;
+    }
+
+    private static final class Container {
+        private char[] values = new char[4];
+        private int size;
+        private long[] bits;
+
+        boolean add(int value) {
+            if (bits != null) {
+                long mask = 1L << value;
+                boolean added = (bits[value >>> 6] & mask) == 0;
+                bits[value >>> 6] |= mask;
+                return added;
+            }
+
+            int index = Arrays.binarySearch(values, 0, size, (char) value);
+            if (index >= 0) {
+                return false;
+            }
+            if (size == ARRAY_LIMIT) {
+                toBitmap();
+                return add(value);
+            }
+            index = -index - 1;
+            if (size == values.length) {
+                values = Arrays.copyOf(values, Math.min(size << 1, ARRAY_LIMIT));
+            }
+            System.arraycopy(values, index, values, index + 1, size - index);
+            values[index] = (char) value;
+            size++;
+            return true;
+        }
+
+        boolean contains(int value) {
+            if (bits != null) {
+                return (bits[value >>> 6] & (1L << value)) != 0;
+            }
+            return Arrays.binarySearch(values, 0, size, (char) value) >= 0;
+        }
+
+        /**
+         * @return the smallest value which is at least {@code from}, or -1
+         */
+        int next(int from) {
+            if (bits != null) {
+                int word = from >>> 6;
+                long current = bits[word] & (-1L << from);
+                while (true) {
+                    if (current != 0) {
+                        return (word << 6) + Long.numberOfTrailingZeros(current);
+                    }
+                    if (++word == bits.length) {
+                        return -1;
+                    }
+                    current = bits[word];
+                }
+            }
+
+            int index = Arrays.binarySearch(values, 0, size, (char) from);
+            if (index < 0) {
+                index = -index - 1;
+            }
+            return index < size ? values[index] : -1;
+        }
+
+        private void toBitmap() {
+            bits = new long[(LOW_MASK + 1) >>> 6];
+            for (int i = 0; i < size; i++) {
+                bits[values[i] >>> 6] |= 1L << values[i];
+            }
+            values = null;
+            size = 0;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package org.nervos.appchain.protocol.cache;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.nervos.appchain.protocol.core.methods.response.AppBlock;
+
+/**
+ * Size bounded, least recently used cache of blocks, keyed by block number and by block hash.
+ *
+ * <p>Blocks with full transaction objects and blocks with transaction hashes only are cached
+ * separately, each kind holding at most {@code capacity} blocks. Cached blocks are shared
+ * between callers and must not be modified.
+ */
+public class BlockCache {
+
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private final Tier[] tiers;
+
+    public BlockCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public BlockCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.tiers = new Tier[] { new Tier(capacity), new Tier(capacity) };
+    }
+
+    public AppBlock get(long blockNumber, boolean fullTransactionObjects) {
+        return tier(fullTransactionObjects).get(blockNumber);
+    }
+
+    public AppBlock getByHash(String blockHash, boolean fullTransactionObjects) {
+        return tier(fullTransactionObjects).getByHash(normalise(blockHash));
+    }
+
+    public boolean contains(long blockNumber, boolean fullTransactionObjects) {
+        return tier(fullTransactionObjects).contains(blockNumber);
+    }
+
+    /**
+     * Cache a block returned by the node. Error responses and missing blocks are ignored.
+     */
+    public void put(AppBlock appBlock, boolean fullTransactionObjects) {
+        AppBlock.Block block = appBlock.getBlock();
+        if (appBlock.hasError() || block == null || block.getHeader() == null
+                || block.getHeader().getNumber() == null || block.getHash() == null) {
+            return;
+        }
+        tier(fullTransactionObjects).put(
+                block.getHeader().getNumberDec().longValue(), normalise(block.getHash()),
+                appBlock);
+    }
+
+    public int size() {
+        return tiers[0].size() + tiers[1].size();
+    }
+
+    private Tier tier(boolean fullTransactionObjects) {
+        return tiers[fullTransactionObjects ? 1 : 0];
+    }
+
+    private static String normalise(String blockHash) {
+        return blockHash.toLowerCase(Locale.ROOT);
+    }
+
+    private static class Tier {
+        private final Map<Long, CachedBlock> byNumber;
+        private final Map<String, Long> byHash = new HashMap<>();
+
+        Tier(final int capacity) {
+            this.byNumber = new LinkedHashMap<Long, CachedBlock>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, CachedBlock> eldest) {
+                    if (size() > capacity) {
+                        byHash.remove(eldest.getValue().blockHash);
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        synchronized AppBlock get(long blockNumber) {
+            CachedBlock cachedBlock = byNumber.get(blockNumber);
+            return cachedBlock == null ? null : cachedBlock.appBlock;
+        }
+
+        synchronized AppBlock getByHash(String blockHash) {
+            Long blockNumber = byHash.get(blockHash);
+            return blockNumber == null ? null : get(blockNumber);
+        }
+
+        synchronized boolean contains(long blockNumber) {
+            return byNumber.containsKey(blockNumber);
+        }
+
+        synchronized void put(long blockNumber, String blockHash, AppBlock appBlock) {
+            CachedBlock previous = byNumber.put(blockNumber, new CachedBlock(blockHash, appBlock));
+            if (previous != null && !previous.blockHash.equals(blockHash)) {
+                byHash.remove(previous.blockHash);
+            }
+            byHash.put(blockHash, blockNumber);
+        }
+
+        synchronized int size() {
+            return byNumber.size();
+        }
+    }
+
+    private static class CachedBlock {
+        private final String blockHash;
+        private final AppBlock appBlock;
+
+        CachedBlock(String blockHash, AppBlock appBlock) {
+            this.blockHash = blockHash;
+            this.appBlock = appBlock;
+        }
+    }
+}
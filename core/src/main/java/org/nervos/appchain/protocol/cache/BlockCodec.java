@@ -0,0 +1,133 @@
+package org.nervos.appchain.protocol.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.nervos.appchain.protocol.ObjectMapperFactory;
+import org.nervos.appchain.protocol.core.methods.response.AppBlock;
+
+/**
+ * Writes blocks in the node's JSON format, so that they are read back through the same
+ * {@link AppBlock.ResponseDeserialiser} as blocks received from the node.
+ *
+ * <p>The JSON is preceded by a flags byte recording which optional fields are present, since
+ * the deserialiser cannot tell a missing timestamp from a timestamp of zero.
+ */
+final class BlockCodec {
+
+    private static final int HAS_TIMESTAMP = 1;
+
+    private static final ObjectMapper objectMapper = ObjectMapperFactory.getObjectMapper();
+    private static final AppBlock.ResponseDeserialiser deserialiser =
+            new AppBlock.ResponseDeserialiser();
+
+    private BlockCodec() {
+    }
+
+    /**
+     * Only blocks as returned by the node can be stored, partially populated blocks would not
+     * survive a round trip.
+     */
+    static boolean isEncodable(AppBlock.Block block) {
+        return block != null
+                && block.getHash() != null
+                && block.getBody() != null
+                && block.getBody().getTransactions() != null
+                && block.getHeader() != null
+                && block.getHeader().getNumber() != null
+                && block.getHeader().getProof() != null
+                && block.getHeader().getProof().getTendermint() != null;
+    }
+
+    static byte[] encode(AppBlock.Block block, boolean fullTransactionObjects)
+            throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(1024);
+        outputStream.write(block.getHeader().getTimestamp() != null ? HAS_TIMESTAMP : 0);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+            generator.writeStartObject();
+            generator.writeStringField("version", block.getVersion());
+            generator.writeStringField("hash", block.getHash());
+            writeHeader(generator, block.getHeader());
+
+            generator.writeObjectFieldStart("body");
+            generator.writeArrayFieldStart("transactions");
+            for (AppBlock.TransactionObject transaction : block.getBody().getTransactions()) {
+                if (fullTransactionObjects) {
+                    generator.writeStartObject();
+                    generator.writeStringField("hash", transaction.getHash());
+                    generator.writeStringField("content", transaction.getContent());
+                    generator.writeEndObject();
+                } else {
+                    generator.writeString(transaction.getHash());
+                }
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+
+            generator.writeEndObject();
+        }
+        return outputStream.toByteArray();
+    }
+
+    static AppBlock.Block decode(byte[] bytes, int offset, int length) throws IOException {
+        int flags = bytes[offset];
+        AppBlock.Block block;
+        try (JsonParser parser = objectMapper.getFactory().createParser(
+                bytes, offset + 1, length - 1)) {
+            parser.nextToken();
+            block = deserialiser.deserialize(parser, null);
+        }
+        if ((flags & HAS_TIMESTAMP) == 0) {
+            block.setHeader(withoutTimestamp(block.getHeader()));
+        }
+        return block;
+    }
+
+    private static AppBlock.Header withoutTimestamp(AppBlock.Header header) {
+        AppBlock.Header copy = new AppBlock.Header();
+        copy.setPrevHash(header.getPrevHash());
+        copy.setNumber(header.getNumber());
+        copy.setStateRoot(header.getStateRoot());
+        copy.setTransactionsRoot(header.getTransactionsRoot());
+        copy.setReceiptsRoot(header.getReceiptsRoot());
+        copy.setGasUsed(header.getGasUsed());
+        copy.setProof(header.getProof());
+        return copy;
+    }
+
+    private static void writeHeader(JsonGenerator generator, AppBlock.Header header)
+            throws IOException {
+        generator.writeObjectFieldStart("header");
+        // the deserialiser requires a number, whether it is present is recorded in the flags
+        generator.writeNumberField(
+                "timestamp", header.getTimestamp() != null ? header.getTimestamp() : 0L);
+        generator.writeStringField("prevHash", header.getPrevHash());
+        generator.writeStringField("number", header.getNumber());
+        generator.writeStringField("stateRoot", header.getStateRoot());
+        generator.writeStringField("transactionsRoot", header.getTransactionsRoot());
+        generator.writeStringField("receiptsRoot", header.getReceiptsRoot());
+        generator.writeStringField("gasUsed", header.getGasUsed());
+
+        AppBlock.Tendermint tendermint = header.getProof().getTendermint();
+        generator.writeObjectFieldStart("proof");
+        generator.writeObjectFieldStart("Bft");
+        generator.writeStringField("proposal", tendermint.getProposal());
+        generator.writeStringField("height", tendermint.getHeight());
+        generator.writeStringField("round", tendermint.getRound());
+        generator.writeObjectFieldStart("commits");
+        if (tendermint.getTendermintCommits() != null) {
+            for (AppBlock.TendermintCommit commit : tendermint.getTendermintCommits()) {
+                generator.writeStringField(commit.getCommitAddress(), commit.getCommit());
+            }
+        }
+        generator.writeEndObject();
+        generator.writeEndObject();
+        generator.writeEndObject();
+
+        generator.writeEndObject();
+    }
+}
@@ -0,0 +1,298 @@
+package org.nervos.appchain.protocol.cache;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+import org.nervos.appchain.protocol.core.methods.response.AppBlock;
+
+/**
+ * Append-only, memory-mapped block store.
+ *
+ * <p>The file is mapped in fixed size segments and records never straddle a segment boundary.
+ * A record is laid out as {@code [payload length (4)][checksum (4)][block number (8)][flags (1)]
+ * [hash length (1)][hash][payload]}, the payload being the block as written by
+ * {@link BlockCodec}. The checksum is the CRC32 of everything after it. Pages of a mapped file
+ * reach the disk in no particular order, so a record which was only partially written before a
+ * crash is detected by its checksum; it ends the scan when the store is reopened and is
+ * overwritten by the next append.
+ *
+ * <p>The offset index, by block number and by block hash, is held in memory and rebuilt by
+ * scanning the file when the store is opened. Reads may run concurrently with each other and
+ * with appends.
+ */
+public class BlockStore implements Closeable {
+
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 1 + 1;
+    private static final int CHECKSUM_OFFSET = 4;
+    private static final int CHECKED_OFFSET = 8;
+    private static final int FLAGS_OFFSET = 16;
+    private static final int HASH_LENGTH_OFFSET = 17;
+    private static final byte FULL_TRANSACTION_OBJECTS = 1;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final int segmentSize;
+
+    // index 0 for blocks with transaction hashes only, index 1 with full transaction objects
+    private final Index[] indexes = { new Index(), new Index() };
+
+    private final Object writeLock = new Object();
+    private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+    private long writePosition;
+    private volatile boolean closed;
+
+    public BlockStore(File file) throws IOException {
+        this(file, DEFAULT_SEGMENT_SIZE);
+    }
+
+    public BlockStore(File file, int segmentSize) throws IOException {
+        if (segmentSize <= HEADER_SIZE) {
+            throw new IllegalArgumentException("Segment size too small: " + segmentSize);
+        }
+        this.segmentSize = segmentSize;
+        this.file = new RandomAccessFile(file, "rw");
+        this.channel = this.file.getChannel();
+        try {
+            scan();
+        } catch (IOException | RuntimeException e) {
+            this.file.close();
+            throw e;
+        }
+    }
+
+    public boolean contains(long blockNumber, boolean fullTransactionObjects) {
+        ensureOpen();
+        return index(fullTransactionObjects).byNumber.containsKey(blockNumber);
+    }
+
+    /**
+     * @return the stored block, or null if it is not present
+     */
+    public AppBlock.Block get(long blockNumber, boolean fullTransactionObjects)
+            throws IOException {
+        ensureOpen();
+        Long offset = index(fullTransactionObjects).byNumber.get(blockNumber);
+        return offset == null ? null : read(offset);
+    }
+
+    /**
+     * @return the stored block, or null if it is not present
+     */
+    public AppBlock.Block getByHash(String blockHash, boolean fullTransactionObjects)
+            throws IOException {
+        ensureOpen();
+        Long offset = index(fullTransactionObjects).byHash.get(normalise(blockHash));
+        return offset == null ? null : read(offset);
+    }
+
+    /**
+     * Append a block unless it is already stored.
+     *
+     * @return true if the block was appended, false if it was already present or cannot be
+     *     stored, e.g. because it is larger than a segment
+     */
+    public boolean put(AppBlock.Block block, boolean fullTransactionObjects) throws IOException {
+        if (!BlockCodec.isEncodable(block)) {
+            return false;
+        }
+        long blockNumber = block.getHeader().getNumberDec().longValue();
+        Index index = index(fullTransactionObjects);
+        if (index.byNumber.containsKey(blockNumber)) {
+            return false;
+        }
+
+        byte[] hash = normalise(block.getHash()).getBytes(UTF_8);
+        byte[] payload = BlockCodec.encode(block, fullTransactionObjects);
+        int recordSize = HEADER_SIZE + hash.length + payload.length;
+        if (hash.length > 0xff || recordSize > segmentSize) {
+            return false;
+        }
+
+        synchronized (writeLock) {
+            ensureOpen();
+            if (index.byNumber.containsKey(blockNumber)) {
+                return false;
+            }
+            if (writePosition % segmentSize + recordSize > segmentSize) {
+                // leave the rest of the segment zeroed, the scan skips to the next one
+                writePosition = (writePosition / segmentSize + 1) * segmentSize;
+            }
+            long offset = writePosition;
+            ByteBuffer buffer = segment((int) (offset / segmentSize)).duplicate();
+            int position = (int) (offset % segmentSize);
+
+            buffer.position(position + CHECKED_OFFSET);
+            buffer.putLong(blockNumber);
+            buffer.put(fullTransactionObjects ? FULL_TRANSACTION_OBJECTS : 0);
+            buffer.put((byte) hash.length);
+            buffer.put(hash);
+            buffer.put(payload);
+            buffer.putInt(position + CHECKSUM_OFFSET,
+                    checksum(buffer, position, HEADER_SIZE + hash.length + payload.length));
+            buffer.putInt(position, payload.length);
+
+            writePosition = offset + recordSize;
+            index.put(blockNumber, normalise(block.getHash()), offset);
+        }
+        return true;
+    }
+
+    /**
+     * @return number of blocks stored, of both kinds
+     */
+    public int size() {
+        return indexes[0].byNumber.size() + indexes[1].byNumber.size();
+    }
+
+    /**
+     * Write appended blocks through to the storage device.
+     */
+    public void flush() {
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+    }
+
+    /**
+     * Flushes and closes the file. Mapped segments are only released once garbage collected.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (writeLock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            flush();
+            segments = new MappedByteBuffer[0];
+            indexes[0].clear();
+            indexes[1].clear();
+            file.close();
+        }
+    }
+
+    private void scan() throws IOException {
+        long segmentCount = (channel.size() + segmentSize - 1) / segmentSize;
+        for (int i = 0; i < segmentCount; i++) {
+            MappedByteBuffer segment = segment(i);
+            int position = 0;
+            while (position + HEADER_SIZE <= segmentSize) {
+                int length = segment.getInt(position);
+                if (length <= 0) {
+                    break;
+                }
+                int hashLength = segment.get(position + HASH_LENGTH_OFFSET) & 0xff;
+                int recordSize = HEADER_SIZE + hashLength + length;
+                if (position + recordSize > segmentSize
+                        || segment.getInt(position + CHECKSUM_OFFSET)
+                                != checksum(segment, position, recordSize)) {
+                    break;
+                }
+
+                long blockNumber = segment.getLong(position + CHECKED_OFFSET);
+                boolean fullTransactionObjects =
+                        segment.get(position + FLAGS_OFFSET) == FULL_TRANSACTION_OBJECTS;
+                byte[] hash = new byte[hashLength];
+                ByteBuffer buffer = segment.duplicate();
+                buffer.position(position + HEADER_SIZE);
+                buffer.get(hash);
+
+                long offset = (long) i * segmentSize + position;
+                index(fullTransactionObjects).put(
+                        blockNumber, new String(hash, UTF_8), offset);
+                position += recordSize;
+            }
+            writePosition = (long) i * segmentSize + position;
+        }
+    }
+
+    private AppBlock.Block read(long offset) throws IOException {
+        MappedByteBuffer[] current = segments;
+        int segment = (int) (offset / segmentSize);
+        if (segment >= current.length) {
+            // the offset was looked up before the store was closed
+            throw new IllegalStateException("BlockStore is closed");
+        }
+        ByteBuffer buffer = current[segment].duplicate();
+        int position = (int) (offset % segmentSize);
+        int length = buffer.getInt(position);
+        int hashLength = buffer.get(position + HASH_LENGTH_OFFSET) & 0xff;
+
+        byte[] payload = new byte[length];
+        buffer.position(position + HEADER_SIZE + hashLength);
+        buffer.get(payload);
+        return BlockCodec.decode(payload, 0, length);
+    }
+
+    /**
+     * @return CRC32 of the record at {@code position}, from its block number to its end
+     */
+    private static int checksum(ByteBuffer segment, int position, int recordSize) {
+        ByteBuffer record = segment.duplicate();
+        record.limit(position + recordSize);
+        record.position(position + CHECKED_OFFSET);
+        byte[] bytes = new byte[record.remaining()];
+        record.get(bytes);
+        CRC32 crc32 = new CRC32();
+        crc32.update(bytes);
+        return (int) crc32.getValue();
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("BlockStore is closed");
+        }
+    }
+
+    private MappedByteBuffer segment(int index) throws IOException {
+        MappedByteBuffer[] current = segments;
+        if (index < current.length) {
+            return current[index];
+        }
+        // only called with the write lock held, or from the constructor
+        MappedByteBuffer[] extended = Arrays.copyOf(current, index + 1);
+        for (int i = current.length; i <= index; i++) {
+            extended[i] = channel.map(
+                    FileChannel.MapMode.READ_WRITE, (long) i * segmentSize, segmentSize);
+        }
+        segments = extended;
+        return extended[index];
+    }
+
+    private Index index(boolean fullTransactionObjects) {
+        return indexes[fullTransactionObjects ? 1 : 0];
+    }
+
+    private static String normalise(String blockHash) {
+        return blockHash.toLowerCase(Locale.ROOT);
+    }
+
+    private static class Index {
+        private final ConcurrentHashMap<Long, Long> byNumber = new ConcurrentHashMap<>();
+        private final ConcurrentHashMap<String, Long> byHash = new ConcurrentHashMap<>();
+
+        void put(long blockNumber, String blockHash, long offset) {
+            // by hash first, a reader which finds the number can always resolve the hash
+            byHash.put(blockHash, offset);
+            byNumber.put(blockNumber, offset);
+        }
+
+        void clear() {
+            byNumber.clear();
+            byHash.clear();
+        }
+    }
+}
@@ -0,0 +1,497 @@
+package org.nervos.appchain.protocol.cache;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.nervos.appchain.protocol.AppChainj;
+import org.nervos.appchain.protocol.core.BatchRequest;
+import org.nervos.appchain.protocol.core.DefaultBlockParameter;
+import org.nervos.appchain.protocol.core.DefaultBlockParameterNumber;
+import org.nervos.appchain.protocol.core.Request;
+import org.nervos.appchain.protocol.core.methods.request.Call;
+import org.nervos.appchain.protocol.core.methods.response.AppAccounts;
+import org.nervos.appchain.protocol.core.methods.response.AppBlock;
+import org.nervos.appchain.protocol.core.methods.response.AppBlockNumber;
+import org.nervos.appchain.protocol.core.methods.response.AppCall;
+import org.nervos.appchain.protocol.core.methods.response.AppFilter;
+import org.nervos.appchain.protocol.core.methods.response.AppGetAbi;
+import org.nervos.appchain.protocol.core.methods.response.AppGetBalance;
+import org.nervos.appchain.protocol.core.methods.response.AppGetCode;
+import org.nervos.appchain.protocol.core.methods.response.AppGetTransactionCount;
+import org.nervos.appchain.protocol.core.methods.response.AppGetTransactionReceipt;
+import org.nervos.appchain.protocol.core.methods.response.AppLog;
+import org.nervos.appchain.protocol.core.methods.response.AppMetaData;
+import org.nervos.appchain.protocol.core.methods.response.AppSendTransaction;
+import org.nervos.appchain.protocol.core.methods.response.AppSign;
+import org.nervos.appchain.protocol.core.methods.response.AppTransaction;
+import org.nervos.appchain.protocol.core.methods.response.AppUninstallFilter;
+import org.nervos.appchain.protocol.core.methods.response.Log;
+import org.nervos.appchain.protocol.core.methods.response.NetPeerCount;
+import org.nervos.appchain.protocol.core.methods.response.Transaction;
+import org.nervos.appchain.protocol.core.methods.response.Web3ClientVersion;
+import org.nervos.appchain.protocol.core.methods.response.Web3Sha3;
+import org.nervos.appchain.utils.Async;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rx.Observable;
+import rx.Subscriber;
+import rx.functions.Action1;
+
+/**
+ * {@link AppChainj} decorator which keeps blocks locally, as CITA blocks are final once
+ * produced.
+ *
+ * <p>Blocks requested by number or hash are looked up in a {@link BlockCache} first, then in
+ * an optional {@link BlockStore} on disk, and only then fetched from the node. Fetched blocks
+ * are added to both tiers. {@link #replayBlocksObservable} emits from local data when the whole
+ * range is present, otherwise it replays from the node and stores the blocks on the way.
+ * Requests for {@code latest} or {@code earliest} and all other methods are passed through.
+ */
+public class CachingAppChainj implements AppChainj {
+
+    private static final Logger log = LoggerFactory.getLogger(CachingAppChainj.class);
+
+    private final AppChainj appChainj;
+    private final BlockCache blockCache;
+    private final BlockStore blockStore;
+    private final Metrics metrics = new Metrics();
+
+    public CachingAppChainj(AppChainj appChainj) {
+        this(appChainj, new BlockCache(), null);
+    }
+
+    /**
+     * @param appChainj node to fetch blocks from
+     * @param blockCache in-memory tier
+     * @param blockStore on-disk tier, may be null. It is not closed by this class.
+     */
+    public CachingAppChainj(AppChainj appChainj, BlockCache blockCache, BlockStore blockStore) {
+        this.appChainj = appChainj;
+        this.blockCache = blockCache;
+        this.blockStore = blockStore;
+    }
+
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public Request<?, AppBlock> appGetBlockByHash(
+            String blockHash, boolean returnFullTransactionObjects) {
+        return cached(appChainj.appGetBlockByHash(blockHash, returnFullTransactionObjects),
+                null, blockHash, returnFullTransactionObjects);
+    }
+
+    @Override
+    public Request<?, AppBlock> appGetBlockByNumber(
+            DefaultBlockParameter defaultBlockParameter, boolean returnFullTransactionObjects) {
+        Request<?, AppBlock> request = appChainj.appGetBlockByNumber(
+                defaultBlockParameter, returnFullTransactionObjects);
+        if (!(defaultBlockParameter instanceof DefaultBlockParameterNumber)) {
+            return request;
+        }
+        long blockNumber =
+                ((DefaultBlockParameterNumber) defaultBlockParameter).getBlockNumber().longValue();
+        return cached(request, blockNumber, null, returnFullTransactionObjects);
+    }
+
+    private <S> Request<S, AppBlock> cached(
+            Request<S, AppBlock> request, Long blockNumber, String blockHash,
+            boolean fullTransactionObjects) {
+        return new CachedBlockRequest<>(request, blockNumber, blockHash, fullTransactionObjects);
+    }
+
+    @Override
+    public Observable<AppBlock> replayBlocksObservable(
+            DefaultBlockParameter startBlock, DefaultBlockParameter endBlock,
+            boolean fullTransactionObjects) {
+        return replayBlocksObservable(startBlock, endBlock, fullTransactionObjects, true);
+    }
+
+    @Override
+    public Observable<AppBlock> replayBlocksObservable(
+            DefaultBlockParameter startBlock, DefaultBlockParameter endBlock,
+            final boolean fullTransactionObjects, boolean ascending) {
+        if (startBlock instanceof DefaultBlockParameterNumber
+                && endBlock instanceof DefaultBlockParameterNumber) {
+            long from = ((DefaultBlockParameterNumber) startBlock).getBlockNumber().longValue();
+            long to = ((DefaultBlockParameterNumber) endBlock).getBlockNumber().longValue();
+            if (from >= 0 && from <= to && isPresent(from, to, fullTransactionObjects)) {
+                return replayLocally(from, to, fullTransactionObjects, ascending);
+            }
+        }
+
+        return appChainj.replayBlocksObservable(
+                startBlock, endBlock, fullTransactionObjects, ascending)
+                .doOnNext(new Action1<AppBlock>() {
+                    @Override
+                    public void call(AppBlock appBlock) {
+                        store(appBlock, fullTransactionObjects);
+                    }
+                });
+    }
+
+    private boolean isPresent(long from, long to, boolean fullTransactionObjects) {
+        for (long blockNumber = from; blockNumber <= to; blockNumber++) {
+            if (!blockCache.contains(blockNumber, fullTransactionObjects)
+                    && (blockStore == null
+                    || !blockStore.contains(blockNumber, fullTransactionObjects))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Observable<AppBlock> replayLocally(
+            final long from, final long to, final boolean fullTransactionObjects,
+            final boolean ascending) {
+        return Observable.create(new Observable.OnSubscribe<AppBlock>() {
+            @Override
+            public void call(Subscriber<? super AppBlock> subscriber) {
+                try {
+                    for (long i = 0; i <= to - from && !subscriber.isUnsubscribed(); i++) {
+                        long blockNumber = ascending ? from + i : to - i;
+                        AppBlock appBlock = lookup(blockNumber, fullTransactionObjects);
+                        if (appBlock == null) {
+                            // evicted from memory since the range was checked
+                            appBlock = fetch(blockNumber, fullTransactionObjects);
+                        }
+                        subscriber.onNext(appBlock);
+                    }
+                    if (!subscriber.isUnsubscribed()) {
+                        subscriber.onCompleted();
+                    }
+                } catch (Exception e) {
+                    subscriber.onError(e);
+                }
+            }
+        });
+    }
+
+    private AppBlock fetch(long blockNumber, boolean fullTransactionObjects) throws IOException {
+        metrics.misses.incrementAndGet();
+        AppBlock appBlock = appChainj.appGetBlockByNumber(
+                new DefaultBlockParameterNumber(blockNumber), fullTransactionObjects).send();
+        store(appBlock, fullTransactionObjects);
+        return appBlock;
+    }
+
+    private AppBlock lookup(long blockNumber, boolean fullTransactionObjects)
+            throws IOException {
+        AppBlock appBlock = blockCache.get(blockNumber, fullTransactionObjects);
+        if (appBlock != null) {
+            metrics.memoryHits.incrementAndGet();
+            return appBlock;
+        }
+        if (blockStore != null) {
+            return fromStore(blockStore.get(blockNumber, fullTransactionObjects),
+                    fullTransactionObjects);
+        }
+        return null;
+    }
+
+    private AppBlock lookupByHash(String blockHash, boolean fullTransactionObjects)
+            throws IOException {
+        AppBlock appBlock = blockCache.getByHash(blockHash, fullTransactionObjects);
+        if (appBlock != null) {
+            metrics.memoryHits.incrementAndGet();
+            return appBlock;
+        }
+        if (blockStore != null) {
+            return fromStore(blockStore.getByHash(blockHash, fullTransactionObjects),
+                    fullTransactionObjects);
+        }
+        return null;
+    }
+
+    private AppBlock fromStore(AppBlock.Block block, boolean fullTransactionObjects) {
+        if (block == null) {
+            return null;
+        }
+        metrics.storeHits.incrementAndGet();
+        AppBlock appBlock = new AppBlock();
+        appBlock.setResult(block);
+        blockCache.put(appBlock, fullTransactionObjects);
+        return appBlock;
+    }
+
+    private void store(AppBlock appBlock, boolean fullTransactionObjects) {
+        if (appBlock == null || appBlock.hasError() || appBlock.getBlock() == null) {
+            return;
+        }
+        blockCache.put(appBlock, fullTransactionObjects);
+        if (blockStore != null) {
+            try {
+                blockStore.put(appBlock.getBlock(), fullTransactionObjects);
+            } catch (IOException e) {
+                // the block was still fetched, a failing disk only costs a later refetch
+                log.warn("Unable to store block " + appBlock.getBlock().getHash(), e);
+            }
+        }
+    }
+
+    /**
+     * Block request which is answered locally if possible.
+     */
+    private class CachedBlockRequest<S> extends Request<S, AppBlock> {
+        private final Request<S, AppBlock> request;
+        private final Long blockNumber;
+        private final String blockHash;
+        private final boolean fullTransactionObjects;
+
+        CachedBlockRequest(
+                Request<S, AppBlock> request, Long blockNumber, String blockHash,
+                boolean fullTransactionObjects) {
+            super(request.getMethod(), request.getParams(), null, AppBlock.class);
+            this.request = request;
+            this.blockNumber = blockNumber;
+            this.blockHash = blockHash;
+            this.fullTransactionObjects = fullTransactionObjects;
+        }
+
+        @Override
+        public AppBlock send() throws IOException {
+            AppBlock appBlock = blockNumber != null
+                    ? lookup(blockNumber, fullTransactionObjects)
+                    : lookupByHash(blockHash, fullTransactionObjects);
+            if (appBlock != null) {
+                return appBlock;
+            }
+
+            metrics.misses.incrementAndGet();
+            appBlock = request.send();
+            store(appBlock, fullTransactionObjects);
+            return appBlock;
+        }
+
+        @Override
+        public Future<AppBlock> sendAsync() {
+            return Async.run(new Callable<AppBlock>() {
+                @Override
+                public AppBlock call() throws Exception {
+                    return send();
+                }
+            });
+        }
+    }
+
+    /**
+     * Where block lookups were answered from.
+     */
+    public static class Metrics {
+
+        private final AtomicLong memoryHits = new AtomicLong();
+        private final AtomicLong storeHits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+
+        public long getMemoryHits() {
+            return memoryHits.get();
+        }
+
+        public long getStoreHits() {
+            return storeHits.get();
+        }
+
+        public long getMisses() {
+            return misses.get();
+        }
+    }
+
+    // pass through
+
+    @Override
+    public Request<?, Web3ClientVersion> web3ClientVersion() {
+        return appChainj.web3ClientVersion();
+    }
+
+    @Override
+    public Request<?, Web3Sha3> web3Sha3(String data) {
+        return appChainj.web3Sha3(data);
+    }
+
+    @Override
+    public Request<?, NetPeerCount> netPeerCount() {
+        return appChainj.netPeerCount();
+    }
+
+    @Override
+    public Request<?, AppAccounts> appAccounts() {
+        return appChainj.appAccounts();
+    }
+
+    @Override
+    public Request<?, AppSign> appSign(String address, String sha3HashOfDataToSign) {
+        return appChainj.appSign(address, sha3HashOfDataToSign);
+    }
+
+    @Override
+    public Request<?, AppBlockNumber> appBlockNumber() {
+        return appChainj.appBlockNumber();
+    }
+
+    @Override
+    public Request<?, AppMetaData> appMetaData(DefaultBlockParameter defaultBlockParameter) {
+        return appChainj.appMetaData(defaultBlockParameter);
+    }
+
+    @Override
+    public Request<?, AppGetBalance> appGetBalance(
+            String address, DefaultBlockParameter defaultBlockParameter) {
+        return appChainj.appGetBalance(address, defaultBlockParameter);
+    }
+
+    @Override
+    public Request<?, AppGetAbi> appGetAbi(
+            String contractAddress, DefaultBlockParameter defaultBlockParameter) {
+        return appChainj.appGetAbi(contractAddress, defaultBlockParameter);
+    }
+
+    @Override
+    public Request<?, AppGetTransactionCount> appGetTransactionCount(
+            String address, DefaultBlockParameter defaultBlockParameter) {
+        return appChainj.appGetTransactionCount(address, defaultBlockParameter);
+    }
+
+    @Override
+    public Request<?, AppGetCode> appGetCode(
+            String address, DefaultBlockParameter defaultBlockParameter) {
+        return appChainj.appGetCode(address, defaultBlockParameter);
+    }
+
+    @Override
+    public Request<?, AppSendTransaction> appSendRawTransaction(String signedTransactionData) {
+        return appChainj.appSendRawTransaction(signedTransactionData);
+    }
+
+    @Override
+    public Request<?, AppCall> appCall(
+            Call transaction, DefaultBlockParameter defaultBlockParameter) {
+        return appChainj.appCall(transaction, defaultBlockParameter);
+    }
+
+    @Override
+    public Request<?, AppTransaction> appGetTransactionByHash(String transactionHash) {
+        return appChainj.appGetTransactionByHash(transactionHash);
+    }
+
+    @Override
+    public Request<?, AppGetTransactionReceipt> appGetTransactionReceipt(
+            String transactionHash) {
+        return appChainj.appGetTransactionReceipt(transactionHash);
+    }
+
+    @Override
+    public Request<?, AppFilter> appNewFilter(
+            org.nervos.appchain.protocol.core.methods.request.AppFilter ethFilter) {
+        return appChainj.appNewFilter(ethFilter);
+    }
+
+    @Override
+    public Request<?, AppFilter> appNewBlockFilter() {
+        return appChainj.appNewBlockFilter();
+    }
+
+    @Override
+    public Request<?, AppFilter> appNewPendingTransactionFilter() {
+        return appChainj.appNewPendingTransactionFilter();
+    }
+
+    @Override
+    public Request<?, AppUninstallFilter> appUninstallFilter(BigInteger filterId) {
+        return appChainj.appUninstallFilter(filterId);
+    }
+
+    @Override
+    public Request<?, AppLog> appGetFilterChanges(BigInteger filterId) {
+        return appChainj.appGetFilterChanges(filterId);
+    }
+
+    @Override
+    public Request<?, AppLog> appGetFilterLogs(BigInteger filterId) {
+        return appChainj.appGetFilterLogs(filterId);
+    }
+
+    @Override
+    public Request<?, AppLog> appGetLogs(
+            org.nervos.appchain.protocol.core.methods.request.AppFilter ethFilter) {
+        return appChainj.appGetLogs(ethFilter);
+    }
+
+    @Override
+    public BatchRequest newBatch() {
+        return appChainj.newBatch();
+    }
+
+    @Override
+    public Observable<Log> appLogObservable(
+            org.nervos.appchain.protocol.core.methods.request.AppFilter ethFilter) {
+        return appChainj.appLogObservable(ethFilter);
+    }
+
+    @Override
+    public Observable<String> appBlockHashObservable() {
+        return appChainj.appBlockHashObservable();
+    }
+
+    @Override
+    public Observable<String> appPendingTransactionHashObservable() {
+        return appChainj.appPendingTransactionHashObservable();
+    }
+
+    @Override
+    public Observable<Transaction> transactionObservable() {
+        return appChainj.transactionObservable();
+    }
+
+    @Override
+    public Observable<Transaction> pendingTransactionObservable() {
+        return appChainj.pendingTransactionObservable();
+    }
+
+    @Override
+    public Observable<AppBlock> blockObservable(boolean fullTransactionObjects) {
+        return appChainj.blockObservable(fullTransactionObjects);
+    }
+
+    @Override
+    public Observable<Transaction> replayTransactionsObservable(
+            DefaultBlockParameter startBlock, DefaultBlockParameter endBlock) {
+        return appChainj.replayTransactionsObservable(startBlock, endBlock);
+    }
+
+    @Override
+    public Observable<AppBlock> catchUpToLatestBlockObservable(
+            DefaultBlockParameter startBlock, boolean fullTransactionObjects,
+            Observable<AppBlock> onCompleteObservable) {
+        return appChainj.catchUpToLatestBlockObservable(
+                startBlock, fullTransactionObjects, onCompleteObservable);
+    }
+
+    @Override
+    public Observable<AppBlock> catchUpToLatestBlockObservable(
+            DefaultBlockParameter startBlock, boolean fullTransactionObjects) {
+        return appChainj.catchUpToLatestBlockObservable(startBlock, fullTransactionObjects);
+    }
+
+    @Override
+    public Observable<Transaction> catchUpToLatestTransactionObservable(
+            DefaultBlockParameter startBlock) {
+        return appChainj.catchUpToLatestTransactionObservable(startBlock);
+    }
+
+    @Override
+    public Observable<AppBlock> catchUpToLatestAndSubscribeToNewBlocksObservable(
+            DefaultBlockParameter startBlock, boolean fullTransactionObjects) {
+        return appChainj.catchUpToLatestAndSubscribeToNewBlocksObservable(
+                startBlock, fullTransactionObjects);
+    }
+
+    @Override
+    public Observable<Transaction> catchUpToLatestAndSubscribeToNewTransactionsObservable(
+            DefaultBlockParameter startBlock) {
+        return appChainj.catchUpToLatestAndSubscribeToNewTransactionsObservable(startBlock);
+    }
+}
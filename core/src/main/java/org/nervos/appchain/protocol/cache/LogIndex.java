@@ -0,0 +1,688 @@
+package org.nervos.appchain.protocol.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.nervos.appchain.exceptions.MessageDecodingException;
+import org.nervos.appchain.protocol.AppChainj;
+import org.nervos.appchain.protocol.ObjectMapperFactory;
+import org.nervos.appchain.protocol.core.DefaultBlockParameter;
+import org.nervos.appchain.protocol.core.DefaultBlockParameterName;
+import org.nervos.appchain.protocol.core.DefaultBlockParameterNumber;
+import org.nervos.appchain.protocol.core.methods.request.AppFilter;
+import org.nervos.appchain.protocol.core.methods.request.Filter;
+import org.nervos.appchain.protocol.core.methods.response.AppBlock;
+import org.nervos.appchain.protocol.core.methods.response.AppBlockNumber;
+import org.nervos.appchain.protocol.core.methods.response.AppLog;
+import org.nervos.appchain.protocol.core.methods.response.Log;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rx.Observable;
+import rx.Subscriber;
+import rx.Subscription;
+
+/**
+ * Local, persistent index of contract event logs.
+ *
+ * <p>Logs are appended to segment files in a directory, together with markers recording which
+ * block ranges have been indexed completely. Per-address and per-topic posting lists, kept as
+ * {@link BlockBitmap}s of block numbers, are rebuilt from the segments when the index is
+ * opened. {@link #getLogs(AppFilter)} intersects the posting lists to find the candidate blocks
+ * and reads only their logs, so it is answered locally if the requested range has been indexed
+ * and falls back to the node otherwise.
+ *
+ * <p>Ranges are added with {@link #backfill(long, long)}, and {@link #follow(Observable)}
+ * keeps indexing new blocks at the chain head. The index may be queried while it is being
+ * written to.
+ */
+public class LogIndex implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(LogIndex.class);
+
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+    public static final int DEFAULT_BACKFILL_CHUNK = 1000;
+
+    private static final byte LOG_RECORD = 1;
+    private static final byte RANGE_RECORD = 2;
+    // record length and type
+    private static final int HEADER_SIZE = 4 + 1;
+    private static final int OFFSET_BITS = 40;
+    // resolved block number of a bound relative to the chain head
+    private static final long HEAD = -1;
+
+    private static final ObjectMapper objectMapper = ObjectMapperFactory.getObjectMapper();
+
+    private final AppChainj appChainj;
+    private final File directory;
+    private final int segmentSize;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<FileChannel> segments = new ArrayList<>();
+    private long writePosition;
+
+    // block number -> locations of its logs, segment index and offset packed into a long
+    private final TreeMap<Long, long[]> blocks = new TreeMap<>();
+    private final Map<String, BlockBitmap> addressPostings = new HashMap<>();
+    private final Map<String, BlockBitmap> topicPostings = new HashMap<>();
+    // start -> end of the disjoint block ranges which have been indexed completely
+    private final TreeMap<Long, Long> indexedRanges = new TreeMap<>();
+    // blocks with logs but outside the indexed ranges when the index was opened
+    private final TreeSet<Long> recoveredBlocks = new TreeSet<>();
+    private final AtomicLong logCount = new AtomicLong();
+
+    public LogIndex(AppChainj appChainj, File directory) throws IOException {
+        this(appChainj, directory, DEFAULT_SEGMENT_SIZE);
+    }
+
+    public LogIndex(AppChainj appChainj, File directory, int segmentSize) throws IOException {
+        if (segmentSize <= HEADER_SIZE) {
+            throw new IllegalArgumentException("Segment size too small: " + segmentSize);
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create directory " + directory);
+        }
+        this.appChainj = appChainj;
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        try {
+            open();
+        } catch (IOException | RuntimeException e) {
+            closeSegments();
+            throw e;
+        }
+    }
+
+    /**
+     * Fetch and index the logs of a range of blocks, {@code chunkSize} blocks per request.
+     * Blocks which are already indexed are skipped.
+     */
+    public void backfill(long fromBlock, long toBlock, int chunkSize) throws IOException {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+        }
+        for (long start = fromBlock; start <= toBlock; start += chunkSize) {
+            long end = Math.min(start + chunkSize - 1, toBlock);
+            if (!isIndexed(start, end)) {
+                ingest(start, end, fetch(start, end));
+            }
+        }
+    }
+
+    public void backfill(long fromBlock, long toBlock) throws IOException {
+        backfill(fromBlock, toBlock, DEFAULT_BACKFILL_CHUNK);
+    }
+
+    /**
+     * Index the logs of every block emitted by {@code blockObservable}, e.g.
+     * {@link AppChainj#blockObservable(boolean)}, until the returned subscription is
+     * unsubscribed.
+     *
+     * <p>Blocks which fail to be indexed are retried together with the next block, and queries
+     * covering them go to the node meanwhile.
+     */
+    public Subscription follow(Observable<AppBlock> blockObservable) {
+        return blockObservable.subscribe(new Subscriber<AppBlock>() {
+            // first block which failed to be indexed, or -1
+            private long gapStart = -1;
+
+            @Override
+            public void onNext(AppBlock appBlock) {
+                if (appBlock.getBlock() == null) {
+                    return;
+                }
+                long blockNumber = appBlock.getBlock().getHeader().getNumberDec().longValue();
+                long fromBlock = gapStart >= 0 && gapStart < blockNumber
+                        ? gapStart : blockNumber;
+                try {
+                    backfill(fromBlock, blockNumber);
+                    gapStart = -1;
+                } catch (IOException | RuntimeException e) {
+                    log.warn("Failed to index blocks " + fromBlock + " to " + blockNumber
+                            + ", retrying with the next block", e);
+                    gapStart = fromBlock;
+                }
+            }
+
+            @Override
+            public void onCompleted() {
+            }
+
+            @Override
+            public void onError(Throwable e) {
+                log.warn("Block subscription failed, no longer following new blocks", e);
+            }
+        });
+    }
+
+    /**
+     * Add the logs of a block range. {@code logs} must be all of the logs in the range, which
+     * is then answered locally.
+     */
+    public void ingest(long fromBlock, long toBlock, List<Log> logs) throws IOException {
+        if (fromBlock > toBlock) {
+            throw new IllegalArgumentException("fromBlock cannot be greater than toBlock");
+        }
+        lock.writeLock().lock();
+        try {
+            for (Log log : logs) {
+                long blockNumber = log.getBlockNumber().longValue();
+                if (blockNumber < fromBlock || blockNumber > toBlock) {
+                    throw new IllegalArgumentException(
+                            "Log of block " + blockNumber + " outside of the ingested range");
+                }
+                if (isIndexedLocked(blockNumber, blockNumber)) {
+                    continue;
+                }
+                // only a block which was being ingested when the process stopped may already
+                // have some of its logs
+                if (!recoveredBlocks.contains(blockNumber) || !contains(log)) {
+                    index(append(LOG_RECORD, encode(log)), log);
+                }
+            }
+            ByteBuffer range = ByteBuffer.allocate(16);
+            range.putLong(fromBlock).putLong(toBlock);
+            append(RANGE_RECORD, range.array());
+            markIndexed(fromBlock, toBlock);
+            recoveredBlocks.subSet(fromBlock, true, toBlock, true).clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isIndexed(long fromBlock, long toBlock) {
+        lock.readLock().lock();
+        try {
+            return isIndexedLocked(fromBlock, toBlock);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the highest block number of the indexed ranges, or -1 if nothing is indexed
+     */
+    public long getIndexedHead() {
+        lock.readLock().lock();
+        try {
+            return indexedRanges.isEmpty() ? -1 : indexedRanges.lastEntry().getValue();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long getLogCount() {
+        return logCount.get();
+    }
+
+    /**
+     * Logs matching a filter, in block order.
+     *
+     * <p>{@code earliest} is block 0, while {@code latest}, {@code pending} and missing bounds
+     * refer to the current block number of the node. If the range has not been indexed
+     * completely, for instance because the index lags behind the node, the filter is sent to
+     * the node instead.
+     */
+    public List<Log> getLogs(AppFilter filter) throws IOException {
+        long fromBlock = resolve(filter.getFromBlock());
+        long toBlock = resolve(filter.getToBlock());
+        if (fromBlock == HEAD || toBlock == HEAD) {
+            AppBlockNumber appBlockNumber = appChainj.appBlockNumber().send();
+            if (appBlockNumber.hasError()) {
+                return fetch(filter);
+            }
+            long head = appBlockNumber.getBlockNumber().longValue();
+            fromBlock = fromBlock == HEAD ? head : fromBlock;
+            toBlock = toBlock == HEAD ? head : toBlock;
+        }
+
+        if (fromBlock > toBlock || !isIndexed(fromBlock, toBlock)) {
+            return fetch(filter);
+        }
+
+        List<String> addresses = normalise(filter.getAddress());
+        List<List<String>> topics = topics(filter);
+
+        List<Long> locations = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (long blockNumber : candidates(fromBlock, toBlock, addresses, topics)) {
+                for (long location : blocks.get(blockNumber)) {
+                    locations.add(location);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Log> logs = new ArrayList<>();
+        for (long location : locations) {
+            Log log = read(location);
+            if (matches(log, addresses, topics)) {
+                logs.add(log);
+            }
+        }
+        return logs;
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            closeSegments();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private List<Long> candidates(
+            long fromBlock, long toBlock, List<String> addresses, List<List<String>> topics) {
+        List<List<BlockBitmap>> constraints = new ArrayList<>();
+        if (!addresses.isEmpty()) {
+            constraints.add(postings(addressPostings, addresses, -1));
+        }
+        for (int position = 0; position < topics.size(); position++) {
+            if (topics.get(position) != null) {
+                constraints.add(postings(topicPostings, topics.get(position), position));
+            }
+        }
+
+        List<Long> candidates = new ArrayList<>();
+        if (constraints.isEmpty()) {
+            candidates.addAll(blocks.subMap(fromBlock, true, toBlock, true).keySet());
+            return candidates;
+        }
+
+        // drive the scan with the most selective constraint, probe the others
+        List<BlockBitmap> driver = constraints.get(0);
+        for (List<BlockBitmap> constraint : constraints) {
+            if (cardinality(constraint) < cardinality(driver)) {
+                driver = constraint;
+            }
+        }
+
+        for (long blockNumber = next(driver, fromBlock);
+                blockNumber >= 0 && blockNumber <= toBlock;
+                blockNumber = next(driver, blockNumber + 1)) {
+            boolean matches = true;
+            for (List<BlockBitmap> constraint : constraints) {
+                if (constraint != driver && !containsAny(constraint, blockNumber)) {
+                    matches = false;
+                    break;
+                }
+            }
+            if (matches) {
+                candidates.add(blockNumber);
+            }
+        }
+        return candidates;
+    }
+
+    private static List<BlockBitmap> postings(
+            Map<String, BlockBitmap> postings, List<String> keys, int position) {
+        List<BlockBitmap> bitmaps = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            BlockBitmap bitmap = postings.get(position < 0 ? key : topicKey(position, key));
+            if (bitmap != null) {
+                bitmaps.add(bitmap);
+            }
+        }
+        return bitmaps;
+    }
+
+    private static long cardinality(List<BlockBitmap> bitmaps) {
+        long cardinality = 0;
+        for (BlockBitmap bitmap : bitmaps) {
+            cardinality += bitmap.cardinality();
+        }
+        return cardinality;
+    }
+
+    private static long next(List<BlockBitmap> bitmaps, long from) {
+        long next = -1;
+        for (BlockBitmap bitmap : bitmaps) {
+            long candidate = bitmap.next(from);
+            if (candidate >= 0 && (next < 0 || candidate < next)) {
+                next = candidate;
+            }
+        }
+        return next;
+    }
+
+    private static boolean containsAny(List<BlockBitmap> bitmaps, long blockNumber) {
+        for (BlockBitmap bitmap : bitmaps) {
+            if (bitmap.contains(blockNumber)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean matches(Log log, List<String> addresses, List<List<String>> topics) {
+        if (!addresses.isEmpty() && (log.getAddress() == null
+                || !addresses.contains(log.getAddress().toLowerCase(Locale.ROOT)))) {
+            return false;
+        }
+        List<String> logTopics = log.getTopics() != null
+                ? log.getTopics() : Collections.<String>emptyList();
+        for (int position = 0; position < topics.size(); position++) {
+            List<String> alternatives = topics.get(position);
+            if (alternatives == null) {
+                continue;
+            }
+            if (position >= logTopics.size() || !alternatives.contains(
+                    logTopics.get(position).toLowerCase(Locale.ROOT))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Topics of a filter by position, null for positions matching any topic.
+     */
+    private static List<List<String>> topics(AppFilter filter) {
+        List<List<String>> topics = new ArrayList<>();
+        for (Filter.FilterTopic<?> filterTopic : filter.getTopics()) {
+            List<String> alternatives = new ArrayList<>();
+            if (filterTopic instanceof Filter.ListTopic) {
+                for (Filter.SingleTopic topic : ((Filter.ListTopic) filterTopic).getValue()) {
+                    if (topic.getValue() == null) {
+                        alternatives = null;
+                        break;
+                    }
+                    alternatives.add(topic.getValue().toLowerCase(Locale.ROOT));
+                }
+            } else if (filterTopic.getValue() != null) {
+                alternatives.add(((String) filterTopic.getValue()).toLowerCase(Locale.ROOT));
+            } else {
+                alternatives = null;
+            }
+            topics.add(alternatives);
+        }
+        return topics;
+    }
+
+    private static List<String> normalise(List<String> addresses) {
+        List<String> normalised = new ArrayList<>();
+        if (addresses != null) {
+            for (String address : addresses) {
+                if (address != null) {
+                    normalised.add(address.toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+        return normalised;
+    }
+
+    /**
+     * @return the block number of the parameter, or {@link #HEAD} for the chain head
+     */
+    private static long resolve(DefaultBlockParameter defaultBlockParameter) {
+        if (defaultBlockParameter instanceof DefaultBlockParameterNumber) {
+            return ((DefaultBlockParameterNumber) defaultBlockParameter)
+                    .getBlockNumber().longValue();
+        } else if (defaultBlockParameter == DefaultBlockParameterName.EARLIEST) {
+            return 0;
+        }
+        return HEAD;
+    }
+
+    private static String topicKey(int position, String topic) {
+        return position + ":" + topic;
+    }
+
+    private boolean isIndexedLocked(long fromBlock, long toBlock) {
+        Map.Entry<Long, Long> range = indexedRanges.floorEntry(fromBlock);
+        return range != null && range.getValue() >= toBlock;
+    }
+
+    private void markIndexed(long fromBlock, long toBlock) {
+        long start = fromBlock;
+        long end = toBlock;
+        Map.Entry<Long, Long> before = indexedRanges.floorEntry(start);
+        if (before != null && before.getValue() >= start - 1) {
+            start = before.getKey();
+            end = Math.max(end, before.getValue());
+        }
+        Map.Entry<Long, Long> after = indexedRanges.ceilingEntry(start);
+        while (after != null && after.getKey() <= end + 1) {
+            end = Math.max(end, after.getValue());
+            indexedRanges.remove(after.getKey());
+            after = indexedRanges.ceilingEntry(start);
+        }
+        indexedRanges.put(start, end);
+    }
+
+    private boolean contains(Log log) throws IOException {
+        long[] locations = blocks.get(log.getBlockNumber().longValue());
+        if (locations != null) {
+            for (long location : locations) {
+                if (read(location).equals(log)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void index(long location, Log log) {
+        long blockNumber = log.getBlockNumber().longValue();
+        long[] locations = blocks.get(blockNumber);
+        if (locations == null) {
+            locations = new long[] { location };
+        } else {
+            locations = Arrays.copyOf(locations, locations.length + 1);
+            locations[locations.length - 1] = location;
+        }
+        blocks.put(blockNumber, locations);
+
+        if (log.getAddress() != null) {
+            posting(addressPostings, log.getAddress().toLowerCase(Locale.ROOT)).add(blockNumber);
+        }
+        if (log.getTopics() != null) {
+            for (int position = 0; position < log.getTopics().size(); position++) {
+                String topic = log.getTopics().get(position).toLowerCase(Locale.ROOT);
+                posting(topicPostings, topicKey(position, topic)).add(blockNumber);
+            }
+        }
+        logCount.incrementAndGet();
+    }
+
+    private static BlockBitmap posting(Map<String, BlockBitmap> postings, String key) {
+        BlockBitmap bitmap = postings.get(key);
+        if (bitmap == null) {
+            bitmap = new BlockBitmap();
+            postings.put(key, bitmap);
+        }
+        return bitmap;
+    }
+
+    private List<Log> fetch(long fromBlock, long toBlock) throws IOException {
+        return fetch(new AppFilter(
+                new DefaultBlockParameterNumber(fromBlock),
+                new DefaultBlockParameterNumber(toBlock),
+                Collections.<String>emptyList()));
+    }
+
+    private List<Log> fetch(AppFilter filter) throws IOException {
+        AppLog appLog = appChainj.appGetLogs(filter).send();
+        if (appLog.hasError()) {
+            throw new IOException("Error fetching logs: " + appLog.getError().getMessage());
+        }
+        List<Log> logs = new ArrayList<>();
+        for (AppLog.LogResult logResult : appLog.getLogs()) {
+            if (logResult instanceof AppLog.LogObject) {
+                // plain logs, as read from the segments
+                Log log = (AppLog.LogObject) logResult;
+                logs.add(new Log(log.isRemoved(), log.getLogIndexRaw(),
+                        log.getTransactionIndexRaw(), log.getTransactionHash(),
+                        log.getBlockHash(), log.getBlockNumberRaw(), log.getAddress(),
+                        log.getData(), log.getTransactionLogIndex(), log.getTopics()));
+            }
+        }
+        return logs;
+    }
+
+    private void open() throws IOException {
+        for (int i = 0; ; i++) {
+            File file = segmentFile(i);
+            if (!file.exists()) {
+                break;
+            }
+            FileChannel channel = new RandomAccessFile(file, "rw").getChannel();
+            segments.add(channel);
+            scan(i, channel);
+        }
+        if (segments.isEmpty()) {
+            segments.add(new RandomAccessFile(segmentFile(0), "rw").getChannel());
+        }
+        for (long blockNumber : blocks.keySet()) {
+            if (!isIndexedLocked(blockNumber, blockNumber)) {
+                recoveredBlocks.add(blockNumber);
+            }
+        }
+    }
+
+    private void scan(int segment, FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        long position = 0;
+        long size = channel.size();
+        while (position + HEADER_SIZE <= size) {
+            header.clear();
+            readFully(channel, header, position);
+            int length = header.getInt(0);
+            if (length <= 0 || position + HEADER_SIZE + length > size) {
+                break;
+            }
+
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            readFully(channel, payload, position + HEADER_SIZE);
+            byte type = header.get(4);
+            if (type == LOG_RECORD) {
+                Log log = decode(payload.array());
+                index(location(segment, position), log);
+            } else if (type == RANGE_RECORD) {
+                markIndexed(payload.getLong(0), payload.getLong(8));
+            }
+            position += HEADER_SIZE + length;
+        }
+        // drop a record which was only partially written
+        channel.truncate(position);
+        writePosition = position;
+    }
+
+    private long append(byte type, byte[] payload) throws IOException {
+        int recordSize = HEADER_SIZE + payload.length;
+        if (writePosition > 0 && writePosition + recordSize > segmentSize) {
+            segments.add(new RandomAccessFile(segmentFile(segments.size()), "rw").getChannel());
+            writePosition = 0;
+        }
+        int segment = segments.size() - 1;
+        FileChannel channel = segments.get(segment);
+
+        ByteBuffer record = ByteBuffer.allocate(recordSize);
+        record.putInt(payload.length).put(type).put(payload);
+        record.flip();
+        long position = writePosition;
+        while (record.hasRemaining()) {
+            channel.write(record, position + record.position());
+        }
+        writePosition = position + recordSize;
+        return location(segment, position);
+    }
+
+    private Log read(long location) throws IOException {
+        int segment = (int) (location >>> OFFSET_BITS);
+        long position = location & ((1L << OFFSET_BITS) - 1);
+        FileChannel channel;
+        lock.readLock().lock();
+        try {
+            channel = segments.get(segment);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(channel, header, position);
+        ByteBuffer payload = ByteBuffer.allocate(header.getInt(0));
+        readFully(channel, payload, position + HEADER_SIZE);
+        return decode(payload.array());
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position)
+            throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of log segment");
+            }
+        }
+    }
+
+    private static long location(int segment, long position) {
+        return ((long) segment << OFFSET_BITS) | position;
+    }
+
+    private File segmentFile(int segment) {
+        return new File(directory, String.format(Locale.ROOT, "logs-%06d.seg", segment));
+    }
+
+    private void closeSegments() throws IOException {
+        for (FileChannel channel : segments) {
+            channel.close();
+        }
+        segments.clear();
+    }
+
+    private static byte[] encode(Log log) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(512);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+            generator.writeStartObject();
+            generator.writeBooleanField("removed", log.isRemoved());
+            generator.writeStringField("logIndex", log.getLogIndexRaw());
+            generator.writeStringField("transactionIndex", log.getTransactionIndexRaw());
+            generator.writeStringField("transactionHash", log.getTransactionHash());
+            generator.writeStringField("blockHash", log.getBlockHash());
+            generator.writeStringField("blockNumber", log.getBlockNumberRaw());
+            generator.writeStringField("address", log.getAddress());
+            generator.writeStringField("data", log.getData());
+            generator.writeStringField("transactionLogIndex", log.getTransactionLogIndex());
+            generator.writeArrayFieldStart("topics");
+            if (log.getTopics() != null) {
+                for (String topic : log.getTopics()) {
+                    generator.writeString(topic);
+                }
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+        return outputStream.toByteArray();
+    }
+
+    private static Log decode(byte[] payload) {
+        try {
+            return objectMapper.readValue(payload, Log.class);
+        } catch (IOException e) {
+            throw new MessageDecodingException("Corrupt log record", e);
+        }
+    }
+}
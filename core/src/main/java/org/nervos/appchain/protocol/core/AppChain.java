@@ -85,4 +85,6 @@ public interface AppChain {
 
     Request<?, AppLog> appGetLogs(
             org.nervos.appchain.protocol.core.methods.request.AppFilter ethFilter);
+
+    BatchRequest newBatch();
 }
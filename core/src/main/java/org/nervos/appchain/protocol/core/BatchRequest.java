@@ -0,0 +1,50 @@
+package org.nervos.appchain.protocol.core;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Future;
+
+import org.nervos.appchain.protocol.AppChainjService;
+
+/**
+ * A JSON-RPC 2.0 batch, sent to the node as a single JSON array.
+ *
+ * <p>Responses are matched back to their requests by id, so every request within a batch
+ * must have a distinct id. Requests created via {@link AppChain} are always unique.
+ */
+public class BatchRequest {
+
+    private final AppChainjService appChainjService;
+    private final List<Request<?, ? extends Response>> requests = new ArrayList<>();
+
+    public BatchRequest(AppChainjService appChainjService) {
+        this.appChainjService = appChainjService;
+    }
+
+    public BatchRequest add(Request<?, ? extends Response> request) {
+        requests.add(request);
+        return this;
+    }
+
+    public List<Request<?, ? extends Response>> getRequests() {
+        return Collections.unmodifiableList(requests);
+    }
+
+    public int size() {
+        return requests.size();
+    }
+
+    public boolean isEmpty() {
+        return requests.isEmpty();
+    }
+
+    public BatchResponse send() throws IOException {
+        return appChainjService.sendBatch(this);
+    }
+
+    public Future<BatchResponse> sendAsync() {
+        return appChainjService.sendBatchAsync(this);
+    }
+}
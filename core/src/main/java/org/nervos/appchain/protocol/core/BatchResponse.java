@@ -0,0 +1,59 @@
+package org.nervos.appchain.protocol.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Responses to a {@link BatchRequest}, in the same order as the requests were added.
+ */
+public class BatchResponse {
+
+    private final List<Request<?, ? extends Response>> requests;
+    private final List<? extends Response> responses;
+
+    public BatchResponse(
+            List<Request<?, ? extends Response>> requests,
+            List<? extends Response> responses) {
+        if (requests.size() != responses.size()) {
+            throw new IllegalArgumentException(
+                    "Expected " + requests.size() + " responses, got " + responses.size());
+        }
+        // the batch may still be added to, e.g. when it is reused
+        this.requests = new ArrayList<>(requests);
+        this.responses = responses;
+    }
+
+    public List<Request<?, ? extends Response>> getRequests() {
+        return Collections.unmodifiableList(requests);
+    }
+
+    public List<? extends Response> getResponses() {
+        return Collections.unmodifiableList(responses);
+    }
+
+    public Response getResponse(int index) {
+        return responses.get(index);
+    }
+
+    /**
+     * Typed lookup of the response belonging to a request of this batch.
+     *
+     * @param request a request previously added to the batch
+     * @param <T> the response type of the request
+     * @return the matching response
+     */
+    public <T extends Response> T getResponse(Request<?, T> request) {
+        for (int i = 0; i < requests.size(); i++) {
+            if (requests.get(i) == request) {
+                return request.getResponseType().cast(responses.get(i));
+            }
+        }
+        throw new IllegalArgumentException(
+                "Request " + request.getId() + " is not part of this batch");
+    }
+
+    public int size() {
+        return responses.size();
+    }
+}
@@ -57,7 +57,7 @@ public class JsonRpc2_0AppChainj implements AppChainj {
             AppChainjService appChainjService, long pollingInterval,
             ScheduledExecutorService scheduledExecutorService) {
         this.appChainjService = appChainjService;
-        this.web3jRx = new JsonRpc2_0Rx(this, scheduledExecutorService);
+        this.web3jRx = new JsonRpc2_0Rx(this, appChainjService, scheduledExecutorService);
         this.blockTime = pollingInterval;
     }
 
@@ -312,6 +312,11 @@ public class JsonRpc2_0AppChainj implements AppChainj {
                 AppLog.class);
     }
 
+    @Override
+    public BatchRequest newBatch() {
+        return new BatchRequest(appChainjService);
+    }
+
     @Override
     public Observable<String> appBlockHashObservable() {
         return web3jRx.appBlockHashObservable(blockTime);
@@ -6,6 +6,8 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicLong;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import org.nervos.appchain.protocol.AppChainjService;
 import rx.Observable;
 
@@ -67,6 +69,11 @@ public class Request<S, T extends Response> {
         this.id = id;
     }
 
+    @JsonIgnore
+    public Class<T> getResponseType() {
+        return responseType;
+    }
+
     public T send() throws IOException {
         return appChainjService.send(this, responseType);
     }
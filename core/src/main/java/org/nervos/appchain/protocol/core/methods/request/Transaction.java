@@ -147,7 +147,13 @@ public class Transaction {
         }
     }
 
-    public String sign(String privateKey, boolean isEd25519AndBlake2b, boolean isByteArray) {
+    /**
+     * Build the unsigned protobuf transaction that is signed and sent to the node.
+     *
+     * @param isByteArray whether data holds raw bytes rather than hex
+     * @return the protobuf transaction
+     */
+    public Blockchain.Transaction toProtobuf(boolean isByteArray) {
         Blockchain.Transaction.Builder builder = Blockchain.Transaction.newBuilder();
 
         byte[] strbyte;
@@ -169,7 +175,11 @@ public class Transaction {
         builder.setQuota(getQuota());
         builder.setChainId(getChainId());
         builder.setValue(bvalue);
-        Blockchain.Transaction tx = builder.build();
+        return builder.build();
+    }
+
+    public String sign(String privateKey, boolean isEd25519AndBlake2b, boolean isByteArray) {
+        Blockchain.Transaction tx = toProtobuf(isByteArray);
 
         byte[] sig;
         if (isEd25519AndBlake2b) {
@@ -201,24 +211,7 @@ public class Transaction {
 
     // just used to secp256k1
     public String sign(Credentials credentials) {
-        Blockchain.Transaction.Builder builder = Blockchain.Transaction.newBuilder();
-        byte[] strbyte = ConvertStrByte.hexStringToBytes(
-                Numeric.cleanHexPrefix(getData()));
-        ByteString bdata = ByteString.copyFrom(strbyte);
-
-        byte[] byteValue = ConvertStrByte.hexStringToBytes(
-                Numeric.cleanHexPrefix(getValue()), 256);
-        ByteString bvalue = ByteString.copyFrom(byteValue);
-
-        builder.setData(bdata);
-        builder.setNonce(getNonce());
-        builder.setTo(getTo());
-        builder.setValidUntilBlock(get_valid_until_block());
-        builder.setQuota(getQuota());
-        builder.setVersion(getVersion());
-        builder.setChainId(getChainId());
-        builder.setValue(bvalue);
-        Blockchain.Transaction tx = builder.build();
+        Blockchain.Transaction tx = toProtobuf(false);
 
         ECKeyPair keyPair = credentials.getEcKeyPair();
         Sign.SignatureData signatureData = Sign.signMessage(tx.toByteArray(), keyPair);
@@ -3,8 +3,10 @@ package org.nervos.appchain.protocol.core.methods.response;
 import java.io.IOException;
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonToken;
@@ -13,8 +15,14 @@ import com.fasterxml.jackson.databind.JsonDeserializer;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 
+import org.nervos.appchain.protocol.Service;
+import org.nervos.appchain.protocol.core.Request;
 import org.nervos.appchain.protocol.core.Response;
+import org.nervos.appchain.protocol.core.filters.Callback;
+import org.nervos.appchain.protocol.deserializer.ResponseStreamer;
 import org.nervos.appchain.utils.Numeric;
+import rx.Observable;
+import rx.Subscriber;
 
 
 /**
@@ -494,6 +502,22 @@ public class AppBlock extends Response<AppBlock.Block> {
             this.body = body;
         }
 
+        /**
+         * Decode the content of all transactions of the block in parallel.
+         *
+         * @see TransactionContent#decodeAll(List, ExecutorService)
+         */
+        public List<TransactionContent> decodeTransactions(ExecutorService executorService) {
+            if (body == null || body.getTransactions() == null) {
+                return Collections.emptyList();
+            }
+            return TransactionContent.decodeAll(body.getTransactions(), executorService);
+        }
+
+        public List<TransactionContent> decodeTransactions() {
+            return decodeTransactions(null);
+        }
+
         @Override
         public boolean equals(Object o) {
             if (this == o) {
@@ -562,32 +586,7 @@ public class AppBlock extends Response<AppBlock.Block> {
                 String blockVersion = node.get("version").asText();
                 String blockHash = node.get("hash").asText();
 
-                //block header
-                JsonNode headerNode = node.get("header");
-                Long timeStamp = headerNode.get("timestamp").asLong();
-                String prevHash = headerNode.get("prevHash").asText();
-                String number = headerNode.get("number").asText();
-                String stateRoot = headerNode.get("stateRoot").asText();
-                String transactionsRoot = headerNode.get("transactionsRoot").asText();
-                String receiptsRoot = headerNode.get("receiptsRoot").asText();
-                String gasUsed = headerNode.get("gasUsed").asText();
-
-                //proof tendermint
-                JsonNode proofNode = node.get("header").get("proof").get("Bft");
-                String proposal = proofNode.get("proposal").asText();
-                String height = proofNode.get("height").asText();
-                String round = proofNode.get("round").asText();
-
-                //proof tendermint commits
-                List<TendermintCommit> tendermintCommits = new ArrayList<>();
-                JsonNode commitsNode = node.get("header")
-                        .get("proof").get("Bft").get("commits");
-                Iterator<String> commitsAddress = commitsNode.fieldNames();
-                while (commitsAddress.hasNext()) {
-                    String commitAddress = commitsAddress.next();
-                    String commit = commitsNode.get(commitAddress).asText();
-                    tendermintCommits.add(new TendermintCommit(commitAddress, commit));
-                }
+                Header header = parseHeader(node.get("header"));
 
                 //body transactions
                 List<TransactionObject> transactionObjs = new ArrayList<TransactionObject>();
@@ -596,18 +595,16 @@ public class AppBlock extends Response<AppBlock.Block> {
                 while (txNodes.hasNext()) {
                     JsonNode txNode = txNodes.next();
                     TransactionObject txToAdd = new TransactionObject();
-                    txToAdd.setHash(txNode.get("hash").asText());
-                    txToAdd.setContent(txNode.get("content").asText());
+                    if (txNode.isTextual()) {
+                        // blocks requested without full transactions only list hashes
+                        txToAdd.setHash(txNode.asText());
+                    } else {
+                        txToAdd.setHash(txNode.get("hash").asText());
+                        txToAdd.setContent(txNode.get("content").asText());
+                    }
                     transactionObjs.add(txToAdd);
                 }
 
-                Tendermint tendermint = new Tendermint(
-                        proposal, height, round,
-                        tendermintCommits.toArray(
-                                new TendermintCommit[tendermintCommits.size()]));
-
-                Header header = new Header(timeStamp, prevHash, number, stateRoot,
-                        transactionsRoot, receiptsRoot, gasUsed, new Proof(tendermint));
                 Body body = new Body(transactionObjs);
                 return new Block(blockVersion, blockHash, header, body);
             } else {
@@ -615,4 +612,165 @@ public class AppBlock extends Response<AppBlock.Block> {
             }
         }
     }
+
+    private static Header parseHeader(JsonNode headerNode) {
+        //block header
+        Long timeStamp = headerNode.get("timestamp").asLong();
+        String prevHash = headerNode.get("prevHash").asText();
+        String number = headerNode.get("number").asText();
+        String stateRoot = headerNode.get("stateRoot").asText();
+        String transactionsRoot = headerNode.get("transactionsRoot").asText();
+        String receiptsRoot = headerNode.get("receiptsRoot").asText();
+        String gasUsed = headerNode.get("gasUsed").asText();
+
+        //proof tendermint
+        JsonNode proofNode = headerNode.get("proof").get("Bft");
+        String proposal = proofNode.get("proposal").asText();
+        String height = proofNode.get("height").asText();
+        String round = proofNode.get("round").asText();
+
+        //proof tendermint commits
+        List<TendermintCommit> tendermintCommits = new ArrayList<>();
+        JsonNode commitsNode = proofNode.get("commits");
+        Iterator<String> commitsAddress = commitsNode.fieldNames();
+        while (commitsAddress.hasNext()) {
+            String commitAddress = commitsAddress.next();
+            String commit = commitsNode.get(commitAddress).asText();
+            tendermintCommits.add(new TendermintCommit(commitAddress, commit));
+        }
+
+        Tendermint tendermint = new Tendermint(
+                proposal, height, round,
+                tendermintCommits.toArray(
+                        new TendermintCommit[tendermintCommits.size()]));
+
+        return new Header(timeStamp, prevHash, number, stateRoot,
+                transactionsRoot, receiptsRoot, gasUsed, new Proof(tendermint));
+    }
+
+    /**
+     * Streams the transactions of a block to a callback as they are parsed, so that the
+     * transaction list of a large block is never held in memory. The body of the resulting
+     * {@link Block} is left empty.
+     *
+     * <p>Transactions given as plain hashes are passed on as transaction objects with only the
+     * hash populated.
+     */
+    public static class TransactionStreamer extends ResponseStreamer<AppBlock> {
+
+        private final Callback<TransactionObject> callback;
+
+        public TransactionStreamer(Callback<TransactionObject> callback) {
+            this.callback = callback;
+        }
+
+        /**
+         * Emit the transactions of the requested block as they are parsed.
+         *
+         * @param service service to send the request with
+         * @param request a getBlockByHash or getBlockByNumber request
+         * @return an observable of the block's transactions
+         */
+        public static Observable<TransactionObject> observable(
+                final Service service, final Request<?, AppBlock> request) {
+            return Observable.create(new Observable.OnSubscribe<TransactionObject>() {
+                @Override
+                public void call(final Subscriber<? super TransactionObject> subscriber) {
+                    try {
+                        AppBlock appBlock = service.send(request, new TransactionStreamer(
+                                new Callback<TransactionObject>() {
+                                    @Override
+                                    public void onEvent(TransactionObject value) {
+                                        if (!subscriber.isUnsubscribed()) {
+                                            subscriber.onNext(value);
+                                        }
+                                    }
+                                }));
+                        if (appBlock != null && appBlock.hasError()) {
+                            subscriber.onError(new IOException(
+                                    "Invalid response: " + appBlock.getError().getMessage()));
+                        } else {
+                            subscriber.onCompleted();
+                        }
+                    } catch (IOException e) {
+                        subscriber.onError(e);
+                    }
+                }
+            });
+        }
+
+        @Override
+        protected AppBlock newResponse() {
+            return new AppBlock();
+        }
+
+        @Override
+        protected void streamResult(JsonParser jsonParser, AppBlock response) throws IOException {
+            String version = null;
+            String hash = null;
+            Header header = null;
+
+            while (jsonParser.nextToken() == JsonToken.FIELD_NAME) {
+                String fieldName = jsonParser.getCurrentName();
+                JsonToken token = jsonParser.nextToken();
+                if ("version".equals(fieldName)) {
+                    version = jsonParser.getValueAsString();
+                } else if ("hash".equals(fieldName)) {
+                    hash = jsonParser.getValueAsString();
+                } else if ("header".equals(fieldName) && token == JsonToken.START_OBJECT) {
+                    header = parseHeader(jsonParser.<JsonNode>readValueAsTree());
+                } else if ("body".equals(fieldName) && token == JsonToken.START_OBJECT) {
+                    streamBody(jsonParser);
+                } else {
+                    jsonParser.skipChildren();
+                }
+            }
+
+            response.setResult(new Block(
+                    version, hash, header, new Body(new ArrayList<TransactionObject>())));
+        }
+
+        private void streamBody(JsonParser jsonParser) throws IOException {
+            while (jsonParser.nextToken() == JsonToken.FIELD_NAME) {
+                String fieldName = jsonParser.getCurrentName();
+                JsonToken token = jsonParser.nextToken();
+                if ("transactions".equals(fieldName) && token == JsonToken.START_ARRAY) {
+                    while ((token = jsonParser.nextToken()) != JsonToken.END_ARRAY) {
+                        TransactionObject transactionObject = new TransactionObject();
+                        if (token == JsonToken.START_OBJECT) {
+                            parseTransaction(jsonParser, transactionObject);
+                        } else {
+                            transactionObject.setHash(jsonParser.getValueAsString());
+                            jsonParser.skipChildren();
+                        }
+                        callback.onEvent(transactionObject);
+                    }
+                } else {
+                    jsonParser.skipChildren();
+                }
+            }
+        }
+
+        private static void parseTransaction(
+                JsonParser jsonParser, TransactionObject transactionObject) throws IOException {
+            while (jsonParser.nextToken() == JsonToken.FIELD_NAME) {
+                String fieldName = jsonParser.getCurrentName();
+                jsonParser.nextToken();
+                String value = jsonParser.getValueAsString();
+                if ("hash".equals(fieldName)) {
+                    transactionObject.setHash(value);
+                } else if ("content".equals(fieldName)) {
+                    transactionObject.setContent(value);
+                } else if ("blockHash".equals(fieldName)) {
+                    transactionObject.setBlockHash(value);
+                } else if ("blockNumber".equals(fieldName)) {
+                    transactionObject.setBlockNumber(value);
+                } else if ("index".equals(fieldName)) {
+                    transactionObject.setIndex(value);
+                } else {
+                    jsonParser.skipChildren();
+                }
+            }
+        }
+    }
 }
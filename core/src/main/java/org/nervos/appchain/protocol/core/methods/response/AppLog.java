@@ -9,11 +9,18 @@ import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 
 import org.nervos.appchain.protocol.ObjectMapperFactory;
+import org.nervos.appchain.protocol.Service;
+import org.nervos.appchain.protocol.core.Request;
 import org.nervos.appchain.protocol.core.Response;
+import org.nervos.appchain.protocol.core.filters.Callback;
+import org.nervos.appchain.protocol.deserializer.ResponseStreamer;
+import rx.Observable;
+import rx.Subscriber;
 
 /**
  * Log object returned by:
@@ -133,4 +140,75 @@ public class AppLog extends Response<List<AppLog.LogResult>> {
             return logResults;
         }
     }
+
+    /**
+     * Streams log objects to a callback as they are parsed, so that the result of a large
+     * getLogs query is never held in memory. The result of the returned {@link AppLog} is
+     * left empty.
+     */
+    public static class LogStreamer extends ResponseStreamer<AppLog> {
+
+        private final Callback<Log> callback;
+
+        public LogStreamer(Callback<Log> callback) {
+            this.callback = callback;
+        }
+
+        /**
+         * Emit the logs of the request as they are parsed.
+         *
+         * @param service service to send the request with
+         * @param request a getLogs or getFilterLogs request
+         * @return an observable of the logs
+         */
+        public static Observable<Log> observable(
+                final Service service, final Request<?, AppLog> request) {
+            return Observable.create(new Observable.OnSubscribe<Log>() {
+                @Override
+                public void call(final Subscriber<? super Log> subscriber) {
+                    try {
+                        AppLog appLog = service.send(request, new LogStreamer(
+                                new Callback<Log>() {
+                                    @Override
+                                    public void onEvent(Log value) {
+                                        if (!subscriber.isUnsubscribed()) {
+                                            subscriber.onNext(value);
+                                        }
+                                    }
+                                }));
+                        if (appLog != null && appLog.hasError()) {
+                            subscriber.onError(new IOException(
+                                    "Invalid response: " + appLog.getError().getMessage()));
+                        } else {
+                            subscriber.onCompleted();
+                        }
+                    } catch (IOException e) {
+                        subscriber.onError(e);
+                    }
+                }
+            });
+        }
+
+        @Override
+        protected AppLog newResponse() {
+            return new AppLog();
+        }
+
+        @Override
+        protected void streamResult(JsonParser jsonParser, AppLog response) throws IOException {
+            if (jsonParser.getCurrentToken() != JsonToken.START_ARRAY) {
+                throw JsonMappingException.from(jsonParser, "Expected array of logs");
+            }
+
+            while (jsonParser.nextToken() != JsonToken.END_ARRAY) {
+                if (jsonParser.getCurrentToken() != JsonToken.START_OBJECT) {
+                    throw JsonMappingException.from(jsonParser,
+                            "Unexpected result type: " + jsonParser.getText()
+                                    + ", required log object");
+                }
+                callback.onEvent(jsonParser.readValueAs(LogObject.class));
+            }
+            response.setResult(new ArrayList<LogResult>());
+        }
+    }
 }
@@ -0,0 +1,12 @@
+package org.nervos.appchain.protocol.core.methods.response;
+
+import org.nervos.appchain.protocol.core.Response;
+
+/**
+ * subscribe.
+ */
+public class AppSubscribe extends Response<String> {
+    public String getSubscriptionId() {
+        return getResult();
+    }
+}
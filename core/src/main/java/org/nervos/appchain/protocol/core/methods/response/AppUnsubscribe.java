@@ -0,0 +1,12 @@
+package org.nervos.appchain.protocol.core.methods.response;
+
+import org.nervos.appchain.protocol.core.Response;
+
+/**
+ * unsubscribe.
+ */
+public class AppUnsubscribe extends Response<Boolean> {
+    public boolean isUnsubscribed() {
+        return getResult() != null && getResult();
+    }
+}
@@ -13,6 +13,8 @@ public class Transaction {
     private String blockNumber;
     private String content;
     private String index;
+    // decoded content, shared by all readers
+    private transient volatile TransactionContent decodedContent;
 
     public Transaction() {
     }
@@ -56,12 +58,29 @@ public class Transaction {
 
     public void setContent(String content) {
         this.content = content;
+        this.decodedContent = null;
     }
 
     public String getContent() {
         return content;
     }
 
+    /**
+     * Decode the content on first use; later calls return the same instance.
+     *
+     * @throws org.nervos.appchain.exceptions.MessageDecodingException if the content is not
+     *         a valid transaction
+     */
+    public TransactionContent decodeContent() {
+        TransactionContent decoded = decodedContent;
+        if (decoded == null) {
+            // racing threads may both decode, the results are equivalent
+            decoded = TransactionContent.decode(content);
+            decodedContent = decoded;
+        }
+        return decoded;
+    }
+
     public void setIndex(String index) {
         this.index = index;
     }
@@ -0,0 +1,212 @@
+package org.nervos.appchain.protocol.core.methods.response;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+
+import org.nervos.appchain.exceptions.MessageDecodingException;
+import org.nervos.appchain.protobuf.Blockchain;
+import org.nervos.appchain.utils.Async;
+import org.nervos.appchain.utils.HexCodec;
+import org.nervos.appchain.utils.Numeric;
+
+/**
+ * Decoded {@link Transaction#getContent() content} of a transaction.
+ *
+ * <p>The content is parsed once, straight from its hex encoding, and the fields are kept
+ * as plain values. Use {@link Transaction#decodeContent()} to share a single
+ * decoding between all readers of a transaction, or {@link #decodeAll(List)} to decode the
+ * transactions of a block in parallel.
+ */
+public class TransactionContent {
+
+    // smallest number of transactions worth decoding on another thread
+    private static final int MIN_CHUNK_SIZE = 16;
+
+    private final String to;
+    private final String nonce;
+    private final long quota;
+    private final long validUntilBlock;
+    private final byte[] data;
+    private final byte[] value;
+    private final int chainId;
+    private final int version;
+    private final byte[] signature;
+    private final Blockchain.Crypto crypto;
+
+    private TransactionContent(Blockchain.UnverifiedTransaction unverifiedTransaction) {
+        Blockchain.Transaction transaction = unverifiedTransaction.getTransaction();
+        this.to = transaction.getTo();
+        this.nonce = transaction.getNonce();
+        this.quota = transaction.getQuota();
+        this.validUntilBlock = transaction.getValidUntilBlock();
+        this.data = transaction.getData().toByteArray();
+        this.value = transaction.getValue().toByteArray();
+        this.chainId = transaction.getChainId();
+        this.version = transaction.getVersion();
+        this.signature = unverifiedTransaction.getSignature().toByteArray();
+        this.crypto = unverifiedTransaction.getCrypto();
+    }
+
+    /**
+     * @param content hex encoded {@code UnverifiedTransaction}, with or without a 0x prefix
+     * @throws MessageDecodingException if the content is not a valid transaction
+     */
+    public static TransactionContent decode(String content) {
+        return new TransactionContent(parse(content));
+    }
+
+    /**
+     * Parse the content without decoding its fields.
+     *
+     * @throws MessageDecodingException if the content is not a valid transaction
+     */
+    public static Blockchain.UnverifiedTransaction parse(String content) {
+        if (content == null) {
+            throw new MessageDecodingException("Transaction has no content");
+        }
+        int offset = Numeric.containsHexPrefix(content) ? 2 : 0;
+        byte[] bytes = HexCodec.decode(content, offset, content.length() - offset);
+        try {
+            return Blockchain.UnverifiedTransaction.parseFrom(bytes);
+        } catch (InvalidProtocolBufferException e) {
+            throw new MessageDecodingException("Invalid transaction content", e);
+        }
+    }
+
+    /**
+     * Decode the content of all {@code transactions} on the shared {@link Async} executor.
+     *
+     * @see #decodeAll(List, ExecutorService)
+     */
+    public static List<TransactionContent> decodeAll(List<? extends Transaction> transactions) {
+        return decodeAll(transactions, null);
+    }
+
+    /**
+     * Decode the content of all {@code transactions}, in chunks on {@code executorService}
+     * and on the calling thread. The decoded content is cached on each transaction.
+     *
+     * @return the decoded content, in the order of {@code transactions}
+     * @throws MessageDecodingException if the content of a transaction is invalid
+     */
+    public static List<TransactionContent> decodeAll(
+            final List<? extends Transaction> transactions, ExecutorService executorService) {
+        int size = transactions.size();
+        int chunks = Math.min(
+                Runtime.getRuntime().availableProcessors(), size / MIN_CHUNK_SIZE);
+        if (chunks <= 1) {
+            return Collections.unmodifiableList(decode(transactions, 0, size));
+        }
+
+        List<Future<List<TransactionContent>>> futures = new ArrayList<>(chunks - 1);
+        int chunkSize = (size + chunks - 1) / chunks;
+        for (int from = chunkSize; from < size; from += chunkSize) {
+            final int start = from;
+            final int end = Math.min(size, from + chunkSize);
+            Callable<List<TransactionContent>> callable =
+                    new Callable<List<TransactionContent>>() {
+                        @Override
+                        public List<TransactionContent> call() {
+                            return decode(transactions, start, end);
+                        }
+                    };
+            futures.add(executorService == null
+                    ? Async.run(callable) : executorService.submit(callable));
+        }
+
+        List<TransactionContent> result = new ArrayList<>(size);
+        result.addAll(decode(transactions, 0, chunkSize));
+        boolean interrupted = false;
+        try {
+            for (Future<List<TransactionContent>> future : futures) {
+                while (true) {
+                    try {
+                        result.addAll(future.get());
+                        break;
+                    } catch (InterruptedException e) {
+                        // the chunks are short, so finish them before restoring the interrupt
+                        interrupted = true;
+                    }
+                }
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new MessageDecodingException("Unable to decode transactions", cause);
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    private static List<TransactionContent> decode(
+            List<? extends Transaction> transactions, int from, int to) {
+        List<TransactionContent> result = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            result.add(transactions.get(i).decodeContent());
+        }
+        return result;
+    }
+
+    public String getTo() {
+        return to;
+    }
+
+    public String getNonce() {
+        return nonce;
+    }
+
+    public long getQuota() {
+        return quota;
+    }
+
+    public long getValidUntilBlock() {
+        return validUntilBlock;
+    }
+
+    /**
+     * @return the call data, hex encoded without a 0x prefix
+     */
+    public String getData() {
+        return HexCodec.encode(data, false);
+    }
+
+    public byte[] getDataBytes() {
+        return data.clone();
+    }
+
+    public BigInteger getValue() {
+        return new BigInteger(1, value);
+    }
+
+    public int getChainId() {
+        return chainId;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * @return the signature, hex encoded with a 0x prefix
+     */
+    public String getSignature() {
+        return HexCodec.encode(signature, true);
+    }
+
+    public Blockchain.Crypto getCrypto() {
+        return crypto;
+    }
+}
@@ -0,0 +1,83 @@
+package org.nervos.appchain.protocol.deserializer;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.nervos.appchain.protocol.core.BatchResponse;
+import org.nervos.appchain.protocol.core.Request;
+import org.nervos.appchain.protocol.core.Response;
+import org.nervos.appchain.protocol.exceptions.ClientConnectionException;
+
+/**
+ * Demultiplexes a JSON-RPC batch response. The specification allows nodes to return batch
+ * entries in any order, so responses are matched to their requests by id.
+ */
+public class BatchResponseParser {
+
+    private final ObjectMapper objectMapper;
+    private final boolean includeRawResponses;
+
+    public BatchResponseParser(ObjectMapper objectMapper, boolean includeRawResponses) {
+        this.objectMapper = objectMapper;
+        this.includeRawResponses = includeRawResponses;
+    }
+
+    public BatchResponse parse(
+            List<Request<?, ? extends Response>> requests, JsonNode node) throws IOException {
+        if (!node.isArray()) {
+            throw new ClientConnectionException(
+                    "Invalid batch response received: " + node.toString());
+        }
+
+        Map<Long, Integer> indices = new HashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            if (indices.put(requests.get(i).getId(), i) != null) {
+                throw new IllegalArgumentException(
+                        "Duplicate request id in batch: " + requests.get(i).getId());
+            }
+        }
+
+        Response[] responses = new Response[requests.size()];
+        for (JsonNode entry : node) {
+            JsonNode id = entry.get("id");
+            Integer index = id == null ? null : indices.get(id.asLong());
+            if (index == null) {
+                throw new ClientConnectionException(
+                        "Unexpected batch response entry received: " + entry.toString());
+            }
+            responses[index] = parse(entry, requests.get(index).getResponseType());
+        }
+
+        for (int i = 0; i < responses.length; i++) {
+            if (responses[i] == null) {
+                throw new ClientConnectionException(
+                        "No batch response received for request id " + requests.get(i).getId());
+            }
+        }
+
+        return new BatchResponse(requests, Arrays.asList(responses));
+    }
+
+    /**
+     * Deserialise a single response which has already been read into a tree.
+     *
+     * @param node the response
+     * @param responseType the type to deserialise to
+     * @param <T> the response type
+     * @return the deserialised response
+     * @throws IOException if the node cannot be mapped to the response type
+     */
+    public <T extends Response> T parse(JsonNode node, Class<T> responseType) throws IOException {
+        T response = objectMapper.treeToValue(node, responseType);
+        if (includeRawResponses) {
+            response.setRawResponse(node.toString());
+        }
+        return response;
+    }
+}
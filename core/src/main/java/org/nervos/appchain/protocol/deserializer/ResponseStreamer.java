@@ -0,0 +1,57 @@
+package org.nervos.appchain.protocol.deserializer;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonMappingException;
+
+import org.nervos.appchain.protocol.core.Response;
+
+/**
+ * Incrementally deserialises a JSON-RPC response from the token stream, so that large results
+ * can be handed to the caller entry by entry instead of being materialised in full.
+ *
+ * <p>The envelope fields ({@code id}, {@code jsonrpc}, {@code error}) are populated on the
+ * returned response, the {@code result} field is delegated to {@link #streamResult}.
+ *
+ * @param <T> the response type
+ */
+public abstract class ResponseStreamer<T extends Response> {
+
+    public T stream(JsonParser jsonParser) throws IOException {
+        if (jsonParser.nextToken() != JsonToken.START_OBJECT) {
+            throw JsonMappingException.from(jsonParser, "Expected JSON-RPC response object");
+        }
+
+        T response = newResponse();
+        while (jsonParser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = jsonParser.getCurrentName();
+            JsonToken token = jsonParser.nextToken();
+            if ("id".equals(fieldName)) {
+                response.setId(jsonParser.getValueAsLong());
+            } else if ("jsonrpc".equals(fieldName)) {
+                response.setJsonrpc(jsonParser.getValueAsString());
+            } else if ("error".equals(fieldName) && token != JsonToken.VALUE_NULL) {
+                response.setError(jsonParser.readValueAs(Response.Error.class));
+            } else if ("result".equals(fieldName) && token != JsonToken.VALUE_NULL) {
+                streamResult(jsonParser, response);
+            } else {
+                jsonParser.skipChildren();
+            }
+        }
+        return response;
+    }
+
+    protected abstract T newResponse();
+
+    /**
+     * Consume the result value. On entry the parser is positioned on the first token of the
+     * value, on exit it must be positioned on the last token of the value.
+     *
+     * @param jsonParser parser positioned at the result
+     * @param response the response being populated
+     * @throws IOException if the result cannot be parsed
+     */
+    protected abstract void streamResult(JsonParser jsonParser, T response) throws IOException;
+}
@@ -0,0 +1,13 @@
+package org.nervos.appchain.protocol.exceptions;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a request is rejected because the concurrency limit of a service is reached and
+ * its queue of waiting requests is full.
+ */
+public class ConcurrencyLimitExceededException extends IOException {
+    public ConcurrencyLimitExceededException(String message) {
+        super(message);
+    }
+}
@@ -4,8 +4,16 @@ import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Dispatcher;
 import okhttp3.Headers;
 import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
@@ -14,14 +22,27 @@ import okhttp3.ResponseBody;
 import okhttp3.logging.HttpLoggingInterceptor;
 import okio.Buffer;
 import okio.BufferedSource;
+import org.nervos.appchain.protocol.ConcurrencyLimiter;
 import org.nervos.appchain.protocol.Service;
+import org.nervos.appchain.protocol.core.BatchRequest;
+import org.nervos.appchain.protocol.core.BatchResponse;
+import org.nervos.appchain.protocol.core.Request;
+import org.nervos.appchain.protocol.core.Response;
 import org.nervos.appchain.protocol.exceptions.ClientConnectionException;
+import org.nervos.appchain.protocol.exceptions.ConcurrencyLimitExceededException;
+import org.nervos.appchain.utils.SettableFuture;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 
 /**
  * HTTP implementation of our services API.
+ *
+ * <p>Asynchronous requests are dispatched with OkHttp's {@link Call#enqueue(Callback)}, so the
+ * number of requests in flight is bounded by the client's {@link Dispatcher} rather than by a
+ * thread per request. Responses are parsed on a separate bounded executor. When a
+ * {@link ConcurrencyLimiter} is set, asynchronous requests over its limit wait in its queue
+ * before being handed to the dispatcher.
  */
 public class HttpService extends Service {
 
@@ -30,6 +51,11 @@ public class HttpService extends Service {
 
     public static final String DEFAULT_URL = "http://localhost:8545/";
 
+    public static final int DEFAULT_MAX_REQUESTS = 64;
+
+    // all requests of a service go to the same node, so do not throttle below the global limit
+    public static final int DEFAULT_MAX_REQUESTS_PER_HOST = DEFAULT_MAX_REQUESTS;
+
     private static boolean debug = false;
 
     private OkHttpClient httpClient;
@@ -40,6 +66,8 @@ public class HttpService extends Service {
 
     private HashMap<String, String> headers = new HashMap<>();
 
+    private ExecutorService responseExecutor = ResponseExecutorHolder.INSTANCE;
+
     public HttpService(String url, OkHttpClient httpClient, boolean includeRawResponses) {
         super(includeRawResponses);
         this.url = url;
@@ -76,7 +104,11 @@ public class HttpService extends Service {
     }
 
     private static OkHttpClient createOkHttpClient() {
-        OkHttpClient.Builder builder = new OkHttpClient.Builder();
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(DEFAULT_MAX_REQUESTS);
+        dispatcher.setMaxRequestsPerHost(DEFAULT_MAX_REQUESTS_PER_HOST);
+
+        OkHttpClient.Builder builder = new OkHttpClient.Builder().dispatcher(dispatcher);
         configureLogging(builder);
         return builder.build();
     }
@@ -91,21 +123,156 @@ public class HttpService extends Service {
 
     @Override
     protected InputStream performIO(String request) throws IOException {
+        okhttp3.Response response = httpClient.newCall(buildHttpRequest(request)).execute();
+        return processResponse(response, includeRawResponse);
+    }
+
+    @Override
+    protected InputStream performStreamingIO(String request) throws IOException {
+        okhttp3.Response response = httpClient.newCall(buildHttpRequest(request)).execute();
+        return processResponse(response, false);
+    }
+
+    @Override
+    public <T extends Response> Future<T> sendAsync(
+            Request request, final Class<T> responseType) {
+        return performIOAsync(request, new ResponseParser<T>() {
+            @Override
+            public T parse(InputStream inputStream) throws IOException {
+                return objectMapper.readValue(inputStream, responseType);
+            }
+        });
+    }
+
+    @Override
+    public Future<BatchResponse> sendBatchAsync(BatchRequest batchRequest) {
+        final List<Request<?, ? extends Response>> requests = batchRequest.getRequests();
+        if (requests.isEmpty()) {
+            return super.sendBatchAsync(batchRequest);
+        }
+
+        return performIOAsync(requests, new ResponseParser<BatchResponse>() {
+            @Override
+            public BatchResponse parse(InputStream inputStream) throws IOException {
+                return parseBatchResponse(requests, objectMapper.readTree(inputStream));
+            }
+        });
+    }
+
+    private <T> Future<T> performIOAsync(Object payload, final ResponseParser<T> parser) {
+        final Call call;
+        try {
+            call = httpClient.newCall(buildHttpRequest(objectMapper.writeValueAsString(payload)));
+        } catch (IOException e) {
+            SettableFuture<T> future = new SettableFuture<>();
+            future.setException(e);
+            return future;
+        }
+
+        final SettableFuture<T> future = new SettableFuture<T>() {
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning) {
+                call.cancel();
+                return super.cancel(mayInterruptIfRunning);
+            }
+        };
 
+        final ConcurrencyLimiter limiter = getConcurrencyLimiter();
+        if (limiter == null) {
+            enqueue(call, parser, future, null);
+            return future;
+        }
+        try {
+            limiter.acquireAsync(new Runnable() {
+                @Override
+                public void run() {
+                    if (future.isCancelled()) {
+                        limiter.release(0, true);
+                    } else {
+                        enqueue(call, parser, future, limiter);
+                    }
+                }
+            });
+        } catch (ConcurrencyLimitExceededException e) {
+            future.setException(e);
+        }
+        return future;
+    }
+
+    private <T> void enqueue(
+            Call call, final ResponseParser<T> parser, final SettableFuture<T> future,
+            final ConcurrencyLimiter limiter) {
+        final long start = System.nanoTime();
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                release(limiter, start, false);
+                future.setException(e);
+            }
+
+            @Override
+            public void onResponse(Call call, final okhttp3.Response response) {
+                try {
+                    responseExecutor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            parseResponse(response, parser, future, limiter, start);
+                        }
+                    });
+                } catch (RuntimeException e) {
+                    response.close();
+                    release(limiter, start, true);
+                    future.setException(e);
+                }
+            }
+        });
+    }
+
+    private <T> void parseResponse(
+            okhttp3.Response response, ResponseParser<T> parser, SettableFuture<T> future,
+            ConcurrencyLimiter limiter, long start) {
+        T result = null;
+        Throwable failure = null;
+        try (InputStream inputStream = processResponse(response, includeRawResponse)) {
+            result = inputStream == null ? null : parser.parse(inputStream);
+        } catch (Throwable e) {
+            failure = e;
+        } finally {
+            response.close();
+        }
+        // released before completing, so that the permit is free once the caller sees the
+        // result
+        release(limiter, start, !ConcurrencyLimiter.isOverload(failure));
+        if (failure == null) {
+            future.set(result);
+        } else {
+            future.setException(failure);
+        }
+    }
+
+    private static void release(ConcurrencyLimiter limiter, long start, boolean success) {
+        if (limiter != null) {
+            limiter.release(System.nanoTime() - start, success);
+        }
+    }
+
+    private okhttp3.Request buildHttpRequest(String request) {
         RequestBody requestBody = RequestBody.create(JSON_MEDIA_TYPE, request);
         Headers headers = buildHeaders();
 
-        okhttp3.Request httpRequest = new okhttp3.Request.Builder()
+        return new okhttp3.Request.Builder()
                 .url(url)
                 .headers(headers)
                 .post(requestBody)
                 .build();
+    }
 
-        okhttp3.Response response = httpClient.newCall(httpRequest).execute();
+    private InputStream processResponse(
+            okhttp3.Response response, boolean bufferResponse) throws IOException {
         if (response.isSuccessful()) {
             ResponseBody responseBody = response.body();
             if (responseBody != null) {
-                return buildInputStream(responseBody);
+                return buildInputStream(responseBody, bufferResponse);
             } else {
                 return null;
             }
@@ -115,10 +282,11 @@ public class HttpService extends Service {
         }
     }
 
-    private InputStream buildInputStream(ResponseBody responseBody) throws IOException {
+    private InputStream buildInputStream(
+            ResponseBody responseBody, boolean bufferResponse) throws IOException {
         InputStream inputStream = responseBody.byteStream();
 
-        if (includeRawResponse) {
+        if (bufferResponse) {
             // we have to buffer the entire input payload, so that after processing
             // it can be re-read and used to populate the rawResponse field.
 
@@ -163,4 +331,74 @@ public class HttpService extends Service {
     public static void setDebug(boolean debug) {
         HttpService.debug = debug;
     }
+
+    /**
+     * Bound the number of asynchronous requests in flight. Further requests are queued by
+     * the OkHttp dispatcher until a slot is free.
+     *
+     * <p>Note that the dispatcher is shared by all users of the underlying
+     * {@link OkHttpClient}.
+     *
+     * @param maxRequests maximum number of concurrent requests
+     */
+    public void setMaxRequests(int maxRequests) {
+        httpClient.dispatcher().setMaxRequests(maxRequests);
+    }
+
+    public int getMaxRequests() {
+        return httpClient.dispatcher().getMaxRequests();
+    }
+
+    public void setMaxRequestsPerHost(int maxRequestsPerHost) {
+        httpClient.dispatcher().setMaxRequestsPerHost(maxRequestsPerHost);
+    }
+
+    public int getMaxRequestsPerHost() {
+        return httpClient.dispatcher().getMaxRequestsPerHost();
+    }
+
+    /**
+     * Number of asynchronous requests currently in flight.
+     *
+     * @return running call count of the dispatcher
+     */
+    public int getRunningRequestCount() {
+        return httpClient.dispatcher().runningCallsCount();
+    }
+
+    /**
+     * Number of asynchronous requests waiting for a free dispatcher slot.
+     *
+     * @return queued call count of the dispatcher
+     */
+    public int getQueuedRequestCount() {
+        return httpClient.dispatcher().queuedCallsCount();
+    }
+
+    /**
+     * Set the executor used to parse responses of asynchronous requests. This should be a
+     * bounded executor; by default a shared pool with one thread per CPU is used.
+     *
+     * @param responseExecutor executor to parse responses on
+     */
+    public void setResponseExecutor(ExecutorService responseExecutor) {
+        this.responseExecutor = responseExecutor;
+    }
+
+    private interface ResponseParser<T> {
+        T parse(InputStream inputStream) throws IOException;
+    }
+
+    private static class ResponseExecutorHolder {
+        private static final ExecutorService INSTANCE = Executors.newFixedThreadPool(
+                Runtime.getRuntime().availableProcessors(),
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable, "appchainj-http-response");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+    }
 }
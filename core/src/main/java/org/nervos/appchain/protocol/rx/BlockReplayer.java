@@ -0,0 +1,285 @@
+package org.nervos.appchain.protocol.rx;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.nervos.appchain.protocol.AppChainj;
+import org.nervos.appchain.protocol.core.BatchRequest;
+import org.nervos.appchain.protocol.core.BatchResponse;
+import org.nervos.appchain.protocol.core.DefaultBlockParameterNumber;
+import org.nervos.appchain.protocol.core.Request;
+import org.nervos.appchain.protocol.core.methods.response.AppBlock;
+import org.nervos.appchain.utils.Async;
+import rx.Observable;
+import rx.Subscriber;
+
+/**
+ * Replays a range of historical blocks with several requests in flight, while still emitting
+ * the blocks strictly in order.
+ *
+ * <p>The range is split into chunks of {@code batchSize} blocks, each fetched with a single
+ * JSON-RPC batch request. At most {@code parallelism} chunks are fetched concurrently and at
+ * most {@code prefetch} chunks are fetched ahead of the block being emitted, which bounds the
+ * memory used when the subscriber is slower than the node. Transports which do not return
+ * batch responses fall back to one request per block.
+ *
+ * <p>Blocks are emitted on the thread which subscribes to the returned Observable.
+ */
+public class BlockReplayer {
+
+    public static final int DEFAULT_BATCH_SIZE = 20;
+    public static final int DEFAULT_PARALLELISM = 4;
+    public static final int DEFAULT_PREFETCH = 8;
+
+    private final AppChainj appChainj;
+    private final int batchSize;
+    private final int parallelism;
+    private final int prefetch;
+    private final Metrics metrics = new Metrics();
+
+    private volatile boolean batchesSupported = true;
+
+    public BlockReplayer(AppChainj appChainj) {
+        this(appChainj, DEFAULT_BATCH_SIZE, DEFAULT_PARALLELISM, DEFAULT_PREFETCH);
+    }
+
+    /**
+     * @param appChainj node to replay blocks from
+     * @param batchSize blocks requested per JSON-RPC batch
+     * @param parallelism maximum number of batches in flight
+     * @param prefetch maximum number of batches fetched ahead of the subscriber, at least
+     *                 {@code parallelism}
+     */
+    public BlockReplayer(AppChainj appChainj, int batchSize, int parallelism, int prefetch) {
+        if (batchSize < 1 || parallelism < 1 || prefetch < parallelism) {
+            throw new IllegalArgumentException(
+                    "batchSize and parallelism must be positive and prefetch must be at least "
+                            + "parallelism");
+        }
+        this.appChainj = appChainj;
+        this.batchSize = batchSize;
+        this.parallelism = parallelism;
+        this.prefetch = prefetch;
+    }
+
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Observable emitting blocks {@code startBlockNumber} to {@code endBlockNumber} inclusive.
+     *
+     * @param startBlockNumber first block of the range
+     * @param endBlockNumber last block of the range
+     * @param fullTransactionObjects if true, blocks contain full transaction objects
+     * @param ascending if true, emits blocks in ascending order, otherwise descending
+     * @return Observable which fetches the blocks once subscribed to
+     */
+    public Observable<AppBlock> replay(
+            final BigInteger startBlockNumber, final BigInteger endBlockNumber,
+            final boolean fullTransactionObjects, final boolean ascending) {
+        return Observable.create(new Observable.OnSubscribe<AppBlock>() {
+            @Override
+            public void call(Subscriber<? super AppBlock> subscriber) {
+                try {
+                    if (emit(subscriber, startBlockNumber, endBlockNumber,
+                            fullTransactionObjects, ascending)) {
+                        subscriber.onCompleted();
+                    }
+                } catch (Exception e) {
+                    subscriber.onError(e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Fetch and emit a range of blocks to the subscriber, without completing it.
+     *
+     * @return false if the subscriber unsubscribed before the whole range was emitted
+     */
+    boolean emit(
+            Subscriber<? super AppBlock> subscriber,
+            BigInteger startBlockNumber, BigInteger endBlockNumber,
+            boolean fullTransactionObjects, boolean ascending) throws Exception {
+        if (startBlockNumber.signum() < 0) {
+            throw new IllegalArgumentException("Negative start block cannot be used");
+        } else if (startBlockNumber.compareTo(endBlockNumber) > 0) {
+            throw new IllegalArgumentException("Start block cannot be greater than end block");
+        }
+
+        BigInteger step = BigInteger.valueOf(ascending ? 1 : -1);
+        BigInteger next = ascending ? startBlockNumber : endBlockNumber;
+        BigInteger remaining = endBlockNumber.subtract(startBlockNumber).add(BigInteger.ONE);
+
+        // fair, so the oldest chunk waiting for a slot is fetched first
+        Semaphore slots = new Semaphore(parallelism, true);
+        Deque<Future<List<AppBlock>>> chunks = new ArrayDeque<>(prefetch);
+        metrics.start();
+        try {
+            while (!subscriber.isUnsubscribed()) {
+                while (chunks.size() < prefetch && remaining.signum() > 0) {
+                    int size = remaining.min(BigInteger.valueOf(batchSize)).intValue();
+                    List<BigInteger> blockNumbers = new ArrayList<>(size);
+                    for (int i = 0; i < size; i++) {
+                        blockNumbers.add(next);
+                        next = next.add(step);
+                    }
+                    remaining = remaining.subtract(BigInteger.valueOf(size));
+                    chunks.addLast(fetch(blockNumbers, fullTransactionObjects, slots));
+                }
+
+                Future<List<AppBlock>> chunk = chunks.pollFirst();
+                if (chunk == null) {
+                    return true;
+                }
+                for (AppBlock appBlock : get(chunk)) {
+                    if (subscriber.isUnsubscribed()) {
+                        return false;
+                    }
+                    subscriber.onNext(appBlock);
+                    metrics.recordBlock();
+                }
+            }
+            return false;
+        } finally {
+            for (Future<List<AppBlock>> chunk : chunks) {
+                chunk.cancel(true);
+            }
+            metrics.stop();
+        }
+    }
+
+    private Future<List<AppBlock>> fetch(
+            final List<BigInteger> blockNumbers, final boolean fullTransactionObjects,
+            final Semaphore slots) {
+        return Async.run(new Callable<List<AppBlock>>() {
+            @Override
+            public List<AppBlock> call() throws Exception {
+                slots.acquire();
+                try {
+                    long start = System.nanoTime();
+                    List<AppBlock> appBlocks = fetch(blockNumbers, fullTransactionObjects);
+                    metrics.recordFetch(System.nanoTime() - start);
+                    return appBlocks;
+                } finally {
+                    slots.release();
+                }
+            }
+        });
+    }
+
+    private List<AppBlock> fetch(List<BigInteger> blockNumbers, boolean fullTransactionObjects)
+            throws IOException {
+        List<Request<?, AppBlock>> requests = new ArrayList<>(blockNumbers.size());
+        for (BigInteger blockNumber : blockNumbers) {
+            requests.add(appChainj.appGetBlockByNumber(
+                    new DefaultBlockParameterNumber(blockNumber), fullTransactionObjects));
+        }
+
+        List<AppBlock> appBlocks = new ArrayList<>(requests.size());
+        if (requests.size() > 1 && batchesSupported) {
+            BatchRequest batchRequest = appChainj.newBatch();
+            for (Request<?, AppBlock> request : requests) {
+                batchRequest.add(request);
+            }
+            BatchResponse batchResponse = batchRequest.send();
+            if (batchResponse != null) {
+                for (Request<?, AppBlock> request : requests) {
+                    appBlocks.add(batchResponse.getResponse(request));
+                }
+                return appBlocks;
+            }
+            batchesSupported = false;
+        }
+
+        for (Request<?, AppBlock> request : requests) {
+            appBlocks.add(request.send());
+        }
+        return appBlocks;
+    }
+
+    private static <T> T get(Future<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Replay throughput. Time is only counted while a replay is running, so the rate is not
+     * diluted by idle periods between catch-up rounds.
+     */
+    public static class Metrics {
+
+        private final AtomicLong blockCount = new AtomicLong();
+        private final AtomicLong fetchCount = new AtomicLong();
+        private final AtomicLong totalFetchLatencyNanos = new AtomicLong();
+        private final AtomicLong elapsedNanos = new AtomicLong();
+        private final ThreadLocal<Long> startNanos = new ThreadLocal<>();
+
+        void start() {
+            startNanos.set(System.nanoTime());
+        }
+
+        void stop() {
+            Long start = startNanos.get();
+            if (start != null) {
+                elapsedNanos.addAndGet(System.nanoTime() - start);
+                startNanos.remove();
+            }
+        }
+
+        void recordBlock() {
+            blockCount.incrementAndGet();
+        }
+
+        void recordFetch(long latencyNanos) {
+            fetchCount.incrementAndGet();
+            totalFetchLatencyNanos.addAndGet(latencyNanos);
+        }
+
+        public long getBlockCount() {
+            return blockCount.get();
+        }
+
+        /**
+         * @return number of chunks fetched, each either one batch or one request per block
+         */
+        public long getFetchCount() {
+            return fetchCount.get();
+        }
+
+        public long getAverageFetchLatency(TimeUnit unit) {
+            long fetches = fetchCount.get();
+            return fetches == 0
+                    ? 0 : unit.convert(totalFetchLatencyNanos.get() / fetches,
+                    TimeUnit.NANOSECONDS);
+        }
+
+        public long getElapsedTime(TimeUnit unit) {
+            return unit.convert(elapsedNanos.get(), TimeUnit.NANOSECONDS);
+        }
+
+        public double getBlocksPerSecond() {
+            long elapsed = elapsedNanos.get();
+            return elapsed == 0
+                    ? 0 : blockCount.get() * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+        }
+    }
+}
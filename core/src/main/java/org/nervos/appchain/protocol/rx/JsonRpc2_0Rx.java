@@ -3,13 +3,16 @@ package org.nervos.appchain.protocol.rx;
 import java.io.IOException;
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.ScheduledExecutorService;
 
 import org.nervos.appchain.protocol.AppChainj;
+import org.nervos.appchain.protocol.AppChainjService;
 import org.nervos.appchain.protocol.core.DefaultBlockParameter;
 import org.nervos.appchain.protocol.core.DefaultBlockParameterName;
 import org.nervos.appchain.protocol.core.DefaultBlockParameterNumber;
+import org.nervos.appchain.protocol.core.Request;
 import org.nervos.appchain.protocol.core.filters.BlockFilter;
 import org.nervos.appchain.protocol.core.filters.Callback;
 import org.nervos.appchain.protocol.core.filters.Filter;
@@ -17,35 +20,77 @@ import org.nervos.appchain.protocol.core.filters.LogFilter;
 import org.nervos.appchain.protocol.core.filters.PendingTransactionFilter;
 import org.nervos.appchain.protocol.core.methods.request.AppFilter;
 import org.nervos.appchain.protocol.core.methods.response.AppBlock;
+import org.nervos.appchain.protocol.core.methods.response.AppSubscribe;
 import org.nervos.appchain.protocol.core.methods.response.AppTransaction;
 import org.nervos.appchain.protocol.core.methods.response.Log;
 import org.nervos.appchain.protocol.core.methods.response.Transaction;
-import org.nervos.appchain.utils.Observables;
+import org.nervos.appchain.protocol.websocket.events.LogNotification;
+import org.nervos.appchain.protocol.websocket.events.NewHeadsNotification;
+import org.nervos.appchain.protocol.websocket.events.PendingTransactionNotification;
 import rx.Observable;
 import rx.Scheduler;
 import rx.Subscriber;
 import rx.functions.Action0;
-import rx.functions.Func0;
 import rx.functions.Func1;
 import rx.schedulers.Schedulers;
 import rx.subscriptions.Subscriptions;
 
 /**
  * appChainj reactive API implementation.
+ *
+ * <p>If the underlying service supports server push, new blocks, pending transactions and logs
+ * are received via subscriptions, otherwise filters are polled every polling interval.
  */
 public class JsonRpc2_0Rx {
 
+    static final String SUBSCRIBE = "subscribe";
+    static final String UNSUBSCRIBE = "unsubscribe";
+
     private final AppChainj appChainj;
+    private final AppChainjService appChainjService;
     private final ScheduledExecutorService scheduledExecutorService;
     private final Scheduler scheduler;
+    private final BlockReplayer blockReplayer;
 
     public JsonRpc2_0Rx(AppChainj appChainj, ScheduledExecutorService scheduledExecutorService) {
+        this(appChainj, null, scheduledExecutorService);
+    }
+
+    public JsonRpc2_0Rx(
+            AppChainj appChainj, AppChainjService appChainjService,
+            ScheduledExecutorService scheduledExecutorService) {
         this.appChainj = appChainj;
+        this.appChainjService = appChainjService;
         this.scheduledExecutorService = scheduledExecutorService;
         this.scheduler = Schedulers.from(scheduledExecutorService);
+        this.blockReplayer = new BlockReplayer(appChainj);
+    }
+
+    public BlockReplayer getBlockReplayer() {
+        return blockReplayer;
+    }
+
+    private boolean useSubscriptions() {
+        return appChainjService != null && appChainjService.supportsSubscriptions();
+    }
+
+    private Request<?, AppSubscribe> subscribeRequest(Object... params) {
+        return new Request<>(
+                SUBSCRIBE, Arrays.asList(params), appChainjService, AppSubscribe.class);
     }
 
     public Observable<String> appBlockHashObservable(final long pollingInterval) {
+        if (useSubscriptions()) {
+            return appChainjService.subscribe(
+                    subscribeRequest("newHeads"), UNSUBSCRIBE, NewHeadsNotification.class)
+                    .map(new Func1<NewHeadsNotification, String>() {
+                        @Override
+                        public String call(NewHeadsNotification notification) {
+                            return notification.getParams().getResult().getHash();
+                        }
+                    });
+        }
+
         return Observable.create(new Observable.OnSubscribe<String>() {
             @Override
             public void call(final Subscriber<? super String> subscriber) {
@@ -62,6 +107,18 @@ public class JsonRpc2_0Rx {
     }
 
     public Observable<String> appPendingTransactionHashObservable(final long pollingInterval) {
+        if (useSubscriptions()) {
+            return appChainjService.subscribe(
+                    subscribeRequest("newPendingTransactions"), UNSUBSCRIBE,
+                    PendingTransactionNotification.class)
+                    .map(new Func1<PendingTransactionNotification, String>() {
+                        @Override
+                        public String call(PendingTransactionNotification notification) {
+                            return notification.getParams().getResult();
+                        }
+                    });
+        }
+
         return Observable.create(new Observable.OnSubscribe<String>() {
             @Override
             public void call(final Subscriber<? super String> subscriber) {
@@ -79,6 +136,17 @@ public class JsonRpc2_0Rx {
 
     public Observable<Log> appLogObservable(
             final AppFilter appFilter, final long pollingInterval) {
+        if (useSubscriptions()) {
+            return appChainjService.subscribe(
+                    subscribeRequest("logs", appFilter), UNSUBSCRIBE, LogNotification.class)
+                    .map(new Func1<LogNotification, Log>() {
+                        @Override
+                        public Log call(LogNotification notification) {
+                            return notification.getParams().getResult();
+                        }
+                    });
+        }
+
         return Observable.create(new Observable.OnSubscribe<Log>() {
             @Override
             public void call(final Subscriber<? super Log> subscriber) {
@@ -161,45 +229,22 @@ public class JsonRpc2_0Rx {
     }
 
     private Observable<AppBlock> replayBlocksObservableSync(
-            DefaultBlockParameter startBlock, DefaultBlockParameter endBlock,
-            boolean fullTransactionObjects) {
-        return replayBlocksObservableSync(startBlock, endBlock, fullTransactionObjects, true);
-    }
-
-    private Observable<AppBlock> replayBlocksObservableSync(
-            DefaultBlockParameter startBlock, DefaultBlockParameter endBlock,
-            final boolean fullTransactionObjects, boolean ascending) {
-
-        BigInteger startBlockNumber = null;
-        BigInteger endBlockNumber = null;
-        try {
-            startBlockNumber = getBlockNumber(startBlock);
-            endBlockNumber = getBlockNumber(endBlock);
-        } catch (IOException e) {
-            Observable.error(e);
-        }
-
-        if (ascending) {
-            return Observables.range(startBlockNumber, endBlockNumber)
-                    .flatMap(new Func1<BigInteger, Observable<? extends AppBlock>>() {
-                        @Override
-                        public Observable<? extends AppBlock> call(BigInteger i) {
-                            return appChainj.appGetBlockByNumber(
-                                    new DefaultBlockParameterNumber(i),
-                                    fullTransactionObjects).observable();
-                        }
-                    });
-        } else {
-            return Observables.range(startBlockNumber, endBlockNumber, false)
-                    .flatMap(new Func1<BigInteger, Observable<? extends AppBlock>>() {
-                        @Override
-                        public Observable<? extends AppBlock> call(BigInteger i) {
-                            return appChainj.appGetBlockByNumber(
-                                    new DefaultBlockParameterNumber(i),
-                                    fullTransactionObjects).observable();
-                        }
-                    });
-        }
+            final DefaultBlockParameter startBlock, final DefaultBlockParameter endBlock,
+            final boolean fullTransactionObjects, final boolean ascending) {
+        return Observable.create(new Observable.OnSubscribe<AppBlock>() {
+            @Override
+            public void call(Subscriber<? super AppBlock> subscriber) {
+                try {
+                    if (blockReplayer.emit(
+                            subscriber, getBlockNumber(startBlock), getBlockNumber(endBlock),
+                            fullTransactionObjects, ascending)) {
+                        subscriber.onCompleted();
+                    }
+                } catch (Exception e) {
+                    subscriber.onError(e);
+                }
+            }
+        });
     }
 
     public Observable<Transaction> replayTransactionsObservable(
@@ -230,37 +275,33 @@ public class JsonRpc2_0Rx {
     }
 
     private Observable<AppBlock> catchUpToLatestBlockObservableSync(
-            DefaultBlockParameter startBlock, final boolean fullTransactionObjects,
-            final Observable<AppBlock> onCompleteObservable) {
-
-        BigInteger startBlockNumber;
-        final BigInteger latestBlockNumber;
-        try {
-            startBlockNumber = getBlockNumber(startBlock);
-            latestBlockNumber = getLatestBlockNumber();
-        } catch (IOException e) {
-            return Observable.error(e);
-        }
-
-        if (startBlockNumber.compareTo(latestBlockNumber) > -1) {
-            return onCompleteObservable;
-        } else {
-            return Observable.concat(
-                    replayBlocksObservableSync(
-                            new DefaultBlockParameterNumber(startBlockNumber),
-                            new DefaultBlockParameterNumber(latestBlockNumber),
-                            fullTransactionObjects),
-                    Observable.defer(new Func0<Observable<AppBlock>>() {
-                        @Override
-                        public Observable<AppBlock> call() {
-                            return JsonRpc2_0Rx.this.catchUpToLatestBlockObservableSync(
-                                    new DefaultBlockParameterNumber(latestBlockNumber.add(BigInteger.ONE)),
-                                    fullTransactionObjects,
-                                    onCompleteObservable
-                            );
+            final DefaultBlockParameter startBlock, final boolean fullTransactionObjects,
+            Observable<AppBlock> onCompleteObservable) {
+        // replay rounds run in a loop until the chain head stops moving, rather than nesting
+        // another concat for every round
+        Observable<AppBlock> catchUp = Observable.create(new Observable.OnSubscribe<AppBlock>() {
+            @Override
+            public void call(Subscriber<? super AppBlock> subscriber) {
+                try {
+                    BigInteger startBlockNumber = getBlockNumber(startBlock);
+                    while (!subscriber.isUnsubscribed()) {
+                        BigInteger latestBlockNumber = getLatestBlockNumber();
+                        if (startBlockNumber.compareTo(latestBlockNumber) > -1) {
+                            subscriber.onCompleted();
+                            return;
                         }
-                    }));
-        }
+                        if (!blockReplayer.emit(subscriber, startBlockNumber, latestBlockNumber,
+                                fullTransactionObjects, true)) {
+                            return;
+                        }
+                        startBlockNumber = latestBlockNumber.add(BigInteger.ONE);
+                    }
+                } catch (Exception e) {
+                    subscriber.onError(e);
+                }
+            }
+        });
+        return Observable.concat(catchUp, onCompleteObservable);
     }
 
     public Observable<Transaction> catchUpToLatestTransactionObservable(
@@ -0,0 +1,590 @@
+package org.nervos.appchain.protocol.websocket;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import okhttp3.OkHttpClient;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import org.nervos.appchain.protocol.AppChainjService;
+import org.nervos.appchain.protocol.ObjectMapperFactory;
+import org.nervos.appchain.protocol.core.BatchRequest;
+import org.nervos.appchain.protocol.core.BatchResponse;
+import org.nervos.appchain.protocol.core.Request;
+import org.nervos.appchain.protocol.core.Response;
+import org.nervos.appchain.protocol.core.methods.response.AppSubscribe;
+import org.nervos.appchain.protocol.core.methods.response.AppUnsubscribe;
+import org.nervos.appchain.protocol.deserializer.BatchResponseParser;
+import org.nervos.appchain.protocol.websocket.events.Notification;
+import org.nervos.appchain.utils.Async;
+import org.nervos.appchain.utils.SettableFuture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rx.Observable;
+import rx.Subscriber;
+import rx.functions.Action0;
+import rx.subscriptions.Subscriptions;
+
+/**
+ * WebSocket implementation of our services API.
+ *
+ * <p>All requests are multiplexed over a single connection and matched to their responses by
+ * id. In addition to request/response calls, the node can push notifications for
+ * subscriptions created via {@link #subscribe(Request, String, Class)}.
+ *
+ * <p>Replies are completed and notifications delivered on two separate bounded executors
+ * rather than on the thread reading the connection, so that subscribers may send requests,
+ * and wait for their replies, from {@code onNext}. Notifications of a subscription are
+ * delivered one at a time, in the order they were received.
+ *
+ * <p>{@link #connect()} must be called before any requests are sent.
+ */
+public class WebSocketService implements AppChainjService {
+
+    private static final Logger log = LoggerFactory.getLogger(WebSocketService.class);
+
+    public static final String DEFAULT_URL = "ws://localhost:1337/";
+
+    public static final long DEFAULT_REQUEST_TIMEOUT = 60;
+
+    private static final int NORMAL_CLOSURE_STATUS = 1000;
+
+    private final String url;
+    private final OkHttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final BatchResponseParser batchResponseParser;
+    private final ScheduledExecutorService scheduledExecutorService;
+
+    private final ConcurrentMap<Long, PendingReply> pendingReplies = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, WebSocketSubscription<?>> subscriptions =
+            new ConcurrentHashMap<>();
+
+    private volatile WebSocket webSocket;
+    private long requestTimeoutSeconds = DEFAULT_REQUEST_TIMEOUT;
+
+    private ExecutorService replyExecutor = ReplyExecutorHolder.INSTANCE;
+    private ExecutorService notificationExecutor = NotificationExecutorHolder.INSTANCE;
+
+    public WebSocketService(
+            String url, OkHttpClient httpClient, boolean includeRawResponses,
+            ScheduledExecutorService scheduledExecutorService) {
+        this.url = url;
+        this.httpClient = httpClient;
+        this.objectMapper = ObjectMapperFactory.getObjectMapper(includeRawResponses);
+        this.batchResponseParser = new BatchResponseParser(objectMapper, includeRawResponses);
+        this.scheduledExecutorService = scheduledExecutorService;
+    }
+
+    public WebSocketService(String url, boolean includeRawResponses) {
+        this(url, new OkHttpClient(), includeRawResponses, Async.defaultExecutorService());
+    }
+
+    public WebSocketService(String url) {
+        this(url, false);
+    }
+
+    public WebSocketService() {
+        this(DEFAULT_URL);
+    }
+
+    /**
+     * Open the connection to the node, blocking until it is established.
+     *
+     * @throws ConnectException if the connection cannot be opened
+     */
+    public void connect() throws ConnectException {
+        final CountDownLatch opened = new CountDownLatch(1);
+        final Throwable[] failure = new Throwable[1];
+
+        okhttp3.Request request = new okhttp3.Request.Builder().url(url).build();
+        WebSocket socket = httpClient.newWebSocket(request, new WebSocketListener() {
+            @Override
+            public void onOpen(WebSocket webSocket, okhttp3.Response response) {
+                opened.countDown();
+            }
+
+            @Override
+            public void onMessage(WebSocket webSocket, String text) {
+                onReply(text);
+            }
+
+            @Override
+            public void onClosing(WebSocket webSocket, int code, String reason) {
+                webSocket.close(NORMAL_CLOSURE_STATUS, null);
+            }
+
+            @Override
+            public void onClosed(WebSocket webSocket, int code, String reason) {
+                closeAll(new IOException("Connection closed: " + code + " " + reason));
+            }
+
+            @Override
+            public void onFailure(WebSocket webSocket, Throwable t, okhttp3.Response response) {
+                failure[0] = t;
+                opened.countDown();
+                closeAll(t);
+            }
+        });
+
+        try {
+            if (!opened.await(requestTimeoutSeconds, TimeUnit.SECONDS)) {
+                socket.cancel();
+                throw new ConnectException("Timed out connecting to " + url);
+            }
+        } catch (InterruptedException e) {
+            socket.cancel();
+            Thread.currentThread().interrupt();
+            throw new ConnectException("Interrupted connecting to " + url);
+        }
+
+        if (failure[0] != null) {
+            ConnectException exception = new ConnectException("Failed to connect to " + url);
+            exception.initCause(failure[0]);
+            throw exception;
+        }
+        webSocket = socket;
+    }
+
+    /**
+     * Close the connection. Outstanding requests and subscriptions are failed.
+     */
+    public void close() {
+        WebSocket socket = webSocket;
+        if (socket != null) {
+            socket.close(NORMAL_CLOSURE_STATUS, "Client closed connection");
+        }
+        closeAll(new IOException("Connection closed"));
+    }
+
+    public void setRequestTimeout(long requestTimeoutSeconds) {
+        this.requestTimeoutSeconds = requestTimeoutSeconds;
+    }
+
+    /**
+     * Set the executor used to complete replies. This should be a bounded executor; by
+     * default a shared pool with one thread per CPU is used.
+     *
+     * @param replyExecutor executor to parse replies on
+     */
+    public void setReplyExecutor(ExecutorService replyExecutor) {
+        this.replyExecutor = replyExecutor;
+    }
+
+    /**
+     * Set the executor used to deliver notifications. This should be a bounded executor, and
+     * must not be the reply executor, since subscribers may wait for replies from
+     * {@code onNext}; by default a shared pool with one thread per CPU is used.
+     *
+     * @param notificationExecutor executor to deliver notifications on
+     */
+    public void setNotificationExecutor(ExecutorService notificationExecutor) {
+        this.notificationExecutor = notificationExecutor;
+    }
+
+    @Override
+    public <T extends Response> T send(
+            Request request, Class<T> responseType) throws IOException {
+        return getResult(sendAsync(request, responseType));
+    }
+
+    @Override
+    public <T extends Response> Future<T> sendAsync(
+            Request request, final Class<T> responseType) {
+        return sendAsync(request, new ReplyParser<T>() {
+            @Override
+            public T parse(JsonNode reply) throws IOException {
+                return batchResponseParser.parse(reply, responseType);
+            }
+        });
+    }
+
+    @Override
+    public BatchResponse sendBatch(BatchRequest batchRequest) throws IOException {
+        return getResult(sendBatchAsync(batchRequest));
+    }
+
+    @Override
+    public Future<BatchResponse> sendBatchAsync(BatchRequest batchRequest) {
+        final List<Request<?, ? extends Response>> requests = batchRequest.getRequests();
+        if (requests.isEmpty()) {
+            SettableFuture<BatchResponse> future = new SettableFuture<>();
+            future.set(new BatchResponse(requests, new ArrayList<Response>()));
+            return future;
+        }
+
+        final SettableFuture<BatchResponse> future = new SettableFuture<>();
+        PendingReply pendingReply = new PendingReply(false) {
+            @Override
+            void complete(JsonNode reply) throws IOException {
+                future.set(batchResponseParser.parse(requests, reply));
+            }
+
+            @Override
+            void fail(Throwable throwable) {
+                future.setException(throwable);
+            }
+        };
+
+        List<Long> ids = new ArrayList<>(requests.size());
+        for (Request<?, ? extends Response> request : requests) {
+            ids.add(request.getId());
+        }
+        dispatch(ids, requests, pendingReply);
+        return future;
+    }
+
+    @Override
+    public <T extends Notification<?>> Observable<T> subscribe(
+            final Request request, final String unsubscribeMethod, final Class<T> responseType) {
+        return Observable.create(new Observable.OnSubscribe<T>() {
+            @Override
+            public void call(final Subscriber<? super T> subscriber) {
+                final WebSocketSubscription<T> subscription =
+                        new WebSocketSubscription<>(subscriber, responseType);
+
+                // the subscription is registered on the reader thread, before any further
+                // messages are processed, so that no early notification is missed
+                ReplyParser<AppSubscribe> parser = new ReplyParser<AppSubscribe>() {
+                    @Override
+                    public AppSubscribe parse(JsonNode reply) throws IOException {
+                        AppSubscribe appSubscribe =
+                                batchResponseParser.parse(reply, AppSubscribe.class);
+                        if (!appSubscribe.hasError()) {
+                            subscription.id = appSubscribe.getSubscriptionId();
+                            subscriptions.put(subscription.id, subscription);
+                            // the subscriber may have unsubscribed before the id was known
+                            if (subscriber.isUnsubscribed()) {
+                                unsubscribe(subscription, unsubscribeMethod);
+                            }
+                        }
+                        return appSubscribe;
+                    }
+                };
+                Future<AppSubscribe> future = sendAsync(request, true, parser);
+
+                subscriber.add(Subscriptions.create(new Action0() {
+                    @Override
+                    public void call() {
+                        unsubscribe(subscription, unsubscribeMethod);
+                    }
+                }));
+
+                try {
+                    AppSubscribe appSubscribe = getResult(future);
+                    if (appSubscribe.hasError()) {
+                        subscriber.onError(new IOException(
+                                "Subscription request failed: "
+                                        + appSubscribe.getError().getMessage()));
+                    }
+                } catch (IOException | RuntimeException e) {
+                    subscriber.onError(e);
+                }
+            }
+        });
+    }
+
+    @Override
+    public boolean supportsSubscriptions() {
+        return true;
+    }
+
+    /**
+     * Cancel the subscription on the node. Called both when the subscriber unsubscribes and
+     * when the id arrives after it did; only the call which removes the subscription sends
+     * the request.
+     */
+    private void unsubscribe(WebSocketSubscription<?> subscription, String unsubscribeMethod) {
+        String id = subscription.id;
+        if (id == null || subscriptions.remove(id) == null) {
+            return;
+        }
+
+        Request<String, AppUnsubscribe> request = new Request<>(
+                unsubscribeMethod, Collections.singletonList(id),
+                this, AppUnsubscribe.class);
+        request.sendAsync();
+    }
+
+    private <T> Future<T> sendAsync(Request request, ReplyParser<T> parser) {
+        return sendAsync(request, false, parser);
+    }
+
+    /**
+     * @param inline if true the reply is parsed on the reader thread, which must not block
+     */
+    private <T> Future<T> sendAsync(
+            Request request, boolean inline, final ReplyParser<T> parser) {
+        final SettableFuture<T> future = new SettableFuture<>();
+        PendingReply pendingReply = new PendingReply(inline) {
+            @Override
+            void complete(JsonNode reply) throws IOException {
+                future.set(parser.parse(reply));
+            }
+
+            @Override
+            void fail(Throwable throwable) {
+                future.setException(throwable);
+            }
+        };
+
+        dispatch(Collections.singletonList(request.getId()), request, pendingReply);
+        return future;
+    }
+
+    private void dispatch(final List<Long> ids, Object payload, final PendingReply pendingReply) {
+        WebSocket socket = webSocket;
+        if (socket == null) {
+            pendingReply.fail(new IOException("WebSocketService is not connected"));
+            return;
+        }
+
+        String message;
+        try {
+            message = objectMapper.writeValueAsString(payload);
+        } catch (IOException e) {
+            pendingReply.fail(e);
+            return;
+        }
+
+        pendingReply.ids = ids;
+        for (Long id : ids) {
+            pendingReplies.put(id, pendingReply);
+        }
+        pendingReply.timeout = scheduledExecutorService.schedule(new Runnable() {
+            @Override
+            public void run() {
+                if (remove(pendingReply)) {
+                    pendingReply.fail(new IOException(
+                            "Request with id " + ids.get(0) + " timed out"));
+                }
+            }
+        }, requestTimeoutSeconds, TimeUnit.SECONDS);
+
+        log.debug(">> {}", message);
+        if (!socket.send(message) && remove(pendingReply)) {
+            pendingReply.fail(new IOException("Connection closed, request not sent"));
+        }
+    }
+
+    private boolean remove(PendingReply pendingReply) {
+        boolean removed = false;
+        for (Long id : pendingReply.ids) {
+            removed |= pendingReplies.remove(id, pendingReply);
+        }
+        if (pendingReply.timeout != null) {
+            pendingReply.timeout.cancel(false);
+        }
+        return removed;
+    }
+
+    void onReply(String text) {
+        log.debug("<< {}", text);
+        try {
+            JsonNode reply = objectMapper.readTree(text);
+            if (reply.isArray()) {
+                onResponse(reply.size() == 0 ? null : reply.get(0).get("id"), reply);
+            } else if (reply.has("id") && !reply.get("id").isNull()) {
+                onResponse(reply.get("id"), reply);
+            } else if (reply.has("method") && reply.has("params")) {
+                onNotification(reply);
+            } else {
+                log.warn("Unexpected message received: {}", text);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to process message: " + text, e);
+        }
+    }
+
+    private void onResponse(JsonNode id, final JsonNode reply) {
+        final PendingReply pendingReply =
+                id == null ? null : pendingReplies.get(id.asLong());
+        if (pendingReply == null || !remove(pendingReply)) {
+            log.warn("No pending request for reply: {}", reply);
+            return;
+        }
+
+        if (pendingReply.inline) {
+            complete(pendingReply, reply);
+        } else {
+            replyExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    complete(pendingReply, reply);
+                }
+            });
+        }
+    }
+
+    private static void complete(PendingReply pendingReply, JsonNode reply) {
+        try {
+            pendingReply.complete(reply);
+        } catch (Throwable e) {
+            pendingReply.fail(e);
+        }
+    }
+
+    private void onNotification(JsonNode reply) {
+        JsonNode subscriptionId = reply.get("params").get("subscription");
+        WebSocketSubscription<?> subscription =
+                subscriptionId == null ? null : subscriptions.get(subscriptionId.asText());
+        if (subscription == null) {
+            log.warn("No subscription for notification: {}", reply);
+        } else {
+            subscription.onNotification(reply);
+        }
+    }
+
+    private void closeAll(Throwable cause) {
+        webSocket = null;
+        for (PendingReply pendingReply : new ArrayList<>(pendingReplies.values())) {
+            if (remove(pendingReply)) {
+                pendingReply.fail(cause);
+            }
+        }
+        for (WebSocketSubscription<?> subscription : new ArrayList<>(subscriptions.values())) {
+            subscriptions.remove(subscription.id);
+            subscription.onError(cause);
+        }
+    }
+
+    private static <T> T getResult(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for response");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else {
+                throw new IOException(cause);
+            }
+        }
+    }
+
+    private interface ReplyParser<T> {
+        T parse(JsonNode reply) throws IOException;
+    }
+
+    private abstract static class PendingReply {
+        private final boolean inline;
+        private List<Long> ids;
+        private ScheduledFuture<?> timeout;
+
+        PendingReply(boolean inline) {
+            this.inline = inline;
+        }
+
+        abstract void complete(JsonNode reply) throws IOException;
+
+        abstract void fail(Throwable throwable);
+    }
+
+    private class WebSocketSubscription<T extends Notification<?>> {
+        private final Subscriber<? super T> subscriber;
+        private final Class<T> responseType;
+        private final Queue<Runnable> events = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pendingEvents = new AtomicInteger();
+        private volatile String id;
+
+        WebSocketSubscription(Subscriber<? super T> subscriber, Class<T> responseType) {
+            this.subscriber = subscriber;
+            this.responseType = responseType;
+        }
+
+        void onNotification(final JsonNode reply) {
+            enqueue(new Runnable() {
+                @Override
+                public void run() {
+                    T notification;
+                    try {
+                        notification = objectMapper.treeToValue(reply, responseType);
+                    } catch (IOException e) {
+                        log.error("Failed to process notification: " + reply, e);
+                        return;
+                    }
+                    subscriber.onNext(notification);
+                }
+            });
+        }
+
+        void onError(final Throwable cause) {
+            enqueue(new Runnable() {
+                @Override
+                public void run() {
+                    subscriber.onError(cause);
+                }
+            });
+        }
+
+        /**
+         * Run the event on the notification executor after the events enqueued before it.
+         */
+        private void enqueue(Runnable event) {
+            events.add(event);
+            if (pendingEvents.getAndIncrement() == 0) {
+                notificationExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        do {
+                            Runnable next = events.poll();
+                            try {
+                                if (!subscriber.isUnsubscribed()) {
+                                    next.run();
+                                }
+                            } catch (RuntimeException e) {
+                                log.error("Subscriber failed to process notification", e);
+                            }
+                        } while (pendingEvents.decrementAndGet() != 0);
+                    }
+                });
+            }
+        }
+    }
+
+    private static ExecutorService newExecutor(final String name) {
+        return Executors.newFixedThreadPool(
+                Runtime.getRuntime().availableProcessors(),
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable, name);
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+    }
+
+    private static class ReplyExecutorHolder {
+        private static final ExecutorService INSTANCE =
+                newExecutor("appchainj-websocket-reply");
+    }
+
+    private static class NotificationExecutorHolder {
+        private static final ExecutorService INSTANCE =
+                newExecutor("appchainj-websocket-notification");
+    }
+}
@@ -0,0 +1,9 @@
+package org.nervos.appchain.protocol.websocket.events;
+
+import org.nervos.appchain.protocol.core.methods.response.Log;
+
+/**
+ * Notification for a logs subscription.
+ */
+public class LogNotification extends Notification<Log> {
+}
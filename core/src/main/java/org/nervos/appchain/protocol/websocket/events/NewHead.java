@@ -0,0 +1,28 @@
+package org.nervos.appchain.protocol.websocket.events;
+
+import java.math.BigInteger;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import org.nervos.appchain.utils.Numeric;
+
+/**
+ * Header of a new block, as pushed by a newHeads subscription.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class NewHead {
+    private String hash;
+    private String number;
+
+    public String getHash() {
+        return hash;
+    }
+
+    public String getNumber() {
+        return number;
+    }
+
+    public BigInteger getNumberDec() {
+        return Numeric.decodeQuantity(number);
+    }
+}
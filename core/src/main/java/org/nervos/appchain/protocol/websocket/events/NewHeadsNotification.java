@@ -0,0 +1,7 @@
+package org.nervos.appchain.protocol.websocket.events;
+
+/**
+ * Notification for a newHeads subscription.
+ */
+public class NewHeadsNotification extends Notification<NewHead> {
+}
@@ -0,0 +1,27 @@
+package org.nervos.appchain.protocol.websocket.events;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/**
+ * Base class for notifications pushed by a node for a subscription.
+ *
+ * @param <T> type of the data contained in the notification
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class Notification<T> {
+    private String jsonrpc;
+    private String method;
+    private NotificationParams<T> params;
+
+    public String getJsonrpc() {
+        return jsonrpc;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public NotificationParams<T> getParams() {
+        return params;
+    }
+}
@@ -0,0 +1,22 @@
+package org.nervos.appchain.protocol.websocket.events;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/**
+ * Parameters of a subscription notification.
+ *
+ * @param <T> type of the notification result
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class NotificationParams<T> {
+    private T result;
+    private String subscription;
+
+    public T getResult() {
+        return result;
+    }
+
+    public String getSubscription() {
+        return subscription;
+    }
+}
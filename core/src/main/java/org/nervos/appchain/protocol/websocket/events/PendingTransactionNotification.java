@@ -0,0 +1,7 @@
+package org.nervos.appchain.protocol.websocket.events;
+
+/**
+ * Notification for a newPendingTransactions subscription, containing a transaction hash.
+ */
+public class PendingTransactionNotification extends Notification<String> {
+}
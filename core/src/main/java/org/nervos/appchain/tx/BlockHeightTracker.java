@@ -0,0 +1,108 @@
+package org.nervos.appchain.tx;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.nervos.appchain.protocol.AppChainj;
+import org.nervos.appchain.protocol.core.JsonRpc2_0AppChainj;
+import org.nervos.appchain.protocol.core.methods.response.AppBlockNumber;
+import org.nervos.appchain.utils.Async;
+
+/**
+ * <p>Caches the latest block height of a node so that many transaction senders can derive
+ * {@code validUntilBlock} without asking the node for every transaction.</p>
+ *
+ * <p>Only the first lookup blocks. Afterwards, once the cached height is older than the refresh
+ * interval, a single background refresh is started and callers keep getting the cached value
+ * until it completes.</p>
+ */
+public class BlockHeightTracker {
+
+    private final AppChainj appChainj;
+    private final long refreshInterval;
+
+    private final AtomicBoolean refreshing = new AtomicBoolean(false);
+    private final Object lock = new Object();
+
+    private volatile long blockNumber = -1;
+    private volatile long lastRefresh;
+
+    public BlockHeightTracker(AppChainj appChainj) {
+        this(appChainj, JsonRpc2_0AppChainj.DEFAULT_BLOCK_TIME);
+    }
+
+    /**
+     * @param appChainj node to query
+     * @param refreshInterval age in milliseconds after which the cached height is refreshed
+     */
+    public BlockHeightTracker(AppChainj appChainj, long refreshInterval) {
+        this.appChainj = appChainj;
+        this.refreshInterval = refreshInterval;
+    }
+
+    /**
+     * Returns the cached block height, fetching it on first use.
+     *
+     * @return latest known block height
+     * @throws IOException if the first lookup fails
+     */
+    public long getBlockNumber() throws IOException {
+        long current = blockNumber;
+        if (current < 0) {
+            synchronized (lock) {
+                if (blockNumber < 0) {
+                    fetch();
+                }
+                return blockNumber;
+            }
+        }
+
+        if (System.currentTimeMillis() - lastRefresh >= refreshInterval
+                && refreshing.compareAndSet(false, true)) {
+            Async.run(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    try {
+                        fetch();
+                    } finally {
+                        refreshing.set(false);
+                    }
+                    return null;
+                }
+            });
+        }
+        return current;
+    }
+
+    /**
+     * Fetch the block height from the node immediately, e.g. after the node rejected a
+     * transaction because its {@code validUntilBlock} was out of range.
+     *
+     * @return latest block height
+     * @throws IOException if the lookup fails
+     */
+    public long refresh() throws IOException {
+        fetch();
+        return blockNumber;
+    }
+
+    private void fetch() throws IOException {
+        AppBlockNumber appBlockNumber = appChainj.appBlockNumber().send();
+        if (appBlockNumber.hasError()) {
+            throw new IOException("Error fetching block number: "
+                    + appBlockNumber.getError().getMessage());
+        }
+        update(appBlockNumber.getBlockNumber().longValue());
+    }
+
+    private void update(long latest) {
+        synchronized (lock) {
+            // responses may arrive out of order, the height never moves backwards
+            if (latest > blockNumber) {
+                blockNumber = latest;
+            }
+            lastRefresh = System.currentTimeMillis();
+        }
+    }
+}
@@ -0,0 +1,357 @@
+package org.nervos.appchain.tx;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.nervos.appchain.crypto.Credentials;
+import org.nervos.appchain.crypto.Hash;
+import org.nervos.appchain.protocol.AppChainj;
+import org.nervos.appchain.protocol.core.Response;
+import org.nervos.appchain.protocol.core.methods.request.Transaction;
+import org.nervos.appchain.protocol.core.methods.response.AppSendTransaction;
+import org.nervos.appchain.protocol.core.methods.response.AppTransaction;
+import org.nervos.appchain.utils.Async;
+import org.nervos.appchain.utils.SettableFuture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>Sends CITA transactions from a single account without a node round trip per
+ * transaction.</p>
+ *
+ * <p>CITA only requires a nonce to be unique for the sender, so nonces are generated locally
+ * from a random starting point. {@code validUntilBlock} is derived from a shared
+ * {@link BlockHeightTracker}. At most {@code maxInFlight} transactions are outstanding at a
+ * time, {@link #sendTransaction(String, String, long, int, int, String)} blocks once the window
+ * is full. Transactions are submitted asynchronously, so no thread waits for a node while
+ * they are in flight. Transport failures, a busy node and an expired {@code validUntilBlock}
+ * are retried up to {@code maxAttempts} times.</p>
+ *
+ * <p>A transaction re-signed with a new {@code validUntilBlock} keeps its nonce but gets a new
+ * hash, and the node executes both if both are mined. It is therefore only replaced once none
+ * of the hashes sent before is known to the node and none of them can still be mined; the
+ * caller receives the hash of the replacement.</p>
+ */
+public class PipelinedTransactionSender implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(PipelinedTransactionSender.class);
+
+    public static final int DEFAULT_MAX_IN_FLIGHT = 256;
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+
+    // CITA accepts validUntilBlock values up to 100 blocks ahead of the current height
+    public static final long DEFAULT_VALID_UNTIL_BLOCK_OFFSET = 80;
+
+    static final long RETRY_BACKOFF = 100;
+
+    private static final String BUSY = "Busy";
+    private static final String INVALID_UNTIL_BLOCK = "InvalidUntilBlock";
+
+    private final AppChainj appChainj;
+    private final Credentials credentials;
+    private final BlockHeightTracker blockHeightTracker;
+    private final TransactionSigner transactionSigner = new TransactionSigner();
+    private final int maxInFlight;
+    private final int maxAttempts;
+    private final Semaphore window;
+    private final AtomicLong nonce;
+    private final ScheduledExecutorService scheduledExecutorService;
+    private final boolean ownsExecutorService;
+
+    private volatile long validUntilBlockOffset = DEFAULT_VALID_UNTIL_BLOCK_OFFSET;
+
+    public PipelinedTransactionSender(
+            AppChainj appChainj, Credentials credentials,
+            BlockHeightTracker blockHeightTracker) {
+        this(appChainj, credentials, blockHeightTracker,
+                DEFAULT_MAX_IN_FLIGHT, DEFAULT_MAX_ATTEMPTS);
+    }
+
+    /**
+     * Send transactions with retries timed on a pool of its own, which is shut down by
+     * {@link #close()}.
+     */
+    public PipelinedTransactionSender(
+            AppChainj appChainj, Credentials credentials,
+            BlockHeightTracker blockHeightTracker, int maxInFlight, int maxAttempts) {
+        this(appChainj, credentials, blockHeightTracker, maxInFlight, maxAttempts,
+                Async.defaultExecutorService(), true);
+    }
+
+    /**
+     * @param scheduledExecutorService pool on which retries are timed and transactions are
+     *     re-signed
+     */
+    public PipelinedTransactionSender(
+            AppChainj appChainj, Credentials credentials,
+            BlockHeightTracker blockHeightTracker, int maxInFlight, int maxAttempts,
+            ScheduledExecutorService scheduledExecutorService) {
+        this(appChainj, credentials, blockHeightTracker, maxInFlight, maxAttempts,
+                scheduledExecutorService, false);
+    }
+
+    private PipelinedTransactionSender(
+            AppChainj appChainj, Credentials credentials,
+            BlockHeightTracker blockHeightTracker, int maxInFlight, int maxAttempts,
+            ScheduledExecutorService scheduledExecutorService, boolean ownsExecutorService) {
+        if (maxInFlight < 1 || maxAttempts < 1) {
+            throw new IllegalArgumentException("maxInFlight and maxAttempts must be positive");
+        }
+        this.appChainj = appChainj;
+        this.credentials = credentials;
+        this.blockHeightTracker = blockHeightTracker;
+        this.maxInFlight = maxInFlight;
+        this.maxAttempts = maxAttempts;
+        this.window = new Semaphore(maxInFlight);
+        // keep well clear of overflow, and of nonces used by earlier runs for this account
+        this.nonce = new AtomicLong(new SecureRandom().nextLong() >>> 2);
+        this.scheduledExecutorService = scheduledExecutorService;
+        this.ownsExecutorService = ownsExecutorService;
+    }
+
+    public void setValidUntilBlockOffset(long validUntilBlockOffset) {
+        this.validUntilBlockOffset = validUntilBlockOffset;
+    }
+
+    /**
+     * Sign and submit a transaction, waiting for a free slot if {@code maxInFlight}
+     * transactions are already outstanding.
+     *
+     * @return the node's response, which may still carry a non retryable error
+     * @throws InterruptedException if interrupted while waiting for a free slot
+     */
+    public Future<AppSendTransaction> sendTransaction(
+            final String to, final String data, final long quota,
+            final int version, final int chainId, final String value)
+            throws InterruptedException {
+        BigInteger transactionNonce = BigInteger.valueOf(nonce.getAndIncrement());
+
+        window.acquire();
+        Submission submission = new Submission(new TransactionTemplate(
+                to, data, quota, transactionNonce, version, chainId, value));
+        submission.result.addListener(new Runnable() {
+            @Override
+            public void run() {
+                window.release();
+            }
+        });
+        submission.start();
+        return submission.result;
+    }
+
+    /**
+     * Block until every transaction submitted so far has completed.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void awaitInFlight() throws InterruptedException {
+        window.acquire(maxInFlight);
+        window.release(maxInFlight);
+    }
+
+    public int getInFlightCount() {
+        return maxInFlight - window.availablePermits();
+    }
+
+    /**
+     * Shut down the retry pool if this sender created it. Transactions still waiting for a
+     * retry are not resubmitted.
+     */
+    @Override
+    public void close() {
+        if (ownsExecutorService) {
+            scheduledExecutorService.shutdownNow();
+        }
+    }
+
+    /**
+     * A transaction and the versions of it signed so far.
+     */
+    private class Submission {
+        private final TransactionTemplate template;
+        private final SettableFuture<AppSendTransaction> result = new SettableFuture<>();
+        private final List<String> hashes = new ArrayList<>();
+        private final List<Long> validUntilBlocks = new ArrayList<>();
+        private String signedTransaction;
+        private int attempt;
+
+        Submission(TransactionTemplate template) {
+            this.template = template;
+        }
+
+        void start() {
+            try {
+                sign(blockHeightTracker.getBlockNumber());
+            } catch (IOException | RuntimeException e) {
+                result.setException(e);
+                return;
+            }
+            submit();
+        }
+
+        private void sign(long blockNumber) {
+            long validUntilBlock = blockNumber + validUntilBlockOffset;
+            signedTransaction = transactionSigner.sign(
+                    template.toTransaction(validUntilBlock), credentials);
+            hashes.add(Hash.sha3(signedTransaction));
+            validUntilBlocks.add(validUntilBlock);
+        }
+
+        private void submit() {
+            attempt++;
+            final Future<AppSendTransaction> future;
+            try {
+                future = appChainj.appSendRawTransaction(signedTransaction).sendAsync();
+            } catch (RuntimeException e) {
+                result.setException(e);
+                return;
+            }
+            SettableFuture.whenDone(future, new Runnable() {
+                @Override
+                public void run() {
+                    onResponse(future);
+                }
+            });
+        }
+
+        private void onResponse(Future<AppSendTransaction> future) {
+            AppSendTransaction response;
+            try {
+                response = future.get();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException && attempt < maxAttempts) {
+                    retryLater();
+                } else {
+                    result.setException(e.getCause());
+                }
+                return;
+            } catch (InterruptedException | CancellationException e) {
+                result.setException(e);
+                return;
+            }
+
+            if (!response.hasError() || attempt >= maxAttempts) {
+                result.set(response);
+                return;
+            }
+
+            Response.Error error = response.getError();
+            String message = error.getMessage() != null ? error.getMessage() : "";
+            if (message.contains(INVALID_UNTIL_BLOCK)) {
+                resignLater(response);
+            } else if (message.contains(BUSY)) {
+                retryLater();
+            } else {
+                result.set(response);
+            }
+        }
+
+        private void retryLater() {
+            try {
+                scheduledExecutorService.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        submit();
+                    }
+                }, RETRY_BACKOFF * attempt, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                result.setException(e);
+            }
+        }
+
+        /**
+         * Re-sign on the retry pool, which may block on the node.
+         */
+        private void resignLater(final AppSendTransaction rejected) {
+            try {
+                scheduledExecutorService.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        resign(rejected);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                result.setException(e);
+            }
+        }
+
+        private void resign(AppSendTransaction rejected) {
+            String previous = hashes.get(hashes.size() - 1);
+            try {
+                long blockNumber = blockHeightTracker.refresh();
+                for (int i = 0; i < hashes.size(); i++) {
+                    String hash = hashes.get(i);
+                    if (isKnown(hash)) {
+                        // an earlier version was accepted after all
+                        result.set(accepted(hash));
+                        return;
+                    } else if (validUntilBlocks.get(i) >= blockNumber) {
+                        // it may still be mined, a replacement could be executed as well
+                        result.set(rejected);
+                        return;
+                    }
+                }
+                sign(blockNumber);
+            } catch (IOException | RuntimeException e) {
+                result.setException(e);
+                return;
+            }
+            log.info("Replacing transaction {} with {}, nonce {}",
+                    previous, hashes.get(hashes.size() - 1), template.nonce);
+            submit();
+        }
+
+        private boolean isKnown(String hash) throws IOException {
+            AppTransaction appTransaction = appChainj.appGetTransactionByHash(hash).send();
+            return !appTransaction.hasError() && appTransaction.getTransaction() != null;
+        }
+    }
+
+    private static AppSendTransaction accepted(String hash) {
+        AppSendTransaction appSendTransaction = new AppSendTransaction();
+        appSendTransaction.setResult(new AppSendTransaction.SendTransactionResult(hash, "OK"));
+        return appSendTransaction;
+    }
+
+    /**
+     * Transaction fields which stay the same across resubmissions.
+     */
+    private static class TransactionTemplate {
+        private final String to;
+        private final String data;
+        private final long quota;
+        private final BigInteger nonce;
+        private final int version;
+        private final int chainId;
+        private final String value;
+
+        TransactionTemplate(
+                String to, String data, long quota, BigInteger nonce,
+                int version, int chainId, String value) {
+            this.to = to;
+            this.data = data;
+            this.quota = quota;
+            this.nonce = nonce;
+            this.version = version;
+            this.chainId = chainId;
+            this.value = value;
+        }
+
+        Transaction toTransaction(long validUntilBlock) {
+            return new Transaction(
+                    to, nonce, quota, validUntilBlock, version, chainId, value, data);
+        }
+    }
+}
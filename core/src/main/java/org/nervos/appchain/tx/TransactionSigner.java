@@ -0,0 +1,174 @@
+package org.nervos.appchain.tx;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.MessageLite;
+import org.bouncycastle.crypto.digests.KeccakDigest;
+
+import org.nervos.appchain.crypto.Credentials;
+import org.nervos.appchain.crypto.ECKeyPair;
+import org.nervos.appchain.crypto.Sign;
+import org.nervos.appchain.protobuf.Blockchain;
+import org.nervos.appchain.protocol.core.methods.request.Transaction;
+import org.nervos.appchain.utils.HexCodec;
+
+/**
+ * <p>Signs CITA transactions with secp256k1 credentials, in bulk.</p>
+ *
+ * <p>{@link #signAll(List, Credentials)} splits the batch across a {@link ForkJoinPool}. Each
+ * worker thread reuses its own Keccak digest and serialisation buffer, so apart from the
+ * protobuf messages themselves signing does not allocate per transaction. The result for a
+ * transaction is the same hex encoded {@code UnverifiedTransaction} that
+ * {@link Transaction#sign(Credentials)} returns.</p>
+ */
+public class TransactionSigner {
+
+    // transactions signed sequentially by a single fork join task
+    static final int DEFAULT_BATCH_THRESHOLD = 16;
+
+    private static final ThreadLocal<SigningContext> CONTEXT =
+            new ThreadLocal<SigningContext>() {
+                @Override
+                protected SigningContext initialValue() {
+                    return new SigningContext();
+                }
+            };
+
+    private final ForkJoinPool pool;
+    private final int batchThreshold;
+
+    public TransactionSigner() {
+        this(PoolHolder.INSTANCE);
+    }
+
+    public TransactionSigner(ForkJoinPool pool) {
+        this(pool, DEFAULT_BATCH_THRESHOLD);
+    }
+
+    public TransactionSigner(ForkJoinPool pool, int batchThreshold) {
+        if (batchThreshold < 1) {
+            throw new IllegalArgumentException("Batch threshold must be positive");
+        }
+        this.pool = pool;
+        this.batchThreshold = batchThreshold;
+    }
+
+    /**
+     * Sign a single transaction on the calling thread.
+     *
+     * @param transaction transaction to sign
+     * @param credentials signing credentials
+     * @return hex encoded signed transaction with a 0x prefix
+     */
+    public String sign(Transaction transaction, Credentials credentials) {
+        return CONTEXT.get().sign(transaction, credentials.getEcKeyPair());
+    }
+
+    /**
+     * Sign all of the transactions in parallel.
+     *
+     * @param transactions transactions to sign
+     * @param credentials signing credentials
+     * @return hex encoded signed transactions, in the same order as {@code transactions}
+     */
+    public List<String> signAll(List<Transaction> transactions, Credentials credentials) {
+        Transaction[] input = transactions.toArray(new Transaction[transactions.size()]);
+        String[] output = new String[input.length];
+        if (input.length == 0) {
+            return new ArrayList<>();
+        }
+
+        SignTask task = new SignTask(input, output, credentials.getEcKeyPair(), 0, input.length);
+        if (ForkJoinTask.inForkJoinPool()) {
+            task.invoke();
+        } else {
+            pool.invoke(task);
+        }
+        return new ArrayList<>(Arrays.asList(output));
+    }
+
+    private class SignTask extends RecursiveAction {
+        private final Transaction[] input;
+        private final String[] output;
+        private final ECKeyPair keyPair;
+        private final int from;
+        private final int to;
+
+        SignTask(Transaction[] input, String[] output, ECKeyPair keyPair, int from, int to) {
+            this.input = input;
+            this.output = output;
+            this.keyPair = keyPair;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= batchThreshold) {
+                SigningContext context = CONTEXT.get();
+                for (int i = from; i < to; i++) {
+                    output[i] = context.sign(input[i], keyPair);
+                }
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new SignTask(input, output, keyPair, from, middle),
+                        new SignTask(input, output, keyPair, middle, to));
+            }
+        }
+    }
+
+    /**
+     * Per thread signing state.
+     */
+    private static class SigningContext {
+        private final KeccakDigest digest = new KeccakDigest(256);
+        private final byte[] hash = new byte[32];
+        private byte[] buffer = new byte[512];
+
+        String sign(Transaction transaction, ECKeyPair keyPair) {
+            Blockchain.Transaction tx = transaction.toProtobuf(false);
+
+            int length = serialize(tx);
+            digest.update(buffer, 0, length);
+            digest.doFinal(hash, 0);
+
+            Sign.SignatureData signatureData = Sign.signHash(hash, keyPair);
+
+            Blockchain.UnverifiedTransaction utx = Blockchain.UnverifiedTransaction.newBuilder()
+                    .setTransaction(tx)
+                    .setSignature(ByteString.copyFrom(signatureData.get_signature()))
+                    .setCrypto(Blockchain.Crypto.SECP)
+                    .build();
+
+            length = serialize(utx);
+            return HexCodec.encode(buffer, 0, length, true);
+        }
+
+        private int serialize(MessageLite message) {
+            int length = message.getSerializedSize();
+            if (buffer.length < length) {
+                buffer = new byte[Math.max(length, buffer.length << 1)];
+            }
+            CodedOutputStream output = CodedOutputStream.newInstance(buffer, 0, length);
+            try {
+                message.writeTo(output);
+            } catch (IOException e) {
+                // only thrown if the buffer is too small, which getSerializedSize rules out
+                throw new IllegalStateException(e);
+            }
+            return length;
+        }
+    }
+
+    private static class PoolHolder {
+        private static final ForkJoinPool INSTANCE = new ForkJoinPool();
+    }
+}
@@ -0,0 +1,303 @@
+package org.nervos.appchain.tx.response;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.nervos.appchain.protocol.AppChainj;
+import org.nervos.appchain.protocol.core.BatchRequest;
+import org.nervos.appchain.protocol.core.BatchResponse;
+import org.nervos.appchain.protocol.core.Request;
+import org.nervos.appchain.protocol.core.methods.response.AppBlock;
+import org.nervos.appchain.protocol.core.methods.response.AppGetTransactionReceipt;
+import org.nervos.appchain.protocol.core.methods.response.TransactionReceipt;
+import org.nervos.appchain.protocol.exceptions.TransactionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rx.Observable;
+import rx.Subscriber;
+import rx.Subscription;
+
+/**
+ * Transaction receipt processor which follows new blocks rather than polling for each
+ * transaction.
+ *
+ * <p>The hashes in every new block body are matched against the outstanding transactions and
+ * receipts are only requested, as one batch per block, for the transactions that were included.
+ * The number of requests therefore grows with the number of blocks, not with the number of
+ * outstanding transactions. A transaction which has not been included after
+ * {@code maxBlocks} blocks is reported to {@link Callback#exception(Exception)}.
+ *
+ * <p><em>Note:</em>As with {@link QueuingTransactionReceiptProcessor}, this processor
+ * immediately returns an {@link EmptyTransactionReceipt} and delivers the real receipt to the
+ * callback.
+ *
+ * <p>Receipts which could not be fetched are fetched again with the next block, and the failure
+ * is only reported once {@link #MAX_FETCH_ATTEMPTS} attempts have failed. Neither such failures
+ * nor exceptions thrown by the callback end the block subscription.
+ */
+public class BlockWatchingReceiptProcessor extends TransactionReceiptProcessor {
+
+    private static final Logger log = LoggerFactory.getLogger(BlockWatchingReceiptProcessor.class);
+
+    // CITA rejects transactions whose validUntilBlock is more than 100 blocks ahead
+    public static final int DEFAULT_MAX_BLOCKS = 100;
+
+    // hashes from the most recent blocks are kept in case a transaction is included before the
+    // caller has registered its hash
+    static final int RECENT_BLOCKS = 4;
+
+    // attempts to fetch the receipt of an included transaction, one per block
+    static final int MAX_FETCH_ATTEMPTS = 3;
+
+    private final AppChainj appChainj;
+    private final Callback callback;
+    private final int maxBlocks;
+
+    private final Object lock = new Object();
+    // transaction hash -> number of blocks seen since it was registered
+    private final Map<String, Integer> pendingTransactions = new HashMap<>();
+    private final Deque<Set<String>> recentBlocks = new ArrayDeque<>();
+    // included transaction hash -> failed attempts to fetch its receipt
+    private final Map<String, Integer> retries = new HashMap<>();
+
+    private final Subscription subscription;
+
+    public BlockWatchingReceiptProcessor(AppChainj appChainj, Callback callback) {
+        this(appChainj, callback, appChainj.blockObservable(false), DEFAULT_MAX_BLOCKS);
+    }
+
+    public BlockWatchingReceiptProcessor(
+            AppChainj appChainj, Callback callback,
+            Observable<AppBlock> blockObservable, int maxBlocks) {
+        super(appChainj);
+        this.appChainj = appChainj;
+        this.callback = callback;
+        this.maxBlocks = maxBlocks;
+
+        this.subscription = blockObservable.subscribe(new Subscriber<AppBlock>() {
+            @Override
+            public void onNext(AppBlock appBlock) {
+                // an exception here would end the subscription for every later transaction
+                try {
+                    processBlock(appBlock);
+                } catch (RuntimeException e) {
+                    log.error("Failed to process block", e);
+                }
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                failAll(throwable);
+            }
+
+            @Override
+            public void onCompleted() {
+            }
+        });
+    }
+
+    @Override
+    public TransactionReceipt waitForTransactionReceipt(String transactionHash)
+            throws IOException, TransactionException {
+        boolean included = false;
+        synchronized (lock) {
+            for (Set<String> block : recentBlocks) {
+                if (block.contains(transactionHash)) {
+                    included = true;
+                    break;
+                }
+            }
+            if (!included) {
+                pendingTransactions.put(transactionHash, 0);
+            }
+        }
+
+        if (included) {
+            fetchReceipts(Collections.singletonList(transactionHash));
+        }
+        return new EmptyTransactionReceipt(transactionHash);
+    }
+
+    /**
+     * @return number of transactions which were not included yet, or whose receipt is to be
+     *     fetched again
+     */
+    public int getPendingCount() {
+        synchronized (lock) {
+            return pendingTransactions.size() + retries.size();
+        }
+    }
+
+    /**
+     * Stop following new blocks. Transactions which are still outstanding are not reported.
+     */
+    public void close() {
+        subscription.unsubscribe();
+    }
+
+    private void processBlock(AppBlock appBlock) {
+        AppBlock.Block block = appBlock.getBlock();
+        if (block == null || block.getBody() == null) {
+            return;
+        }
+
+        Set<String> blockHashes = new HashSet<>();
+        for (AppBlock.TransactionObject transaction : block.getBody().getTransactions()) {
+            blockHashes.add(transaction.getHash());
+        }
+
+        List<String> included = new ArrayList<>();
+        List<String> expired = new ArrayList<>();
+        synchronized (lock) {
+            recentBlocks.addLast(blockHashes);
+            if (recentBlocks.size() > RECENT_BLOCKS) {
+                recentBlocks.removeFirst();
+            }
+
+            Iterator<Map.Entry<String, Integer>> iterator =
+                    pendingTransactions.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<String, Integer> entry = iterator.next();
+                if (blockHashes.contains(entry.getKey())) {
+                    included.add(entry.getKey());
+                    iterator.remove();
+                } else if (entry.getValue() + 1 >= maxBlocks) {
+                    expired.add(entry.getKey());
+                    iterator.remove();
+                } else {
+                    entry.setValue(entry.getValue() + 1);
+                }
+            }
+            included.addAll(retries.keySet());
+        }
+
+        if (!included.isEmpty()) {
+            fetchReceipts(included);
+        }
+        for (String transactionHash : expired) {
+            reportException(new TransactionException(
+                    "Transaction " + transactionHash + " was not included after "
+                            + maxBlocks + " blocks"));
+        }
+    }
+
+    private void fetchReceipts(List<String> transactionHashes) {
+        BatchRequest batchRequest = appChainj.newBatch();
+        List<Request<?, AppGetTransactionReceipt>> requests =
+                new ArrayList<>(transactionHashes.size());
+        for (String transactionHash : transactionHashes) {
+            Request<?, AppGetTransactionReceipt> request =
+                    appChainj.appGetTransactionReceipt(transactionHash);
+            requests.add(request);
+            batchRequest.add(request);
+        }
+
+        BatchResponse batchResponse;
+        try {
+            batchResponse = batchRequest.send();
+        } catch (IOException | RuntimeException e) {
+            for (String transactionHash : transactionHashes) {
+                retry(transactionHash, fetchFailed(transactionHash, e));
+            }
+            return;
+        }
+
+        for (int i = 0; i < requests.size(); i++) {
+            String transactionHash = transactionHashes.get(i);
+            AppGetTransactionReceipt response;
+            try {
+                // transports without batch support return no batch response
+                response = batchResponse != null
+                        ? batchResponse.getResponse(requests.get(i)) : requests.get(i).send();
+            } catch (IOException | RuntimeException e) {
+                retry(transactionHash, fetchFailed(transactionHash, e));
+                continue;
+            }
+            if (response == null) {
+                retry(transactionHash, new TransactionException(
+                        "No response for transaction receipt " + transactionHash));
+            } else if (response.hasError()) {
+                retry(transactionHash, new TransactionException(
+                        "Error processing request for transaction receipt " + transactionHash
+                                + ": " + response.getError().getMessage()));
+            } else if (response.getTransactionReceipt() == null) {
+                retry(transactionHash, new TransactionException(
+                        "No transaction receipt for included transaction " + transactionHash));
+            } else {
+                synchronized (lock) {
+                    retries.remove(transactionHash);
+                }
+                reportReceipt(response.getTransactionReceipt());
+            }
+        }
+    }
+
+    /**
+     * Fetch the receipt again with the next block, or report {@code failure} once the attempts
+     * are exhausted.
+     */
+    private void retry(String transactionHash, TransactionException failure) {
+        boolean exhausted;
+        synchronized (lock) {
+            Integer failed = retries.get(transactionHash);
+            int attempts = failed == null ? 1 : failed + 1;
+            exhausted = attempts >= MAX_FETCH_ATTEMPTS;
+            if (exhausted) {
+                retries.remove(transactionHash);
+            } else {
+                retries.put(transactionHash, attempts);
+            }
+        }
+        if (exhausted) {
+            reportException(failure);
+        } else {
+            log.warn("Failed to fetch transaction receipt, retrying with the next block: {}",
+                    failure.getMessage());
+        }
+    }
+
+    private static TransactionException fetchFailed(String transactionHash, Exception cause) {
+        return new TransactionException("Failed to fetch transaction receipt for "
+                + transactionHash + ": " + cause.getMessage());
+    }
+
+    private void reportReceipt(TransactionReceipt transactionReceipt) {
+        try {
+            callback.accept(transactionReceipt);
+        } catch (RuntimeException e) {
+            log.error("Callback failed for transaction receipt "
+                    + transactionReceipt.getTransactionHash(), e);
+        }
+    }
+
+    private void reportException(Exception exception) {
+        try {
+            callback.exception(exception);
+        } catch (RuntimeException e) {
+            log.error("Callback failed for exception: " + exception.getMessage(), e);
+        }
+    }
+
+    private void failAll(Throwable cause) {
+        List<String> transactionHashes;
+        synchronized (lock) {
+            transactionHashes = new ArrayList<>(pendingTransactions.keySet());
+            transactionHashes.addAll(retries.keySet());
+            pendingTransactions.clear();
+            retries.clear();
+        }
+        for (String transactionHash : transactionHashes) {
+            reportException(new TransactionException("Block subscription failed for transaction "
+                    + transactionHash + ": " + cause.getMessage()));
+        }
+    }
+}
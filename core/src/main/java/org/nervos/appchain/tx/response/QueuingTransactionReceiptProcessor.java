@@ -1,45 +1,103 @@
 package org.nervos.appchain.tx.response;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.nervos.appchain.protocol.AppChainj;
+import org.nervos.appchain.protocol.core.BatchRequest;
+import org.nervos.appchain.protocol.core.BatchResponse;
+import org.nervos.appchain.protocol.core.Request;
+import org.nervos.appchain.protocol.core.methods.response.AppGetTransactionReceipt;
 import org.nervos.appchain.protocol.core.methods.response.TransactionReceipt;
 import org.nervos.appchain.protocol.exceptions.TransactionException;
 import org.nervos.appchain.utils.Async;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Transaction receipt processor that uses a single thread to query for transaction receipts.
  *
+ * <p>On every tick the outstanding transaction hashes that are due are polled with chunked
+ * JSON-RPC batch requests. Each hash follows its own schedule: the first poll happens
+ * {@code initialPollingDelay} after submission, around the time the transaction is expected in
+ * a block, and the delay doubles after every unsuccessful poll up to
+ * {@link #setMaxPollingDelay(long) maxPollingDelay}. Transactions which are not mined promptly,
+ * e.g. because they were dropped, are thus polled less and less often. Callbacks are invoked on
+ * a separate executor so slow callbacks do not delay polling.
+ *
  * <p><em>Note:</em>When initially invoked, this processor returns a transaction receipt containing
  * only the transaction hash of the submitted transaction. This is encapsulated in an
  * {@link EmptyTransactionReceipt}.
  */
 public class QueuingTransactionReceiptProcessor extends TransactionReceiptProcessor {
 
+    private static final Logger log =
+            LoggerFactory.getLogger(QueuingTransactionReceiptProcessor.class);
+
+    public static final int DEFAULT_BATCH_SIZE = 100;
+
+    // the default cap on the delay between polls, as a multiple of the initial delay
+    public static final int DEFAULT_MAX_POLLING_DELAY_MULTIPLE = 8;
+
+    static final int BACKOFF_FACTOR = 2;
+
+    private final AppChainj appChainj;
     private final int pollingAttemptsPerTxHash;
+    private final long initialPollingDelay;
+    private final int batchSize;
+    private volatile long maxPollingDelay;
 
     private final ScheduledExecutorService scheduledExecutorService;
+    private final Executor callbackExecutor;
     private final Callback callback;
     private final BlockingQueue<RequestWrapper> pendingTransactions;
+    private final Metrics metrics = new Metrics();
 
     public QueuingTransactionReceiptProcessor(
             AppChainj appChainj, Callback callback,
             int pollingAttemptsPerTxHash, long pollingFrequency) {
+        this(appChainj, callback, pollingAttemptsPerTxHash, pollingFrequency,
+                pollingFrequency, DEFAULT_BATCH_SIZE,
+                Async.defaultExecutorService(), CallbackExecutorHolder.INSTANCE);
+    }
+
+    public QueuingTransactionReceiptProcessor(
+            AppChainj appChainj, Callback callback,
+            int pollingAttemptsPerTxHash, long pollingFrequency, long initialPollingDelay,
+            int batchSize, ScheduledExecutorService scheduledExecutorService,
+            Executor callbackExecutor) {
         super(appChainj);
-        this.scheduledExecutorService = Async.defaultExecutorService();
+        this.appChainj = appChainj;
+        this.scheduledExecutorService = scheduledExecutorService;
+        this.callbackExecutor = callbackExecutor;
         this.callback = callback;
         this.pendingTransactions = new LinkedBlockingQueue<>();
         this.pollingAttemptsPerTxHash = pollingAttemptsPerTxHash;
+        this.initialPollingDelay = Math.max(initialPollingDelay, pollingFrequency);
+        this.maxPollingDelay = this.initialPollingDelay * DEFAULT_MAX_POLLING_DELAY_MULTIPLE;
+        this.batchSize = batchSize;
 
-        scheduledExecutorService.scheduleAtFixedRate(
+        // fixed delay, a slow tick postpones the next one rather than queueing up behind it
+        scheduledExecutorService.scheduleWithFixedDelay(
                 new Runnable() {
                     @Override
                     public void run() {
-                        QueuingTransactionReceiptProcessor.this.sendTransactionReceiptRequests();
+                        // an exception would cancel all further ticks
+                        try {
+                            sendTransactionReceiptRequests();
+                        } catch (RuntimeException e) {
+                            log.error("Failed to poll for transaction receipts", e);
+                        }
                     }
                 },
                 pollingFrequency, pollingFrequency, TimeUnit.MILLISECONDS);
@@ -48,37 +106,138 @@ public class QueuingTransactionReceiptProcessor extends TransactionReceiptProces
     @Override
     public TransactionReceipt waitForTransactionReceipt(String transactionHash)
             throws IOException, TransactionException {
-        pendingTransactions.add(new RequestWrapper(transactionHash));
+        pendingTransactions.add(new RequestWrapper(
+                transactionHash, System.currentTimeMillis() + initialPollingDelay,
+                initialPollingDelay));
 
         return new EmptyTransactionReceipt(transactionHash);
     }
 
-    private void sendTransactionReceiptRequests() {
+    /**
+     * Cap the delay between two polls of a transaction hash, by default
+     * {@value #DEFAULT_MAX_POLLING_DELAY_MULTIPLE} times the initial polling delay. It is never
+     * less than the initial polling delay.
+     *
+     * @param maxPollingDelay maximum delay in milliseconds
+     */
+    public void setMaxPollingDelay(long maxPollingDelay) {
+        this.maxPollingDelay = Math.max(maxPollingDelay, initialPollingDelay);
+    }
+
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    public int getPendingCount() {
+        return pendingTransactions.size();
+    }
+
+    void sendTransactionReceiptRequests() {
+        sendTransactionReceiptRequests(System.currentTimeMillis());
+    }
+
+    void sendTransactionReceiptRequests(long now) {
+        long start = System.nanoTime();
+
+        List<RequestWrapper> due = new ArrayList<>();
         for (RequestWrapper requestWrapper : pendingTransactions) {
+            if (requestWrapper.getNextPollTime() <= now) {
+                due.add(requestWrapper);
+            }
+        }
+
+        for (int from = 0; from < due.size(); from += batchSize) {
+            sendBatch(due.subList(from, Math.min(from + batchSize, due.size())), now);
+        }
+
+        metrics.recordTick(due.size(), System.nanoTime() - start);
+    }
+
+    private void sendBatch(List<RequestWrapper> requestWrappers, long now) {
+        BatchRequest batchRequest = appChainj.newBatch();
+        List<Request<?, AppGetTransactionReceipt>> requests =
+                new ArrayList<>(requestWrappers.size());
+        for (RequestWrapper requestWrapper : requestWrappers) {
+            Request<?, AppGetTransactionReceipt> request =
+                    appChainj.appGetTransactionReceipt(requestWrapper.getTransactionHash());
+            requests.add(request);
+            batchRequest.add(request);
+        }
+
+        BatchResponse batchResponse;
+        try {
+            batchResponse = batchRequest.send();
+        } catch (IOException | RuntimeException e) {
+            // a failed batch counts as an unsuccessful attempt for each of its hashes
+            for (RequestWrapper requestWrapper : requestWrappers) {
+                reschedule(requestWrapper, now, e);
+            }
+            return;
+        }
+
+        for (int i = 0; i < requestWrappers.size(); i++) {
+            RequestWrapper requestWrapper = requestWrappers.get(i);
+            AppGetTransactionReceipt response;
             try {
-                String transactionHash = requestWrapper.getTransactionHash();
-                TransactionReceipt transactionReceipt =
-                        sendTransactionReceiptRequest(transactionHash);
-                if (transactionReceipt != null) {
-                    callback.accept(transactionReceipt);
-                    pendingTransactions.remove(requestWrapper);
-                } else {
-                    if (requestWrapper.getCount() == pollingAttemptsPerTxHash) {
-                        throw new TransactionException(
-                                "No transaction receipt for txHash: " + transactionHash
-                                        + "received after " + pollingAttemptsPerTxHash
-                                        + " attempts");
-                    } else {
-                        requestWrapper.incrementCount();
-                    }
-                }
-            } catch (IOException | TransactionException e) {
+                // transports without batch support return no batch response
+                response = batchResponse != null
+                        ? batchResponse.getResponse(requests.get(i)) : requests.get(i).send();
+            } catch (IOException | RuntimeException e) {
+                reschedule(requestWrapper, now, e);
+                continue;
+            }
+            if (response == null) {
+                reschedule(requestWrapper, now, null);
+            } else if (response.hasError()) {
+                fail(requestWrapper, new TransactionException("Error processing request: "
+                        + response.getError().getMessage()));
+            } else if (response.getTransactionReceipt() != null) {
                 pendingTransactions.remove(requestWrapper);
-                callback.exception(e);
+                dispatchReceipt(response.getTransactionReceipt());
+            } else {
+                reschedule(requestWrapper, now, null);
             }
         }
     }
 
+    private void reschedule(RequestWrapper requestWrapper, long now, Exception cause) {
+        requestWrapper.incrementCount();
+        if (requestWrapper.getCount() >= pollingAttemptsPerTxHash) {
+            if (cause != null) {
+                fail(requestWrapper, cause);
+            } else {
+                fail(requestWrapper, new TransactionException(
+                        "No transaction receipt for txHash: "
+                                + requestWrapper.getTransactionHash()
+                                + "received after " + pollingAttemptsPerTxHash
+                                + " attempts"));
+            }
+        } else {
+            long delay = Math.min(requestWrapper.getDelay() * BACKOFF_FACTOR, maxPollingDelay);
+            requestWrapper.setDelay(delay);
+            requestWrapper.setNextPollTime(now + delay);
+        }
+    }
+
+    private void fail(RequestWrapper requestWrapper, final Exception exception) {
+        pendingTransactions.remove(requestWrapper);
+        callbackExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                callback.exception(exception);
+            }
+        });
+    }
+
+    private void dispatchReceipt(final TransactionReceipt transactionReceipt) {
+        callbackExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                callback.accept(transactionReceipt);
+            }
+        });
+    }
+
     /**
      * Java doesn't provide a concurrent linked hash set, so we use a simple wrapper to store
      * details of the number of requests we've made against this specific transaction hash. This
@@ -90,10 +249,14 @@ public class QueuingTransactionReceiptProcessor extends TransactionReceiptProces
     private static class RequestWrapper {
         private final String transactionHash;
         private int count;
+        private long nextPollTime;
+        private long delay;
 
-        RequestWrapper(String transactionHash) {
+        RequestWrapper(String transactionHash, long nextPollTime, long delay) {
             this.transactionHash = transactionHash;
             this.count = 0;
+            this.nextPollTime = nextPollTime;
+            this.delay = delay;
         }
 
         String getTransactionHash() {
@@ -108,6 +271,22 @@ public class QueuingTransactionReceiptProcessor extends TransactionReceiptProces
             this.count += 1;
         }
 
+        long getNextPollTime() {
+            return nextPollTime;
+        }
+
+        void setNextPollTime(long nextPollTime) {
+            this.nextPollTime = nextPollTime;
+        }
+
+        long getDelay() {
+            return delay;
+        }
+
+        void setDelay(long delay) {
+            this.delay = delay;
+        }
+
         @Override
         public boolean equals(Object o) {
             if (this == o) {
@@ -127,4 +306,61 @@ public class QueuingTransactionReceiptProcessor extends TransactionReceiptProces
             return transactionHash.hashCode();
         }
     }
+
+    /**
+     * Polling statistics. Tick latency covers querying every due hash, but not the callbacks.
+     */
+    public static class Metrics {
+
+        private final AtomicLong tickCount = new AtomicLong();
+        private final AtomicLong polledCount = new AtomicLong();
+        private final AtomicLong totalTickLatencyNanos = new AtomicLong();
+        private final AtomicLong maxTickLatencyNanos = new AtomicLong();
+        private volatile long lastTickLatencyNanos;
+
+        void recordTick(int polled, long latencyNanos) {
+            tickCount.incrementAndGet();
+            polledCount.addAndGet(polled);
+            totalTickLatencyNanos.addAndGet(latencyNanos);
+            lastTickLatencyNanos = latencyNanos;
+            long max = maxTickLatencyNanos.get();
+            while (latencyNanos > max && !maxTickLatencyNanos.compareAndSet(max, latencyNanos)) {
+                max = maxTickLatencyNanos.get();
+            }
+        }
+
+        public long getTickCount() {
+            return tickCount.get();
+        }
+
+        public long getPolledCount() {
+            return polledCount.get();
+        }
+
+        public long getLastTickLatency(TimeUnit unit) {
+            return unit.convert(lastTickLatencyNanos, TimeUnit.NANOSECONDS);
+        }
+
+        public long getMaxTickLatency(TimeUnit unit) {
+            return unit.convert(maxTickLatencyNanos.get(), TimeUnit.NANOSECONDS);
+        }
+
+        public long getAverageTickLatency(TimeUnit unit) {
+            long ticks = tickCount.get();
+            return ticks == 0
+                    ? 0 : unit.convert(totalTickLatencyNanos.get() / ticks, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static class CallbackExecutorHolder {
+        private static final ExecutorService INSTANCE = Executors.newSingleThreadExecutor(
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable, "receipt-callbacks");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+    }
 }
@@ -0,0 +1,125 @@
+package org.nervos.appchain.utils;
+
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link java.util.concurrent.Future} that is completed explicitly by its producer, for use
+ * where the result is delivered by a callback rather than by running a task.
+ *
+ * <p>Listeners added with {@link #addListener(Runnable)} run once the future completes, so that
+ * a consumer can react to the result without a thread waiting in {@link #get()}.
+ *
+ * @param <T> the result type
+ */
+public class SettableFuture<T> extends FutureTask<T> {
+
+    private static final Logger log = LoggerFactory.getLogger(SettableFuture.class);
+
+    private final Queue<Runnable> listeners = new ConcurrentLinkedQueue<>();
+
+    public SettableFuture() {
+        super(new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                throw new UnsupportedOperationException(
+                        "SettableFuture must be completed via set or setException");
+            }
+        });
+    }
+
+    @Override
+    public void set(T value) {
+        super.set(value);
+    }
+
+    @Override
+    public void setException(Throwable throwable) {
+        super.setException(throwable);
+    }
+
+    /**
+     * Complete this future with the outcome of {@code source} once it completes. If
+     * {@code source} is cancelled, this future fails with the {@link CancellationException}.
+     */
+    public void setFrom(final Future<? extends T> source) {
+        whenDone(source, new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    set(source.get());
+                } catch (ExecutionException e) {
+                    setException(e.getCause());
+                } catch (CancellationException e) {
+                    setException(e);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    setException(e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Run {@code listener} once this future completes, on the thread which completes it, or
+     * right away if it is already done. Listeners must not block.
+     */
+    public void addListener(Runnable listener) {
+        listeners.add(listener);
+        if (isDone()) {
+            runListeners();
+        }
+    }
+
+    /**
+     * Run {@code listener} once {@code future} completes. Other futures than
+     * {@link SettableFuture} have no completion callback, so a thread of the shared
+     * {@link Async} executor waits for them.
+     */
+    public static void whenDone(final Future<?> future, final Runnable listener) {
+        if (future instanceof SettableFuture) {
+            ((SettableFuture<?>) future).addListener(listener);
+        } else if (future.isDone()) {
+            listener.run();
+        } else {
+            Async.run(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    try {
+                        future.get();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } catch (ExecutionException | CancellationException e) {
+                        // reported by the future itself
+                    }
+                    listener.run();
+                    return null;
+                }
+            });
+        }
+    }
+
+    @Override
+    protected void done() {
+        runListeners();
+    }
+
+    private void runListeners() {
+        Runnable listener;
+        while ((listener = listeners.poll()) != null) {
+            try {
+                listener.run();
+            } catch (RuntimeException e) {
+                log.error("Future listener failed", e);
+            }
+        }
+    }
+}
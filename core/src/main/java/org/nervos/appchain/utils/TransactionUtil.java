@@ -2,16 +2,19 @@ package org.nervos.appchain.utils;
 
 import org.nervos.appchain.protobuf.Blockchain;
 import org.nervos.appchain.protobuf.ConvertStrByte;
+import org.nervos.appchain.protocol.core.methods.response.TransactionContent;
 
+/**
+ * Read fields of transaction content. Each call decodes the content again, to read several
+ * fields of a transaction use
+ * {@link org.nervos.appchain.protocol.core.methods.response.Transaction#decodeContent()}.
+ */
 public class TransactionUtil {
 
     public static Blockchain.Transaction getTransaction(String content) {
         Blockchain.Transaction transaction = null;
         try {
-            Blockchain.UnverifiedTransaction unverifiedTransaction =
-                    Blockchain.UnverifiedTransaction.parseFrom(
-                            ConvertStrByte.hexStringToBytes(content.substring(2)));
-            transaction = unverifiedTransaction.getTransaction();
+            transaction = TransactionContent.parse(content).getTransaction();
         } catch (Exception e) {
             e.printStackTrace();
         }
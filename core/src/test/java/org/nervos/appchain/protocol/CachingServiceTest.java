@@ -0,0 +1,210 @@
+package org.nervos.appchain.protocol;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.nervos.appchain.protocol.core.BatchResponse;
+import org.nervos.appchain.protocol.core.DefaultBlockParameter;
+import org.nervos.appchain.protocol.core.DefaultBlockParameterName;
+import org.nervos.appchain.protocol.core.Request;
+import org.nervos.appchain.protocol.core.methods.response.AppGetBalance;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.nervos.appchain.protocol.core.BlockParameters.number;
+
+public class CachingServiceTest {
+
+    private static final String ADDRESS = "0x0000000000000000000000000000000000abcdef";
+
+    private StubService stubService;
+    private CachingService cachingService;
+    private AppChainj appChainj;
+
+    @Before
+    public void setUp() {
+        stubService = new StubService();
+        cachingService = new CachingService(stubService, 2);
+        appChainj = AppChainjFactory.build(cachingService);
+    }
+
+    @Test
+    public void testReadsAtBlockNumberAreCached() throws Exception {
+        AppGetBalance first = balance(ADDRESS, number(5));
+        AppGetBalance second = balance(ADDRESS.toUpperCase().replace("0X", "0x"), number(5));
+        AppGetBalance async = appChainj.appGetBalance(ADDRESS, number(5)).sendAsync().get();
+
+        assertThat(second, sameInstance(first));
+        assertThat(async, sameInstance(first));
+        assertThat(stubService.payloads.size(), is(1));
+        assertThat(cachingService.getMetrics().getHits(), is(2L));
+        assertThat(cachingService.getMetrics().getMisses(), is(1L));
+
+        balance(ADDRESS, number(6));
+        assertThat(stubService.payloads.size(), is(2));
+    }
+
+    @Test
+    public void testAsyncResponseIsStoredWithoutGet() throws Exception {
+        Future<AppGetBalance> future = appChainj.appGetBalance(ADDRESS, number(5)).sendAsync();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!future.isDone() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertThat(cachingService.size(), is(1));
+        balance(ADDRESS, number(5));
+        assertThat(stubService.payloads.size(), is(1));
+    }
+
+    @Test
+    public void testOnlyHexParametersAreCaseInsensitive() throws Exception {
+        send(new Request<>("getBalance", Arrays.asList("Alice", "0x5"),
+                stubService, AppGetBalance.class));
+        send(new Request<>("getBalance", Arrays.asList("Alice", "0X5"),
+                stubService, AppGetBalance.class));
+        assertThat(stubService.payloads.size(), is(1));
+
+        send(new Request<>("getBalance", Arrays.asList("alice", "0x5"),
+                stubService, AppGetBalance.class));
+        assertThat(stubService.payloads.size(), is(2));
+    }
+
+    @Test
+    public void testLatestAndPendingAreNotCached() throws Exception {
+        balance(ADDRESS, DefaultBlockParameterName.LATEST);
+        balance(ADDRESS, DefaultBlockParameterName.LATEST);
+        balance(ADDRESS, DefaultBlockParameterName.PENDING);
+        balance(ADDRESS, DefaultBlockParameterName.PENDING);
+        appChainj.appBlockNumber().send();
+        appChainj.appBlockNumber().send();
+
+        assertThat(stubService.payloads.size(), is(6));
+        assertThat(cachingService.size(), is(0));
+        assertThat(cachingService.getMetrics().getMisses(), is(0L));
+    }
+
+    @Test
+    public void testLatestCachedForTtl() throws Exception {
+        cachingService.setLatestTtl("getBalance", 100, TimeUnit.MILLISECONDS);
+
+        AppGetBalance first = balance(ADDRESS, DefaultBlockParameterName.LATEST);
+        assertThat(balance(ADDRESS, DefaultBlockParameterName.LATEST), sameInstance(first));
+        assertThat(stubService.payloads.size(), is(1));
+
+        Thread.sleep(200);
+        balance(ADDRESS, DefaultBlockParameterName.LATEST);
+        assertThat(stubService.payloads.size(), is(2));
+    }
+
+    @Test
+    public void testMissingAndErrorResultsAreNotCached() throws Exception {
+        String transactionHash =
+                "0x9c2d9f5bd69bb2d1c8bb0bfd2bb2cc2fbe0b0e8ac23c5cbbcd0c6e2f2c6ef1f9";
+        assertThat(appChainj.appGetTransactionReceipt(transactionHash).send()
+                .getTransactionReceipt(), nullValue());
+        appChainj.appGetTransactionReceipt(transactionHash).send();
+
+        stubService.error = true;
+        assertThat(balance(ADDRESS, number(5)).hasError(), is(true));
+        stubService.error = false;
+        assertThat(balance(ADDRESS, number(5)).hasError(), is(false));
+
+        assertThat(stubService.payloads.size(), is(4));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsEvicted() throws Exception {
+        balance(ADDRESS, number(1));
+        balance(ADDRESS, number(2));
+        balance(ADDRESS, number(1));
+        balance(ADDRESS, number(3));
+        assertThat(stubService.payloads.size(), is(3));
+        assertThat(cachingService.getMetrics().getEvictions(), is(1L));
+
+        balance(ADDRESS, number(1));
+        balance(ADDRESS, number(2));
+        assertThat(stubService.payloads.size(), is(4));
+    }
+
+    @Test
+    public void testBatchSendsOnlyMisses() throws Exception {
+        AppGetBalance cached = balance(ADDRESS, number(5));
+
+        Request<?, AppGetBalance> hit = appChainj.appGetBalance(ADDRESS, number(5));
+        Request<?, AppGetBalance> miss = appChainj.appGetBalance(ADDRESS, number(6));
+        BatchResponse batchResponse = appChainj.newBatch().add(hit).add(miss).send();
+
+        assertThat(batchResponse.getResponse(hit), sameInstance(cached));
+        assertThat(batchResponse.getResponse(miss).getBalance().longValue(), is(miss.getId()));
+        assertThat(stubService.payloads.size(), is(2));
+        assertThat(stubService.payloads.get(1).contains("\"0x5\""), is(false));
+
+        assertThat(balance(ADDRESS, number(6)), sameInstance(batchResponse.getResponse(miss)));
+        assertThat(stubService.payloads.size(), is(2));
+    }
+
+    private AppGetBalance balance(String address, DefaultBlockParameter defaultBlockParameter)
+            throws IOException {
+        return appChainj.appGetBalance(address, defaultBlockParameter).send();
+    }
+
+    private void send(Request<?, AppGetBalance> request) throws IOException {
+        cachingService.send(request, AppGetBalance.class);
+    }
+
+
+    /**
+     * Answers every request with its own id, except for receipts which are never found.
+     */
+    private static class StubService extends Service {
+
+        private final List<String> payloads = new ArrayList<>();
+        private volatile boolean error;
+
+        StubService() {
+            super(false);
+        }
+
+        @Override
+        protected synchronized InputStream performIO(String payload) throws IOException {
+            payloads.add(payload);
+
+            JsonNode node = objectMapper.readTree(payload);
+            StringBuilder result = new StringBuilder();
+            if (node.isArray()) {
+                result.append("[");
+                for (JsonNode entry : node) {
+                    result.append(result.length() > 1 ? "," : "").append(respond(entry));
+                }
+                result.append("]");
+            } else {
+                result.append(respond(node));
+            }
+            return new ByteArrayInputStream(result.toString().getBytes());
+        }
+
+        private String respond(JsonNode request) {
+            long id = request.get("id").asLong();
+            String response = "{\"jsonrpc\":\"2.0\",\"id\":" + id;
+            if (error) {
+                return response + ",\"error\":{\"code\":-32000,\"message\":\"busy\"}}";
+            } else if (request.get("method").asText().equals("getTransactionReceipt")) {
+                return response + ",\"result\":null}";
+            }
+            return response + ",\"result\":\"0x" + Long.toHexString(id) + "\"}";
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package org.nervos.appchain.protocol;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.ResponseBody;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.nervos.appchain.protocol.core.BatchRequest;
+import org.nervos.appchain.protocol.core.BatchResponse;
+import org.nervos.appchain.protocol.core.methods.response.AppBlockNumber;
+import org.nervos.appchain.protocol.http.HttpService;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class ClusterServiceTest {
+
+    private StubNode first;
+    private StubNode second;
+    private StubNode third;
+    private ClusterService clusterService;
+    private AppChainj appChainj;
+
+    @Before
+    public void setUp() {
+        first = new StubNode(100);
+        second = new StubNode(100);
+        third = new StubNode(100);
+        clusterService = new ClusterService(
+                Arrays.asList(first, second, third), 0, 3, null);
+        appChainj = AppChainjFactory.build(clusterService);
+    }
+
+    @Test
+    public void testSpreadsReadsAcrossNodes() throws Exception {
+        clusterService.checkHealth();
+        for (int i = 0; i < 60; i++) {
+            assertThat(appChainj.appBlockNumber().send().getBlockNumber(),
+                    is(BigInteger.valueOf(100)));
+        }
+        // the slowest node may lose every choice, but the other two share the reads
+        int serving = 0;
+        int reads = 0;
+        for (StubNode node : Arrays.asList(first, second, third)) {
+            reads += node.requests.get() - 1;
+            if (node.requests.get() > 1) {
+                serving++;
+            }
+        }
+        assertThat(reads, is(60));
+        assertThat(serving >= 2, is(true));
+        assertThat(clusterService.getNodes().get(0).getHeight(), is(100L));
+        assertThat(clusterService.getNodes().get(0).getLatency(TimeUnit.NANOSECONDS) > 0,
+                is(true));
+    }
+
+    @Test
+    public void testReadsFailOver() throws Exception {
+        first.down = true;
+        second.down = true;
+        for (int i = 0; i < 20; i++) {
+            assertThat(appChainj.appBlockNumber().send().getBlockNumber(),
+                    is(BigInteger.valueOf(100)));
+        }
+        // failed nodes are ejected on their first failure
+        assertThat(first.requests.get() <= 1, is(true));
+        assertThat(second.requests.get() <= 1, is(true));
+        assertThat(third.requests.get() >= 18, is(true));
+        assertThat(clusterService.getMetrics().getFailovers(),
+                is((long) first.requests.get() + second.requests.get()));
+
+        third.down = true;
+        try {
+            appChainj.appBlockNumber().send();
+            fail();
+        } catch (IOException e) {
+            assertThat(e.getMessage(), is("Node unavailable"));
+        }
+    }
+
+    @Test
+    public void testHttpErrorStatusFailsOver() throws Exception {
+        HttpService errorNode = new HttpService(new OkHttpClient.Builder()
+                .addInterceptor(new Interceptor() {
+                    @Override
+                    public okhttp3.Response intercept(Chain chain) throws IOException {
+                        return new okhttp3.Response.Builder()
+                                .body(ResponseBody.create(HttpService.JSON_MEDIA_TYPE, ""))
+                                .request(chain.request())
+                                .protocol(Protocol.HTTP_1_1)
+                                .code(503)
+                                .message("Service Unavailable")
+                                .build();
+                    }
+                })
+                .build());
+        clusterService = new ClusterService(
+                Arrays.asList(errorNode, first), 0, 3, null);
+        appChainj = AppChainjFactory.build(clusterService);
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(appChainj.appBlockNumber().send().getBlockNumber(),
+                    is(BigInteger.valueOf(100)));
+        }
+        ClusterService.Node node = clusterService.getNodes().get(0);
+        assertThat(node.isHealthy(), is(false));
+        assertThat(node.getFailureCount(), is(1L));
+        assertThat(first.requests.get(), is(10));
+    }
+
+    @Test
+    public void testRequestsInFlightCountForNodesWithoutLatency() throws Exception {
+        second.hold = new CountDownLatch(1);
+        clusterService = new ClusterService(Arrays.asList(first, second), 0, 3, null);
+        appChainj = AppChainjFactory.build(clusterService);
+        try {
+            for (int i = 0; i < 20; i++) {
+                Future<AppBlockNumber> future = appChainj.appBlockNumber().sendAsync();
+                try {
+                    future.get(100, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    // held by the second node
+                }
+            }
+            // the second node never answers, but its request in flight makes it the busier one
+            assertThat(second.requests.get() <= 1, is(true));
+            assertThat(first.requests.get() >= 19, is(true));
+        } finally {
+            second.hold.countDown();
+        }
+    }
+
+    @Test
+    public void testHealthChecks() throws Exception {
+        third.height = 90;
+        second.down = true;
+        clusterService.checkHealth();
+
+        List<ClusterService.Node> nodes = clusterService.getNodes();
+        assertThat(nodes.get(0).isHealthy(), is(true));
+        assertThat(nodes.get(1).isHealthy(), is(false));
+        assertThat(nodes.get(2).isHealthy(), is(false));
+        assertThat(clusterService.getMetrics().getEjections(), is(2L));
+
+        first.requests.set(0);
+        for (int i = 0; i < 10; i++) {
+            appChainj.appBlockNumber().send();
+        }
+        assertThat(first.requests.get(), is(10));
+
+        // nodes which caught up rejoin the cluster
+        third.height = 98;
+        second.down = false;
+        clusterService.checkHealth();
+        assertThat(nodes.get(1).isHealthy(), is(true));
+        assertThat(nodes.get(2).isHealthy(), is(true));
+    }
+
+    @Test
+    public void testHealthChecksDoNotWaitForHungNodes() throws Exception {
+        first.hold = new CountDownLatch(1);
+        third.height = 90;
+        clusterService.setHealthCheckTimeout(200, TimeUnit.MILLISECONDS);
+        try {
+            long start = System.nanoTime();
+            clusterService.checkHealth();
+            assertThat(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2), is(true));
+
+            List<ClusterService.Node> nodes = clusterService.getNodes();
+            assertThat(nodes.get(0).isHealthy(), is(false));
+            assertThat(nodes.get(1).isHealthy(), is(true));
+            assertThat(nodes.get(2).isHealthy(), is(false));
+        } finally {
+            first.hold.countDown();
+        }
+    }
+
+    @Test
+    public void testAsyncReadsFailOver() throws Exception {
+        first.down = true;
+        second.down = true;
+        for (int i = 0; i < 5; i++) {
+            assertThat(appChainj.appBlockNumber().sendAsync().get(5, TimeUnit.SECONDS)
+                    .getBlockNumber(), is(BigInteger.valueOf(100)));
+        }
+        assertThat(third.requests.get() >= 5, is(true));
+        assertThat(clusterService.getMetrics().getFailovers(),
+                is((long) first.requests.get() + second.requests.get()));
+    }
+
+    @Test
+    public void testTransactionsOnlyGoToHealthyNodes() throws Exception {
+        second.height = 10;
+        third.height = 10;
+        clusterService.checkHealth();
+
+        for (int i = 0; i < 5; i++) {
+            appChainj.appSendRawTransaction("0x01").send();
+        }
+        assertThat(first.transactions.get(), is(5));
+
+        // transactions are not retried on another node
+        first.down = true;
+        try {
+            appChainj.appSendRawTransaction("0x01").send();
+            fail();
+        } catch (IOException e) {
+            assertThat(second.transactions.get() + third.transactions.get(), is(0));
+        }
+        try {
+            appChainj.appSendRawTransaction("0x01").send();
+            fail();
+        } catch (IOException e) {
+            assertThat(e.getMessage(), is("No healthy node to send sendRawTransaction to"));
+        }
+    }
+
+    @Test
+    public void testBatch() throws Exception {
+        first.down = true;
+        BatchResponse batchResponse = new BatchRequest(clusterService)
+                .add(appChainj.appBlockNumber())
+                .add(appChainj.appBlockNumber())
+                .send();
+        assertThat(batchResponse.getResponses().size(), is(2));
+    }
+
+    /**
+     * In-process node answering blockNumber and sendRawTransaction.
+     */
+    private static class StubNode extends Service {
+
+        private final AtomicInteger requests = new AtomicInteger();
+        private final AtomicInteger transactions = new AtomicInteger();
+        private volatile long height;
+        private volatile boolean down;
+        private volatile CountDownLatch hold;
+
+        StubNode(long height) {
+            super(false);
+            this.height = height;
+        }
+
+        @Override
+        protected InputStream performIO(String payload) throws IOException {
+            requests.incrementAndGet();
+            CountDownLatch hold = this.hold;
+            if (hold != null) {
+                try {
+                    hold.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+            }
+            if (down) {
+                throw new IOException("Node unavailable");
+            }
+            JsonNode json = objectMapper.readTree(payload);
+            if (json.isArray()) {
+                StringBuilder responses = new StringBuilder("[");
+                for (JsonNode request : json) {
+                    if (responses.length() > 1) {
+                        responses.append(',');
+                    }
+                    responses.append(respond(request));
+                }
+                return new ByteArrayInputStream(responses.append(']').toString().getBytes());
+            }
+            return new ByteArrayInputStream(respond(json).getBytes());
+        }
+
+        private String respond(JsonNode request) {
+            String result;
+            if (request.get("method").asText().equals("sendRawTransaction")) {
+                transactions.incrementAndGet();
+                result = "{\"hash\":\"0x01\",\"status\":\"OK\"}";
+            } else {
+                result = "\"0x" + Long.toHexString(height) + "\"";
+            }
+            return "{\"jsonrpc\":\"2.0\",\"id\":" + request.get("id").asLong()
+                    + ",\"result\":" + result + "}";
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package org.nervos.appchain.protocol;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.nervos.appchain.protocol.core.Request;
+import org.nervos.appchain.protocol.core.methods.response.AppBlockNumber;
+import org.nervos.appchain.utils.Async;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class CoalescingServiceTest {
+
+    private StubService stubService;
+
+    @Before
+    public void setUp() {
+        stubService = new StubService();
+    }
+
+    @Test
+    public void testRequestsWithinWindowAreBatched() throws Exception {
+        CoalescingService coalescingService = new CoalescingService(
+                stubService, 200, 100, Async.defaultExecutorService());
+        AppChainj appChainj = AppChainjFactory.build(coalescingService);
+
+        List<Request<?, AppBlockNumber>> requests = new ArrayList<>();
+        List<Future<AppBlockNumber>> futures = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Request<?, AppBlockNumber> request = appChainj.appBlockNumber();
+            requests.add(request);
+            futures.add(request.sendAsync());
+        }
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(futures.get(i).get(5, TimeUnit.SECONDS).getBlockNumber(),
+                    is(BigInteger.valueOf(requests.get(i).getId())));
+        }
+
+        assertThat(stubService.payloads.size(), is(1));
+        assertThat(coalescingService.getMetrics().getBatchCount(), is(1L));
+        assertThat(coalescingService.getMetrics().getRequestCount(), is(3L));
+        assertThat(coalescingService.getMetrics().getBatchSizeDistribution()[2], is(1L));
+    }
+
+    @Test
+    public void testFullBatchIsSentImmediately() throws Exception {
+        CoalescingService coalescingService = new CoalescingService(
+                stubService, TimeUnit.MINUTES.toMillis(1), 2, Async.defaultExecutorService());
+        AppChainj appChainj = AppChainjFactory.build(coalescingService);
+
+        Future<AppBlockNumber> first = appChainj.appBlockNumber().sendAsync();
+        AppBlockNumber second = appChainj.appBlockNumber().send();
+
+        assertThat(first.get(5, TimeUnit.SECONDS).hasError(), is(false));
+        assertThat(second.hasError(), is(false));
+        assertThat(stubService.payloads.size(), is(1));
+    }
+
+    @Test
+    public void testSingleRequestIsNotWrappedInBatch() throws Exception {
+        CoalescingService coalescingService = new CoalescingService(
+                stubService, 1, 100, Async.defaultExecutorService());
+
+        AppChainjFactory.build(coalescingService).appBlockNumber().send();
+
+        assertThat(stubService.payloads.get(0).startsWith("{"), is(true));
+    }
+
+    @Test(expected = IOException.class)
+    public void testFailurePropagatesToCaller() throws Exception {
+        stubService.fail = true;
+        CoalescingService coalescingService = new CoalescingService(
+                stubService, 1, 100, Async.defaultExecutorService());
+
+        AppChainjFactory.build(coalescingService).appBlockNumber().send();
+    }
+
+    @Test
+    public void testSlowBatchDoesNotHoldUpTimer() throws Exception {
+        // a single timer thread, which would be stuck if it waited for the first batch
+        CoalescingService coalescingService = new CoalescingService(
+                stubService, 1, 100, Executors.newSingleThreadScheduledExecutor());
+        AppChainj appChainj = AppChainjFactory.build(coalescingService);
+
+        stubService.hold = new CountDownLatch(1);
+        Future<AppBlockNumber> held = appChainj.appBlockNumber().sendAsync();
+        assertThat(stubService.entered.await(5, TimeUnit.SECONDS), is(true));
+
+        Future<AppBlockNumber> next = appChainj.appBlockNumber().sendAsync();
+        assertThat(next.get(5, TimeUnit.SECONDS).hasError(), is(false));
+        assertThat(held.isDone(), is(false));
+
+        stubService.hold.countDown();
+        assertThat(held.get(5, TimeUnit.SECONDS).hasError(), is(false));
+    }
+
+    @Test
+    public void testCloseSendsPendingRequests() throws Exception {
+        CoalescingService coalescingService = new CoalescingService(
+                stubService, TimeUnit.MINUTES.toMillis(1), 100);
+
+        Future<AppBlockNumber> future =
+                AppChainjFactory.build(coalescingService).appBlockNumber().sendAsync();
+        coalescingService.close();
+
+        assertThat(future.get(5, TimeUnit.SECONDS).hasError(), is(false));
+    }
+
+    /**
+     * Answers every blockNumber request with its own id.
+     */
+    private static class StubService extends Service {
+
+        private final List<String> payloads = new ArrayList<>();
+        private final CountDownLatch entered = new CountDownLatch(1);
+        private volatile boolean fail;
+        // holds back the first request until released
+        private volatile CountDownLatch hold;
+
+        StubService() {
+            super(false);
+        }
+
+        @Override
+        protected InputStream performIO(String payload) throws IOException {
+            CountDownLatch latch = hold;
+            if (latch != null && entered.getCount() > 0) {
+                entered.countDown();
+                try {
+                    latch.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return answer(payload);
+        }
+
+        private synchronized InputStream answer(String payload) throws IOException {
+            if (fail) {
+                throw new IOException("Node unavailable");
+            }
+            payloads.add(payload);
+
+            JsonNode node = objectMapper.readTree(payload);
+            StringBuilder result = new StringBuilder();
+            if (node.isArray()) {
+                result.append("[");
+                for (JsonNode entry : node) {
+                    result.append(result.length() > 1 ? "," : "").append(respond(entry));
+                }
+                result.append("]");
+            } else {
+                result.append(respond(node));
+            }
+            return new ByteArrayInputStream(result.toString().getBytes());
+        }
+
+        private String respond(JsonNode request) {
+            long id = request.get("id").asLong();
+            return "{\"jsonrpc\":\"2.0\",\"id\":" + id
+                    + ",\"result\":\"0x" + Long.toHexString(id) + "\"}";
+        }
+    }
+}
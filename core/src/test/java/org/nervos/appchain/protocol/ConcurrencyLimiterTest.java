@@ -0,0 +1,189 @@
+package org.nervos.appchain.protocol;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import org.nervos.appchain.protocol.core.methods.response.AppBlockNumber;
+import org.nervos.appchain.protocol.exceptions.ConcurrencyLimitExceededException;
+import org.nervos.appchain.utils.Async;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class ConcurrencyLimiterTest {
+
+    @Test
+    public void testLimitIncreasesAndBacksOff() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(4, 8, 0);
+        for (int i = 0; i < 3; i++) {
+            limiter.acquire();
+        }
+        for (int i = 0; i < 100; i++) {
+            limiter.acquire();
+            limiter.release(1000, true);
+        }
+        assertThat(limiter.getLimit(), is(8));
+
+        // a failure backs off, but not again for the three requests which were in flight
+        limiter.acquire();
+        limiter.release(1000, false);
+        assertThat(limiter.getLimit(), is(7));
+        for (int i = 0; i < 3; i++) {
+            limiter.acquire();
+            limiter.release(1000, false);
+        }
+        assertThat(limiter.getLimit(), is(7));
+        limiter.acquire();
+        limiter.release(1000, false);
+        assertThat(limiter.getLimit(), is(6));
+        assertThat(limiter.getInFlight(), is(3));
+    }
+
+    @Test
+    public void testMixedLatenciesDoNotBackOff() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(4, 8, 0);
+        for (int i = 0; i < 3; i++) {
+            limiter.acquire();
+        }
+        // cheap and expensive methods, ten times slower, in equal parts
+        for (int i = 0; i < 1000; i++) {
+            limiter.acquire();
+            limiter.release(i % 2 == 0 ? 1000000 : 10000000, true);
+        }
+        assertThat(limiter.getLimit(), is(8));
+    }
+
+    @Test
+    public void testLatencyIncreaseBacksOff() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(8, 8, 0);
+        for (int i = 0; i < 3; i++) {
+            limiter.acquire();
+        }
+        for (int i = 0; i < 200; i++) {
+            limiter.acquire();
+            limiter.release(1000000, true);
+        }
+        assertThat(limiter.getLimit(), is(8));
+
+        // a single slow response is not enough, and a sustained rise backs off once for the
+        // requests in flight
+        limiter.acquire();
+        limiter.release(5000000, true);
+        assertThat(limiter.getLimit(), is(8));
+        for (int i = 0; i < 5; i++) {
+            limiter.acquire();
+            limiter.release(5000000, true);
+        }
+        assertThat(limiter.getLimit(), is(7));
+    }
+
+    @Test
+    public void testQueuesAndRejectsExcessRequests() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 1, 1);
+        limiter.acquire();
+
+        Future<String> queued = limiter.submit(new Callable<String>() {
+            @Override
+            public String call() {
+                return "queued";
+            }
+        });
+        Future<String> rejected = limiter.submit(new Callable<String>() {
+            @Override
+            public String call() {
+                return "rejected";
+            }
+        });
+        assertThat(limiter.getQueueDepth(), is(1));
+        assertThat(limiter.getRejectedCount(), is(1L));
+        try {
+            rejected.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), instanceOf(ConcurrencyLimitExceededException.class));
+        }
+
+        limiter.release(1000, true);
+        assertThat(queued.get(1, TimeUnit.SECONDS), is("queued"));
+        assertThat(limiter.getQueueDepth(), is(0));
+    }
+
+    @Test
+    public void testAcquireWaitsForRelease() throws Exception {
+        final ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 1, 1);
+        limiter.acquire();
+
+        Future<Void> waiting = Async.run(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                limiter.acquire();
+                return null;
+            }
+        });
+        while (limiter.getQueueDepth() == 0) {
+            Thread.sleep(1);
+        }
+        assertThat(waiting.isDone(), is(false));
+
+        limiter.release(1000, true);
+        waiting.get(1, TimeUnit.SECONDS);
+        assertThat(limiter.getInFlight(), is(1));
+    }
+
+    @Test
+    public void testServiceRejectsRequestsOverLimit() throws Exception {
+        BlockingService service = new BlockingService();
+        service.setConcurrencyLimiter(new ConcurrencyLimiter(1, 1, 0));
+        AppChainj appChainj = AppChainjFactory.build(service);
+
+        Future<AppBlockNumber> first = appChainj.appBlockNumber().sendAsync();
+        service.started.await(1, TimeUnit.SECONDS);
+        try {
+            appChainj.appBlockNumber().send();
+            fail();
+        } catch (ConcurrencyLimitExceededException e) {
+            assertThat(service.getConcurrencyLimiter().getRejectedCount(), is(1L));
+        }
+
+        service.release.countDown();
+        assertThat(first.get(1, TimeUnit.SECONDS).getBlockNumber(), is(BigInteger.ONE));
+        assertThat(service.getConcurrencyLimiter().getInFlight(), is(0));
+    }
+
+    /**
+     * Service whose responses wait until released.
+     */
+    private static class BlockingService extends Service {
+
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        BlockingService() {
+            super(false);
+        }
+
+        @Override
+        protected InputStream performIO(String payload) throws IOException {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            long id = objectMapper.readTree(payload).get("id").asLong();
+            return new ByteArrayInputStream(
+                    ("{\"jsonrpc\":\"2.0\",\"id\":" + id + ",\"result\":\"0x1\"}").getBytes());
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package org.nervos.appchain.protocol;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.nervos.appchain.protocol.core.Request;
+import org.nervos.appchain.protocol.core.methods.response.AppBlockNumber;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class HedgingServiceTest {
+
+    private ScheduledExecutorService scheduledExecutorService;
+
+    @Before
+    public void setUp() {
+        scheduledExecutorService = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        scheduledExecutorService.shutdownNow();
+    }
+
+    @Test
+    public void testHedgeWinsOverSlowRequest() throws Exception {
+        StubNode slow = new StubNode(2000);
+        StubNode fast = new StubNode(0);
+        HedgingService hedgingService = new HedgingService(
+                Arrays.asList(slow, fast), 0.95, 1, 20, scheduledExecutorService);
+        AppChainj appChainj = AppChainjFactory.build(hedgingService);
+
+        long start = System.nanoTime();
+        assertThat(appChainj.appBlockNumber().send().getBlockNumber(), is(BigInteger.TEN));
+        assertThat(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(1000), is(true));
+
+        assertThat(slow.requests.get(), is(1));
+        assertThat(fast.requests.get(), is(1));
+        assertThat(hedgingService.getMetrics().getHedges(), is(1L));
+        assertThat(hedgingService.getMetrics().getHedgesWon(), is(1L));
+    }
+
+    @Test
+    public void testHedgeIsCopyWithOwnId() throws Exception {
+        StubNode slow = new StubNode(2000);
+        StubNode fast = new StubNode(0);
+        HedgingService hedgingService = new HedgingService(
+                Arrays.asList(slow, fast), 0.95, 1, 20, scheduledExecutorService);
+        AppChainj appChainj = AppChainjFactory.build(hedgingService);
+
+        Request<?, AppBlockNumber> request = appChainj.appBlockNumber();
+        AppBlockNumber response = request.send();
+        assertThat(slow.ids.get(0), is(request.getId()));
+        assertThat(fast.ids.get(0) != request.getId(), is(true));
+        assertThat(response.getId(), is(request.getId()));
+    }
+
+    @Test
+    public void testHedgeTimerIsCancelledOnCompletion() throws Exception {
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1);
+        timer.setRemoveOnCancelPolicy(true);
+        StubNode node = new StubNode(0);
+        HedgingService hedgingService = new HedgingService(
+                Collections.singletonList(node), 0.95, 1, 10000, timer);
+        try {
+            AppChainjFactory.build(hedgingService).appBlockNumber().send();
+            // listeners run just after waiting callers are released
+            long deadline = System.currentTimeMillis() + 5000;
+            while (!timer.getQueue().isEmpty() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(1);
+            }
+            assertThat(timer.getQueue().isEmpty(), is(true));
+            assertThat(hedgingService.getMetrics().getHedges(), is(0L));
+        } finally {
+            timer.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testHedgesAreLimitedByBudget() throws Exception {
+        StubNode node = new StubNode(0);
+        HedgingService hedgingService = new HedgingService(
+                Collections.singletonList(node), 0.95, 0.1, 1, scheduledExecutorService);
+        // every request is answered only once it was either hedged or denied
+        node.decisions = hedgingService.getMetrics();
+        AppChainj appChainj = AppChainjFactory.build(hedgingService);
+
+        for (int i = 0; i < 20; i++) {
+            appChainj.appBlockNumber().send();
+        }
+        // one hedge up front, then one for every ten requests
+        HedgingService.Metrics metrics = hedgingService.getMetrics();
+        assertThat(metrics.getRequests(), is(20L));
+        assertThat(metrics.getHedges() <= 3, is(true));
+        assertThat(metrics.getHedges() + metrics.getDenied(), is(20L));
+    }
+
+    @Test
+    public void testTransactionsAreNotHedged() throws Exception {
+        StubNode slow = new StubNode(100);
+        StubNode fast = new StubNode(0);
+        HedgingService hedgingService = new HedgingService(
+                Arrays.asList(slow, fast), 0.95, 1, 1, scheduledExecutorService);
+        AppChainj appChainj = AppChainjFactory.build(hedgingService);
+
+        appChainj.appSendRawTransaction("0x01").send();
+        assertThat(slow.requests.get(), is(1));
+        assertThat(fast.requests.get(), is(0));
+        assertThat(hedgingService.getMetrics().getHedges(), is(0L));
+    }
+
+    @Test
+    public void testFailsWhenAllAttemptsFail() throws Exception {
+        StubNode first = new StubNode(100);
+        StubNode second = new StubNode(0);
+        first.down = true;
+        second.down = true;
+        HedgingService hedgingService = new HedgingService(
+                Arrays.asList(first, second), 0.95, 1, 1, scheduledExecutorService);
+        AppChainj appChainj = AppChainjFactory.build(hedgingService);
+
+        try {
+            appChainj.appBlockNumber().send();
+            fail();
+        } catch (IOException e) {
+            assertThat(e.getMessage(), is("Node unavailable"));
+        }
+        assertThat(first.requests.get() + second.requests.get(), is(2));
+    }
+
+    /**
+     * In-process node answering every request after a delay, and after the hedging decision
+     * for every request received when {@code decisions} is set.
+     */
+    private static class StubNode extends Service {
+
+        private final AtomicInteger requests = new AtomicInteger();
+        private final List<Long> ids = new CopyOnWriteArrayList<>();
+        private final long delayMillis;
+        private volatile boolean down;
+        private volatile HedgingService.Metrics decisions;
+
+        StubNode(long delayMillis) {
+            super(false);
+            this.delayMillis = delayMillis;
+        }
+
+        @Override
+        protected InputStream performIO(String payload) throws IOException {
+            requests.incrementAndGet();
+            ids.add(objectMapper.readTree(payload).get("id").asLong());
+            try {
+                Thread.sleep(delayMillis);
+                long deadline = System.currentTimeMillis() + 5000;
+                while (decisions != null
+                        && decisions.getHedges() + decisions.getDenied() < decisions.getRequests()
+                        && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(1);
+                }
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            if (down) {
+                throw new IOException("Node unavailable");
+            }
+            JsonNode request = objectMapper.readTree(payload);
+            String result = request.get("method").asText().equals("sendRawTransaction")
+                    ? "{\"hash\":\"0x01\",\"status\":\"OK\"}" : "\"0xa\"";
+            return new ByteArrayInputStream(("{\"jsonrpc\":\"2.0\",\"id\":"
+                    + request.get("id").asLong() + ",\"result\":" + result + "}").getBytes());
+        }
+    }
+}
@@ -10,6 +10,7 @@ import org.junit.Before;
 
 import org.nervos.appchain.protocol.core.Request;
 import org.nervos.appchain.protocol.core.Response;
+import org.nervos.appchain.protocol.deserializer.ResponseStreamer;
 import org.nervos.appchain.protocol.http.HttpService;
 
 import static org.junit.Assert.fail;
@@ -51,6 +52,16 @@ public abstract class ResponseTester {
         return response;
     }
 
+    protected <T extends Response> T streamResponse(ResponseStreamer<T> responseStreamer) {
+        T response = null;
+        try {
+            response = web3jService.send(new Request(), responseStreamer);
+        } catch (IOException e) {
+            fail(e.getMessage());
+        }
+        return response;
+    }
+
     private class ResponseInterceptor implements Interceptor {
 
         private String jsonResponse;
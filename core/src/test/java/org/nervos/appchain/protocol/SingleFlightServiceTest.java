@@ -0,0 +1,185 @@
+package org.nervos.appchain.protocol;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.nervos.appchain.protocol.core.methods.response.AppBlockNumber;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class SingleFlightServiceTest {
+
+    private static final int CALLERS = 8;
+
+    private StubService stubService;
+    private SingleFlightService singleFlightService;
+    private AppChainj appChainj;
+    private ExecutorService executorService;
+
+    @Before
+    public void setUp() {
+        stubService = new StubService();
+        singleFlightService = new SingleFlightService(stubService);
+        appChainj = AppChainjFactory.build(singleFlightService);
+        executorService = Executors.newFixedThreadPool(CALLERS);
+    }
+
+    @After
+    public void tearDown() {
+        stubService.release.countDown();
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void testConcurrentIdenticalRequestsShareOneCall() throws Exception {
+        List<Future<AppBlockNumber>> futures = sendConcurrently();
+        stubService.release.countDown();
+
+        AppBlockNumber first = futures.get(0).get(5, TimeUnit.SECONDS);
+        for (Future<AppBlockNumber> future : futures) {
+            assertThat(future.get(5, TimeUnit.SECONDS), sameInstance(first));
+        }
+        assertThat(stubService.payloads.size(), is(1));
+        assertThat(singleFlightService.getMetrics().getSent(), is(1L));
+        assertThat(singleFlightService.getMetrics().getShared(), is((long) CALLERS - 1));
+
+        // completed calls are not reused
+        appChainj.appBlockNumber().send();
+        assertThat(stubService.payloads.size(), is(2));
+    }
+
+    @Test
+    public void testAsyncRequestsShareOneCall() throws Exception {
+        List<Future<AppBlockNumber>> futures = sendConcurrently();
+        Future<AppBlockNumber> async = appChainj.appBlockNumber().sendAsync();
+        stubService.release.countDown();
+
+        assertThat(async.get(5, TimeUnit.SECONDS),
+                sameInstance(futures.get(0).get(5, TimeUnit.SECONDS)));
+        assertThat(stubService.payloads.size(), is(1));
+    }
+
+    @Test
+    public void testCompletedAsyncRequestsAreRemovedWithoutBeingRead() throws Exception {
+        appChainj.appBlockNumber().sendAsync();
+        appChainj.appBlockNumber().sendAsync();
+        assertThat(stubService.received.await(5, TimeUnit.SECONDS), is(true));
+        assertThat(singleFlightService.getInFlightCount(), is(1));
+
+        stubService.release.countDown();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (singleFlightService.getInFlightCount() > 0
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(singleFlightService.getInFlightCount(), is(0));
+
+        appChainj.appBlockNumber().sendAsync().get(5, TimeUnit.SECONDS);
+        assertThat(stubService.payloads.size(), is(2));
+    }
+
+    @Test
+    public void testFailureIsShared() throws Exception {
+        stubService.fail = true;
+        List<Future<AppBlockNumber>> futures = sendConcurrently();
+        stubService.release.countDown();
+
+        for (Future<AppBlockNumber> future : futures) {
+            try {
+                future.get(5, TimeUnit.SECONDS);
+                fail();
+            } catch (ExecutionException e) {
+                assertThat(e.getCause(), instanceOf(IOException.class));
+            }
+        }
+        assertThat(stubService.payloads.size(), is(1));
+    }
+
+    @Test
+    public void testRequestsWithSideEffectsAreNotShared() throws Exception {
+        stubService.release.countDown();
+        appChainj.appNewBlockFilter().send();
+        appChainj.appNewBlockFilter().send();
+
+        assertThat(stubService.payloads.size(), is(2));
+        assertThat(singleFlightService.getMetrics().getSent(), is(0L));
+    }
+
+    /**
+     * Send a blockNumber request from every caller while the first one is held by the node.
+     */
+    private List<Future<AppBlockNumber>> sendConcurrently() throws Exception {
+        List<Future<AppBlockNumber>> futures = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            futures.add(executorService.submit(new Callable<AppBlockNumber>() {
+                @Override
+                public AppBlockNumber call() throws Exception {
+                    return appChainj.appBlockNumber().send();
+                }
+            }));
+            if (i == 0) {
+                assertThat(stubService.received.await(5, TimeUnit.SECONDS), is(true));
+            }
+        }
+        long deadline = System.currentTimeMillis() + 5000;
+        while (singleFlightService.getMetrics().getShared() < CALLERS - 1
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        return futures;
+    }
+
+    /**
+     * Holds every request until released, then answers it with its own id.
+     */
+    private static class StubService extends Service {
+
+        private final List<String> payloads = new ArrayList<>();
+        private final CountDownLatch received = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private volatile boolean fail;
+
+        StubService() {
+            super(false);
+        }
+
+        @Override
+        protected InputStream performIO(String payload) throws IOException {
+            synchronized (payloads) {
+                payloads.add(payload);
+            }
+            received.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            if (fail) {
+                throw new IOException("Node unavailable");
+            }
+
+            long id = objectMapper.readTree(payload).get("id").asLong();
+            String result = "{\"jsonrpc\":\"2.0\",\"id\":" + id
+                    + ",\"result\":\"0x" + Long.toHexString(id) + "\"}";
+            return new ByteArrayInputStream(result.getBytes());
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package org.nervos.appchain.protocol.cache;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.nervos.appchain.protocol.core.methods.response.AppBlock;
+import org.nervos.appchain.utils.Numeric;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class BlockStoreTest {
+
+    // small enough for a few blocks per segment
+    private static final int SEGMENT_SIZE = 4096;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File file;
+    private BlockStore blockStore;
+
+    @Before
+    public void setUp() throws Exception {
+        file = new File(temporaryFolder.getRoot(), "blocks.dat");
+        blockStore = new BlockStore(file, SEGMENT_SIZE);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        blockStore.close();
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        AppBlock.Block full = createBlock(7, true);
+        AppBlock.Block hashesOnly = createBlock(7, false);
+
+        assertTrue(blockStore.put(full, true));
+        assertTrue(blockStore.put(hashesOnly, false));
+        assertFalse(blockStore.put(full, true));
+
+        assertThat(blockStore.get(7, true), equalTo(full));
+        assertThat(blockStore.get(7, false), equalTo(hashesOnly));
+        assertThat(blockStore.getByHash(full.getHash().toUpperCase().replace("0X", "0x"), true),
+                equalTo(full));
+        assertThat(blockStore.get(8, true), nullValue());
+        assertThat(blockStore.size(), equalTo(2));
+    }
+
+    @Test
+    public void testSpansSegmentsAndReopens() throws Exception {
+        List<AppBlock.Block> blocks = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            AppBlock.Block block = createBlock(i, true);
+            blocks.add(block);
+            assertTrue(blockStore.put(block, true));
+        }
+        assertTrue(file.length() > SEGMENT_SIZE);
+
+        blockStore.close();
+        blockStore = new BlockStore(file, SEGMENT_SIZE);
+
+        assertThat(blockStore.size(), equalTo(50));
+        for (AppBlock.Block block : blocks) {
+            long blockNumber = block.getHeader().getNumberDec().longValue();
+            assertThat(blockStore.get(blockNumber, true), equalTo(block));
+        }
+
+        // appends continue after the existing records
+        assertTrue(blockStore.put(createBlock(50, true), true));
+        assertThat(blockStore.get(50, true), equalTo(createBlock(50, true)));
+        assertThat(blockStore.get(49, true), equalTo(blocks.get(49)));
+    }
+
+    @Test
+    public void testIncompleteRecordIsIgnoredOnReopen() throws Exception {
+        blockStore.put(createBlock(1, true), true);
+        blockStore.close();
+
+        // a record whose length was never written, as after a crash during an append
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            long end = findEnd(randomAccessFile, 0);
+            randomAccessFile.seek(end + 8);
+            randomAccessFile.writeLong(2);
+        }
+
+        blockStore = new BlockStore(file, SEGMENT_SIZE);
+        assertThat(blockStore.size(), equalTo(1));
+        assertTrue(blockStore.put(createBlock(2, true), true));
+        assertThat(blockStore.get(2, true), equalTo(createBlock(2, true)));
+    }
+
+    @Test
+    public void testCorruptRecordIsIgnoredOnReopen() throws Exception {
+        blockStore.put(createBlock(1, true), true);
+        blockStore.put(createBlock(2, true), true);
+        blockStore.close();
+
+        // the length of the second record reached the disk, but not all of its payload
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            long end = findEnd(randomAccessFile, findEnd(randomAccessFile, 0));
+            randomAccessFile.seek(end - 1);
+            randomAccessFile.write(0);
+        }
+
+        blockStore = new BlockStore(file, SEGMENT_SIZE);
+        assertThat(blockStore.size(), equalTo(1));
+        assertThat(blockStore.get(2, true), nullValue());
+        assertTrue(blockStore.put(createBlock(3, true), true));
+
+        blockStore.close();
+        blockStore = new BlockStore(file, SEGMENT_SIZE);
+        assertThat(blockStore.size(), equalTo(2));
+        assertThat(blockStore.get(3, true), equalTo(createBlock(3, true)));
+    }
+
+    @Test
+    public void testMissingTimestampRoundTrip() throws Exception {
+        AppBlock.Block block = createBlock(4, false);
+        AppBlock.Header header = block.getHeader();
+        AppBlock.Header withoutTimestamp = new AppBlock.Header();
+        withoutTimestamp.setPrevHash(header.getPrevHash());
+        withoutTimestamp.setNumber(header.getNumber());
+        withoutTimestamp.setStateRoot(header.getStateRoot());
+        withoutTimestamp.setTransactionsRoot(header.getTransactionsRoot());
+        withoutTimestamp.setReceiptsRoot(header.getReceiptsRoot());
+        withoutTimestamp.setGasUsed(header.getGasUsed());
+        withoutTimestamp.setProof(header.getProof());
+        block.setHeader(withoutTimestamp);
+
+        assertTrue(blockStore.put(block, false));
+        assertThat(blockStore.get(4, false).getHeader().getTimestamp(), nullValue());
+        assertThat(blockStore.get(4, false), equalTo(block));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testReadAfterCloseFails() throws Exception {
+        blockStore.put(createBlock(5, true), true);
+        blockStore.close();
+        blockStore.get(5, true);
+    }
+
+    @Test
+    public void testBlockLargerThanSegmentIsNotStored() throws Exception {
+        AppBlock.Block block = createBlock(3, true);
+        StringBuilder content = new StringBuilder("0x");
+        for (int i = 0; i < SEGMENT_SIZE; i++) {
+            content.append("ab");
+        }
+        block.getBody().getTransactions().get(0).setContent(content.toString());
+
+        assertFalse(blockStore.put(block, true));
+        assertFalse(blockStore.contains(3, true));
+    }
+
+    @Test
+    public void testConcurrentAppendsAndReads() throws Exception {
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        List<Future<Void>> futures = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            final int thread = t;
+            futures.add(executorService.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    for (int i = thread; i < 200; i += 4) {
+                        AppBlock.Block block = createBlock(i, true);
+                        blockStore.put(block, true);
+                        assertThat(blockStore.get(i, true), equalTo(block));
+                    }
+                    return null;
+                }
+            }));
+        }
+        for (Future<Void> future : futures) {
+            future.get();
+        }
+        executorService.shutdown();
+
+        assertThat(blockStore.size(), equalTo(200));
+    }
+
+    private static long findEnd(RandomAccessFile randomAccessFile, long position)
+            throws Exception {
+        randomAccessFile.seek(position);
+        int length = randomAccessFile.readInt();
+        randomAccessFile.seek(position + 17);
+        int hashLength = randomAccessFile.readUnsignedByte();
+        return position + 18 + hashLength + length;
+    }
+
+    static AppBlock.Block createBlock(long number, boolean fullTransactionObjects) {
+        AppBlock.TendermintCommit[] commits = {
+                new AppBlock.TendermintCommit(
+                        "0x486bb688c8d29056bd7f87c26733048b0a6abda6",
+                        "0x0fc60edaff5f00329e088750119e92af8940e9612d1dbf3ce4158e721faaff59")
+        };
+        AppBlock.Tendermint tendermint = new AppBlock.Tendermint(
+                "0xe1b9bba13cb64a920c04f3abc2ea0a98d2db4fb65d233df3afc31c5321bb6054",
+                String.valueOf(number), "0", commits);
+        AppBlock.Header header = new AppBlock.Header(
+                1533101297835L + number,
+                hash("0x41", number - 1),
+                Numeric.encodeQuantity(BigInteger.valueOf(number)),
+                hash("0x60", number),
+                hash("0x62", number),
+                hash("0x91", number),
+                "0x132bd",
+                new AppBlock.Proof(tendermint));
+
+        List<AppBlock.TransactionObject> transactions = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            AppBlock.TransactionObject transaction = new AppBlock.TransactionObject();
+            transaction.setHash(hash("0xab" + i, number));
+            if (fullTransactionObjects) {
+                transaction.setContent("0x0aad010a28396638643963376333366166323365616562303230");
+            }
+            transactions.add(transaction);
+        }
+
+        return new AppBlock.Block(
+                "0", hash("0xda", number), header, new AppBlock.Body(transactions));
+    }
+
+    private static String hash(String prefix, long number) {
+        String suffix = Long.toHexString(number);
+        StringBuilder hash = new StringBuilder(prefix);
+        while (hash.length() + suffix.length() < 66) {
+            hash.append('e');
+        }
+        return hash.append(suffix).toString();
+    }
+}
@@ -0,0 +1,164 @@
+package org.nervos.appchain.protocol.cache;
+
+import java.io.File;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import org.nervos.appchain.protocol.AppChainj;
+import org.nervos.appchain.protocol.AppChainjFactory;
+import org.nervos.appchain.protocol.AppChainjService;
+import org.nervos.appchain.protocol.core.BatchRequest;
+import org.nervos.appchain.protocol.core.DefaultBlockParameterName;
+import org.nervos.appchain.protocol.core.Request;
+import org.nervos.appchain.protocol.core.methods.response.AppBlock;
+import org.nervos.appchain.utils.Numeric;
+import rx.observers.TestSubscriber;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.nervos.appchain.protocol.core.BlockParameters.number;
+
+public class CachingAppChainjTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private AppChainjService appChainjService;
+    private AppChainj appChainj;
+    private BlockStore blockStore;
+    private AtomicInteger nodeRequests;
+
+    @Before
+    public void setUp() throws Exception {
+        appChainjService = mock(AppChainjService.class);
+        appChainj = AppChainjFactory.build(
+                appChainjService, 1000, Executors.newSingleThreadScheduledExecutor());
+        blockStore = new BlockStore(new File(temporaryFolder.getRoot(), "blocks.dat"), 4096);
+        nodeRequests = new AtomicInteger();
+
+        // replays fall back to one request per block
+        doReturn(null).when(appChainjService).sendBatch(any(BatchRequest.class));
+        when(appChainjService.send(any(Request.class), eq(AppBlock.class))).thenAnswer(
+                new Answer<AppBlock>() {
+                    @Override
+                    public AppBlock answer(InvocationOnMock invocation) {
+                        nodeRequests.incrementAndGet();
+                        Request<?, ?> request = (Request<?, ?>) invocation.getArguments()[0];
+                        Object param = request.getParams().get(0);
+                        boolean full = (Boolean) request.getParams().get(1);
+                        long blockNumber = param.equals("latest")
+                                ? 100 : Numeric.decodeQuantity((String) param).longValue();
+                        AppBlock appBlock = new AppBlock();
+                        appBlock.setResult(BlockStoreTest.createBlock(blockNumber, full));
+                        return appBlock;
+                    }
+                });
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        blockStore.close();
+    }
+
+    @Test
+    public void testBlockByNumberIsCachedInMemory() throws Exception {
+        CachingAppChainj cachingAppChainj = new CachingAppChainj(appChainj);
+
+        AppBlock first = cachingAppChainj.appGetBlockByNumber(number(5), true).send();
+        AppBlock second = cachingAppChainj.appGetBlockByNumber(number(5), true).send();
+        AppBlock byHash = cachingAppChainj.appGetBlockByHash(
+                first.getBlock().getHash(), true).send();
+
+        assertThat(second, sameInstance(first));
+        assertThat(byHash, sameInstance(first));
+        assertThat(nodeRequests.get(), equalTo(1));
+
+        // hash only blocks are cached separately
+        cachingAppChainj.appGetBlockByNumber(number(5), false).send();
+        assertThat(nodeRequests.get(), equalTo(2));
+        assertThat(cachingAppChainj.getMetrics().getMemoryHits(), equalTo(2L));
+        assertThat(cachingAppChainj.getMetrics().getMisses(), equalTo(2L));
+    }
+
+    @Test
+    public void testLatestIsNotCached() throws Exception {
+        CachingAppChainj cachingAppChainj = new CachingAppChainj(appChainj);
+
+        cachingAppChainj.appGetBlockByNumber(DefaultBlockParameterName.LATEST, false).send();
+        cachingAppChainj.appGetBlockByNumber(DefaultBlockParameterName.LATEST, false).send();
+        assertThat(nodeRequests.get(), equalTo(2));
+    }
+
+    @Test
+    public void testEvictedBlocksAreServedFromStore() throws Exception {
+        CachingAppChainj cachingAppChainj =
+                new CachingAppChainj(appChainj, new BlockCache(2), blockStore);
+
+        AppBlock first = cachingAppChainj.appGetBlockByNumber(number(1), true).send();
+        cachingAppChainj.appGetBlockByNumber(number(2), true).send();
+        cachingAppChainj.appGetBlockByNumber(number(3), true).send();
+
+        AppBlock again = cachingAppChainj.appGetBlockByNumber(number(1), true).sendAsync().get();
+        assertThat(again.getBlock(), equalTo(first.getBlock()));
+        assertThat(nodeRequests.get(), equalTo(3));
+        assertThat(cachingAppChainj.getMetrics().getStoreHits(), equalTo(1L));
+    }
+
+    @Test
+    public void testReplayServedLocallyOnceFetched() throws Exception {
+        CachingAppChainj cachingAppChainj =
+                new CachingAppChainj(appChainj, new BlockCache(4), blockStore);
+
+        List<AppBlock> fromNode = replay(cachingAppChainj, 10, 29, true);
+        assertThat(nodeRequests.get(), equalTo(20));
+
+        List<AppBlock> fromCache = replay(cachingAppChainj, 10, 29, true);
+        assertThat(nodeRequests.get(), equalTo(20));
+        assertThat(blocks(fromCache), equalTo(blocks(fromNode)));
+
+        List<AppBlock> descending = replay(cachingAppChainj, 15, 20, false);
+        assertThat(descending.get(0).getBlock().getHeader().getNumberDec(),
+                equalTo(BigInteger.valueOf(20)));
+        assertThat(descending.size(), equalTo(6));
+
+        // partially present ranges go to the node
+        replay(cachingAppChainj, 25, 34, true);
+        assertThat(nodeRequests.get(), equalTo(30));
+    }
+
+    private List<AppBlock> replay(
+            AppChainj appChainj, long from, long to, boolean ascending) {
+        TestSubscriber<AppBlock> subscriber = new TestSubscriber<>();
+        appChainj.replayBlocksObservable(number(from), number(to), true, ascending)
+                .subscribe(subscriber);
+        subscriber.awaitTerminalEvent();
+        subscriber.assertNoErrors();
+        return subscriber.getOnNextEvents();
+    }
+
+    private static List<AppBlock.Block> blocks(List<AppBlock> appBlocks) {
+        List<AppBlock.Block> blocks = new ArrayList<>(appBlocks.size());
+        for (AppBlock appBlock : appBlocks) {
+            blocks.add(appBlock.getBlock());
+        }
+        return blocks;
+    }
+
+}
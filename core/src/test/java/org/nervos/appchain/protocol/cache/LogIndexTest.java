@@ -0,0 +1,331 @@
+package org.nervos.appchain.protocol.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import org.nervos.appchain.protocol.AppChainj;
+import org.nervos.appchain.protocol.AppChainjFactory;
+import org.nervos.appchain.protocol.AppChainjService;
+import org.nervos.appchain.protocol.core.DefaultBlockParameterName;
+import org.nervos.appchain.protocol.core.Request;
+import org.nervos.appchain.protocol.core.methods.request.AppFilter;
+import org.nervos.appchain.protocol.core.methods.response.AppBlock;
+import org.nervos.appchain.protocol.core.methods.response.AppBlockNumber;
+import org.nervos.appchain.protocol.core.methods.response.AppLog;
+import org.nervos.appchain.protocol.core.methods.response.Log;
+import org.nervos.appchain.utils.Numeric;
+import rx.subjects.PublishSubject;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.nervos.appchain.protocol.core.BlockParameters.number;
+
+public class LogIndexTest {
+
+    private static final String TOKEN = "0x1000000000000000000000000000000000000001";
+    private static final String EXCHANGE = "0x2000000000000000000000000000000000000002";
+    private static final String TRANSFER =
+            "0xddf252ad1be2c89b69c2b068fc378daa952ba7f163c4a11628f55a4df523b3ef";
+    private static final String APPROVAL =
+            "0x8c5be1e5ebec7d5bd14f71427d1e84f3dd0314c0f7b2291e5b200ac8c7c3b925";
+    private static final String ALICE =
+            "0x000000000000000000000000aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private AppChainj appChainj;
+    private File directory;
+    private LogIndex logIndex;
+    private AtomicInteger nodeRequests;
+    private AtomicLong nodeHead;
+    private AtomicLong failingBlock;
+
+    @Before
+    public void setUp() throws Exception {
+        AppChainjService appChainjService = mock(AppChainjService.class);
+        appChainj = AppChainjFactory.build(
+                appChainjService, 1000, Executors.newSingleThreadScheduledExecutor());
+        directory = temporaryFolder.newFolder("logs");
+        logIndex = new LogIndex(appChainj, directory, 4096);
+        nodeRequests = new AtomicInteger();
+        nodeHead = new AtomicLong();
+        failingBlock = new AtomicLong(-1);
+
+        when(appChainjService.send(any(Request.class), eq(AppLog.class))).thenAnswer(
+                new Answer<AppLog>() {
+                    @Override
+                    public AppLog answer(InvocationOnMock invocation) throws IOException {
+                        nodeRequests.incrementAndGet();
+                        Request<?, ?> request = (Request<?, ?>) invocation.getArguments()[0];
+                        AppFilter filter = (AppFilter) request.getParams().get(0);
+                        long from = resolve(filter.getFromBlock().getValue());
+                        long to = resolve(filter.getToBlock().getValue());
+                        if (from <= failingBlock.get() && failingBlock.get() <= to) {
+                            throw new IOException("Node unavailable");
+                        }
+                        List<AppLog.LogResult> logResults = new ArrayList<>();
+                        for (long blockNumber = from; blockNumber <= to; blockNumber++) {
+                            for (Log log : logs(blockNumber)) {
+                                if (filter.getAddress().isEmpty()
+                                        || filter.getAddress().contains(log.getAddress())) {
+                                    logResults.add(logObject(log));
+                                }
+                            }
+                        }
+                        AppLog appLog = new AppLog();
+                        appLog.setResult(logResults);
+                        return appLog;
+                    }
+                });
+        when(appChainjService.send(any(Request.class), eq(AppBlockNumber.class))).thenAnswer(
+                new Answer<AppBlockNumber>() {
+                    @Override
+                    public AppBlockNumber answer(InvocationOnMock invocation) {
+                        AppBlockNumber appBlockNumber = new AppBlockNumber();
+                        appBlockNumber.setResult(
+                                Numeric.encodeQuantity(BigInteger.valueOf(nodeHead.get())));
+                        return appBlockNumber;
+                    }
+                });
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        logIndex.close();
+    }
+
+    @Test
+    public void testFilterAnsweredLocally() throws Exception {
+        nodeHead.set(299);
+        logIndex.backfill(0, 299, 100);
+        assertThat(nodeRequests.get(), equalTo(3));
+        assertTrue(logIndex.isIndexed(0, 299));
+        assertThat(logIndex.getLogCount(), equalTo(550L));
+
+        List<Log> transfers = logIndex.getLogs(filter(10, 40, TOKEN).addSingleTopic(TRANSFER));
+        assertThat(transfers, equalTo(expected(10, 40, TOKEN, TRANSFER)));
+
+        // a null topic matches anything, addresses are case insensitive
+        List<Log> toAlice = logIndex.getLogs(filter(0, 299, EXCHANGE.toUpperCase()
+                .replace("0X", "0x")).addNullTopic().addSingleTopic(ALICE));
+        assertThat(toAlice.size(), equalTo(10));
+        for (Log log : toAlice) {
+            assertThat(log.getBlockNumber().longValue() % 30, equalTo(0L));
+        }
+
+        List<Log> either = logIndex.getLogs(new AppFilter(
+                number(0), DefaultBlockParameterName.LATEST, Collections.<String>emptyList())
+                .addOptionalTopics(TRANSFER, APPROVAL));
+        assertThat(either.size(), equalTo(550));
+        assertThat(nodeRequests.get(), equalTo(3));
+    }
+
+    @Test
+    public void testUnindexedRangeGoesToNode() throws Exception {
+        logIndex.backfill(0, 99);
+        assertThat(nodeRequests.get(), equalTo(1));
+
+        List<Log> logs = logIndex.getLogs(filter(90, 109, TOKEN));
+        assertThat(logs, equalTo(expected(90, 109, TOKEN, null)));
+        assertThat(nodeRequests.get(), equalTo(2));
+
+        // backfilling again only fetches the missing blocks
+        logIndex.backfill(0, 149, 50);
+        assertThat(nodeRequests.get(), equalTo(3));
+        assertFalse(logIndex.isIndexed(0, 150));
+    }
+
+    @Test
+    public void testReopen() throws Exception {
+        logIndex.backfill(0, 199, 20);
+        List<Log> before = logIndex.getLogs(filter(0, 199, TOKEN).addSingleTopic(APPROVAL));
+        assertThat(before.size(), equalTo(100));
+        logIndex.close();
+        assertTrue(directory.listFiles().length > 1);
+
+        logIndex = new LogIndex(appChainj, directory, 4096);
+        assertThat(logIndex.getLogCount(), equalTo(367L));
+        assertThat(logIndex.getIndexedHead(), equalTo(199L));
+        assertThat(logIndex.getLogs(filter(0, 199, TOKEN).addSingleTopic(APPROVAL)),
+                equalTo(before));
+        assertThat(nodeRequests.get(), equalTo(10));
+    }
+
+    @Test
+    public void testFollowIndexesNewBlocks() throws Exception {
+        nodeHead.set(14);
+        logIndex.backfill(0, 9);
+        PublishSubject<AppBlock> blocks = PublishSubject.create();
+        logIndex.follow(blocks);
+
+        for (long blockNumber = 10; blockNumber < 15; blockNumber++) {
+            AppBlock appBlock = new AppBlock();
+            appBlock.setResult(BlockStoreTest.createBlock(blockNumber, false));
+            blocks.onNext(appBlock);
+        }
+
+        assertThat(logIndex.getIndexedHead(), equalTo(14L));
+        assertThat(logIndex.getLogs(new AppFilter(number(5), DefaultBlockParameterName.LATEST,
+                        Arrays.asList(TOKEN))),
+                equalTo(expected(5, 14, TOKEN, null)));
+        assertThat(nodeRequests.get(), equalTo(6));
+    }
+
+    @Test
+    public void testFollowRetriesFailedBlocks() throws Exception {
+        logIndex.backfill(0, 9);
+        PublishSubject<AppBlock> blocks = PublishSubject.create();
+        logIndex.follow(blocks);
+
+        failingBlock.set(10);
+        blocks.onNext(block(10));
+        assertThat(logIndex.getIndexedHead(), equalTo(9L));
+
+        // the failed block is indexed together with the next one
+        failingBlock.set(-1);
+        blocks.onNext(block(11));
+        assertThat(logIndex.getIndexedHead(), equalTo(11L));
+        assertTrue(logIndex.isIndexed(0, 11));
+        assertFalse(blocks.hasCompleted() || blocks.hasThrowable());
+        assertTrue(blocks.hasObservers());
+    }
+
+    @Test
+    public void testLatestAheadOfIndexGoesToNode() throws Exception {
+        logIndex.backfill(0, 9);
+        nodeHead.set(20);
+
+        List<Log> logs = logIndex.getLogs(new AppFilter(
+                number(5), DefaultBlockParameterName.LATEST, Arrays.asList(TOKEN)));
+        assertThat(logs, equalTo(expected(5, 20, TOKEN, null)));
+        assertThat(nodeRequests.get(), equalTo(2));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBackfillRejectsNonPositiveChunkSize() throws Exception {
+        logIndex.backfill(0, 9, 0);
+    }
+
+    @Test
+    public void testPartiallyIngestedBlockIsCompletedOnce() throws Exception {
+        List<Log> logs = new ArrayList<>(logs(0));
+        logs.add(logs(1).get(0));
+        try {
+            // fails on the log of block 1, after the logs of block 0 have been written
+            logIndex.ingest(0, 0, logs);
+            fail();
+        } catch (IllegalArgumentException e) {
+            logIndex.close();
+        }
+
+        logIndex = new LogIndex(appChainj, directory, 4096);
+        assertFalse(logIndex.isIndexed(0, 0));
+        logIndex.ingest(0, 0, logs(0));
+        assertThat(logIndex.getLogCount(), equalTo((long) logs(0).size()));
+        assertThat(logIndex.getLogs(filter(0, 0, TOKEN)), equalTo(expected(0, 0, TOKEN, null)));
+        assertThat(nodeRequests.get(), equalTo(0));
+    }
+
+    @Test
+    public void testBitmap() {
+        BlockBitmap bitmap = new BlockBitmap();
+        for (long blockNumber = 0; blockNumber < 20000; blockNumber += 3) {
+            bitmap.add(blockNumber);
+        }
+        bitmap.add(1L << 20);
+        bitmap.add(3);
+
+        assertThat(bitmap.cardinality(), equalTo(6668L));
+        assertTrue(bitmap.contains(19998));
+        assertFalse(bitmap.contains(19999));
+        assertThat(bitmap.next(19999), equalTo(1L << 20));
+        assertThat(bitmap.next(4), equalTo(6L));
+        assertThat(bitmap.next((1L << 20) + 1), equalTo(-1L));
+    }
+
+    /**
+     * Every block has a transfer of the token, every other block an approval, and every third
+     * block a transfer from the exchange, to alice every thirtieth block.
+     */
+    private static List<Log> logs(long blockNumber) {
+        List<Log> logs = new ArrayList<>();
+        logs.add(log(blockNumber, 0, TOKEN, TRANSFER, ALICE.replace('a', 'b')));
+        if (blockNumber % 2 == 0) {
+            logs.add(log(blockNumber, 1, TOKEN, APPROVAL, ALICE));
+        }
+        if (blockNumber % 3 == 0) {
+            logs.add(log(blockNumber, 2, EXCHANGE, TRANSFER,
+                    blockNumber % 30 == 0 ? ALICE : ALICE.replace('a', 'c')));
+        }
+        return logs;
+    }
+
+    private static List<Log> expected(long from, long to, String address, String topic) {
+        List<Log> expected = new ArrayList<>();
+        for (long blockNumber = from; blockNumber <= to; blockNumber++) {
+            for (Log log : logs(blockNumber)) {
+                if (log.getAddress().equals(address)
+                        && (topic == null || log.getTopics().get(0).equals(topic))) {
+                    expected.add(log);
+                }
+            }
+        }
+        return expected;
+    }
+
+    private static Log log(
+            long blockNumber, int logIndex, String address, String topic, String recipient) {
+        String blockHash = Numeric.toHexStringWithPrefixZeroPadded(
+                BigInteger.valueOf(blockNumber), 64);
+        return new Log(false, Numeric.encodeQuantity(BigInteger.valueOf(logIndex)), "0x0",
+                blockHash, blockHash, Numeric.encodeQuantity(BigInteger.valueOf(blockNumber)),
+                address, "0x01", null, Arrays.asList(topic, recipient));
+    }
+
+    private static AppLog.LogObject logObject(Log log) {
+        return new AppLog.LogObject(log.isRemoved(), log.getLogIndexRaw(),
+                log.getTransactionIndexRaw(), log.getTransactionHash(), log.getBlockHash(),
+                log.getBlockNumberRaw(), log.getAddress(), log.getData(),
+                log.getTransactionLogIndex(), log.getTopics());
+    }
+
+    private static AppBlock block(long blockNumber) {
+        AppBlock appBlock = new AppBlock();
+        appBlock.setResult(BlockStoreTest.createBlock(blockNumber, false));
+        return appBlock;
+    }
+
+    private long resolve(String blockParameter) {
+        return blockParameter.equals(DefaultBlockParameterName.LATEST.getValue())
+                ? nodeHead.get() : Numeric.decodeQuantity(blockParameter).longValue();
+    }
+
+    private static AppFilter filter(long from, long to, String address) {
+        return new AppFilter(number(from), number(to), Arrays.asList(address));
+    }
+
+}
@@ -0,0 +1,117 @@
+package org.nervos.appchain.protocol.core;
+
+import java.math.BigInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.nervos.appchain.protocol.AppChainj;
+import org.nervos.appchain.protocol.AppChainjFactory;
+import org.nervos.appchain.protocol.core.methods.response.AppBlockNumber;
+import org.nervos.appchain.protocol.core.methods.response.AppGetBalance;
+import org.nervos.appchain.protocol.exceptions.ClientConnectionException;
+import org.nervos.appchain.protocol.ipc.IOFacade;
+import org.nervos.appchain.protocol.ipc.IpcService;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class BatchRequestTest {
+
+    private IOFacade ioFacade;
+    private AppChainj appChainj;
+
+    @Before
+    public void setUp() {
+        ioFacade = mock(IOFacade.class);
+        appChainj = AppChainjFactory.build(new IpcService(ioFacade));
+    }
+
+    @Test
+    public void testSendBatch() throws Exception {
+        Request<?, AppBlockNumber> blockNumber = appChainj.appBlockNumber();
+        Request<?, AppGetBalance> balance = appChainj.appGetBalance(
+                "0x407d73d8a49eeb85d32cf465507dd71d507100c1", DefaultBlockParameterName.LATEST);
+
+        // responses are deliberately out of order
+        when(ioFacade.read()).thenReturn(
+                "[{\"jsonrpc\":\"2.0\",\"id\":" + balance.getId() + ",\"result\":\"0x10\"},"
+                        + "{\"jsonrpc\":\"2.0\",\"id\":" + blockNumber.getId()
+                        + ",\"result\":\"0x4b7\"}]\n");
+
+        BatchResponse batchResponse = appChainj.newBatch()
+                .add(blockNumber)
+                .add(balance)
+                .send();
+
+        verify(ioFacade).write(
+                "[{\"jsonrpc\":\"2.0\",\"method\":\"blockNumber\",\"params\":[],\"id\":"
+                        + blockNumber.getId() + "},"
+                        + "{\"jsonrpc\":\"2.0\",\"method\":\"getBalance\",\"params\":"
+                        + "[\"0x407d73d8a49eeb85d32cf465507dd71d507100c1\",\"latest\"],\"id\":"
+                        + balance.getId() + "}]");
+
+        assertThat(batchResponse.size(), is(2));
+        assertThat(batchResponse.getResponse(blockNumber).getBlockNumber(),
+                is(BigInteger.valueOf(1207)));
+        assertThat(batchResponse.getResponse(balance).getBalance(),
+                is(BigInteger.valueOf(16)));
+        assertThat(((AppGetBalance) batchResponse.getResponse(1)).getBalance(),
+                is(BigInteger.valueOf(16)));
+    }
+
+    @Test
+    public void testSendBatchError() throws Exception {
+        Request<?, AppBlockNumber> blockNumber = appChainj.appBlockNumber();
+
+        when(ioFacade.read()).thenReturn(
+                "[{\"jsonrpc\":\"2.0\",\"id\":" + blockNumber.getId()
+                        + ",\"error\":{\"code\":-32601,\"message\":\"Method not found\"}}]\n");
+
+        BatchResponse batchResponse = appChainj.newBatch().add(blockNumber).send();
+
+        assertThat(batchResponse.getResponse(blockNumber).hasError(), is(true));
+        assertThat(batchResponse.getResponse(blockNumber).getError().getCode(), is(-32601));
+    }
+
+    @Test
+    public void testResponseIsNotChangedByLaterAdds() throws Exception {
+        Request<?, AppBlockNumber> blockNumber = appChainj.appBlockNumber();
+        when(ioFacade.read()).thenReturn(
+                "[{\"jsonrpc\":\"2.0\",\"id\":" + blockNumber.getId()
+                        + ",\"result\":\"0x4b7\"}]\n");
+
+        BatchRequest batchRequest = appChainj.newBatch().add(blockNumber);
+        BatchResponse batchResponse = batchRequest.send();
+        batchRequest.add(appChainj.appBlockNumber());
+
+        assertThat(batchResponse.getRequests().size(), is(1));
+        assertThat(batchResponse.size(), is(1));
+    }
+
+    @Test
+    public void testSendEmptyBatch() throws Exception {
+        assertThat(appChainj.newBatch().send().size(), is(0));
+    }
+
+    @Test(expected = ClientConnectionException.class)
+    public void testSendBatchMissingResponse() throws Exception {
+        Request<?, AppBlockNumber> blockNumber = appChainj.appBlockNumber();
+
+        when(ioFacade.read()).thenReturn("[]\n");
+
+        appChainj.newBatch().add(blockNumber).send();
+    }
+
+    @Test(expected = ClientConnectionException.class)
+    public void testSendBatchInvalidResponse() throws Exception {
+        when(ioFacade.read()).thenReturn(
+                "{\"jsonrpc\":\"2.0\",\"id\":null,"
+                        + "\"error\":{\"code\":-32600,\"message\":\"Invalid Request\"}}\n");
+
+        appChainj.newBatch().add(appChainj.appBlockNumber()).send();
+    }
+}
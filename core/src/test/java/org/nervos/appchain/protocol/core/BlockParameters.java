@@ -0,0 +1,13 @@
+package org.nervos.appchain.protocol.core;
+
+/**
+ * Block parameters for unit tests.
+ */
+public class BlockParameters {
+
+    public static DefaultBlockParameterNumber number(long blockNumber) {
+        return new DefaultBlockParameterNumber(blockNumber);
+    }
+
+    private BlockParameters() {}
+}
@@ -504,6 +504,28 @@ public class ResponseTest extends ResponseTester {
         assertNull(appBlock.getBlock());
     }
 
+    @Test
+    public void testEthBlockHashesOnly() {
+        buildResponse(
+                "{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":{"
+                        + "\"version\":0,\"hash\":\"0xda9e\","
+                        + "\"header\":{\"timestamp\":1533101297835,\"prevHash\":\"0x4391\","
+                        + "\"number\":\"0x3ff59\",\"stateRoot\":\"0x60fb\","
+                        + "\"transactionsRoot\":\"0x62d5\",\"receiptsRoot\":\"0x9183\","
+                        + "\"gasUsed\":\"0x132bd\",\"proof\":{\"Bft\":{\"proposal\":\"0xe1b9\","
+                        + "\"height\":261976,\"round\":0,\"commits\":{}}},"
+                        + "\"proposer\":\"0xee01\"},"
+                        + "\"body\":{\"transactions\":[\"0xab64\",\"0xcd7f\"]}}}"
+        );
+
+        List<AppBlock.TransactionObject> transactions =
+                deserialiseResponse(AppBlock.class).getBlock().getBody().getTransactions();
+        assertThat(transactions.size(), is(2));
+        assertThat(transactions.get(0).getHash(), is("0xab64"));
+        assertThat(transactions.get(1).getHash(), is("0xcd7f"));
+        assertNull(transactions.get(1).getContent());
+    }
+
     @Test
     public void testEthTransaction() {
         //CHECKSTYLE:OFF
@@ -0,0 +1,120 @@
+package org.nervos.appchain.protocol.core;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import org.nervos.appchain.protocol.ResponseTester;
+import org.nervos.appchain.protocol.core.filters.Callback;
+import org.nervos.appchain.protocol.core.methods.response.AppBlock;
+import org.nervos.appchain.protocol.core.methods.response.AppLog;
+import org.nervos.appchain.protocol.core.methods.response.Log;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class StreamingResponseTest extends ResponseTester {
+
+    private static final String BLOCK_RESPONSE = "{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":{"
+            + "\"version\":0,"
+            + "\"hash\":\"0xda9e\","
+            + "\"header\":{\"timestamp\":1533101297835,\"prevHash\":\"0x4391\","
+            + "\"number\":\"0x3ff59\",\"stateRoot\":\"0x60fb\",\"transactionsRoot\":\"0x62d5\","
+            + "\"receiptsRoot\":\"0x9183\",\"gasUsed\":\"0x132bd\","
+            + "\"proof\":{\"Bft\":{\"proposal\":\"0xe1b9\",\"height\":261976,\"round\":0,"
+            + "\"commits\":{\"0x486b\":\"0x0fc6\"}}},"
+            + "\"proposer\":\"0xee01\"},"
+            + "\"body\":{\"transactions\":["
+            + "{\"hash\":\"0xab64\",\"content\":\"0x0aad\"},"
+            + "{\"hash\":\"0xcd7f\",\"content\":\"0x0bbe\",\"unknown\":{\"nested\":[1,2]}},"
+            + "\"0xef01\""
+            + "]}}}";
+
+    @Test
+    public void testStreamBlockTransactions() {
+        buildResponse(BLOCK_RESPONSE);
+
+        final List<AppBlock.TransactionObject> transactions = new ArrayList<>();
+        AppBlock appBlock = streamResponse(new AppBlock.TransactionStreamer(
+                new Callback<AppBlock.TransactionObject>() {
+                    @Override
+                    public void onEvent(AppBlock.TransactionObject value) {
+                        transactions.add(value);
+                    }
+                }));
+
+        assertThat(transactions.size(), is(3));
+        assertThat(transactions.get(0).getHash(), is("0xab64"));
+        assertThat(transactions.get(0).getContent(), is("0x0aad"));
+        assertThat(transactions.get(1).getContent(), is("0x0bbe"));
+        assertThat(transactions.get(2).getHash(), is("0xef01"));
+        assertThat(transactions.get(2).getContent(), nullValue());
+
+        assertThat(appBlock.getId(), is(1L));
+        assertThat(appBlock.getBlock().getHash(), is("0xda9e"));
+        assertThat(appBlock.getBlock().getVersion(), is("0"));
+        assertThat(appBlock.getBlock().getHeader().getNumberDec(),
+                is(BigInteger.valueOf(0x3ff59)));
+        assertThat(appBlock.getBlock().getHeader().getProof().getTendermint()
+                .getTendermintCommits()[0].getCommit(), is("0x0fc6"));
+        assertTrue(appBlock.getBlock().getBody().getTransactions().isEmpty());
+    }
+
+    @Test
+    public void testStreamBlockNull() {
+        buildResponse("{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":null}");
+
+        AppBlock appBlock = streamResponse(new AppBlock.TransactionStreamer(
+                new Callback<AppBlock.TransactionObject>() {
+                    @Override
+                    public void onEvent(AppBlock.TransactionObject value) {
+                        throw new AssertionError();
+                    }
+                }));
+
+        assertTrue(appBlock.isEmpty());
+    }
+
+    @Test
+    public void testStreamError() {
+        buildResponse("{\"jsonrpc\":\"2.0\",\"id\":1,"
+                + "\"error\":{\"code\":-32602,\"message\":\"Invalid params\"}}");
+
+        AppLog appLog = streamResponse(new AppLog.LogStreamer(new Callback<Log>() {
+            @Override
+            public void onEvent(Log value) {
+                throw new AssertionError();
+            }
+        }));
+
+        assertTrue(appLog.hasError());
+        assertThat(appLog.getError().getCode(), is(-32602));
+    }
+
+    @Test
+    public void testStreamLogs() {
+        buildResponse("{\"id\":1,\"jsonrpc\":\"2.0\",\"result\":["
+                + "{\"removed\":false,\"logIndex\":\"0x1\",\"blockNumber\":\"0x1b4\","
+                + "\"address\":\"0x16c5\",\"data\":\"0x00\",\"topics\":[\"0x59eb\"]},"
+                + "{\"removed\":false,\"logIndex\":\"0x2\",\"blockNumber\":\"0x1b5\","
+                + "\"address\":\"0x16c5\",\"data\":\"0x01\",\"topics\":[]}"
+                + "]}");
+
+        final List<Log> logs = new ArrayList<>();
+        AppLog appLog = streamResponse(new AppLog.LogStreamer(new Callback<Log>() {
+            @Override
+            public void onEvent(Log value) {
+                logs.add(value);
+            }
+        }));
+
+        assertThat(logs.size(), is(2));
+        assertThat(logs.get(0).getTopics().get(0), is("0x59eb"));
+        assertThat(logs.get(1).getBlockNumber(), is(BigInteger.valueOf(0x1b5)));
+        assertTrue(appLog.getLogs().isEmpty());
+    }
+}
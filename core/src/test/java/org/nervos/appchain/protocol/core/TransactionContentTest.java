@@ -0,0 +1,112 @@
+package org.nervos.appchain.protocol.core;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.google.protobuf.ByteString;
+import org.junit.Test;
+
+import org.nervos.appchain.exceptions.MessageDecodingException;
+import org.nervos.appchain.protobuf.Blockchain;
+import org.nervos.appchain.protocol.core.methods.response.AppBlock;
+import org.nervos.appchain.protocol.core.methods.response.Transaction;
+import org.nervos.appchain.protocol.core.methods.response.TransactionContent;
+import org.nervos.appchain.utils.Numeric;
+import org.nervos.appchain.utils.TransactionUtil;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class TransactionContentTest {
+
+    @Test
+    public void testDecode() {
+        String content = content(7);
+        TransactionContent decoded = TransactionContent.decode(content);
+
+        assertThat(decoded.getTo(), is("0x0000000000000000000000000000000000000007"));
+        assertThat(decoded.getNonce(), is("nonce-7"));
+        assertThat(decoded.getQuota(), is(1000000L));
+        assertThat(decoded.getValidUntilBlock(), is(107L));
+        assertThat(decoded.getData(), is("a9059cbb07"));
+        assertThat(decoded.getValue(), is(BigInteger.valueOf(7000)));
+        assertThat(decoded.getChainId(), is(1));
+        assertThat(decoded.getSignature(), is("0x0102"));
+        assertThat(decoded.getCrypto(), is(Blockchain.Crypto.SECP));
+
+        // the same as reading the fields one at a time
+        assertThat(TransactionUtil.getTo(content), is(decoded.getTo()));
+        assertThat(TransactionUtil.getData(content), is(decoded.getData()));
+        assertThat(TransactionContent.decode(Numeric.cleanHexPrefix(content)).getNonce(),
+                is(decoded.getNonce()));
+    }
+
+    @Test
+    public void testDecodeContentIsCached() {
+        Transaction transaction = new Transaction("0x1", "0x2", "0x3", content(1), "0x0");
+        TransactionContent decoded = transaction.decodeContent();
+        assertThat(transaction.decodeContent(), sameInstance(decoded));
+
+        transaction.setContent(content(2));
+        assertThat(transaction.decodeContent(), not(sameInstance(decoded)));
+        assertThat(transaction.decodeContent().getNonce(), is("nonce-2"));
+    }
+
+    @Test(expected = MessageDecodingException.class)
+    public void testDecodeInvalidContent() {
+        TransactionContent.decode("0xffff");
+    }
+
+    @Test
+    public void testDecodeBlockTransactions() {
+        List<AppBlock.TransactionObject> transactions = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            transactions.add(new AppBlock.TransactionObject(
+                    "0x" + i, "0x1", "0x1", content(i), Numeric.encodeQuantity(
+                            BigInteger.valueOf(i))));
+        }
+        AppBlock.Block block = new AppBlock.Block(
+                "0", "0x1", new AppBlock.Header(), new AppBlock.Body(transactions));
+
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        try {
+            List<TransactionContent> decoded = block.decodeTransactions(executorService);
+            assertThat(decoded.size(), is(transactions.size()));
+            for (int i = 0; i < decoded.size(); i++) {
+                assertThat(decoded.get(i).getNonce(), is("nonce-" + i));
+                assertThat(transactions.get(i).decodeContent(), sameInstance(decoded.get(i)));
+            }
+        } finally {
+            executorService.shutdown();
+        }
+
+        assertThat(block.decodeTransactions().size(), is(transactions.size()));
+        assertThat(new AppBlock.Block().decodeTransactions().isEmpty(), is(true));
+    }
+
+    private static String content(int i) {
+        Blockchain.Transaction transaction = Blockchain.Transaction.newBuilder()
+                .setTo(Numeric.toHexStringWithPrefixZeroPadded(BigInteger.valueOf(i), 40))
+                .setNonce("nonce-" + i)
+                .setQuota(1000000)
+                .setValidUntilBlock(100 + i)
+                .setData(ByteString.copyFrom(new byte[] {(byte) 0xa9, 0x05, (byte) 0x9c,
+                        (byte) 0xbb, (byte) i}))
+                .setValue(ByteString.copyFrom(
+                        Numeric.toBytesPadded(BigInteger.valueOf(1000L * i), 32)))
+                .setChainId(1)
+                .build();
+        Blockchain.UnverifiedTransaction unverifiedTransaction =
+                Blockchain.UnverifiedTransaction.newBuilder()
+                        .setTransaction(transaction)
+                        .setSignature(ByteString.copyFrom(new byte[] {1, 2}))
+                        .setCrypto(Blockchain.Crypto.SECP)
+                        .build();
+        return Numeric.toHexString(unverifiedTransaction.toByteArray());
+    }
+}
@@ -1,10 +1,33 @@
 package org.nervos.appchain.protocol.http;
 
+import java.io.IOException;
+import java.math.BigInteger;
 import java.util.HashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.ResponseBody;
 import org.junit.Test;
 
+import org.nervos.appchain.protocol.AppChainj;
+import org.nervos.appchain.protocol.AppChainjFactory;
+import org.nervos.appchain.protocol.ConcurrencyLimiter;
+import org.nervos.appchain.protocol.core.BatchResponse;
+import org.nervos.appchain.protocol.core.Request;
+import org.nervos.appchain.protocol.core.methods.response.AppBlockNumber;
+import org.nervos.appchain.protocol.exceptions.ClientConnectionException;
+import org.nervos.appchain.protocol.exceptions.ConcurrencyLimitExceededException;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class HttpServiceTest {
     
@@ -36,4 +59,139 @@ public class HttpServiceTest {
         assertTrue(httpService.getHeaders().get(headerName2).equals(headerValue2));
     }
     
+    @Test
+    public void testSendAsync() throws Exception {
+        AppChainj appChainj = AppChainjFactory.build(new HttpService(buildClient(200,
+                "{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":\"0x4b7\"}")));
+
+        AppBlockNumber appBlockNumber = appChainj.appBlockNumber().sendAsync()
+                .get(5, TimeUnit.SECONDS);
+
+        assertThat(appBlockNumber.getBlockNumber(), is(BigInteger.valueOf(1207)));
+    }
+
+    @Test
+    public void testSendAsyncFailure() throws Exception {
+        AppChainj appChainj = AppChainjFactory.build(new HttpService(buildClient(500, "")));
+
+        try {
+            appChainj.appBlockNumber().sendAsync().get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), instanceOf(ClientConnectionException.class));
+        }
+    }
+
+    @Test
+    public void testSendBatchAsync() throws Exception {
+        AppChainj appChainj = AppChainjFactory.build(new HttpService(buildClient(200,
+                "[{\"jsonrpc\":\"2.0\",\"id\":0,\"result\":\"0x1\"}]")));
+        Request<?, AppBlockNumber> request = appChainj.appBlockNumber();
+        request.setId(0);
+
+        BatchResponse batchResponse = appChainj.newBatch().add(request).sendAsync()
+                .get(5, TimeUnit.SECONDS);
+
+        assertThat(batchResponse.getResponse(request).getBlockNumber(), is(BigInteger.ONE));
+    }
+
+    @Test
+    public void testSendAsyncIsLimited() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        OkHttpClient client = new OkHttpClient.Builder()
+                .addInterceptor(new Interceptor() {
+                    @Override
+                    public okhttp3.Response intercept(Chain chain) throws IOException {
+                        started.countDown();
+                        try {
+                            release.await();
+                        } catch (InterruptedException e) {
+                            throw new IOException(e);
+                        }
+                        return buildResponse(chain, 200,
+                                "{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":\"0x1\"}");
+                    }
+                })
+                .build();
+        HttpService service = new HttpService(client);
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 1, 1);
+        service.setConcurrencyLimiter(limiter);
+        AppChainj appChainj = AppChainjFactory.build(service);
+
+        Future<AppBlockNumber> first = appChainj.appBlockNumber().sendAsync();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Future<AppBlockNumber> queued = appChainj.appBlockNumber().sendAsync();
+        Future<AppBlockNumber> rejected = appChainj.appBlockNumber().sendAsync();
+
+        assertThat(limiter.getInFlight(), is(1));
+        assertThat(limiter.getQueueDepth(), is(1));
+        assertThat(service.getRunningRequestCount(), is(1));
+        try {
+            rejected.get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), instanceOf(ConcurrencyLimitExceededException.class));
+        }
+
+        release.countDown();
+        assertThat(first.get(5, TimeUnit.SECONDS).getBlockNumber(), is(BigInteger.ONE));
+        assertThat(queued.get(5, TimeUnit.SECONDS).getBlockNumber(), is(BigInteger.ONE));
+        assertThat(limiter.getInFlight(), is(0));
+    }
+
+    @Test
+    public void testErrorStatusLowersLimit() throws Exception {
+        HttpService service = new HttpService(buildClient(503, ""));
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(10, 10, 0);
+        service.setConcurrencyLimiter(limiter);
+        AppChainj appChainj = AppChainjFactory.build(service);
+
+        try {
+            appChainj.appBlockNumber().send();
+            fail();
+        } catch (ClientConnectionException e) {
+            assertThat(limiter.getLimit(), is(9));
+        }
+        try {
+            appChainj.appBlockNumber().sendAsync().get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), instanceOf(ClientConnectionException.class));
+            assertThat(limiter.getLimit(), is(8));
+        }
+    }
+
+    @Test
+    public void testDispatcherLimits() {
+        httpService.setMaxRequests(10);
+        httpService.setMaxRequestsPerHost(2);
+
+        assertThat(httpService.getMaxRequests(), is(10));
+        assertThat(httpService.getMaxRequestsPerHost(), is(2));
+        assertThat(httpService.getRunningRequestCount(), is(0));
+        assertThat(httpService.getQueuedRequestCount(), is(0));
+    }
+
+    private static OkHttpClient buildClient(final int code, final String body) {
+        return new OkHttpClient.Builder()
+                .addInterceptor(new Interceptor() {
+                    @Override
+                    public okhttp3.Response intercept(Chain chain) throws IOException {
+                        return buildResponse(chain, code, body);
+                    }
+                })
+                .build();
+    }
+
+    private static okhttp3.Response buildResponse(
+            Interceptor.Chain chain, int code, String body) {
+        return new okhttp3.Response.Builder()
+                .body(ResponseBody.create(HttpService.JSON_MEDIA_TYPE, body))
+                .request(chain.request())
+                .protocol(Protocol.HTTP_2)
+                .code(code)
+                .message("")
+                .build();
+    }
 }
@@ -0,0 +1,204 @@
+package org.nervos.appchain.protocol.rx;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import org.nervos.appchain.protocol.AppChainj;
+import org.nervos.appchain.protocol.AppChainjFactory;
+import org.nervos.appchain.protocol.AppChainjService;
+import org.nervos.appchain.protocol.core.BatchRequest;
+import org.nervos.appchain.protocol.core.BatchResponse;
+import org.nervos.appchain.protocol.core.Request;
+import org.nervos.appchain.protocol.core.Response;
+import org.nervos.appchain.protocol.core.methods.response.AppBlock;
+import org.nervos.appchain.utils.Numeric;
+import rx.Subscriber;
+import rx.observers.TestSubscriber;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class BlockReplayerTest {
+
+    private AppChainjService appChainjService;
+    private AppChainj appChainj;
+    private AtomicInteger batches;
+
+    @Before
+    public void setUp() throws Exception {
+        appChainjService = mock(AppChainjService.class);
+        appChainj = AppChainjFactory.build(
+                appChainjService, 1000, Executors.newSingleThreadScheduledExecutor());
+        batches = new AtomicInteger();
+
+        when(appChainjService.sendBatch(any(BatchRequest.class))).thenAnswer(
+                new Answer<BatchResponse>() {
+                    @Override
+                    public BatchResponse answer(InvocationOnMock invocation) throws Exception {
+                        BatchRequest batchRequest = (BatchRequest) invocation.getArguments()[0];
+                        batches.incrementAndGet();
+                        // later chunks complete first, emission order must not depend on it
+                        Thread.sleep(5 * (10 - batches.get() % 10));
+                        List<Response> responses = new ArrayList<>();
+                        for (Request<?, ? extends Response> request
+                                : batchRequest.getRequests()) {
+                            responses.add(createBlock(request));
+                        }
+                        return new BatchResponse(
+                                new ArrayList<>(batchRequest.getRequests()), responses);
+                    }
+                });
+    }
+
+    @Test
+    public void testReplayAscending() {
+        BlockReplayer blockReplayer = new BlockReplayer(appChainj, 3, 4, 4);
+        TestSubscriber<AppBlock> subscriber = new TestSubscriber<>();
+
+        blockReplayer.replay(BigInteger.valueOf(5), BigInteger.valueOf(28), false, true)
+                .subscribe(subscriber);
+
+        subscriber.assertCompleted();
+        subscriber.assertNoErrors();
+        assertThat(blockNumbers(subscriber.getOnNextEvents()), equalTo(range(5, 28, true)));
+        // 24 blocks in chunks of 3
+        assertThat(batches.get(), equalTo(8));
+        assertThat(blockReplayer.getMetrics().getBlockCount(), equalTo(24L));
+        assertThat(blockReplayer.getMetrics().getFetchCount(), equalTo(8L));
+        assertTrue(blockReplayer.getMetrics().getBlocksPerSecond() > 0);
+    }
+
+    @Test
+    public void testReplayDescending() {
+        BlockReplayer blockReplayer = new BlockReplayer(appChainj, 4, 2, 3);
+        TestSubscriber<AppBlock> subscriber = new TestSubscriber<>();
+
+        blockReplayer.replay(BigInteger.ZERO, BigInteger.valueOf(17), false, false)
+                .subscribe(subscriber);
+
+        subscriber.assertCompleted();
+        assertThat(blockNumbers(subscriber.getOnNextEvents()), equalTo(range(0, 17, false)));
+    }
+
+    @Test
+    public void testSingleBlock() throws Exception {
+        when(appChainjService.send(any(Request.class), eq(AppBlock.class)))
+                .thenReturn(createBlock(7));
+
+        TestSubscriber<AppBlock> subscriber = new TestSubscriber<>();
+        new BlockReplayer(appChainj).replay(
+                BigInteger.valueOf(7), BigInteger.valueOf(7), false, true)
+                .subscribe(subscriber);
+
+        subscriber.assertCompleted();
+        assertThat(blockNumbers(subscriber.getOnNextEvents()), equalTo(range(7, 7, true)));
+        verify(appChainjService, never()).sendBatch(any(BatchRequest.class));
+    }
+
+    @Test
+    public void testFallbackWithoutBatchResponses() throws Exception {
+        doReturn(null).when(appChainjService).sendBatch(any(BatchRequest.class));
+        when(appChainjService.send(any(Request.class), eq(AppBlock.class))).thenAnswer(
+                new Answer<AppBlock>() {
+                    @Override
+                    public AppBlock answer(InvocationOnMock invocation) {
+                        return createBlock((Request<?, ?>) invocation.getArguments()[0]);
+                    }
+                });
+
+        TestSubscriber<AppBlock> subscriber = new TestSubscriber<>();
+        new BlockReplayer(appChainj, 5, 2, 2).replay(
+                BigInteger.ONE, BigInteger.valueOf(20), false, true)
+                .subscribe(subscriber);
+
+        subscriber.assertCompleted();
+        assertThat(blockNumbers(subscriber.getOnNextEvents()), equalTo(range(1, 20, true)));
+    }
+
+    @Test
+    public void testUnsubscribeStopsReplay() {
+        BlockReplayer blockReplayer = new BlockReplayer(appChainj, 2, 1, 1);
+        final List<AppBlock> results = new ArrayList<>();
+
+        blockReplayer.replay(BigInteger.ZERO, BigInteger.valueOf(1000), false, true)
+                .subscribe(new Subscriber<AppBlock>() {
+                    @Override
+                    public void onNext(AppBlock appBlock) {
+                        results.add(appBlock);
+                        if (results.size() == 3) {
+                            unsubscribe();
+                        }
+                    }
+
+                    @Override
+                    public void onCompleted() {
+                    }
+
+                    @Override
+                    public void onError(Throwable e) {
+                    }
+                });
+
+        assertThat(results.size(), equalTo(3));
+        assertTrue(batches.get() <= 3);
+        assertTrue(blockReplayer.getMetrics().getElapsedTime(TimeUnit.NANOSECONDS) > 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPrefetchSmallerThanParallelism() {
+        new BlockReplayer(appChainj, 10, 4, 2);
+    }
+
+    private static List<BigInteger> range(int start, int end, boolean ascending) {
+        List<BigInteger> blockNumbers = new ArrayList<>();
+        for (int i = start; i <= end; i++) {
+            blockNumbers.add(BigInteger.valueOf(i));
+        }
+        if (!ascending) {
+            Collections.reverse(blockNumbers);
+        }
+        return blockNumbers;
+    }
+
+    private static List<BigInteger> blockNumbers(List<AppBlock> appBlocks) {
+        List<BigInteger> blockNumbers = new ArrayList<>(appBlocks.size());
+        for (AppBlock appBlock : appBlocks) {
+            blockNumbers.add(appBlock.getBlock().getHeader().getNumberDec());
+        }
+        return blockNumbers;
+    }
+
+    private static AppBlock createBlock(Request<?, ?> request) {
+        String blockNumber = (String) request.getParams().get(0);
+        return createBlock(Numeric.decodeQuantity(blockNumber).intValue());
+    }
+
+    private static AppBlock createBlock(int number) {
+        AppBlock appBlock = new AppBlock();
+        AppBlock.Block block = new AppBlock.Block();
+        AppBlock.Header header = new AppBlock.Header();
+        header.setNumber(Numeric.encodeQuantity(BigInteger.valueOf(number)));
+        block.setHeader(header);
+
+        appBlock.setResult(block);
+        return appBlock;
+    }
+}
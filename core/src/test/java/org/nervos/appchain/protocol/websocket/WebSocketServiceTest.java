@@ -0,0 +1,251 @@
+package org.nervos.appchain.protocol.websocket;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import okhttp3.OkHttpClient;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.nervos.appchain.protocol.AppChainj;
+import org.nervos.appchain.protocol.AppChainjFactory;
+import org.nervos.appchain.protocol.ObjectMapperFactory;
+import org.nervos.appchain.protocol.core.BatchResponse;
+import org.nervos.appchain.protocol.core.Request;
+import org.nervos.appchain.protocol.core.methods.response.AppBlock;
+import org.nervos.appchain.protocol.core.methods.response.AppBlockNumber;
+import rx.Subscriber;
+import rx.Subscription;
+import rx.functions.Action1;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class WebSocketServiceTest {
+
+    private final ObjectMapper objectMapper = ObjectMapperFactory.getObjectMapper();
+
+    private MockWebServer server;
+    private StubNode stubNode;
+    private WebSocketService webSocketService;
+    private AppChainj appChainj;
+
+    @Before
+    public void setUp() throws Exception {
+        stubNode = new StubNode();
+        server = new MockWebServer();
+        server.enqueue(new MockResponse().withWebSocketUpgrade(stubNode));
+        server.start();
+
+        webSocketService = new WebSocketService(
+                server.url("/").toString().replace("http", "ws"), new OkHttpClient(), false,
+                Executors.newSingleThreadScheduledExecutor());
+        webSocketService.connect();
+        appChainj = AppChainjFactory.build(webSocketService);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        webSocketService.close();
+        server.shutdown();
+    }
+
+    @Test
+    public void testSend() throws Exception {
+        assertThat(appChainj.appBlockNumber().send().getBlockNumber(),
+                is(BigInteger.valueOf(1207)));
+    }
+
+    @Test
+    public void testSendMultiplexed() throws Exception {
+        List<Future<AppBlockNumber>> futures = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            futures.add(appChainj.appBlockNumber().sendAsync());
+        }
+        for (Future<AppBlockNumber> future : futures) {
+            assertThat(future.get(5, TimeUnit.SECONDS).getBlockNumber(),
+                    is(BigInteger.valueOf(1207)));
+        }
+    }
+
+    @Test
+    public void testSendBatch() throws Exception {
+        Request<?, AppBlockNumber> first = appChainj.appBlockNumber();
+        Request<?, AppBlockNumber> second = appChainj.appBlockNumber();
+
+        BatchResponse batchResponse = appChainj.newBatch().add(first).add(second).send();
+
+        assertThat(batchResponse.getResponse(first).getBlockNumber(),
+                is(BigInteger.valueOf(1207)));
+        assertThat(batchResponse.getResponse(second).getBlockNumber(),
+                is(BigInteger.valueOf(1207)));
+    }
+
+    @Test(expected = IOException.class)
+    public void testSendAfterClose() throws Exception {
+        webSocketService.close();
+        appChainj.appBlockNumber().send();
+    }
+
+    @Test
+    public void testBlockHashObservableUsesSubscription() throws Exception {
+        final BlockingQueue<String> hashes = new LinkedBlockingQueue<>();
+        Subscription subscription = appChainj.appBlockHashObservable().subscribe(
+                new Action1<String>() {
+                    @Override
+                    public void call(String hash) {
+                        hashes.add(hash);
+                    }
+                });
+
+        assertThat(hashes.poll(5, TimeUnit.SECONDS), is("0x01"));
+        assertThat(hashes.poll(5, TimeUnit.SECONDS), is("0x02"));
+
+        subscription.unsubscribe();
+        assertTrue(stubNode.unsubscribed.await(5, TimeUnit.SECONDS));
+        assertThat(stubNode.methods.contains("getFilterChanges"), is(false));
+    }
+
+    @Test
+    public void testBlockObservableSendsRequestsFromNotifications() throws Exception {
+        // the block is requested from within onNext of the block hash subscription, so its
+        // reply must not depend on the thread delivering the notification
+        webSocketService.setRequestTimeout(2);
+        final BlockingQueue<Object> blocks = new LinkedBlockingQueue<>();
+        Subscription subscription = appChainj.blockObservable(false).subscribe(
+                new Action1<AppBlock>() {
+                    @Override
+                    public void call(AppBlock appBlock) {
+                        blocks.add(appBlock.getBlock().getHash());
+                    }
+                }, new Action1<Throwable>() {
+                    @Override
+                    public void call(Throwable throwable) {
+                        blocks.add(throwable);
+                    }
+                });
+
+        assertThat(blocks.poll(5, TimeUnit.SECONDS), is((Object) "0x01"));
+        assertThat(blocks.poll(5, TimeUnit.SECONDS), is((Object) "0x02"));
+        subscription.unsubscribe();
+    }
+
+    @Test
+    public void testUnsubscribeBeforeSubscribeReplyCancelsSubscription() throws Exception {
+        stubNode.subscribeReply = new CountDownLatch(1);
+        final Subscriber<String> subscriber = new Subscriber<String>() {
+            @Override
+            public void onCompleted() {
+            }
+
+            @Override
+            public void onError(Throwable e) {
+            }
+
+            @Override
+            public void onNext(String hash) {
+            }
+        };
+        // subscribing waits for the reply, which the node holds back
+        Thread subscribing = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                appChainj.appBlockHashObservable().subscribe(subscriber);
+            }
+        });
+        subscribing.start();
+
+        assertTrue(stubNode.subscribeReceived.await(5, TimeUnit.SECONDS));
+        subscriber.unsubscribe();
+        stubNode.subscribeReply.countDown();
+
+        assertTrue(stubNode.unsubscribed.await(5, TimeUnit.SECONDS));
+        subscribing.join(5000);
+    }
+
+    /**
+     * Minimal node answering blockNumber, getBlockByHash, subscribe and unsubscribe requests.
+     */
+    private class StubNode extends WebSocketListener {
+
+        private final List<String> methods = new CopyOnWriteArrayList<>();
+        private final CountDownLatch unsubscribed = new CountDownLatch(1);
+        private final CountDownLatch subscribeReceived = new CountDownLatch(1);
+        private volatile CountDownLatch subscribeReply;
+
+        @Override
+        public void onMessage(WebSocket webSocket, String text) {
+            try {
+                JsonNode request = objectMapper.readTree(text);
+                if (request.isArray()) {
+                    StringBuilder reply = new StringBuilder("[");
+                    for (JsonNode entry : request) {
+                        reply.append(reply.length() > 1 ? "," : "").append(respond(entry));
+                    }
+                    webSocket.send(reply.append("]").toString());
+                } else {
+                    boolean subscribe = request.get("method").asText().equals("subscribe");
+                    if (subscribe && subscribeReply != null) {
+                        subscribeReceived.countDown();
+                        subscribeReply.await(5, TimeUnit.SECONDS);
+                    }
+                    webSocket.send(respond(request));
+                    if (subscribe) {
+                        for (int i = 1; i <= 2; i++) {
+                            webSocket.send("{\"jsonrpc\":\"2.0\",\"method\":\"subscription\","
+                                    + "\"params\":{\"subscription\":\"0xab\",\"result\":"
+                                    + "{\"hash\":\"0x0" + i + "\",\"number\":\"0x" + i + "\"}}}");
+                        }
+                    }
+                }
+            } catch (IOException | InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public void onClosing(WebSocket webSocket, int code, String reason) {
+            webSocket.close(1000, null);
+        }
+
+        private String respond(JsonNode request) {
+            String method = request.get("method").asText();
+            methods.add(method);
+            String result;
+            if (method.equals("subscribe")) {
+                result = "\"0xab\"";
+            } else if (method.equals("unsubscribe")) {
+                unsubscribed.countDown();
+                result = "true";
+            } else if (method.equals("getBlockByHash")) {
+                result = "{\"version\":0,\"hash\":" + request.get("params").get(0)
+                        + ",\"header\":{\"timestamp\":0,\"prevHash\":\"0x00\","
+                        + "\"number\":\"0x1\",\"stateRoot\":\"0x00\","
+                        + "\"transactionsRoot\":\"0x00\",\"receiptsRoot\":\"0x00\","
+                        + "\"gasUsed\":\"0x0\",\"proof\":{\"Bft\":{\"proposal\":\"0x00\","
+                        + "\"height\":1,\"round\":0,\"commits\":{}}}},"
+                        + "\"body\":{\"transactions\":[]}}";
+            } else {
+                result = "\"0x4b7\"";
+            }
+            return "{\"jsonrpc\":\"2.0\",\"id\":" + request.get("id").asLong()
+                    + ",\"result\":" + result + "}";
+        }
+    }
+}
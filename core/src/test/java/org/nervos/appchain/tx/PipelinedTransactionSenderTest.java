@@ -0,0 +1,238 @@
+package org.nervos.appchain.tx;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Future;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import org.nervos.appchain.crypto.Hash;
+import org.nervos.appchain.crypto.SampleKeys;
+import org.nervos.appchain.protobuf.Blockchain;
+import org.nervos.appchain.protocol.AppChainj;
+import org.nervos.appchain.protocol.core.Request;
+import org.nervos.appchain.protocol.core.Response;
+import org.nervos.appchain.protocol.core.methods.response.AppBlockNumber;
+import org.nervos.appchain.protocol.core.methods.response.AppSendTransaction;
+import org.nervos.appchain.protocol.core.methods.response.AppTransaction;
+import org.nervos.appchain.protocol.core.methods.response.Transaction;
+import org.nervos.appchain.utils.Numeric;
+import org.nervos.appchain.utils.SettableFuture;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class PipelinedTransactionSenderTest {
+
+    private static final String TO = "0xbac68e5cb986ead0253e0632da1131a0a96efa18";
+
+    private AppChainj appChainj;
+    private Request<?, AppBlockNumber> blockNumberRequest;
+    private Request<?, AppSendTransaction> sendRequest;
+    private Request<?, AppTransaction> transactionRequest;
+    private BlockHeightTracker blockHeightTracker;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() throws Exception {
+        appChainj = mock(AppChainj.class);
+        blockNumberRequest = mock(Request.class);
+        sendRequest = mock(Request.class);
+        transactionRequest = mock(Request.class);
+        when(appChainj.appBlockNumber()).thenReturn((Request) blockNumberRequest);
+        when(appChainj.appSendRawTransaction(anyString())).thenReturn((Request) sendRequest);
+        when(appChainj.appGetTransactionByHash(anyString()))
+                .thenReturn((Request) transactionRequest);
+        when(blockNumberRequest.send()).thenReturn(blockNumber("0x64"));
+        when(transactionRequest.send()).thenReturn(new AppTransaction());
+
+        blockHeightTracker = new BlockHeightTracker(appChainj, Long.MAX_VALUE);
+    }
+
+    @Test
+    public void testLocalNoncesAndValidUntilBlock() throws Exception {
+        when(sendRequest.sendAsync()).thenReturn(completed(success()));
+
+        PipelinedTransactionSender sender = new PipelinedTransactionSender(
+                appChainj, SampleKeys.CREDENTIALS, blockHeightTracker, 4, 3);
+
+        List<Future<AppSendTransaction>> futures = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            futures.add(sender.sendTransaction(TO, "0x", 1000000L, 0, 1, "0"));
+        }
+        for (Future<AppSendTransaction> future : futures) {
+            assertThat(future.get().getSendTransactionResult().getHash(), is("0xHASH"));
+        }
+        sender.awaitInFlight();
+        assertThat(sender.getInFlightCount(), is(0));
+
+        List<Blockchain.Transaction> sent = sentTransactions(20);
+        Set<String> nonces = new HashSet<>();
+        for (Blockchain.Transaction transaction : sent) {
+            nonces.add(transaction.getNonce());
+            assertThat(transaction.getValidUntilBlock(),
+                    is(100 + PipelinedTransactionSender.DEFAULT_VALID_UNTIL_BLOCK_OFFSET));
+        }
+        assertThat(nonces.size(), is(20));
+        // the block height is fetched once and shared
+        verify(blockNumberRequest, times(1)).send();
+    }
+
+    @Test
+    public void testRetryOnTransportFailure() throws Exception {
+        when(sendRequest.sendAsync())
+                .thenReturn(failed(new IOException("connection reset")))
+                .thenReturn(completed(success()));
+
+        PipelinedTransactionSender sender = new PipelinedTransactionSender(
+                appChainj, SampleKeys.CREDENTIALS, blockHeightTracker, 4, 3);
+
+        AppSendTransaction response =
+                sender.sendTransaction(TO, "0x", 1000000L, 0, 1, "0").get();
+        assertThat(response.getSendTransactionResult().getHash(), is("0xHASH"));
+
+        List<Blockchain.Transaction> sent = sentTransactions(2);
+        assertThat(sent.get(0), is(sent.get(1)));
+    }
+
+    @Test
+    public void testResignOnInvalidUntilBlock() throws Exception {
+        when(sendRequest.sendAsync())
+                .thenReturn(completed(failure("InvalidUntilBlock")))
+                .thenReturn(completed(success()));
+        when(blockNumberRequest.send())
+                .thenReturn(blockNumber("0x64"))
+                .thenReturn(blockNumber("0xc8"));
+
+        PipelinedTransactionSender sender = new PipelinedTransactionSender(
+                appChainj, SampleKeys.CREDENTIALS, blockHeightTracker, 4, 3);
+        sender.setValidUntilBlockOffset(10);
+
+        assertTrue(!sender.sendTransaction(TO, "0x", 1000000L, 0, 1, "0").get().hasError());
+
+        List<Blockchain.Transaction> sent = sentTransactions(2);
+        assertThat(sent.get(0).getValidUntilBlock(), is(110L));
+        assertThat(sent.get(1).getValidUntilBlock(), is(210L));
+        assertThat(sent.get(0).getNonce(), is(sent.get(1).getNonce()));
+        // the replaced version was looked up before re-signing
+        String replaced = sentHashes(2).get(0);
+        verify(appChainj).appGetTransactionByHash(eq(replaced));
+    }
+
+    @Test
+    public void testKnownTransactionIsNotReplaced() throws Exception {
+        when(sendRequest.sendAsync()).thenReturn(completed(failure("InvalidUntilBlock")));
+        when(blockNumberRequest.send())
+                .thenReturn(blockNumber("0x64"))
+                .thenReturn(blockNumber("0xc8"));
+        AppTransaction known = new AppTransaction();
+        known.setResult(new Transaction());
+        when(transactionRequest.send()).thenReturn(known);
+
+        PipelinedTransactionSender sender = new PipelinedTransactionSender(
+                appChainj, SampleKeys.CREDENTIALS, blockHeightTracker, 4, 3);
+        sender.setValidUntilBlockOffset(10);
+
+        AppSendTransaction response =
+                sender.sendTransaction(TO, "0x", 1000000L, 0, 1, "0").get();
+        assertThat(response.getSendTransactionResult().getHash(), is(sentHashes(1).get(0)));
+    }
+
+    @Test
+    public void testTransactionWhichMayStillBeMinedIsNotReplaced() throws Exception {
+        when(sendRequest.sendAsync()).thenReturn(completed(failure("InvalidUntilBlock")));
+        when(blockNumberRequest.send())
+                .thenReturn(blockNumber("0x64"))
+                .thenReturn(blockNumber("0x6e"));
+
+        PipelinedTransactionSender sender = new PipelinedTransactionSender(
+                appChainj, SampleKeys.CREDENTIALS, blockHeightTracker, 4, 3);
+        sender.setValidUntilBlockOffset(10);
+
+        AppSendTransaction response =
+                sender.sendTransaction(TO, "0x", 1000000L, 0, 1, "0").get();
+        assertThat(response.getError().getMessage(), is("InvalidUntilBlock"));
+        sentTransactions(1);
+    }
+
+    @Test
+    public void testNonRetryableError() throws Exception {
+        when(sendRequest.sendAsync()).thenReturn(completed(failure("BadSig")));
+
+        PipelinedTransactionSender sender = new PipelinedTransactionSender(
+                appChainj, SampleKeys.CREDENTIALS, blockHeightTracker, 4, 3);
+
+        AppSendTransaction response =
+                sender.sendTransaction(TO, "0x", 1000000L, 0, 1, "0").get();
+        assertThat(response.getError().getMessage(), is("BadSig"));
+        verify(sendRequest, times(1)).sendAsync();
+    }
+
+    private List<Blockchain.Transaction> sentTransactions(int count) throws Exception {
+        ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+        verify(appChainj, times(count)).appSendRawTransaction(captor.capture());
+
+        List<Blockchain.Transaction> result = new ArrayList<>();
+        for (String signed : captor.getAllValues()) {
+            result.add(Blockchain.UnverifiedTransaction.parseFrom(
+                    Numeric.hexStringToByteArray(signed)).getTransaction());
+        }
+        return result;
+    }
+
+    private List<String> sentHashes(int count) throws Exception {
+        ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+        verify(appChainj, times(count)).appSendRawTransaction(captor.capture());
+
+        List<String> result = new ArrayList<>();
+        for (String signed : captor.getAllValues()) {
+            result.add(Hash.sha3(signed));
+        }
+        return result;
+    }
+
+    private static Future<AppSendTransaction> completed(AppSendTransaction response) {
+        SettableFuture<AppSendTransaction> future = new SettableFuture<>();
+        future.set(response);
+        return future;
+    }
+
+    private static Future<AppSendTransaction> failed(IOException exception) {
+        SettableFuture<AppSendTransaction> future = new SettableFuture<>();
+        future.setException(exception);
+        return future;
+    }
+
+    private static AppBlockNumber blockNumber(String value) {
+        AppBlockNumber appBlockNumber = new AppBlockNumber();
+        appBlockNumber.setResult(value);
+        return appBlockNumber;
+    }
+
+    private static AppSendTransaction success() {
+        AppSendTransaction.SendTransactionResult result =
+                new AppSendTransaction.SendTransactionResult();
+        result.setHash("0xHASH");
+        AppSendTransaction appSendTransaction = new AppSendTransaction();
+        appSendTransaction.setResult(result);
+        return appSendTransaction;
+    }
+
+    private static AppSendTransaction failure(String message) {
+        AppSendTransaction appSendTransaction = new AppSendTransaction();
+        appSendTransaction.setError(new Response.Error(-32006, message));
+        return appSendTransaction;
+    }
+}
@@ -0,0 +1,84 @@
+package org.nervos.appchain.tx;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.nervos.appchain.crypto.SampleKeys;
+import org.nervos.appchain.protocol.core.methods.request.Transaction;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class TransactionSignerTest {
+
+    private static final String TO = "0xbac68e5cb986ead0253e0632da1131a0a96efa18";
+
+    private ForkJoinPool pool;
+    private TransactionSigner transactionSigner;
+
+    @Before
+    public void setUp() {
+        pool = new ForkJoinPool(4);
+        transactionSigner = new TransactionSigner(pool, 3);
+    }
+
+    @After
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    public void testSign() {
+        Transaction transaction = createTransaction(1);
+        assertThat(transactionSigner.sign(transaction, SampleKeys.CREDENTIALS),
+                is(transaction.sign(SampleKeys.CREDENTIALS)));
+    }
+
+    @Test
+    public void testSignAllPreservesOrder() {
+        List<Transaction> transactions = new ArrayList<>();
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            Transaction transaction = createTransaction(i);
+            transactions.add(transaction);
+            expected.add(transaction.sign(SampleKeys.CREDENTIALS));
+        }
+
+        assertThat(transactionSigner.signAll(transactions, SampleKeys.CREDENTIALS),
+                is(expected));
+    }
+
+    @Test
+    public void testSignAllEmpty() {
+        assertTrue(transactionSigner.signAll(
+                Collections.<Transaction>emptyList(), SampleKeys.CREDENTIALS).isEmpty());
+    }
+
+    @Test
+    public void testLargeData() {
+        StringBuilder data = new StringBuilder("0x");
+        for (int i = 0; i < 2048; i++) {
+            data.append("ab");
+        }
+        Transaction transaction = Transaction.createFunctionCallTransaction(
+                TO, BigInteger.ONE, 1000000L, 100L, 0, 1, "0", data.toString());
+
+        assertThat(transactionSigner.signAll(
+                Collections.singletonList(transaction), SampleKeys.CREDENTIALS).get(0),
+                is(transaction.sign(SampleKeys.CREDENTIALS)));
+    }
+
+    private static Transaction createTransaction(int nonce) {
+        return Transaction.createFunctionCallTransaction(
+                TO, BigInteger.valueOf(nonce), 1000000L, 100L + nonce, 0, 1,
+                String.valueOf(nonce), "0xa9059cbb");
+    }
+}
@@ -0,0 +1,207 @@
+package org.nervos.appchain.tx.response;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.nervos.appchain.protocol.AppChainj;
+import org.nervos.appchain.protocol.AppChainjService;
+import org.nervos.appchain.protocol.core.BatchRequest;
+import org.nervos.appchain.protocol.core.JsonRpc2_0AppChainj;
+import org.nervos.appchain.protocol.core.methods.response.AppBlock;
+import org.nervos.appchain.protocol.core.methods.response.TransactionReceipt;
+import org.nervos.appchain.protocol.exceptions.ClientConnectionException;
+import org.nervos.appchain.protocol.exceptions.TransactionException;
+import rx.subjects.PublishSubject;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class BlockWatchingReceiptProcessorTest {
+
+    private final StubReceiptNode node = new StubReceiptNode();
+
+    private AppChainjService appChainjService;
+    private AppChainj appChainj;
+    private PublishSubject<AppBlock> blocks;
+    private List<TransactionReceipt> receipts;
+    private List<Exception> exceptions;
+    private BlockWatchingReceiptProcessor processor;
+
+    @Before
+    public void setUp() throws Exception {
+        appChainjService = mock(AppChainjService.class);
+        appChainj = new JsonRpc2_0AppChainj(
+                appChainjService, 1000, mock(ScheduledExecutorService.class));
+        blocks = PublishSubject.create();
+        receipts = new ArrayList<>();
+        exceptions = new ArrayList<>();
+
+        // every transaction included in a block has a receipt
+        node.mineAll();
+        when(appChainjService.sendBatch(any(BatchRequest.class))).thenAnswer(node);
+
+        processor = new BlockWatchingReceiptProcessor(appChainj, new Callback() {
+            @Override
+            public void accept(TransactionReceipt transactionReceipt) {
+                receipts.add(transactionReceipt);
+            }
+
+            @Override
+            public void exception(Exception exception) {
+                exceptions.add(exception);
+            }
+        }, blocks, 3);
+    }
+
+    @Test
+    public void testReceiptsFetchedOnlyForIncludedTransactions() throws Exception {
+        processor.waitForTransactionReceipt("0x1");
+        processor.waitForTransactionReceipt("0x2");
+
+        blocks.onNext(block("0xa", "0xb"));
+        verify(appChainjService, never()).sendBatch(any(BatchRequest.class));
+
+        blocks.onNext(block("0x2", "0xc"));
+        verify(appChainjService, times(1)).sendBatch(any(BatchRequest.class));
+        assertThat(receipts.size(), is(1));
+        assertThat(receipts.get(0).getTransactionHash(), is("0x2"));
+        assertThat(processor.getPendingCount(), is(1));
+    }
+
+    @Test
+    public void testTransactionIncludedBeforeRegistration() throws Exception {
+        blocks.onNext(block("0x1"));
+        processor.waitForTransactionReceipt("0x1");
+
+        assertThat(receipts.size(), is(1));
+        assertThat(processor.getPendingCount(), is(0));
+    }
+
+    @Test
+    public void testExpiresAfterMaxBlocks() throws Exception {
+        processor.waitForTransactionReceipt("0x1");
+
+        blocks.onNext(block());
+        blocks.onNext(block());
+        assertThat(exceptions.size(), is(0));
+
+        blocks.onNext(block());
+        assertThat(exceptions.size(), is(1));
+        assertThat(exceptions.get(0), instanceOf(TransactionException.class));
+        assertThat(processor.getPendingCount(), is(0));
+    }
+
+    @Test
+    public void testClose() throws Exception {
+        processor.waitForTransactionReceipt("0x1");
+        processor.close();
+
+        blocks.onNext(block("0x1"));
+        assertThat(receipts.size(), is(0));
+    }
+
+    @Test
+    public void testFailedFetchIsRetriedWithNextBlock() throws Exception {
+        processor.waitForTransactionReceipt("0x1");
+        processor.waitForTransactionReceipt("0x2");
+        doThrow(new ClientConnectionException("Invalid response received: 502"))
+                .doAnswer(node)
+                .when(appChainjService).sendBatch(any(BatchRequest.class));
+
+        blocks.onNext(block("0x1"));
+        assertThat(exceptions.size(), is(0));
+        assertThat(processor.getPendingCount(), is(2));
+
+        blocks.onNext(block("0x2"));
+        assertThat(receipts.size(), is(2));
+        assertThat(exceptions.size(), is(0));
+        assertThat(processor.getPendingCount(), is(0));
+    }
+
+    @Test
+    public void testFetchFailureIsReportedAfterRetries() throws Exception {
+        processor.waitForTransactionReceipt("0x1");
+        doThrow(new ClientConnectionException("Invalid response received: 502"))
+                .when(appChainjService).sendBatch(any(BatchRequest.class));
+
+        blocks.onNext(block("0x1"));
+        for (int i = 1; i < BlockWatchingReceiptProcessor.MAX_FETCH_ATTEMPTS; i++) {
+            assertThat(exceptions.size(), is(0));
+            blocks.onNext(block());
+        }
+        assertThat(exceptions.size(), is(1));
+        assertThat(exceptions.get(0).getMessage(), is(
+                "Failed to fetch transaction receipt for 0x1: Invalid response received: 502"));
+        assertThat(processor.getPendingCount(), is(0));
+        verify(appChainjService, times(BlockWatchingReceiptProcessor.MAX_FETCH_ATTEMPTS))
+                .sendBatch(any(BatchRequest.class));
+    }
+
+    @Test
+    public void testSubscriptionFailureIsReportedPerTransaction() throws Exception {
+        processor.waitForTransactionReceipt("0x1");
+        processor.waitForTransactionReceipt("0x2");
+
+        blocks.onError(new IOException("Connection closed"));
+        assertThat(exceptions.size(), is(2));
+        List<String> messages = new ArrayList<>();
+        for (Exception exception : exceptions) {
+            messages.add(exception.getMessage());
+        }
+        assertThat(messages.contains(
+                "Block subscription failed for transaction 0x1: Connection closed"), is(true));
+        assertThat(messages.contains(
+                "Block subscription failed for transaction 0x2: Connection closed"), is(true));
+    }
+
+    @Test
+    public void testCallbackFailureDoesNotEndSubscription() throws Exception {
+        BlockWatchingReceiptProcessor failingProcessor = new BlockWatchingReceiptProcessor(
+                appChainj, new Callback() {
+                    @Override
+                    public void accept(TransactionReceipt transactionReceipt) {
+                        receipts.add(transactionReceipt);
+                        throw new IllegalStateException("callback failed");
+                    }
+
+                    @Override
+                    public void exception(Exception exception) {
+                        exceptions.add(exception);
+                    }
+                }, blocks, 3);
+        failingProcessor.waitForTransactionReceipt("0x1");
+        failingProcessor.waitForTransactionReceipt("0x2");
+
+        blocks.onNext(block("0x1"));
+        blocks.onNext(block("0x2"));
+        assertThat(receipts.size(), is(2));
+        assertThat(exceptions.size(), is(0));
+        failingProcessor.close();
+    }
+
+    private static AppBlock block(String... transactionHashes) {
+        List<AppBlock.TransactionObject> transactions = new ArrayList<>();
+        for (String transactionHash : transactionHashes) {
+            AppBlock.TransactionObject transaction = new AppBlock.TransactionObject();
+            transaction.setHash(transactionHash);
+            transactions.add(transaction);
+        }
+        AppBlock appBlock = new AppBlock();
+        appBlock.setResult(new AppBlock.Block(
+                "0", "0xblock", null, new AppBlock.Body(transactions)));
+        return appBlock;
+    }
+}
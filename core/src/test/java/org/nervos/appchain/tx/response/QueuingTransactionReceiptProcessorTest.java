@@ -0,0 +1,211 @@
+package org.nervos.appchain.tx.response;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.nervos.appchain.protocol.AppChainj;
+import org.nervos.appchain.protocol.AppChainjService;
+import org.nervos.appchain.protocol.core.BatchRequest;
+import org.nervos.appchain.protocol.core.JsonRpc2_0AppChainj;
+import org.nervos.appchain.protocol.core.Request;
+import org.nervos.appchain.protocol.core.methods.response.AppGetTransactionReceipt;
+import org.nervos.appchain.protocol.core.methods.response.TransactionReceipt;
+import org.nervos.appchain.protocol.exceptions.ClientConnectionException;
+import org.nervos.appchain.protocol.exceptions.TransactionException;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class QueuingTransactionReceiptProcessorTest {
+
+    private static final Executor DIRECT_EXECUTOR = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    private final StubReceiptNode node = new StubReceiptNode();
+
+    private AppChainjService appChainjService;
+    private AppChainj appChainj;
+    private List<TransactionReceipt> receipts;
+    private List<Exception> exceptions;
+    private Callback callback;
+
+    @Before
+    public void setUp() throws Exception {
+        appChainjService = mock(AppChainjService.class);
+        appChainj = new JsonRpc2_0AppChainj(
+                appChainjService, 1000, mock(ScheduledExecutorService.class));
+        receipts = new ArrayList<>();
+        exceptions = new ArrayList<>();
+        callback = new Callback() {
+            @Override
+            public void accept(TransactionReceipt transactionReceipt) {
+                receipts.add(transactionReceipt);
+            }
+
+            @Override
+            public void exception(Exception exception) {
+                exceptions.add(exception);
+            }
+        };
+
+        when(appChainjService.sendBatch(any(BatchRequest.class))).thenAnswer(node);
+    }
+
+    @Test
+    public void testPollsInChunkedBatches() throws Exception {
+        QueuingTransactionReceiptProcessor processor = createProcessor(0, 0, 3);
+        for (int i = 0; i < 7; i++) {
+            processor.waitForTransactionReceipt("0x" + i);
+        }
+        node.mine("0x1");
+        node.mine("0x5");
+
+        processor.sendTransactionReceiptRequests();
+
+        verify(appChainjService, times(3)).sendBatch(any(BatchRequest.class));
+        assertThat(receipts.size(), is(2));
+        assertThat(receipts.get(0).getTransactionHash(), is("0x1"));
+        assertThat(receipts.get(1).getTransactionHash(), is("0x5"));
+        assertThat(processor.getPendingCount(), is(5));
+        assertThat(processor.getMetrics().getTickCount(), is(1L));
+        assertThat(processor.getMetrics().getPolledCount(), is(7L));
+    }
+
+    @Test
+    public void testYoungTransactionsAreNotPolled() throws Exception {
+        QueuingTransactionReceiptProcessor processor = createProcessor(10, 60000, 100);
+        processor.waitForTransactionReceipt("0x1");
+
+        processor.sendTransactionReceiptRequests();
+
+        verify(appChainjService, times(0)).sendBatch(any(BatchRequest.class));
+        assertThat(processor.getPendingCount(), is(1));
+        assertThat(processor.getMetrics().getPolledCount(), is(0L));
+    }
+
+    @Test
+    public void testPollingBacksOffUpToMaxDelay() throws Exception {
+        QueuingTransactionReceiptProcessor processor = new QueuingTransactionReceiptProcessor(
+                appChainj, callback, 10, 100, 1000, 100,
+                mock(ScheduledExecutorService.class), DIRECT_EXECUTOR);
+        processor.setMaxPollingDelay(4000);
+        processor.waitForTransactionReceipt("0x1");
+        long submitted = System.currentTimeMillis();
+
+        // first poll after the initial delay, then after 2s, 4s and 4s again
+        long[] polls = { 1000, 3000, 7000, 11000 };
+        for (int i = 0; i < polls.length; i++) {
+            long due = submitted + polls[i];
+            if (i > 0) {
+                processor.sendTransactionReceiptRequests(due - 1);
+                assertThat(processor.getMetrics().getPolledCount(), is((long) i));
+            }
+            processor.sendTransactionReceiptRequests(due);
+            assertThat(processor.getMetrics().getPolledCount(), is((long) i + 1));
+        }
+
+        node.mine("0x1");
+        processor.sendTransactionReceiptRequests(submitted + 15000);
+        assertThat(receipts.size(), is(1));
+    }
+
+    @Test
+    public void testGivesUpAfterMaxAttempts() throws Exception {
+        QueuingTransactionReceiptProcessor processor = createProcessor(0, 0, 100);
+        processor.waitForTransactionReceipt("0x1");
+
+        processor.sendTransactionReceiptRequests();
+        processor.sendTransactionReceiptRequests();
+        assertThat(exceptions.size(), is(0));
+
+        processor.sendTransactionReceiptRequests();
+        assertThat(exceptions.size(), is(1));
+        assertThat(exceptions.get(0), instanceOf(TransactionException.class));
+        assertThat(processor.getPendingCount(), is(0));
+    }
+
+    @Test
+    public void testBatchFailureIsRetried() throws Exception {
+        doThrow(new IOException("connection reset")).doAnswer(node)
+                .when(appChainjService).sendBatch(any(BatchRequest.class));
+        node.mine("0x1");
+
+        QueuingTransactionReceiptProcessor processor = createProcessor(0, 0, 100);
+        processor.waitForTransactionReceipt("0x1");
+
+        processor.sendTransactionReceiptRequests();
+        assertThat(receipts.size(), is(0));
+        assertThat(exceptions.size(), is(0));
+
+        processor.sendTransactionReceiptRequests();
+        assertThat(receipts.size(), is(1));
+    }
+
+    @Test
+    public void testClientConnectionExceptionIsRetried() throws Exception {
+        doThrow(new ClientConnectionException("Invalid response received: 502"))
+                .doThrow(new ClientConnectionException("Invalid response received: 503"))
+                .doAnswer(node)
+                .when(appChainjService).sendBatch(any(BatchRequest.class));
+        node.mine("0x1");
+
+        QueuingTransactionReceiptProcessor processor = createProcessor(0, 0, 100);
+        processor.waitForTransactionReceipt("0x1");
+        processor.waitForTransactionReceipt("0x2");
+
+        processor.sendTransactionReceiptRequests();
+        processor.sendTransactionReceiptRequests();
+        assertThat(exceptions.size(), is(0));
+        assertThat(processor.getPendingCount(), is(2));
+
+        processor.sendTransactionReceiptRequests();
+        assertThat(receipts.size(), is(1));
+        // the third unsuccessful attempt for 0x2 reports the last failure
+        assertThat(exceptions.size(), is(1));
+        assertThat(processor.getPendingCount(), is(0));
+    }
+
+    @Test
+    public void testPollsIndividuallyWithoutBatchResponse() throws Exception {
+        doReturn(null).when(appChainjService).sendBatch(any(BatchRequest.class));
+        AppGetTransactionReceipt response = new AppGetTransactionReceipt();
+        TransactionReceipt receipt = new TransactionReceipt();
+        receipt.setTransactionHash("0x1");
+        response.setResult(receipt);
+        when(appChainjService.send(any(Request.class), eq(AppGetTransactionReceipt.class)))
+                .thenReturn(response);
+
+        QueuingTransactionReceiptProcessor processor = createProcessor(0, 0, 100);
+        processor.waitForTransactionReceipt("0x1");
+        processor.sendTransactionReceiptRequests();
+
+        assertThat(receipts.size(), is(1));
+        assertThat(processor.getPendingCount(), is(0));
+    }
+
+    private QueuingTransactionReceiptProcessor createProcessor(
+            long pollingFrequency, long initialPollingDelay, int batchSize) {
+        return new QueuingTransactionReceiptProcessor(
+                appChainj, callback, 3, pollingFrequency, initialPollingDelay, batchSize,
+                mock(ScheduledExecutorService.class), DIRECT_EXECUTOR);
+    }
+}
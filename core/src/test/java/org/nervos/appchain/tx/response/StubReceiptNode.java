@@ -0,0 +1,52 @@
+package org.nervos.appchain.tx.response;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import org.nervos.appchain.protocol.core.BatchRequest;
+import org.nervos.appchain.protocol.core.BatchResponse;
+import org.nervos.appchain.protocol.core.Request;
+import org.nervos.appchain.protocol.core.Response;
+import org.nervos.appchain.protocol.core.methods.response.AppGetTransactionReceipt;
+import org.nervos.appchain.protocol.core.methods.response.TransactionReceipt;
+
+/**
+ * Answers {@code sendBatch} calls of getTransactionReceipt requests, with a receipt for the
+ * transactions which are mined and no result for the others.
+ */
+class StubReceiptNode implements Answer<BatchResponse> {
+
+    private final Set<String> minedHashes = new HashSet<>();
+    private boolean allMined;
+
+    void mine(String transactionHash) {
+        minedHashes.add(transactionHash);
+    }
+
+    void mineAll() {
+        allMined = true;
+    }
+
+    @Override
+    public BatchResponse answer(InvocationOnMock invocation) {
+        BatchRequest batchRequest = (BatchRequest) invocation.getArguments()[0];
+        List<Response> responses = new ArrayList<>();
+        for (Request<?, ? extends Response> request : batchRequest.getRequests()) {
+            String hash = (String) request.getParams().get(0);
+            AppGetTransactionReceipt response = new AppGetTransactionReceipt();
+            response.setId(request.getId());
+            if (allMined || minedHashes.contains(hash)) {
+                TransactionReceipt receipt = new TransactionReceipt();
+                receipt.setTransactionHash(hash);
+                response.setResult(receipt);
+            }
+            responses.add(response);
+        }
+        return new BatchResponse(batchRequest.getRequests(), responses);
+    }
+}
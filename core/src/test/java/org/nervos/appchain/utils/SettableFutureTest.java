@@ -0,0 +1,60 @@
+package org.nervos.appchain.utils;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class SettableFutureTest {
+
+    @Test
+    public void testListenersRunOnceOnCompletion() {
+        final AtomicInteger calls = new AtomicInteger();
+        Runnable listener = new Runnable() {
+            @Override
+            public void run() {
+                calls.incrementAndGet();
+            }
+        };
+        SettableFuture<String> future = new SettableFuture<>();
+        future.addListener(listener);
+        assertThat(calls.get(), is(0));
+
+        future.set("done");
+        assertThat(calls.get(), is(1));
+        future.set("again");
+        assertThat(calls.get(), is(1));
+
+        // added after completion
+        future.addListener(listener);
+        assertThat(calls.get(), is(2));
+    }
+
+    @Test
+    public void testSetFrom() throws Exception {
+        SettableFuture<String> source = new SettableFuture<>();
+        SettableFuture<String> result = new SettableFuture<>();
+        SettableFuture<String> failed = new SettableFuture<>();
+        result.setFrom(source);
+        assertThat(result.isDone(), is(false));
+
+        source.set("done");
+        assertThat(result.get(), is("done"));
+
+        SettableFuture<String> failure = new SettableFuture<>();
+        failure.setException(new IOException("failed"));
+        failed.setFrom(failure);
+        try {
+            failed.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), instanceOf(IOException.class));
+        }
+    }
+}
@@ -4,10 +4,6 @@ import java.math.BigInteger;
 import java.security.KeyPair;
 import java.util.Arrays;
 
-import org.bouncycastle.crypto.digests.SHA256Digest;
-import org.bouncycastle.crypto.params.ECPrivateKeyParameters;
-import org.bouncycastle.crypto.signers.ECDSASigner;
-import org.bouncycastle.crypto.signers.HMacDSAKCalculator;
 import org.bouncycastle.jcajce.provider.asymmetric.ec.BCECPrivateKey;
 import org.bouncycastle.jcajce.provider.asymmetric.ec.BCECPublicKey;
 
@@ -20,6 +16,9 @@ public class ECKeyPair {
     private final BigInteger privateKey;
     private final BigInteger publicKey;
 
+    // created on first use, the key parameters are reused for every subsequent signature
+    private volatile RecoverableSigner signer;
+
     public ECKeyPair(BigInteger privateKey, BigInteger publicKey) {
         this.privateKey = privateKey;
         this.publicKey = publicKey;
@@ -39,13 +38,20 @@ public class ECKeyPair {
      * @return  An {@link ECDSASignature} of the hash
      */
     public ECDSASignature sign(byte[] transactionHash) {
-        ECDSASigner signer = new ECDSASigner(new HMacDSAKCalculator(new SHA256Digest()));
-
-        ECPrivateKeyParameters privKey = new ECPrivateKeyParameters(privateKey, Sign.CURVE);
-        signer.init(true, privKey);
-        BigInteger[] components = signer.generateSignature(transactionHash);
+        Sign.SignatureData signatureData = getSigner().sign(transactionHash);
+        return new ECDSASignature(
+                new BigInteger(1, signatureData.getR()),
+                new BigInteger(1, signatureData.getS()));
+    }
 
-        return new ECDSASignature(components[0], components[1]).toCanonicalised();
+    RecoverableSigner getSigner() {
+        RecoverableSigner result = signer;
+        if (result == null) {
+            // benign race, concurrent callers may each create an equivalent signer
+            result = new RecoverableSigner(privateKey);
+            signer = result;
+        }
+        return result;
     }
 
     public static ECKeyPair create(KeyPair keyPair) {
@@ -0,0 +1,97 @@
+package org.nervos.appchain.crypto;
+
+import java.math.BigInteger;
+
+import org.bouncycastle.crypto.digests.SHA256Digest;
+import org.bouncycastle.crypto.params.ECPrivateKeyParameters;
+import org.bouncycastle.crypto.signers.HMacDSAKCalculator;
+import org.bouncycastle.math.ec.ECMultiplier;
+import org.bouncycastle.math.ec.ECPoint;
+import org.bouncycastle.math.ec.FixedPointCombMultiplier;
+
+import org.nervos.appchain.utils.Numeric;
+
+/**
+ * <p>Deterministic (RFC 6979) ECDSA signer which also returns the recovery id of each
+ * signature.</p>
+ *
+ * <p>The recovery id is taken from the nonce point R used to create the signature: bit 0 is the
+ * parity of R's y co-ordinate and bit 1 is set when R's x co-ordinate exceeded the curve order.
+ * This avoids trying up to four public key recoveries after every signature, as
+ * {@link Sign#signMessage(byte[], ECKeyPair)} used to do.</p>
+ *
+ * <p>Signatures are identical to those produced by BouncyCastle's
+ * {@link org.bouncycastle.crypto.signers.ECDSASigner} with an {@link HMacDSAKCalculator}.
+ * Instances hold no mutable state and are safe to share between threads.</p>
+ */
+final class RecoverableSigner {
+
+    private static final ECMultiplier BASE_POINT_MULTIPLIER = new FixedPointCombMultiplier();
+
+    private final ECPrivateKeyParameters privateKeyParameters;
+
+    RecoverableSigner(BigInteger privateKey) {
+        this.privateKeyParameters = new ECPrivateKeyParameters(privateKey, Sign.CURVE);
+    }
+
+    ECPrivateKeyParameters getPrivateKeyParameters() {
+        return privateKeyParameters;
+    }
+
+    /**
+     * Sign a 32 byte message hash.
+     *
+     * @param messageHash the hash to sign
+     * @return canonical signature with v set to the recovery id
+     */
+    Sign.SignatureData sign(byte[] messageHash) {
+        BigInteger n = Sign.CURVE.getN();
+        BigInteger d = privateKeyParameters.getD();
+        BigInteger e = calculateE(n, messageHash);
+
+        HMacDSAKCalculator kCalculator = new HMacDSAKCalculator(new SHA256Digest());
+        kCalculator.init(n, d, messageHash);
+
+        BigInteger r;
+        BigInteger s;
+        int recId;
+        do {
+            BigInteger k = kCalculator.nextK();
+            ECPoint point = BASE_POINT_MULTIPLIER.multiply(Sign.CURVE.getG(), k).normalize();
+
+            BigInteger x = point.getAffineXCoord().toBigInteger();
+            r = x.mod(n);
+            if (r.signum() == 0) {
+                continue;
+            }
+
+            s = k.modInverse(n).multiply(e.add(d.multiply(r))).mod(n);
+            recId = (point.getAffineYCoord().testBitZero() ? 1 : 0)
+                    | (x.compareTo(n) >= 0 ? 2 : 0);
+            if (s.signum() != 0) {
+                break;
+            }
+        } while (true);
+
+        if (s.compareTo(Sign.HALF_CURVE_ORDER) > 0) {
+            // negating s mirrors R, which flips the parity of its y co-ordinate
+            s = n.subtract(s);
+            recId ^= 1;
+        }
+
+        return new Sign.SignatureData(
+                (byte) recId, Numeric.toBytesPadded(r, 32), Numeric.toBytesPadded(s, 32));
+    }
+
+    // as per ECDSASigner, only the leftmost bitLength(n) bits of the hash are used
+    private static BigInteger calculateE(BigInteger n, byte[] message) {
+        int log2n = n.bitLength();
+        int messageBitLength = message.length * 8;
+
+        BigInteger e = new BigInteger(1, message);
+        if (log2n < messageBitLength) {
+            e = e.shiftRight(messageBitLength - log2n);
+        }
+        return e;
+    }
+}
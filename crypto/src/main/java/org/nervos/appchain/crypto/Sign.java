@@ -6,12 +6,8 @@ import java.util.Arrays;
 
 import org.bouncycastle.asn1.x9.X9ECParameters;
 import org.bouncycastle.asn1.x9.X9IntegerConverter;
-import org.bouncycastle.crypto.digests.SHA256Digest;
 import org.bouncycastle.crypto.ec.CustomNamedCurves;
 import org.bouncycastle.crypto.params.ECDomainParameters;
-import org.bouncycastle.crypto.params.ECPrivateKeyParameters;
-import org.bouncycastle.crypto.signers.ECDSASigner;
-import org.bouncycastle.crypto.signers.HMacDSAKCalculator;
 import org.bouncycastle.math.ec.ECAlgorithms;
 import org.bouncycastle.math.ec.ECPoint;
 import org.bouncycastle.math.ec.FixedPointCombMultiplier;
@@ -36,33 +32,19 @@ public class Sign {
     static final BigInteger HALF_CURVE_ORDER = CURVE_PARAMS.getN().shiftRight(1);
 
     public static SignatureData signMessage(byte[] message, ECKeyPair keyPair) {
-        BigInteger publicKey = keyPair.getPublicKey();
-
-        byte[] messageHash = Hash.sha3(message);
-
-        ECDSASignature sig = keyPair.sign(messageHash);
-        // Now we have to work backwards to figure out the recId needed to recover the signature.
-        int recId = -1;
-        for (int i = 0; i < 4; i++) {
-            BigInteger k = recoverFromSignature(i, sig, messageHash);
-            if (k != null && k.equals(publicKey)) {
-                recId = i;
-                break;
-            }
-        }
-        if (recId == -1) {
-            throw new RuntimeException(
-                    "Could not construct a recoverable key. This should never happen.");
-        }
-
-        int headerByte = recId;
-
-        // 1 header + 32 bytes for R + 32 bytes for S
-        byte v = (byte) headerByte;
-        byte[] r = Numeric.toBytesPadded(sig.r, 32);
-        byte[] s = Numeric.toBytesPadded(sig.s, 32);
+        return signHash(Hash.sha3(message), keyPair);
+    }
 
-        return new SignatureData(v, r, s);
+    /**
+     * Sign an already hashed message. The recovery id is taken from the nonce point used while
+     * signing, so no public key recovery is needed to fill in v.
+     *
+     * @param messageHash Keccak-256 hash of the message
+     * @param keyPair the key pair to sign with
+     * @return the signature, with v holding the recovery id
+     */
+    public static SignatureData signHash(byte[] messageHash, ECKeyPair keyPair) {
+        return keyPair.getSigner().sign(messageHash);
     }
 
     /**
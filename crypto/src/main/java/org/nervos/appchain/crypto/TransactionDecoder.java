@@ -0,0 +1,69 @@
+package org.nervos.appchain.crypto;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+
+import org.nervos.appchain.rlp.RlpDecoder;
+import org.nervos.appchain.utils.Numeric;
+
+/**
+ * Decode RLP encoded transactions, as created by {@link TransactionEncoder}.
+ *
+ * <p>Fields are read straight from the encoded bytes by an {@link RlpDecoder}, without
+ * building an intermediate tree, so that large numbers of transactions can be decoded
+ * cheaply.
+ */
+public class TransactionDecoder {
+
+    private TransactionDecoder() { }
+
+    public static RawTransaction decode(byte[] encodedTransaction) {
+        RlpDecoder decoder = new RlpDecoder(encodedTransaction);
+        decoder.enterList();
+
+        BigInteger nonce = decoder.nextBigInteger();
+        BigInteger gasPrice = decoder.nextBigInteger();
+        BigInteger gasLimit = decoder.nextBigInteger();
+        ByteBuffer to = decoder.nextString();
+        // the value is encoded as the bytes of its decimal string, see TransactionEncoder
+        String value = new String(decoder.nextBytes());
+        String data = toHexString(decoder.nextString(), false);
+
+        return RawTransaction.createTransaction(
+                nonce, gasPrice, gasLimit, to.hasRemaining() ? toHexString(to, true) : "",
+                value, data);
+    }
+
+    /**
+     * @return the signature of a signed transaction, the chain id of a transaction encoded
+     *         for EIP-155 signing as {@code v}, or null if the transaction has no signature
+     */
+    public static Sign.SignatureData decodeSignatureData(byte[] encodedTransaction) {
+        RlpDecoder decoder = new RlpDecoder(encodedTransaction);
+        decoder.enterList();
+        for (int i = 0; i < 6; i++) {
+            decoder.skip();
+        }
+        if (!decoder.hasNext()) {
+            return null;
+        }
+
+        byte v = (byte) decoder.nextLong();
+        byte[] r = decoder.nextBytes();
+        byte[] s = decoder.nextBytes();
+        if (r.length == 0 && s.length == 0) {
+            return new Sign.SignatureData(v, r, s);
+        }
+        // leading zeros of r and s are trimmed when encoded
+        return new Sign.SignatureData(v, pad(r), pad(s));
+    }
+
+    private static byte[] pad(byte[] value) {
+        return Numeric.toBytesPadded(new BigInteger(1, value), 32);
+    }
+
+    private static String toHexString(ByteBuffer value, boolean withPrefix) {
+        return Numeric.toHexString(value.array(), value.arrayOffset() + value.position(),
+                value.remaining(), withPrefix);
+    }
+}
@@ -2,12 +2,14 @@ package org.nervos.appchain.crypto;
 
 import java.math.BigInteger;
 import java.security.SignatureException;
+import java.util.Random;
 
 import org.junit.Test;
 
 import org.nervos.appchain.utils.Numeric;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.hamcrest.core.IsEqual.equalTo;
 import static org.junit.Assert.assertThat;
 
@@ -37,6 +39,34 @@ public class SignTest {
         assertThat(key, equalTo(SampleKeys.PUBLIC_KEY));
     }
 
+    @Test
+    public void testRecoveryIdMatchesRecoveredKey() throws SignatureException {
+        Random random = new Random(42);
+        for (int i = 0; i < 50; i++) {
+            ECKeyPair keyPair = ECKeyPair.create(new BigInteger(255, random).add(BigInteger.ONE));
+            byte[] message = new byte[64];
+            random.nextBytes(message);
+
+            Sign.SignatureData signatureData = Sign.signMessage(message, keyPair);
+            assertThat(Sign.signedMessageToKey(message, signatureData),
+                    equalTo(keyPair.getPublicKey()));
+            assertThat(new BigInteger(1, signatureData.getS())
+                    .compareTo(Sign.HALF_CURVE_ORDER) <= 0, is(true));
+        }
+    }
+
+    @Test
+    public void testSignHash() {
+        assertThat(Sign.signHash(Hash.sha3(TEST_MESSAGE), SampleKeys.KEY_PAIR),
+                is(Sign.signMessage(TEST_MESSAGE, SampleKeys.KEY_PAIR)));
+    }
+
+    @Test
+    public void testSignerIsCachedPerKeyPair() {
+        ECKeyPair keyPair = ECKeyPair.create(SampleKeys.PRIVATE_KEY);
+        assertThat(keyPair.getSigner(), sameInstance(keyPair.getSigner()));
+    }
+
     @Test
     public void testPublicKeyFromPrivateKey() {
         assertThat(Sign.publicKeyFromPrivate(SampleKeys.PRIVATE_KEY),
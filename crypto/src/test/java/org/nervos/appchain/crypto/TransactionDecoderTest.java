@@ -0,0 +1,63 @@
+package org.nervos.appchain.crypto;
+
+import java.math.BigInteger;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class TransactionDecoderTest {
+
+    @Test
+    public void testDecodeUnsigned() {
+        RawTransaction rawTransaction = RawTransaction.createTransaction(
+                BigInteger.valueOf(9), BigInteger.valueOf(20000000000L),
+                BigInteger.valueOf(21000), "0x0035353535353535353535353535353535353535",
+                String.valueOf(Long.MAX_VALUE), "0xa9059cbb00");
+        byte[] encoded = TransactionEncoder.encode(rawTransaction);
+
+        RawTransaction decoded = TransactionDecoder.decode(encoded);
+        assertThat(decoded.getNonce(), is(rawTransaction.getNonce()));
+        assertThat(decoded.getGasPrice(), is(rawTransaction.getGasPrice()));
+        assertThat(decoded.getGasLimit(), is(rawTransaction.getGasLimit()));
+        assertThat(decoded.getTo(), is(rawTransaction.getTo()));
+        assertThat(decoded.getValue(), is(rawTransaction.getValue()));
+        assertThat(decoded.getData(), is(rawTransaction.getData()));
+        assertThat(TransactionEncoder.encode(decoded), is(encoded));
+        assertThat(TransactionDecoder.decodeSignatureData(encoded), nullValue());
+    }
+
+    @Test
+    public void testDecodeContractCreation() {
+        RawTransaction rawTransaction = RawTransaction.createContractTransaction(
+                BigInteger.ZERO, BigInteger.ONE, BigInteger.TEN, "0", "6060");
+        RawTransaction decoded = TransactionDecoder.decode(
+                TransactionEncoder.encode(rawTransaction));
+        assertThat(decoded.getTo(), is(""));
+        assertThat(decoded.getData(), is("6060"));
+    }
+
+    @Test
+    public void testDecodeSigned() {
+        RawTransaction rawTransaction = RawTransaction.createEtherTransaction(
+                BigInteger.valueOf(9), BigInteger.valueOf(20000000000L),
+                BigInteger.valueOf(21000), "0x3535353535353535353535353535353535353535",
+                String.valueOf(1000000000000000000L));
+        byte[] signed = TransactionEncoder.signMessage(
+                rawTransaction, (byte) 1, SampleKeys.CREDENTIALS);
+
+        Sign.SignatureData signatureData = Sign.signMessage(
+                TransactionEncoder.encode(rawTransaction, (byte) 1),
+                SampleKeys.CREDENTIALS.getEcKeyPair());
+        assertThat(TransactionDecoder.decodeSignatureData(signed),
+                is(TransactionEncoder.createEip155SignatureData(signatureData, (byte) 1)));
+        assertThat(TransactionDecoder.decode(signed).getTo(), is(rawTransaction.getTo()));
+
+        Sign.SignatureData unsigned = TransactionDecoder.decodeSignatureData(
+                TransactionEncoder.encode(rawTransaction, (byte) 1));
+        assertThat(unsigned.getV(), is((byte) 1));
+        assertThat(unsigned.getR().length, is(0));
+    }
+}
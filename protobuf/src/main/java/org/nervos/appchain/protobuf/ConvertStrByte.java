@@ -1,18 +1,11 @@
 package org.nervos.appchain.protobuf;
 
+import org.nervos.appchain.utils.HexCodec;
+
 public class ConvertStrByte {
 
     public static String bytesToHexString(byte[] b) {
-        StringBuffer result = new StringBuffer();
-        String hex;
-        for (int i = 0; i < b.length; i++) {
-            hex = Integer.toHexString(b[i] & 0xFF);
-            if (hex.length() == 1) {
-                hex = '0' + hex;
-            }
-            result.append(hex);
-        }
-        return result.toString();
+        return HexCodec.encode(b, false);
     }
 
     /**
@@ -24,14 +17,7 @@ public class ConvertStrByte {
      * @return byte array converted from src.
      */
     public static byte[] hexStringToBytes(String src) {
-        src = (src.length() % 2 == 1 ? "0" : "") + src;
-        int l = src.length() / 2;
-        byte[] ret = new byte[l];
-        for (int i = 0; i < l; i++) {
-            ret[i] = (byte) Integer
-                    .valueOf(src.substring(i * 2, i * 2 + 2), 16).byteValue();
-        }
-        return ret;
+        return HexCodec.decode(src);
     }
 
     /**
@@ -43,23 +29,12 @@ public class ConvertStrByte {
      */
     public static byte[] hexStringToBytes(String src, int length) {
         int byteLength = length / 8;
-        if (src.length() > length / 4) {
-            return new byte[byteLength];
-        } else {
-            src = (src.length() % 2 == 1 ? "0" : "") + src;
-            int l = src.length() / 2;
-            byte[] value = new byte[l];
-            for (int i = 0; i < l; i++) {
-                value[i] = (byte) Integer
-                        .valueOf(src.substring(i * 2, i * 2 + 2), 16).byteValue();
-            }
-            int m = byteLength - l;
-            byte[] toAdd = new byte[m];
-            byte[] ret = new byte[byteLength];
-            System.arraycopy(toAdd, 0, ret, 0, m);
-            System.arraycopy(value, 0, ret, m, l);
-            return ret;
+        byte[] ret = new byte[byteLength];
+        if (src.length() <= length / 4) {
+            int l = HexCodec.decodedLength(src.length());
+            HexCodec.decode(src, 0, src.length(), ret, byteLength - l);
         }
+        return ret;
     }
 
 
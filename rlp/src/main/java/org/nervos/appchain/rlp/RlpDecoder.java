@@ -0,0 +1,280 @@
+package org.nervos.appchain.rlp;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>Recursive Length Prefix (RLP) decoder.</p>
+ *
+ * <p>A decoder is a cursor over encoded input which reads one item at a time: strings are
+ * returned as views of the input, and lists are entered and exited, so that large or deeply
+ * nested values can be processed without building a tree or copying their contents.
+ * {@link #decode(byte[])} builds the tree of {@link RlpType}s instead, and
+ * {@link #accept(Visitor)} walks the input with a {@link Visitor}.</p>
+ *
+ * <p>Long form lengths are accepted for any length, as {@link RlpEncoder} writes them for
+ * values of exactly 55 bytes. A decoder is not thread safe.</p>
+ */
+public class RlpDecoder {
+
+    private static final int STRING_OFFSET = 0x80;
+    private static final int LONG_STRING_OFFSET = 0xb7;
+    private static final int LIST_OFFSET = 0xc0;
+    private static final int LONG_LIST_OFFSET = 0xf7;
+
+    private final ByteBuffer input;
+    private int position;
+    private int limit;
+    // limits of the enclosing lists
+    private int[] limits = new int[8];
+    private int depth;
+
+    // header of the item at position, parsed on demand
+    private int headerPosition = -1;
+    private boolean headerList;
+    private int headerLength;
+    private int headerPayloadLength;
+
+    public RlpDecoder(byte[] input) {
+        this(ByteBuffer.wrap(input));
+    }
+
+    public RlpDecoder(byte[] input, int offset, int length) {
+        this(ByteBuffer.wrap(input, offset, length));
+    }
+
+    /**
+     * Decode the bytes between the position and the limit of {@code input}, which are left
+     * unchanged.
+     */
+    public RlpDecoder(ByteBuffer input) {
+        this.input = input;
+        this.position = input.position();
+        this.limit = input.limit();
+    }
+
+    /**
+     * @return the items of {@code rlpEncoded}, usually a single list
+     */
+    public static RlpList decode(byte[] rlpEncoded) {
+        RlpDecoder decoder = new RlpDecoder(rlpEncoded);
+        return new RlpList(decoder.readValues());
+    }
+
+    /**
+     * @return true if there is another item in the current list, or at the top level
+     */
+    public boolean hasNext() {
+        return position < limit;
+    }
+
+    public boolean isList() {
+        readHeader();
+        return headerList;
+    }
+
+    /**
+     * @return the nesting depth of the next item, 0 at the top level
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Enter the list at the cursor, so that the following items are its elements.
+     *
+     * @return the payload length of the list
+     */
+    public int enterList() {
+        readHeader();
+        if (!headerList) {
+            throw new IllegalStateException("Item at " + position + " is not a list");
+        }
+        if (depth == limits.length) {
+            limits = Arrays.copyOf(limits, depth << 1);
+        }
+        limits[depth++] = limit;
+        position += headerLength;
+        limit = position + headerPayloadLength;
+        return headerPayloadLength;
+    }
+
+    /**
+     * Skip the remaining elements of the current list and move past it.
+     */
+    public void exitList() {
+        if (depth == 0) {
+            throw new IllegalStateException("Not in a list");
+        }
+        position = limit;
+        limit = limits[--depth];
+    }
+
+    /**
+     * @return the string at the cursor, as a view which shares the contents of the input
+     */
+    public ByteBuffer nextString() {
+        int offset = stringOffset();
+        ByteBuffer value = input.duplicate();
+        value.limit(offset + headerPayloadLength).position(offset);
+        position = offset + headerPayloadLength;
+        return value.slice();
+    }
+
+    /**
+     * @return a copy of the string at the cursor
+     */
+    public byte[] nextBytes() {
+        int offset = stringOffset();
+        byte[] value = new byte[headerPayloadLength];
+        for (int i = 0; i < value.length; i++) {
+            value[i] = input.get(offset + i);
+        }
+        position = offset + headerPayloadLength;
+        return value;
+    }
+
+    /**
+     * @return the string at the cursor as an unsigned big endian integer
+     */
+    public BigInteger nextBigInteger() {
+        if (peekPayloadLength() < Long.SIZE / Byte.SIZE) {
+            return BigInteger.valueOf(nextLong());
+        }
+        return new BigInteger(1, nextBytes());
+    }
+
+    /**
+     * @return the string at the cursor as an unsigned big endian integer
+     * @throws ArithmeticException if the value does not fit in a long
+     */
+    public long nextLong() {
+        int offset = stringOffset();
+        long value = 0;
+        for (int i = 0; i < headerPayloadLength; i++) {
+            if ((value >>> (Long.SIZE - Byte.SIZE)) != 0) {
+                throw new ArithmeticException("Value at " + offset + " exceeds a long");
+            }
+            value = (value << Byte.SIZE) | (input.get(offset + i) & 0xff);
+        }
+        position = offset + headerPayloadLength;
+        return value;
+    }
+
+    /**
+     * Move past the item at the cursor, including all elements of a list.
+     */
+    public void skip() {
+        readHeader();
+        position += headerLength + headerPayloadLength;
+    }
+
+    /**
+     * Walk the remaining items, up to the end of the current list.
+     */
+    public void accept(Visitor visitor) {
+        while (hasNext()) {
+            if (isList()) {
+                visitor.visitListStart(enterList());
+                accept(visitor);
+                exitList();
+                visitor.visitListEnd();
+            } else {
+                visitor.visitString(nextString());
+            }
+        }
+    }
+
+    private List<RlpType> readValues() {
+        List<RlpType> values = new ArrayList<>();
+        while (hasNext()) {
+            if (isList()) {
+                enterList();
+                values.add(new RlpList(readValues()));
+                exitList();
+            } else {
+                values.add(RlpString.create(nextBytes()));
+            }
+        }
+        return values;
+    }
+
+    private int peekPayloadLength() {
+        readHeader();
+        return headerPayloadLength;
+    }
+
+    private int stringOffset() {
+        readHeader();
+        if (headerList) {
+            throw new IllegalStateException("Item at " + position + " is a list");
+        }
+        return position + headerLength;
+    }
+
+    private void readHeader() {
+        if (headerPosition == position) {
+            return;
+        }
+        if (position >= limit) {
+            throw new IllegalStateException("No item at " + position);
+        }
+
+        int prefix = input.get(position) & 0xff;
+        if (prefix < STRING_OFFSET) {
+            setHeader(false, 0, 1);
+        } else if (prefix <= LONG_STRING_OFFSET) {
+            setHeader(false, 1, prefix - STRING_OFFSET);
+        } else if (prefix < LIST_OFFSET) {
+            readLongHeader(false, prefix - LONG_STRING_OFFSET);
+        } else if (prefix <= LONG_LIST_OFFSET) {
+            setHeader(true, 1, prefix - LIST_OFFSET);
+        } else {
+            readLongHeader(true, prefix - LONG_LIST_OFFSET);
+        }
+    }
+
+    private void readLongHeader(boolean list, int lengthOfLength) {
+        if (lengthOfLength > 4 || position + 1 + lengthOfLength > limit) {
+            throw new IllegalArgumentException("Invalid length at " + position);
+        }
+        long length = 0;
+        for (int i = 1; i <= lengthOfLength; i++) {
+            length = (length << Byte.SIZE) | (input.get(position + i) & 0xff);
+        }
+        if (length > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid length at " + position);
+        }
+        setHeader(list, 1 + lengthOfLength, (int) length);
+    }
+
+    private void setHeader(boolean list, int length, int payloadLength) {
+        if ((long) position + length + payloadLength > limit) {
+            throw new IllegalArgumentException(
+                    "Item at " + position + " of " + (length + payloadLength)
+                            + " bytes exceeds its enclosing list or the input");
+        }
+        headerPosition = position;
+        headerList = list;
+        headerLength = length;
+        headerPayloadLength = payloadLength;
+    }
+
+    /**
+     * Receives the items of RLP encoded input, in order.
+     */
+    public interface Visitor {
+
+        /**
+         * @param value view of the string, which shares the contents of the input
+         */
+        void visitString(ByteBuffer value);
+
+        void visitListStart(int payloadLength);
+
+        void visitListEnd();
+    }
+}
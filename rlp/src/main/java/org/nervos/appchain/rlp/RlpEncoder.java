@@ -1,5 +1,6 @@
 package org.nervos.appchain.rlp;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.List;
 
@@ -8,6 +9,9 @@ import java.util.List;
  *
  * <p>For the specification, refer to p16 of the <a href="http://gavwood.com/paper.pdf">
  * yellow paper</a> and <a href="https://github.com/ethereum/wiki/wiki/RLP">here</a>.</p>
+ *
+ * <p>Values are encoded in two passes: the payload length of every list is measured first,
+ * then the value is written once into a buffer of the exact size.</p>
  */
 public class RlpEncoder {
 
@@ -15,77 +19,119 @@ public class RlpEncoder {
     private static final int LIST_OFFSET = 0xc0;
 
     public static byte[] encode(RlpType value) {
+        Lengths lengths = new Lengths();
+        byte[] result = new byte[measure(value, lengths)];
+        ByteBuffer buffer = ByteBuffer.wrap(result);
+        lengths.index = 0;
+        write(value, lengths, buffer);
+        return result;
+    }
+
+    /**
+     * Encode {@code value} into {@code buffer}, at its position.
+     *
+     * @throws java.nio.BufferOverflowException if the buffer does not have
+     *         {@link #encodedLength(RlpType)} bytes remaining
+     */
+    public static void encode(RlpType value, ByteBuffer buffer) {
+        Lengths lengths = new Lengths();
+        measure(value, lengths);
+        lengths.index = 0;
+        write(value, lengths, buffer);
+    }
+
+    /**
+     * @return the number of bytes {@code value} is encoded in
+     */
+    public static int encodedLength(RlpType value) {
+        return measure(value, new Lengths());
+    }
+
+    /**
+     * Record the payload length of every list in {@code value}, in pre-order.
+     *
+     * @return the encoded length of {@code value}
+     */
+    private static int measure(RlpType value, Lengths lengths) {
         if (value instanceof RlpString) {
-            return encodeString((RlpString) value);
+            byte[] bytes = ((RlpString) value).getBytes();
+            if (isSingleByte(bytes)) {
+                return 1;
+            }
+            return headerLength(bytes.length) + bytes.length;
         } else {
-            return encodeList((RlpList) value);
+            int slot = lengths.add();
+            int payloadLength = 0;
+            for (RlpType entry : ((RlpList) value).getValues()) {
+                payloadLength += measure(entry, lengths);
+            }
+            lengths.values[slot] = payloadLength;
+            return headerLength(payloadLength) + payloadLength;
         }
     }
 
-    private static byte[] encode(byte[] bytesValue, int offset) {
-        if (bytesValue.length == 1
-                && offset == STRING_OFFSET
-                && bytesValue[0] >= (byte) 0x00
-                && bytesValue[0] <= (byte) 0x7f) {
-            return bytesValue;
-        } else if (bytesValue.length < 55) {
-            byte[] result = new byte[bytesValue.length + 1];
-            result[0] = (byte) (offset + bytesValue.length);
-            System.arraycopy(bytesValue, 0, result, 1, bytesValue.length);
-            return result;
+    private static void write(RlpType value, Lengths lengths, ByteBuffer buffer) {
+        if (value instanceof RlpString) {
+            byte[] bytes = ((RlpString) value).getBytes();
+            if (isSingleByte(bytes)) {
+                buffer.put(bytes[0]);
+            } else {
+                writeHeader(bytes.length, STRING_OFFSET, buffer);
+                buffer.put(bytes);
+            }
         } else {
-            byte[] encodedStringLength = toMinimalByteArray(bytesValue.length);
-            byte[] result = new byte[bytesValue.length + encodedStringLength.length + 1];
-
-            result[0] = (byte) ((offset + 0x37) + encodedStringLength.length);
-            System.arraycopy(encodedStringLength, 0, result, 1, encodedStringLength.length);
-            System.arraycopy(
-                    bytesValue, 0, result, encodedStringLength.length + 1, bytesValue.length);
-            return result;
+            writeHeader(lengths.values[lengths.index++], LIST_OFFSET, buffer);
+            List<RlpType> values = ((RlpList) value).getValues();
+            for (RlpType entry : values) {
+                write(entry, lengths, buffer);
+            }
         }
     }
 
-    static byte[] encodeString(RlpString value) {
-        return encode(value.getBytes(), STRING_OFFSET);
+    private static boolean isSingleByte(byte[] bytes) {
+        return bytes.length == 1 && bytes[0] >= (byte) 0x00;
     }
 
-    private static byte[] toMinimalByteArray(int value) {
-        byte[] encoded = toByteArray(value);
+    private static int headerLength(int length) {
+        if (length < 55) {
+            return 1;
+        }
+        return 1 + minimalLength(length);
+    }
 
-        for (int i = 0; i < encoded.length; i++) {
-            if (encoded[i] != 0) {
-                return Arrays.copyOfRange(encoded, i, encoded.length);
+    private static void writeHeader(int length, int offset, ByteBuffer buffer) {
+        if (length < 55) {
+            buffer.put((byte) (offset + length));
+        } else {
+            int lengthOfLength = minimalLength(length);
+            buffer.put((byte) ((offset + 0x37) + lengthOfLength));
+            for (int i = lengthOfLength - 1; i >= 0; i--) {
+                buffer.put((byte) (length >>> (i << 3)));
             }
         }
-
-        return new byte[]{ };
     }
 
-    private static byte[] toByteArray(int value) {
-        return new byte[] {
-                (byte) ((value >> 24) & 0xff),
-                (byte) ((value >> 16) & 0xff),
-                (byte) ((value >> 8) & 0xff),
-                (byte) (value & 0xff)
-        };
+    /**
+     * @return the number of bytes in the big endian representation of {@code value}, without
+     *         leading zeros
+     */
+    private static int minimalLength(int value) {
+        return (Integer.SIZE - Integer.numberOfLeadingZeros(value) + 7) >>> 3;
     }
 
-    static byte[] encodeList(RlpList value) {
-        List<RlpType> values = value.getValues();
-        if (values.isEmpty()) {
-            return encode(new byte[]{ }, LIST_OFFSET);
-        } else {
-            byte[] result = new byte[0];
-            for (RlpType entry:values) {
-                result = concat(result, encode(entry));
+    /**
+     * Growable list of list payload lengths.
+     */
+    private static class Lengths {
+        private int[] values = new int[8];
+        private int size;
+        private int index;
+
+        int add() {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size << 1);
             }
-            return encode(result, LIST_OFFSET);
+            return size++;
         }
     }
-
-    private static byte[] concat(byte[] b1, byte[] b2) {
-        byte[] result = Arrays.copyOf(b1, b1.length + b2.length);
-        System.arraycopy(b2, 0, result, b1.length, b2.length);
-        return result;
-    }
 }
@@ -0,0 +1,126 @@
+package org.nervos.appchain.rlp;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class RlpDecoderTest {
+
+    @Test
+    public void testDecodeRoundTrip() {
+        List<RlpType> values = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            values.add(new RlpList(RlpString.create(i), RlpString.create(new byte[i % 70])));
+        }
+        RlpType[] examples = {
+                RlpString.create("dog"),
+                new RlpList(RlpString.create("cat"), RlpString.create("dog")),
+                RlpString.create(""),
+                new RlpList(),
+                RlpString.create(BigInteger.valueOf(0x0400)),
+                new RlpList(
+                        new RlpList(),
+                        new RlpList(new RlpList()),
+                        new RlpList(new RlpList(), new RlpList(new RlpList()))),
+                // 55 bytes, which the encoder writes in the long form
+                RlpString.create(new byte[55]),
+                RlpString.create(new byte[1024]),
+                new RlpList(values)
+        };
+
+        for (RlpType example : examples) {
+            byte[] encoded = RlpEncoder.encode(example);
+            assertThat(RlpEncoder.encodedLength(example), is(encoded.length));
+
+            ByteBuffer buffer = ByteBuffer.allocate(encoded.length + 2);
+            buffer.put((byte) 1);
+            RlpEncoder.encode(example, buffer);
+            assertThat(buffer.position(), is(encoded.length + 1));
+
+            RlpList decoded = RlpDecoder.decode(encoded);
+            assertThat(decoded.getValues().size(), is(1));
+            assertThat(RlpEncoder.encode(decoded.getValues().get(0)), is(encoded));
+        }
+    }
+
+    @Test
+    public void testCursor() {
+        byte[] encoded = RlpEncoder.encode(new RlpList(
+                RlpString.create(BigInteger.valueOf(0x0400)),
+                new RlpList(RlpString.create("skipped"), new RlpList()),
+                new RlpList(RlpString.create("zw"), RlpString.create(4)),
+                RlpString.create(BigInteger.ONE.shiftLeft(100))));
+        byte[] input = new byte[encoded.length + 4];
+        System.arraycopy(encoded, 0, input, 2, encoded.length);
+
+        RlpDecoder decoder = new RlpDecoder(input, 2, encoded.length);
+        assertThat(decoder.isList(), is(true));
+        decoder.enterList();
+        assertThat(decoder.getDepth(), is(1));
+        assertThat(decoder.nextLong(), is(0x0400L));
+        decoder.skip();
+
+        decoder.enterList();
+        ByteBuffer string = decoder.nextString();
+        assertThat(string.remaining(), is(2));
+        assertThat(string.array(), is(input));
+        assertThat(string.get(0), is((byte) 'z'));
+        decoder.exitList();
+
+        assertThat(decoder.nextBigInteger(), is(BigInteger.ONE.shiftLeft(100)));
+        assertThat(decoder.hasNext(), is(false));
+        decoder.exitList();
+        assertThat(decoder.hasNext(), is(false));
+    }
+
+    @Test
+    public void testVisitor() {
+        byte[] encoded = RlpEncoder.encode(new RlpList(
+                RlpString.create("cat"), new RlpList(RlpString.create("dog")), new RlpList()));
+        final StringBuilder visited = new StringBuilder();
+        new RlpDecoder(encoded).accept(new RlpDecoder.Visitor() {
+            @Override
+            public void visitString(ByteBuffer value) {
+                byte[] bytes = new byte[value.remaining()];
+                value.get(bytes);
+                visited.append(new String(bytes));
+            }
+
+            @Override
+            public void visitListStart(int payloadLength) {
+                visited.append('[').append(payloadLength).append(':');
+            }
+
+            @Override
+            public void visitListEnd() {
+                visited.append(']');
+            }
+        });
+        assertThat(visited.toString(), is("[10:cat[4:dog][0:]]"));
+    }
+
+    @Test
+    public void testInvalidInput() {
+        byte[][] invalid = {
+                { (byte) 0x83, 'd', 'o' },
+                { (byte) 0xc2, (byte) 0x83, 'd', 'o', 'g' },
+                { (byte) 0xb9, 0x01 },
+                { (byte) 0xbc, 1, 2, 3, 4, 5 },
+        };
+        for (byte[] input : invalid) {
+            try {
+                RlpDecoder.decode(input);
+                fail();
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+}
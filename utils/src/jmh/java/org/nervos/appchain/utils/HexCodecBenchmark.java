@@ -0,0 +1,113 @@
+package org.nervos.appchain.utils;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares {@link HexCodec} with the string based conversions it replaced in
+ * {@code ConvertStrByte} and {@link Numeric}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HexCodecBenchmark {
+
+    @Param({"32", "256", "4096"})
+    private int size;
+
+    private byte[] bytes;
+    private String hex;
+    private char[] charBuffer;
+    private byte[] byteBuffer;
+
+    @Setup
+    public void setUp() {
+        bytes = new byte[size];
+        new Random(42).nextBytes(bytes);
+        hex = HexCodec.encode(bytes, false);
+        charBuffer = new char[size * 2];
+        byteBuffer = new byte[size];
+    }
+
+    @Benchmark
+    public String encodeLegacyStringBuffer() {
+        StringBuffer result = new StringBuffer();
+        String digits;
+        for (int i = 0; i < bytes.length; i++) {
+            digits = Integer.toHexString(bytes[i] & 0xFF);
+            if (digits.length() == 1) {
+                digits = '0' + digits;
+            }
+            result.append(digits);
+        }
+        return result.toString();
+    }
+
+    @Benchmark
+    public String encodeLegacyFormat() {
+        StringBuilder stringBuilder = new StringBuilder();
+        for (int i = 0; i < bytes.length; i++) {
+            stringBuilder.append(String.format("%02x", bytes[i] & 0xFF));
+        }
+        return stringBuilder.toString();
+    }
+
+    @Benchmark
+    public String encode() {
+        return HexCodec.encode(bytes, false);
+    }
+
+    @Benchmark
+    public char[] encodeIntoBuffer() {
+        HexCodec.encode(bytes, 0, bytes.length, charBuffer, 0);
+        return charBuffer;
+    }
+
+    @Benchmark
+    public byte[] decodeLegacySubstring() {
+        int l = hex.length() / 2;
+        byte[] ret = new byte[l];
+        for (int i = 0; i < l; i++) {
+            ret[i] = (byte) Integer
+                    .valueOf(hex.substring(i * 2, i * 2 + 2), 16).byteValue();
+        }
+        return ret;
+    }
+
+    @Benchmark
+    public byte[] decodeLegacyCharacterDigit() {
+        int len = hex.length();
+        byte[] data = new byte[len / 2];
+        for (int i = 0; i < len; i += 2) {
+            data[(i + 1) / 2] = (byte) ((Character.digit(hex.charAt(i), 16) << 4)
+                    + Character.digit(hex.charAt(i + 1), 16));
+        }
+        return data;
+    }
+
+    @Benchmark
+    public byte[] decode() {
+        return HexCodec.decode(hex);
+    }
+
+    @Benchmark
+    public byte[] decodeIntoBuffer() {
+        HexCodec.decode(hex, 0, hex.length(), byteBuffer, 0);
+        return byteBuffer;
+    }
+}
@@ -4,6 +4,7 @@ import java.nio.charset.StandardCharsets;
 
 import org.bouncycastle.jcajce.provider.digest.Keccak;
 
+import org.nervos.appchain.utils.HexCodec;
 import org.nervos.appchain.utils.Numeric;
 
 /**
@@ -20,8 +21,7 @@ public class Hash {
      */
     public static String sha3(String hexInput) {
         byte[] bytes = Numeric.hexStringToByteArray(hexInput);
-        byte[] result = sha3(bytes);
-        return Numeric.toHexString(result);
+        return HexCodec.encode(sha3(bytes), true);
     }
 
     /**
@@ -0,0 +1,129 @@
+package org.nervos.appchain.utils;
+
+import org.nervos.appchain.exceptions.MessageDecodingException;
+
+/**
+ * <p>Lookup table based hex encoder and decoder.</p>
+ *
+ * <p>Both directions can work on a slice of the input and write into caller supplied buffers,
+ * so hot paths such as transaction signing do not need intermediate strings.</p>
+ */
+public final class HexCodec {
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    // two lower case hex digits for every unsigned byte value
+    private static final char[] BYTE_TO_HEX = new char[512];
+
+    // nibble value of an ASCII hex digit, or -1 if the character is not a hex digit
+    private static final byte[] HEX_TO_NIBBLE = new byte[128];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            BYTE_TO_HEX[i << 1] = HEX_DIGITS[i >>> 4];
+            BYTE_TO_HEX[(i << 1) + 1] = HEX_DIGITS[i & 0x0f];
+        }
+
+        for (int i = 0; i < HEX_TO_NIBBLE.length; i++) {
+            HEX_TO_NIBBLE[i] = -1;
+        }
+        for (int i = 0; i < 10; i++) {
+            HEX_TO_NIBBLE['0' + i] = (byte) i;
+        }
+        for (int i = 0; i < 6; i++) {
+            HEX_TO_NIBBLE['a' + i] = (byte) (10 + i);
+            HEX_TO_NIBBLE['A' + i] = (byte) (10 + i);
+        }
+    }
+
+    private HexCodec() {
+    }
+
+    /**
+     * Write the hex representation of {@code src[srcOffset, srcOffset + length)} into
+     * {@code dest}, starting at {@code destOffset}.
+     *
+     * @return the offset in {@code dest} following the last character written
+     */
+    public static int encode(byte[] src, int srcOffset, int length, char[] dest, int destOffset) {
+        int end = srcOffset + length;
+        for (int i = srcOffset; i < end; i++) {
+            int index = (src[i] & 0xff) << 1;
+            dest[destOffset++] = BYTE_TO_HEX[index];
+            dest[destOffset++] = BYTE_TO_HEX[index + 1];
+        }
+        return destOffset;
+    }
+
+    public static String encode(byte[] src, int srcOffset, int length, boolean withPrefix) {
+        char[] result;
+        int destOffset;
+        if (withPrefix) {
+            result = new char[(length << 1) + 2];
+            result[0] = '0';
+            result[1] = 'x';
+            destOffset = 2;
+        } else {
+            result = new char[length << 1];
+            destOffset = 0;
+        }
+        encode(src, srcOffset, length, result, destOffset);
+        return new String(result);
+    }
+
+    public static String encode(byte[] src, boolean withPrefix) {
+        return encode(src, 0, src.length, withPrefix);
+    }
+
+    /**
+     * Number of bytes produced by decoding {@code hexLength} hex digits. An odd number of
+     * digits is treated as having an implicit leading zero.
+     */
+    public static int decodedLength(int hexLength) {
+        return (hexLength + 1) >>> 1;
+    }
+
+    /**
+     * Decode the hex digits {@code src[srcOffset, srcOffset + length)} into {@code dest},
+     * starting at {@code destOffset}. The input must not contain a 0x prefix.
+     *
+     * @return the number of bytes written
+     * @throws MessageDecodingException if the input contains a non hex character
+     */
+    public static int decode(
+            CharSequence src, int srcOffset, int length, byte[] dest, int destOffset) {
+        int end = srcOffset + length;
+        int i = srcOffset;
+        int d = destOffset;
+
+        if ((length & 1) != 0) {
+            dest[d++] = (byte) nibble(src, i++);
+        }
+        while (i < end) {
+            int high = nibble(src, i++);
+            int low = nibble(src, i++);
+            dest[d++] = (byte) ((high << 4) | low);
+        }
+        return d - destOffset;
+    }
+
+    public static byte[] decode(CharSequence src, int srcOffset, int length) {
+        byte[] result = new byte[decodedLength(length)];
+        decode(src, srcOffset, length, result, 0);
+        return result;
+    }
+
+    public static byte[] decode(CharSequence src) {
+        return decode(src, 0, src.length());
+    }
+
+    private static int nibble(CharSequence src, int index) {
+        char c = src.charAt(index);
+        int value = c < HEX_TO_NIBBLE.length ? HEX_TO_NIBBLE[c] : -1;
+        if (value < 0) {
+            throw new MessageDecodingException(
+                    "Invalid hex character '" + c + "' at index " + index);
+        }
+        return value;
+    }
+}
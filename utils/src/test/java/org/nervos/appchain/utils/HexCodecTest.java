@@ -0,0 +1,75 @@
+package org.nervos.appchain.utils;
+
+import org.junit.Test;
+
+import org.nervos.appchain.exceptions.MessageDecodingException;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class HexCodecTest {
+
+    private static final byte[] HEX_RANGE_ARRAY = new byte[] {
+            asByte(0x0, 0x1),
+            asByte(0x2, 0x3),
+            asByte(0x4, 0x5),
+            asByte(0x6, 0x7),
+            asByte(0x8, 0x9),
+            asByte(0xa, 0xb),
+            asByte(0xc, 0xd),
+            asByte(0xe, 0xf)
+    };
+
+    private static final String HEX_RANGE_STRING = "0123456789abcdef";
+
+    @Test
+    public void testEncode() {
+        assertThat(HexCodec.encode(new byte[] {}, false), is(""));
+        assertThat(HexCodec.encode(new byte[] {}, true), is("0x"));
+        assertThat(HexCodec.encode(HEX_RANGE_ARRAY, false), is(HEX_RANGE_STRING));
+        assertThat(HexCodec.encode(new byte[] { (byte) 0xff, 0x00, 0x7f }, true),
+                is("0xff007f"));
+        assertThat(HexCodec.encode(HEX_RANGE_ARRAY, 2, 3, false), is("456789"));
+    }
+
+    @Test
+    public void testEncodeIntoBuffer() {
+        char[] dest = "zz--------zz".toCharArray();
+        int end = HexCodec.encode(HEX_RANGE_ARRAY, 6, 2, dest, 2);
+        assertThat(end, is(6));
+        assertThat(new String(dest), is("zzcdef----zz"));
+    }
+
+    @Test
+    public void testDecode() {
+        assertThat(HexCodec.decode(""), is(new byte[] {}));
+        assertThat(HexCodec.decode("0"), is(new byte[] { 0 }));
+        assertThat(HexCodec.decode("123"), is(new byte[] { 0x1, 0x23 }));
+        assertThat(HexCodec.decode(HEX_RANGE_STRING), is(HEX_RANGE_ARRAY));
+        assertThat(HexCodec.decode("0123456789ABCDEF"), is(HEX_RANGE_ARRAY));
+        assertThat(HexCodec.decode("0xff7f", 2, 4), is(new byte[] { (byte) 0xff, 0x7f }));
+    }
+
+    @Test
+    public void testDecodeIntoBuffer() {
+        byte[] dest = new byte[4];
+        int written = HexCodec.decode("0xabc", 2, 3, dest, 1);
+        assertThat(written, is(2));
+        assertThat(dest, is(new byte[] { 0, 0x0a, (byte) 0xbc, 0 }));
+        assertThat(HexCodec.decodedLength(3), is(2));
+    }
+
+    @Test(expected = MessageDecodingException.class)
+    public void testDecodeInvalidCharacter() {
+        HexCodec.decode("0g");
+    }
+
+    @Test(expected = MessageDecodingException.class)
+    public void testDecodeNonAsciiCharacter() {
+        HexCodec.decode("0\u0661");
+    }
+
+    private static byte asByte(int m, int n) {
+        return (byte) ((m << 4) | n);
+    }
+}